@@ -33,6 +33,7 @@ public enum AppProperty {
     BACKUP_LOCALDB_COUNT                            ("backup.localdb.count"),
     CACHE_ENABLE                                    ("cache.enable"),
     CACHE_MEMORY_MAX_ITEMS                          ("cache.memory.maxItems"),
+    CACHE_MEMORY_MAX_BINARY_BYTES                   ("cache.memory.maxBinaryBytes"),
     CACHE_PWRULECHECK_LIFETIME_MS                   ("cache.pwRuleCheckLifetimeMS"),
     CLIENT_ACTIVITY_MAX_EPS_RATE                    ("client.ajax.activityMaxEpsRate"),
     CLIENT_AJAX_PW_WAIT_CHECK_SECONDS               ("client.ajax.changePasswordWaitCheckSeconds"),
@@ -50,13 +51,24 @@ public enum AppProperty {
     CONFIG_FILE_SCAN_FREQUENCY                      ("config.fileScanFrequencyMS"),
     CONFIG_NEWUSER_PASSWORD_POLICY_CACHE_MS         ("config.newuser.passwordPolicyCacheMS"),
     CONFIG_GUIDE_IDLE_TIMEOUT                       ("config.guide.idleTimeoutSeconds"),
+    DB_CONNECTIONS_MAX                              ("db.connections.max"),
+    DB_CONNECTIONS_TIMEOUT_MS                       ("db.connections.timeoutMS"),
+    DB_CONNECTIONS_VALIDATE_INTERVAL_MS             ("db.connections.validateIntervalMS"),
+    DB_STATEMENT_CACHE_SIZE                         ("db.statementCacheSize"),
+    EVENTS_LDAP_JSON_FORMAT                         ("events.ldap.jsonFormat"),
+    EVENTS_LDAP_MAX_AGE_MS                          ("events.ldap.maxAgeMs"),
     FORM_EMAIL_REGEX                                ("form.email.regexTest"),
-    HTTP_RESOURCES_MAX_CACHE_ITEMS                  ("http.resources.maxCacheItems"),
+    HTTP_RESOURCES_MAX_INDEX_BYTES                  ("http.resources.maxIndexBytes"),
     HTTP_RESOURCES_MAX_CACHE_BYTES                  ("http.resources.maxCacheBytes"),
     HTTP_RESOURCES_EXPIRATION_SECONDS               ("http.resources.expirationSeconds"),
     HTTP_RESOURCES_ENABLE_GZIP                      ("http.resources.gzip.enable"),
     HTTP_RESOURCES_ENABLE_PATH_NONCE                ("http.resources.pathNonceEnable"),
     HTTP_RESOURCES_NONCE_PATH_PREFIX                ("http.resources.pathNoncePrefix"),
+    HTTP_CLIENT_CONNECT_TIMEOUT_MS                  ("http.client.connectTimeoutMs"),
+    HTTP_CLIENT_IDLE_TIMEOUT_MS                     ("http.client.idleTimeoutMs"),
+    HTTP_CLIENT_MAX_CONNECTIONS                     ("http.client.maxConnections"),
+    HTTP_CLIENT_MAX_CONNECTIONS_PER_ROUTE           ("http.client.maxConnectionsPerRoute"),
+    HTTP_CLIENT_SOCKET_TIMEOUT_MS                   ("http.client.socketTimeoutMs"),
     HTTP_COOKIE_THEME_NAME                          ("http.cookie.theme.name"),
     HTTP_COOKIE_THEME_AGE                           ("http.cookie.theme.age"),
     HTTP_COOKIE_LOCALE_NAME                         ("http.cookie.locale.name"),
@@ -110,6 +122,8 @@ public enum AppProperty {
     INTRUDER_DELAY_PER_COUNT_MS                     ("intruder.delayPerCountMS"),
     INTRUDER_DELAY_MAX_JITTER_MS                    ("intruder.delayMaxJitterMS"),
     HEALTH_MIN_CHECK_INTERVAL_SECONDS               ("health.minimumCheckIntervalSeconds"),
+    HEALTH_CHECK_TIMEOUT_MS                         ("health.checkTimeoutMs"),
+    HEALTH_CERTIFICATE_CHECK_INTERVAL_SECONDS       ("health.certificate.checkIntervalSeconds"),
     HEALTH_CERTIFICATE_WARN_SECONDS                 ("health.certificate.warnSeconds"),
     HEALTH_LDAP_CAUTION_DURATION_MS                 ("health.ldap.cautionDurationMS"),
     HEALTH_JAVA_MAX_THREADS                         ("health.java.maxThreads"),
@@ -122,6 +136,8 @@ public enum AppProperty {
     LDAP_SEARCH_TIMEOUT                             ("ldap.search.timeoutMS"),
     LDAP_PASSWORD_REPLICA_CHECK_INIT_DELAY_MS       ("ldap.password.replicaCheck.initialDelayMS"),
     LDAP_PASSWORD_REPLICA_CHECK_CYCLE_DELAY_MS      ("ldap.password.replicaCheck.cycleDelayMS"),
+    LDAP_PASSWORD_REPLICA_CHECK_TIMEOUT_MS          ("ldap.password.replicaCheck.timeoutMS"),
+    LDAP_PASSWORD_REPLICA_CHECK_MAX_THREADS         ("ldap.password.replicaCheck.maxThreads"),
     LDAP_GUID_PATTERN                               ("ldap.guid.pattern"),
     LOGGING_PATTERN                                 ("logging.pattern"),
     LOGGING_FILE_MAX_SIZE                           ("logging.file.maxSize"),
@@ -132,7 +148,8 @@ public enum AppProperty {
     NMAS_THREADS_MAX_COUNT                          ("nmas.threads.maxCount"),
     NMAS_THREADS_MIN_SECONDS                        ("nmas.threads.minSeconds"),
     NMAS_THREADS_MAX_SECONDS                        ("nmas.threads.maxSeconds"),
-    NMAS_THREADS_WATCHDOG_FREQUENCY                 ("nmas.threads.watchdogFrequencyMs"),
+    NMAS_THREADS_MAX_QUEUED                         ("nmas.threads.maxQueued"),
+    NMAS_THREADS_MAX_QUEUE_WAIT_SECONDS             ("nmas.threads.maxQueueWaitSeconds"),
     OAUTH_ID_REQUEST_TYPE                           ("oauth.id.requestType"),
     OAUTH_ID_ACCESS_GRANT_TYPE                      ("oauth.id.accessGrantType"),
     OAUTH_ID_REFRESH_GRANT_TYPE                     ("oauth.id.refreshGrantType"),
@@ -152,22 +169,46 @@ public enum AppProperty {
     PASSWORD_RANDOMGEN_MAX_ATTEMPTS                 ("password.randomGenerator.maxAttempts"),
     PASSWORD_RANDOMGEN_MAX_LENGTH                   ("password.randomGenerator.maxLength"),
     PASSWORD_RANDOMGEN_JITTER_COUNT                 ("password.randomGenerator.jitter.count"),
+    PASSWORD_RANDOMGEN_POOL_SIZE                    ("password.randomGenerator.pool.size"),
+    PASSWORD_RANDOMGEN_POOL_MAX_POLICIES            ("password.randomGenerator.pool.maxPolicies"),
+    PASSWORD_RANDOMGEN_POOL_IDLE_TIMEOUT_MS         ("password.randomGenerator.pool.idleTimeoutMs"),
+    SEEDLIST_INDEX_MAX_BYTES                        ("seedlist.index.maxBytes"),
     PEOPLESEARCH_DISPLAYNAME_USEALLMACROS           ("peoplesearch.displayName.enableAllMacros"),
     PEOPLESEARCH_MAX_VALUE_COUNT                    ("peoplesearch.maxValueCount"),
+    PEOPLESEARCH_PHOTO_MAX_DIMENSION                ("peoplesearch.photo.maxDimension"),
+    QUEUE_AUDIT_BATCH_SIZE                          ("queue.audit.batchSize"),
+    QUEUE_AUDIT_MAX_AGE_MS                          ("queue.audit.maxAgeMs"),
+    QUEUE_AUDIT_RETRY_MAX_MS                        ("queue.audit.retryMaxMs"),
+    QUEUE_AUDIT_RETRY_MIN_MS                        ("queue.audit.retryMinMs"),
+    QUEUE_AUDIT_USER_HISTORY_DELAY_MS               ("queue.audit.userHistoryDelayMs"),
+    QUEUE_AUDIT_WARN_COUNT                          ("queue.audit.warnCount"),
     QUEUE_EMAIL_RETRY_TIMEOUT_MS                    ("queue.email.retryTimeoutMs"),
     QUEUE_EMAIL_MAX_AGE_MS                          ("queue.email.maxAgeMs"),
     QUEUE_EMAIL_MAX_COUNT                           ("queue.email.maxCount"),
+    QUEUE_EMAIL_MAX_CONNECTIONS                     ("queue.email.maxConnections"),
+    QUEUE_EMAIL_MAX_MESSAGES_PER_CONNECTION         ("queue.email.maxMessagesPerConnection"),
+    QUEUE_EMAIL_CONNECTION_IDLE_TIMEOUT_MS          ("queue.email.connectionIdleTimeoutMs"),
+    QUEUE_EMAIL_WORKERS                             ("queue.email.workers"),
     QUEUE_SMS_RETRY_TIMEOUT_MS                      ("queue.sms.retryTimeoutMs"),
     QUEUE_SMS_MAX_AGE_MS                            ("queue.sms.maxAgeMs"),
     QUEUE_SMS_MAX_COUNT                             ("queue.sms.maxCount"),
+    QUEUE_SMS_WORKERS                               ("queue.sms.workers"),
     QUEUE_SYSLOG_RETRY_TIMEOUT_MS                   ("queue.syslog.retryTimeoutMs"),
     QUEUE_SYSLOG_MAX_AGE_MS                         ("queue.syslog.maxAgeMs"),
     QUEUE_SYSLOG_MAX_COUNT                          ("queue.syslog.maxCount"),
     QUEUE_MAX_CLOSE_TIMEOUT_MS                      ("queue.maxCloseTimeoutMs"),
+    QUEUE_RETRY_MAX_TIMEOUT_MS                      ("queue.retryMaxTimeoutMs"),
+    QUEUE_DEAD_LETTER_MAX_COUNT                     ("queue.deadLetterMaxCount"),
     RECAPTCHA_CLIENT_JS_URL("recaptcha.clientJsUrl"),
     RECAPTCHA_CLIENT_IFRAME_URL                     ("recaptcha.clientIframeUrl"),
     RECAPTCHA_VALIDATE_URL                          ("recaptcha.validateUrl"),
     REPORTING_LDAP_SEARCH_TIMEOUT                   ("reporting.ldap.searchTimeoutMs"),
+    REPORTING_LDAP_WORKER_THREADS                   ("reporting.ldap.workerThreads"),
+    REPORTING_LDAP_MAX_OPERATIONS_PER_SECOND        ("reporting.ldap.maxOperationsPerSecond"),
+    REPORTING_INCREMENTAL_ENABLE                    ("reporting.incremental.enable"),
+    REPORTING_INCREMENTAL_CHANGE_ATTRIBUTE          ("reporting.incremental.changeAttribute"),
+    REPORTING_INCREMENTAL_FULL_INTERVAL_MS          ("reporting.incremental.fullRefreshIntervalMs"),
+    REPORTING_INCREMENTAL_OVERLAP_MS                ("reporting.incremental.overlapMs"),
     SECURITY_STRIP_INLINE_JAVASCRIPT                ("security.html.stripInlineJavascript"),
     SECURITY_HTTP_STRIP_HEADER_REGEX                ("security.http.stripHeaderRegex"),
     SECURITY_RESPONSES_HASH_ITERATIONS              ("security.responses.hashIterations"),
@@ -177,9 +218,17 @@ public enum AppProperty {
     SECURITY_SHAREDHISTORY_HASH_ITERATIONS          ("security.sharedHistory.hashIterations"),
     SECURITY_SHAREDHISTORY_HASH_NAME                ("security.sharedHistory.hashName"),
     SECURITY_SHAREDHISTORY_CASE_INSENSITIVE         ("security.sharedHistory.caseInsensitive"),
+    SECURITY_SHAREDHISTORY_FILTER_FALSE_POSITIVE_RATE ("security.sharedHistory.filter.falsePositiveRate"),
+    SECURITY_SHAREDHISTORY_FILTER_MAX_BYTES         ("security.sharedHistory.filter.maxBytes"),
+    SERVICES_STARTUP_MAX_THREADS                    ("services.startup.maxThreads"),
+    SERVICES_STARTUP_TIMEOUT_MS                     ("services.startup.timeoutMS"),
+    SERVICES_SHUTDOWN_MAX_THREADS                   ("services.shutdown.maxThreads"),
+    SERVICES_SHUTDOWN_TIMEOUT_MS                    ("services.shutdown.timeoutMS"),
     TOKEN_REMOVAL_DELAY_MS                          ("token.removalDelayMS"),
     TOKEN_PURGE_BATCH_SIZE                          ("token.purgeBatchSize"),
     TOKEN_MAX_UNIQUE_CREATE_ATTEMPTS                ("token.maxUniqueCreateAttempts"),
+    TOKEN_EXPIRY_INDEX_BUCKET_MS                    ("token.expiryIndex.bucketMS"),
+    TOKEN_EXPIRY_INDEX_REBUILD_INTERVAL_MS          ("token.expiryIndex.rebuildIntervalMS"),
     
     /** Regular expression to be used for matching URLs to be shortened by the URL Shortening Service Class. */
     URL_SHORTNER_URL_REGEX                          ("urlshortener.url.regex"),
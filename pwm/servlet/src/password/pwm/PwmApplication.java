@@ -39,7 +39,9 @@ import password.pwm.event.AuditEvent;
 import password.pwm.event.AuditManager;
 import password.pwm.event.SystemAuditRecord;
 import password.pwm.health.HealthMonitor;
+import password.pwm.http.client.HttpClientService;
 import password.pwm.ldap.LdapConnectionService;
+import password.pwm.ldap.ReplicationStatusService;
 import password.pwm.token.TokenService;
 import password.pwm.util.*;
 import password.pwm.util.cache.CacheService;
@@ -65,6 +67,7 @@ import password.pwm.wordlist.WordlistManager;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A repository for objects common to the servlet context.  A singleton
@@ -112,7 +115,8 @@ public class PwmApplication {
     private LocalDB localDB;
     private LocalDBLogger localDBLogger;
 
-    private final Map<Class<? extends PwmService>,PwmService> pwmServices = new LinkedHashMap<>();
+    private final Map<Class<? extends PwmService>,PwmService> pwmServices = new ConcurrentHashMap<>();
+    private boolean servicesClosing;
 
     private final Date startupTime = new Date();
     private Date installTime = new Date();
@@ -122,26 +126,49 @@ public class PwmApplication {
 
     private MODE applicationMode;
 
-    private static final List<Class<? extends PwmService>> PWM_SERVICE_CLASSES  = Collections.unmodifiableList(Arrays.asList(
-            LdapConnectionService.class,
-            DatabaseAccessorImpl.class,
-            SharedHistoryManager.class,
-            HealthMonitor.class,
-            AuditManager.class,
-            StatisticsManager.class,
-            WordlistManager.class,
-            SeedlistManager.class,
-            EmailQueueManager.class,
-            SmsQueueManager.class,
-            UrlShortenerService.class,
-            TokenService.class,
-            VersionChecker.class,
-            IntruderManager.class,
-            ReportService.class,
-            CrService.class,
-            OtpService.class,
-            CacheService.class
-    ));
+    /**
+     * Services in declaration order, each with the services it uses during init, from threads started by init, or
+     * while closing.  Services are initialized as soon as their dependencies are, and closed once their dependents
+     * are, so services that do not depend on each other are initialized and closed in parallel.
+     */
+    private static final Map<Class<? extends PwmService>,List<Class<? extends PwmService>>> PWM_SERVICE_CLASSES;
+    static {
+        final Map<Class<? extends PwmService>,List<Class<? extends PwmService>>> serviceClasses = new LinkedHashMap<>();
+        serviceClasses.put(LdapConnectionService.class, dependencies());
+        serviceClasses.put(HttpClientService.class, dependencies());
+        serviceClasses.put(DatabaseAccessorImpl.class, dependencies());
+        serviceClasses.put(SharedHistoryManager.class, dependencies());
+        serviceClasses.put(HealthMonitor.class, dependencies());
+        serviceClasses.put(AuditManager.class, dependencies(DatabaseAccessorImpl.class, LdapConnectionService.class, EmailQueueManager.class));
+        serviceClasses.put(StatisticsManager.class, dependencies(LdapConnectionService.class, HttpClientService.class));
+        serviceClasses.put(WordlistManager.class, dependencies());
+        serviceClasses.put(SeedlistManager.class, dependencies());
+        serviceClasses.put(EmailQueueManager.class, dependencies(StatisticsManager.class));
+        serviceClasses.put(SmsQueueManager.class, dependencies(StatisticsManager.class, HttpClientService.class, UrlShortenerService.class));
+        serviceClasses.put(UrlShortenerService.class, dependencies(HttpClientService.class));
+        serviceClasses.put(TokenService.class, dependencies(DatabaseAccessorImpl.class, LdapConnectionService.class, AuditManager.class, EmailQueueManager.class, StatisticsManager.class, IntruderManager.class));
+        serviceClasses.put(VersionChecker.class, dependencies(HttpClientService.class));
+        serviceClasses.put(IntruderManager.class, dependencies(DatabaseAccessorImpl.class, AuditManager.class, EmailQueueManager.class, StatisticsManager.class));
+        serviceClasses.put(ReportService.class, dependencies(LdapConnectionService.class));
+        serviceClasses.put(CrService.class, dependencies(DatabaseAccessorImpl.class, LdapConnectionService.class, WordlistManager.class, StatisticsManager.class, IntruderManager.class));
+        serviceClasses.put(OtpService.class, dependencies(DatabaseAccessorImpl.class, LdapConnectionService.class));
+        serviceClasses.put(CacheService.class, dependencies());
+        serviceClasses.put(RandomPasswordPool.class, dependencies(StatisticsManager.class));
+        serviceClasses.put(ReplicationStatusService.class, dependencies(LdapConnectionService.class));
+
+        // the health monitor checks every other service, so it starts after and closes before all of them
+        final List<Class<? extends PwmService>> monitoredServices = new ArrayList<>(serviceClasses.keySet());
+        monitoredServices.remove(HealthMonitor.class);
+        serviceClasses.put(HealthMonitor.class, Collections.unmodifiableList(monitoredServices));
+        PWM_SERVICE_CLASSES = Collections.unmodifiableMap(serviceClasses);
+    }
+
+    private static final PwmServiceScheduler SERVICE_SCHEDULER = new PwmServiceScheduler(PWM_SERVICE_CLASSES);
+
+    @SafeVarargs
+    private static List<Class<? extends PwmService>> dependencies(final Class<? extends PwmService>... serviceClasses) {
+        return Collections.unmodifiableList(Arrays.asList(serviceClasses));
+    }
 
 
     public PwmApplication(
@@ -198,8 +225,10 @@ public class PwmApplication {
     public List<PwmService> getPwmServices() {
         final List<PwmService> pwmServices = new ArrayList<>();
         pwmServices.add(this.localDBLogger);
-        pwmServices.addAll(this.pwmServices.values());
-        pwmServices.remove(null);
+        for (final Class<? extends PwmService> serviceClass : PWM_SERVICE_CLASSES.keySet()) {
+            pwmServices.add(this.pwmServices.get(serviceClass));
+        }
+        pwmServices.removeAll(Collections.singleton(null));
         return Collections.unmodifiableList(pwmServices);
     }
 
@@ -227,6 +256,10 @@ public class PwmApplication {
         return (SmsQueueManager)pwmServices.get(SmsQueueManager.class);
     }
 
+    public HttpClientService getHttpClientService() {
+        return (HttpClientService)pwmServices.get(HttpClientService.class);
+    }
+
     public UrlShortenerService getUrlShortener() {
         return (UrlShortenerService)pwmServices.get(UrlShortenerService.class);
     }
@@ -323,33 +356,7 @@ public class PwmApplication {
         LOGGER.info(logEnvironment());
         LOGGER.info(logDebugInfo());
 
-        for (final Class serviceClass : PWM_SERVICE_CLASSES) {
-            final PwmService newServiceInstance;
-            try {
-                final Object newInstance = serviceClass.newInstance();
-                newServiceInstance = (PwmService)newInstance;
-            } catch (Exception e) {
-                final String errorMsg = "unexpected error instantiating service class '" + serviceClass.getName() + "', error: " + e.toString();
-                LOGGER.fatal(errorMsg,e);
-                throw new IllegalStateException(errorMsg);
-            }
-
-            try {
-                LOGGER.debug("initializing service " + serviceClass.getName());
-                newServiceInstance.init(this);
-                LOGGER.debug("initialization of service " + serviceClass.getName() + " has completed successfully");
-            } catch (PwmException e) {
-                LOGGER.warn("error instantiating service class '" + serviceClass.getName() + "', service will remain unavailable, error: " + e.getMessage());
-            } catch (Exception e) {
-                String errorMsg = "unexpected error instantiating service class '" + serviceClass.getName() + "', cannot load, error: " + e.getMessage();
-                if (e.getCause() != null) {
-                    errorMsg += ", cause: " + e.getCause();
-                }
-                LOGGER.fatal(errorMsg);
-                throw new IllegalStateException(errorMsg,e);
-            }
-            pwmServices.put(serviceClass,newServiceInstance);
-        }
+        initServices();
 
         final TimeDuration totalTime = TimeDuration.fromCurrent(startTime);
         LOGGER.info(PwmConstants.PWM_APP_NAME + " " + PwmConstants.SERVLET_VERSION + " open for bidness! (" + totalTime.asCompactString() + ")");
@@ -402,6 +409,118 @@ public class PwmApplication {
         }
     }
 
+    private void initServices() {
+        final Map<Class<? extends PwmService>,PwmService> newServices = new HashMap<>();
+        for (final Class<? extends PwmService> serviceClass : PWM_SERVICE_CLASSES.keySet()) {
+            try {
+                newServices.put(serviceClass, serviceClass.newInstance());
+            } catch (Exception e) {
+                final String errorMsg = "unexpected error instantiating service class '" + serviceClass.getName() + "', error: " + e.toString();
+                LOGGER.fatal(errorMsg,e);
+                throw new IllegalStateException(errorMsg);
+            }
+        }
+
+        final TimeDuration timeout = new TimeDuration(configuration.readAppPropertyAsLong(AppProperty.SERVICES_STARTUP_TIMEOUT_MS));
+        final PwmServiceScheduler.Report report = SERVICE_SCHEDULER.runInDependencyOrder(
+                new PwmServiceScheduler.ServiceAction() {
+                    public void execute(final Class<? extends PwmService> serviceClass) {
+                        initService(serviceClass, newServices.get(serviceClass));
+                    }
+                },
+                configuration.readAppPropertyAsInt(AppProperty.SERVICES_STARTUP_MAX_THREADS),
+                timeout,
+                Helper.makeThreadName(this, PwmServiceScheduler.class) + "-startup"
+        );
+
+        for (final PwmServiceScheduler.ServiceResult result : report.getResults(PwmServiceScheduler.Outcome.TIMED_OUT)) {
+            LOGGER.error("service " + result.getServiceClass().getName() + " did not complete initialization within "
+                    + timeout.asCompactString() + ", continuing startup without it; it will be available once its initialization completes");
+        }
+        for (final PwmServiceScheduler.ServiceResult result : report.getResults(PwmServiceScheduler.Outcome.DEFERRED)) {
+            LOGGER.warn("service " + result.getServiceClass().getName() + " depends on a service that has not completed initialization, "
+                    + "it will be initialized once its dependencies are");
+        }
+        LOGGER.info("service startup times: " + report.toDebugString());
+
+        final List<PwmServiceScheduler.ServiceResult> failures = report.getResults(PwmServiceScheduler.Outcome.FAILED);
+        if (!failures.isEmpty()) {
+            final Throwable error = failures.get(0).getError();
+            if (error instanceof IllegalStateException) {
+                throw (IllegalStateException)error;
+            }
+            throw new IllegalStateException("unexpected error initializing service class '" + failures.get(0).getServiceClass().getName() + "'", error);
+        }
+    }
+
+    private void initService(final Class<? extends PwmService> serviceClass, final PwmService newServiceInstance) {
+        synchronized (pwmServices) {
+            if (servicesClosing) {
+                LOGGER.debug("skipping initialization of service " + serviceClass.getName() + ", application is shutting down");
+                return;
+            }
+        }
+        try {
+            LOGGER.debug("initializing service " + serviceClass.getName());
+            newServiceInstance.init(this);
+            LOGGER.debug("initialization of service " + serviceClass.getName() + " has completed successfully");
+        } catch (PwmException e) {
+            LOGGER.warn("error instantiating service class '" + serviceClass.getName() + "', service will remain unavailable, error: " + e.getMessage());
+        } catch (Exception e) {
+            String errorMsg = "unexpected error instantiating service class '" + serviceClass.getName() + "', cannot load, error: " + e.getMessage();
+            if (e.getCause() != null) {
+                errorMsg += ", cause: " + e.getCause();
+            }
+            LOGGER.fatal(errorMsg);
+            throw new IllegalStateException(errorMsg,e);
+        }
+
+        // a service that completes initialization after its timeout may do so after shutdown has started
+        synchronized (pwmServices) {
+            if (!servicesClosing) {
+                pwmServices.put(serviceClass,newServiceInstance);
+                return;
+            }
+        }
+        LOGGER.debug("closing service " + serviceClass.getName() + ", initialization completed after shutdown started");
+        try {
+            newServiceInstance.close();
+        } catch (Exception e) {
+            LOGGER.error("error closing " + newServiceInstance.getClass().getSimpleName() + ": " + e.getMessage(),e);
+        }
+    }
+
+    private void closeServices() {
+        synchronized (pwmServices) {
+            servicesClosing = true;
+        }
+        final TimeDuration timeout = new TimeDuration(configuration.readAppPropertyAsLong(AppProperty.SERVICES_SHUTDOWN_TIMEOUT_MS));
+        final PwmServiceScheduler.Report report = SERVICE_SCHEDULER.runInReverseDependencyOrder(
+                new PwmServiceScheduler.ServiceAction() {
+                    public void execute(final Class<? extends PwmService> serviceClass) {
+                        final PwmService loopService = pwmServices.get(serviceClass);
+                        if (loopService != null) {
+                            LOGGER.trace("closing service " + serviceClass.getName());
+                            try {
+                                loopService.close();
+                                LOGGER.trace("successfully closed service " + serviceClass.getName());
+                            } catch (Exception e) {
+                                LOGGER.error("error closing " + loopService.getClass().getSimpleName() + ": " + e.getMessage(),e);
+                            }
+                        }
+                    }
+                },
+                configuration.readAppPropertyAsInt(AppProperty.SERVICES_SHUTDOWN_MAX_THREADS),
+                timeout,
+                Helper.makeThreadName(this, PwmServiceScheduler.class) + "-shutdown"
+        );
+
+        for (final PwmServiceScheduler.ServiceResult result : report.getResults(PwmServiceScheduler.Outcome.TIMED_OUT)) {
+            LOGGER.error("service " + result.getServiceClass().getName() + " did not close within " + timeout.asCompactString());
+        }
+        LOGGER.debug("service shutdown times: " + report.toDebugString());
+    }
+
     private Date fetchInstallDate(final Date startupTime) {
         if (localDB != null) {
             try {
@@ -484,6 +603,14 @@ public class PwmApplication {
         return (CacheService)pwmServices.get(CacheService.class);
     }
 
+    public RandomPasswordPool getRandomPasswordPool() {
+        return (RandomPasswordPool)pwmServices.get(RandomPasswordPool.class);
+    }
+
+    public ReplicationStatusService getReplicationStatusService() {
+        return (ReplicationStatusService)pwmServices.get(ReplicationStatusService.class);
+    }
+
     public void sendSmsUsingQueue(
             final SmsItemBean smsItem,
             final MacroMachine macroMachine
@@ -522,22 +649,7 @@ public class PwmApplication {
             }
         }
 
-        {
-            final List<Class> reverseServiceList = new ArrayList<Class>(PWM_SERVICE_CLASSES);
-            Collections.reverse(reverseServiceList);
-            for (final Class serviceClass : reverseServiceList) {
-                if (pwmServices.containsKey(serviceClass)) {
-                    LOGGER.trace("closing service " + serviceClass.getName());
-                    final PwmService loopService = pwmServices.get(serviceClass);
-                    LOGGER.trace("successfully closed service " + serviceClass.getName());
-                    try {
-                        loopService.close();
-                    } catch (Exception e) {
-                        LOGGER.error("error closing " + loopService.getClass().getSimpleName() + ": " + e.getMessage(),e);
-                    }
-                }
-            }
-        }
+        closeServices();
 
         if (localDBLogger != null) {
             try {
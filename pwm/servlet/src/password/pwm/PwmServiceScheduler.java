@@ -0,0 +1,490 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm;
+
+import password.pwm.util.Helper;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs an action, such as init or close, for each service once the action has finished for every service it has to
+ * wait on, with the actions of services that do not wait on each other running in parallel.
+ * <p/>
+ * Each action is timed.  An action that has not finished within the timeout is reported as timed out and the run
+ * returns without waiting for it, though it is left running and keeps its thread, so no more than the maximum number
+ * of actions ever run at once.  Services waiting on a timed out action are reported as deferred, and are only started
+ * once the action finishes, by a background thread that continues the run.  The outcome of an action that finishes
+ * after its timeout, and of each deferred service, is logged and recorded as a late result.  An action that fails
+ * holds back the services waiting on it, which are reported as skipped.
+ */
+class PwmServiceScheduler {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(PwmServiceScheduler.class);
+
+    enum Outcome {
+        COMPLETED,
+        FAILED,
+        TIMED_OUT,
+        DEFERRED,
+        SKIPPED,
+    }
+
+    interface ServiceAction {
+        void execute(Class<? extends PwmService> serviceClass) throws Exception;
+    }
+
+    private final Map<Class<? extends PwmService>, Set<Class<? extends PwmService>>> dependencies;
+    private final Map<Class<? extends PwmService>, Set<Class<? extends PwmService>>> dependents;
+
+    /**
+     * @param serviceDependencies each service, in declaration order, with the services it depends on
+     */
+    PwmServiceScheduler(final Map<Class<? extends PwmService>, ? extends Collection<Class<? extends PwmService>>> serviceDependencies) {
+        final Map<Class<? extends PwmService>, Set<Class<? extends PwmService>>> dependencies = new LinkedHashMap<>();
+        final Map<Class<? extends PwmService>, Set<Class<? extends PwmService>>> dependents = new LinkedHashMap<>();
+        for (final Class<? extends PwmService> serviceClass : serviceDependencies.keySet()) {
+            dependencies.put(serviceClass, new LinkedHashSet<Class<? extends PwmService>>());
+            dependents.put(serviceClass, new LinkedHashSet<Class<? extends PwmService>>());
+        }
+        for (final Map.Entry<Class<? extends PwmService>, ? extends Collection<Class<? extends PwmService>>> entry : serviceDependencies.entrySet()) {
+            for (final Class<? extends PwmService> dependency : entry.getValue()) {
+                if (!dependencies.containsKey(dependency)) {
+                    throw new IllegalArgumentException(entry.getKey().getName() + " depends on undeclared service " + dependency.getName());
+                }
+                dependencies.get(entry.getKey()).add(dependency);
+                dependents.get(dependency).add(entry.getKey());
+            }
+        }
+        this.dependencies = Collections.unmodifiableMap(dependencies);
+        this.dependents = Collections.unmodifiableMap(dependents);
+        checkForCycles();
+    }
+
+    /**
+     * Runs the action for each service after it has run for the services the service depends on.
+     */
+    Report runInDependencyOrder(
+            final ServiceAction action,
+            final int maxThreads,
+            final TimeDuration timeout,
+            final String threadName
+    )
+    {
+        return run(dependencies, action, maxThreads, timeout, threadName);
+    }
+
+    /**
+     * Runs the action for each service after it has run for the services that depend on the service.
+     */
+    Report runInReverseDependencyOrder(
+            final ServiceAction action,
+            final int maxThreads,
+            final TimeDuration timeout,
+            final String threadName
+    )
+    {
+        return run(dependents, action, maxThreads, timeout, threadName);
+    }
+
+    private Report run(
+            final Map<Class<? extends PwmService>, Set<Class<? extends PwmService>>> prerequisites,
+            final ServiceAction action,
+            final int maxThreads,
+            final TimeDuration timeout,
+            final String threadName
+    )
+    {
+        return new ScheduledRun(prerequisites, action, maxThreads, timeout, threadName).start();
+    }
+
+    private void checkForCycles() {
+        final Set<Class<? extends PwmService>> checked = new HashSet<>();
+        for (final Class<? extends PwmService> serviceClass : dependencies.keySet()) {
+            checkForCycles(serviceClass, new LinkedHashSet<Class<? extends PwmService>>(), checked);
+        }
+    }
+
+    private void checkForCycles(
+            final Class<? extends PwmService> serviceClass,
+            final Set<Class<? extends PwmService>> path,
+            final Set<Class<? extends PwmService>> checked
+    )
+    {
+        if (checked.contains(serviceClass)) {
+            return;
+        }
+        if (!path.add(serviceClass)) {
+            throw new IllegalArgumentException("circular service dependency involving " + serviceClass.getName());
+        }
+        for (final Class<? extends PwmService> dependency : dependencies.get(serviceClass)) {
+            checkForCycles(dependency, path, checked);
+        }
+        path.remove(serviceClass);
+        checked.add(serviceClass);
+    }
+
+    /**
+     * Schedules the actions of a single run.  The state is only accessed by the thread that started the run until it
+     * returns, and afterwards by the background thread that starts the deferred services.
+     */
+    private static class ScheduledRun {
+        private final Map<Class<? extends PwmService>, Set<Class<? extends PwmService>>> prerequisites;
+        private final int threadLimit;
+        private final long timeoutMs;
+        private final String threadName;
+        private final long startTime = System.currentTimeMillis();
+        private final Map<Class<? extends PwmService>, ServiceResult> results = new LinkedHashMap<>();
+        private final Map<Class<? extends PwmService>, Integer> waitingOn = new HashMap<>();
+        private final Map<Class<? extends PwmService>, Long> runningDeadlines = new LinkedHashMap<>();
+        private final Set<Class<? extends PwmService>> executing = new HashSet<>();
+        private final RunState runState;
+        private final ExecutorService executor;
+        private boolean returned;
+
+        private ScheduledRun(
+                final Map<Class<? extends PwmService>, Set<Class<? extends PwmService>>> prerequisites,
+                final ServiceAction action,
+                final int maxThreads,
+                final TimeDuration timeout,
+                final String threadName
+        )
+        {
+            this.prerequisites = prerequisites;
+            this.threadLimit = Math.max(1, maxThreads);
+            this.timeoutMs = timeout.getTotalMilliseconds();
+            this.threadName = threadName;
+            this.runState = new RunState(action);
+            this.executor = Executors.newFixedThreadPool(threadLimit, Helper.makePwmThreadFactory(threadName + "-", true));
+
+            for (final Class<? extends PwmService> serviceClass : prerequisites.keySet()) {
+                results.put(serviceClass, null);
+                waitingOn.put(serviceClass, prerequisites.get(serviceClass).size());
+            }
+        }
+
+        private Report start() {
+            boolean interrupted = false;
+            try {
+                schedule(false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = true;
+            }
+
+            // services that have not started are waiting on timed out actions, unless the run was interrupted
+            boolean deferred = false;
+            final List<ServiceResult> reportResults = new ArrayList<>();
+            for (final Class<? extends PwmService> serviceClass : prerequisites.keySet()) {
+                ServiceResult result = results.get(serviceClass);
+                if (result == null) {
+                    deferred = !interrupted;
+                    result = new ServiceResult(serviceClass, interrupted ? Outcome.SKIPPED : Outcome.DEFERRED, 0, null, false);
+                }
+                reportResults.add(result);
+            }
+            final Report report = new Report(reportResults, runState.lateResults, System.currentTimeMillis() - startTime);
+
+            if (!deferred) {
+                executor.shutdown();
+                return report;
+            }
+
+            returned = true;
+            final Thread deferredThread = Helper.makePwmThreadFactory(threadName + "-deferred-", true).newThread(new Runnable() {
+                public void run() {
+                    try {
+                        schedule(true);
+                    } catch (InterruptedException e) {
+                        LOGGER.warn("interrupted while waiting to start deferred services");
+                    } finally {
+                        executor.shutdown();
+                    }
+                }
+            });
+            deferredThread.start();
+            return report;
+        }
+
+        /**
+         * Starts ready services and handles finished and timed out actions.
+         *
+         * @param untilAllFinished if false, returns once every running action has finished or timed out; if true, waits
+         *                         for timed out actions too, so the services waiting on them can be started or skipped
+         */
+        private void schedule(final boolean untilAllFinished) throws InterruptedException {
+            while (true) {
+                // start ready services in declaration order, counting timed out actions that still hold a thread
+                boolean readyWaiting = false;
+                for (final Class<? extends PwmService> serviceClass : prerequisites.keySet()) {
+                    if (waitingOn.get(serviceClass) == 0 && results.get(serviceClass) == null && !executing.contains(serviceClass)) {
+                        if (executing.size() >= threadLimit) {
+                            readyWaiting = true;
+                            break;
+                        }
+                        executing.add(serviceClass);
+                        runningDeadlines.put(serviceClass, System.currentTimeMillis() + timeoutMs);
+                        executor.execute(new ActionRunner(serviceClass, runState));
+                    }
+                }
+
+                final boolean running = untilAllFinished ? !executing.isEmpty() : !runningDeadlines.isEmpty();
+                if (!running && !readyWaiting) {
+                    return;
+                }
+
+                final ServiceResult result;
+                if (runningDeadlines.isEmpty()) {
+                    result = runState.finished.take();
+                } else {
+                    long nextDeadline = Long.MAX_VALUE;
+                    for (final long deadline : runningDeadlines.values()) {
+                        nextDeadline = Math.min(nextDeadline, deadline);
+                    }
+                    result = runState.finished.poll(Math.max(0, nextDeadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                }
+
+                if (result != null) {
+                    executing.remove(result.serviceClass);
+                    if (!result.late) {
+                        runningDeadlines.remove(result.serviceClass);
+                        recordResult(result);
+                    }
+                    // a timed out action only releases or skips the services waiting on it once it has finished
+                    if (result.outcome == Outcome.COMPLETED) {
+                        release(result.serviceClass);
+                    } else {
+                        skipWaiting(result.serviceClass);
+                    }
+                } else {
+                    final long now = System.currentTimeMillis();
+                    for (final Iterator<Map.Entry<Class<? extends PwmService>, Long>> iterator = runningDeadlines.entrySet().iterator(); iterator.hasNext(); ) {
+                        final Map.Entry<Class<? extends PwmService>, Long> entry = iterator.next();
+                        if (entry.getValue() <= now && runState.markTimedOut(entry.getKey())) {
+                            iterator.remove();
+                            recordResult(new ServiceResult(entry.getKey(), Outcome.TIMED_OUT, timeoutMs, null, false));
+                        }
+                    }
+                }
+            }
+        }
+
+        private void recordResult(final ServiceResult result) {
+            results.put(result.serviceClass, result);
+            if (returned) {
+                runState.lateResults.add(result);
+            }
+        }
+
+        private void release(final Class<? extends PwmService> serviceClass) {
+            for (final Class<? extends PwmService> loopClass : prerequisites.keySet()) {
+                if (prerequisites.get(loopClass).contains(serviceClass)) {
+                    waitingOn.put(loopClass, waitingOn.get(loopClass) - 1);
+                }
+            }
+        }
+
+        private void skipWaiting(final Class<? extends PwmService> serviceClass) {
+            for (final Class<? extends PwmService> loopClass : prerequisites.keySet()) {
+                if (prerequisites.get(loopClass).contains(serviceClass) && results.get(loopClass) == null) {
+                    recordResult(new ServiceResult(loopClass, Outcome.SKIPPED, 0, null, false));
+                    skipWaiting(loopClass);
+                }
+            }
+        }
+    }
+
+    /**
+     * State shared between the scheduling thread and the action threads of a single run.
+     */
+    private static class RunState {
+        private final ServiceAction action;
+        private final BlockingQueue<ServiceResult> finished = new LinkedBlockingQueue<>();
+        private final List<ServiceResult> lateResults = new CopyOnWriteArrayList<>();
+        private final Set<Class<? extends PwmService>> completed = new HashSet<>();
+        private final Set<Class<? extends PwmService>> timedOut = new HashSet<>();
+
+        private RunState(final ServiceAction action) {
+            this.action = action;
+        }
+
+        /**
+         * @return false if the action finished before it could be marked as timed out
+         */
+        private synchronized boolean markTimedOut(final Class<? extends PwmService> serviceClass) {
+            if (completed.contains(serviceClass)) {
+                return false;
+            }
+            timedOut.add(serviceClass);
+            return true;
+        }
+
+        /**
+         * @return true if the action had already been marked as timed out
+         */
+        private synchronized boolean markCompleted(final Class<? extends PwmService> serviceClass) {
+            completed.add(serviceClass);
+            return timedOut.contains(serviceClass);
+        }
+    }
+
+    private static class ActionRunner implements Runnable {
+        private final Class<? extends PwmService> serviceClass;
+        private final RunState runState;
+
+        private ActionRunner(
+                final Class<? extends PwmService> serviceClass,
+                final RunState runState
+        )
+        {
+            this.serviceClass = serviceClass;
+            this.runState = runState;
+        }
+
+        public void run() {
+            final long startTime = System.currentTimeMillis();
+            Throwable error = null;
+            try {
+                runState.action.execute(serviceClass);
+            } catch (Throwable e) {
+                error = e;
+            }
+            final long durationMs = System.currentTimeMillis() - startTime;
+            final boolean late = runState.markCompleted(serviceClass);
+            final ServiceResult result = new ServiceResult(serviceClass, error == null ? Outcome.COMPLETED : Outcome.FAILED, durationMs, error, late);
+            if (late) {
+                runState.lateResults.add(result);
+                if (error == null) {
+                    LOGGER.info("service " + serviceClass.getName() + " completed after its timeout, in " + TimeDuration.asCompactString(durationMs));
+                } else {
+                    LOGGER.error("service " + serviceClass.getName() + " failed after its timeout, in " + TimeDuration.asCompactString(durationMs) + ": " + error.getMessage());
+                }
+            }
+            runState.finished.add(result);
+        }
+    }
+
+    static class ServiceResult {
+        private final Class<? extends PwmService> serviceClass;
+        private final Outcome outcome;
+        private final long durationMs;
+        private final Throwable error;
+        private final boolean late;
+
+        private ServiceResult(
+                final Class<? extends PwmService> serviceClass,
+                final Outcome outcome,
+                final long durationMs,
+                final Throwable error,
+                final boolean late
+        )
+        {
+            this.serviceClass = serviceClass;
+            this.outcome = outcome;
+            this.durationMs = durationMs;
+            this.error = error;
+            this.late = late;
+        }
+
+        public Class<? extends PwmService> getServiceClass() {
+            return serviceClass;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+    static class Report {
+        private final List<ServiceResult> results;
+        private final List<ServiceResult> lateResults;
+        private final long elapsedMs;
+
+        private Report(final List<ServiceResult> results, final List<ServiceResult> lateResults, final long elapsedMs) {
+            this.results = Collections.unmodifiableList(results);
+            this.lateResults = Collections.unmodifiableList(lateResults);
+            this.elapsedMs = elapsedMs;
+        }
+
+        public List<ServiceResult> getResults() {
+            return results;
+        }
+
+        /**
+         * @return outcomes of timed out actions that have since finished, and of the deferred services; grows after
+         *         the run has returned
+         */
+        public List<ServiceResult> getLateResults() {
+            return lateResults;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public ServiceResult getResult(final Class<? extends PwmService> serviceClass) {
+            for (final ServiceResult result : results) {
+                if (result.serviceClass == serviceClass) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        public List<ServiceResult> getResults(final Outcome outcome) {
+            final List<ServiceResult> returnValue = new ArrayList<>();
+            for (final ServiceResult result : results) {
+                if (result.outcome == outcome) {
+                    returnValue.add(result);
+                }
+            }
+            return returnValue;
+        }
+
+        public String toDebugString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(TimeDuration.asCompactString(elapsedMs)).append(" total");
+            for (final ServiceResult result : results) {
+                sb.append(", ").append(result.serviceClass.getSimpleName()).append("=");
+                if (result.outcome == Outcome.COMPLETED) {
+                    sb.append(result.durationMs).append("ms");
+                } else if (result.outcome == Outcome.FAILED) {
+                    sb.append(result.durationMs).append("ms failed");
+                } else {
+                    sb.append(result.outcome.toString().toLowerCase());
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -184,8 +184,9 @@ public class VersionChecker implements PwmService {
         httpGet.setHeader("Accept", PwmConstants.ContentTypeValue.json.getHeaderValue());
         LOGGER.trace("sending cloud version request to: " + VERSION_CHECK_URL);
 
-        final HttpResponse httpResponse = PwmHttpClient.getHttpClient(pwmApplication.getConfig()).execute(httpGet);
+        final HttpResponse httpResponse = PwmHttpClient.getHttpClient(pwmApplication).execute(httpGet);
         if (httpResponse.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+            EntityUtils.consume(httpResponse.getEntity());
             throw new IOException("http response error code: " + httpResponse.getStatusLine().getStatusCode());
         }
         final String responseBody = EntityUtils.toString(httpResponse.getEntity());
@@ -36,6 +36,7 @@ import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.i18n.LocaleHelper;
+import password.pwm.i18n.LocalizedMessageTable;
 import password.pwm.util.PasswordData;
 import password.pwm.util.SecureHelper;
 import password.pwm.util.StringUtil;
@@ -47,6 +48,7 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Jason D. Rivard
@@ -58,12 +60,15 @@ public class Configuration implements Serializable, SettingReader {
 
     private final StoredConfiguration storedConfiguration;
 
-    private DataCache dataCache = new DataCache();
+    private final DataCache dataCache = new DataCache();
+
+    private final AppPropertyValues appPropertyValues;
 
     // --------------------------- CONSTRUCTORS ---------------------------
 
     public Configuration(final StoredConfiguration storedConfiguration) {
         this.storedConfiguration = storedConfiguration;
+        this.appPropertyValues = new AppPropertyValues(readSettingAsStringArray(PwmSetting.APP_PROPERTY_OVERRIDES));
     }
 
 // ------------------------ CANONICAL METHODS ------------------------
@@ -92,8 +97,9 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public Map<String,LdapProfile> getLdapProfiles() {
-        if (dataCache.ldapProfiles != null) {
-            return dataCache.ldapProfiles;
+        final Map<String,LdapProfile> cachedProfiles = dataCache.ldapProfiles;
+        if (cachedProfiles != null) {
+            return cachedProfiles;
         }
 
         final List<String> profiles = storedConfiguration.profilesForSetting(PwmSetting.LDAP_PROFILE_LIST);
@@ -105,8 +111,9 @@ public class Configuration implements Serializable, SettingReader {
             }
         }
 
-        dataCache.ldapProfiles = Collections.unmodifiableMap(returnList);
-        return dataCache.ldapProfiles;
+        final Map<String,LdapProfile> ldapProfiles = Collections.unmodifiableMap(returnList);
+        dataCache.ldapProfiles = ldapProfiles;
+        return ldapProfiles;
     }
 
     public EmailItemBean readSettingAsEmail(final PwmSetting setting, final Locale locale) {
@@ -316,14 +323,15 @@ public class Configuration implements Serializable, SettingReader {
 
     public Map<Locale,String> readLocalizedBundle(final String className, final String keyName) {
         final String key = className + "-" + keyName;
-        if (dataCache.customText.containsKey(key)) {
-            return dataCache.customText.get(key);
+        final Map<Locale,String> cachedValue = dataCache.customText.get(key);
+        if (cachedValue != null) {
+            return cachedValue.isEmpty() ? null : cachedValue;
         }
 
 
         final Map<String,String> storedValue = storedConfiguration.readLocaleBundleMap(className,keyName);
         if (storedValue == null || storedValue.isEmpty()) {
-            dataCache.customText.put(key,null);
+            dataCache.customText.put(key,Collections.<Locale,String>emptyMap());
             return null;
         }
 
@@ -332,8 +340,28 @@ public class Configuration implements Serializable, SettingReader {
             localizedMap.put(LocaleHelper.parseLocaleString(localeKey),storedValue.get(localeKey));
         }
 
-        dataCache.customText.put(key, localizedMap);
-        return localizedMap;
+        final Map<Locale,String> unmodifiableMap = Collections.unmodifiableMap(localizedMap);
+        dataCache.customText.put(key, unmodifiableMap);
+        return unmodifiableMap;
+    }
+
+    /**
+     * @return the display messages for the locale with this configuration's custom text applied, or null if
+     * too many locales already have a cached table
+     */
+    public LocalizedMessageTable readLocalizedMessageTable(final Locale locale) {
+        final LocalizedMessageTable cachedTable = dataCache.localizedMessageTables.get(locale);
+        if (cachedTable != null) {
+            return cachedTable;
+        }
+
+        if (dataCache.localizedMessageTables.size() >= LocalizedMessageTable.MAX_CACHED_LOCALES) {
+            return null;
+        }
+
+        final LocalizedMessageTable table = LocalizedMessageTable.build(locale, this);
+        dataCache.localizedMessageTables.put(locale, table);
+        return table;
     }
 
     public PwmLogLevel getEventLogLocalDBLevel() {
@@ -356,16 +384,14 @@ public class Configuration implements Serializable, SettingReader {
             throw new IllegalArgumentException("unknown challenge profileID specified: " + profile);
         }
 
-        if (!dataCache.challengeProfile.containsKey(profile)) {
-            dataCache.challengeProfile.put(profile,new HashMap<Locale,ChallengeProfile>());
-        }
-
-        if (dataCache.challengeProfile.get(profile).containsKey(locale)) {
-            return dataCache.challengeProfile.get(profile).get(locale);
+        final String cacheKey = DataCache.profileLocaleKey(profile, locale);
+        final ChallengeProfile cachedProfile = dataCache.challengeProfile.get(cacheKey);
+        if (cachedProfile != null) {
+            return cachedProfile;
         }
 
         final ChallengeProfile challengeProfile = ChallengeProfile.readChallengeProfileFromConfig(profile, locale, storedConfiguration);
-        dataCache.challengeProfile.get(profile).put(locale,challengeProfile);
+        dataCache.challengeProfile.put(cacheKey,challengeProfile);
         return challengeProfile;
     }
 
@@ -375,16 +401,14 @@ public class Configuration implements Serializable, SettingReader {
 
     public PwmPasswordPolicy getPasswordPolicy(final String profile, final Locale locale)
     {
-        if (dataCache.cachedPasswordPolicy.containsKey(profile) && dataCache.cachedPasswordPolicy.get(profile).containsKey(
-                locale)) {
-            return dataCache.cachedPasswordPolicy.get(profile).get(locale);
+        final String cacheKey = DataCache.profileLocaleKey(profile, locale);
+        final PwmPasswordPolicy cachedPolicy = dataCache.cachedPasswordPolicy.get(cacheKey);
+        if (cachedPolicy != null) {
+            return cachedPolicy;
         }
 
         final PwmPasswordPolicy policy = initPasswordPolicy(profile,locale);
-        if (!dataCache.cachedPasswordPolicy.containsKey(profile)) {
-            dataCache.cachedPasswordPolicy.put(profile,new HashMap<Locale,PwmPasswordPolicy>());
-        }
-        dataCache.cachedPasswordPolicy.get(profile).put(locale,policy);
+        dataCache.cachedPasswordPolicy.put(cacheKey,policy);
         return policy;
     }
 
@@ -567,17 +591,16 @@ public class Configuration implements Serializable, SettingReader {
 
 
     public List<Locale> getKnownLocales() {
-        if (dataCache.localeFlagMap == null) {
-            dataCache.localeFlagMap = figureLocaleFlagMap();
-        }
-        return Collections.unmodifiableList(new ArrayList<>(dataCache.localeFlagMap.keySet()));
+        return Collections.unmodifiableList(new ArrayList<>(getKnownLocaleFlagMap().keySet()));
     }
 
     public Map<Locale,String> getKnownLocaleFlagMap() {
-        if (dataCache.localeFlagMap == null) {
-            dataCache.localeFlagMap = figureLocaleFlagMap();
+        Map<Locale,String> localeFlagMap = dataCache.localeFlagMap;
+        if (localeFlagMap == null) {
+            localeFlagMap = figureLocaleFlagMap();
+            dataCache.localeFlagMap = localeFlagMap;
         }
-        return dataCache.localeFlagMap;
+        return localeFlagMap;
     }
 
     private Map<Locale,String> figureLocaleFlagMap() {
@@ -650,11 +673,23 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public String readAppProperty(AppProperty property) {
-        final Map<String,String> configurationValues = StringUtil.convertStringListToNameValuePair(this.readSettingAsStringArray(PwmSetting.APP_PROPERTY_OVERRIDES),"=");
-        if (configurationValues.containsKey(property.getKey())) {
-            return configurationValues.get(property.getKey());
+        return appPropertyValues.readValue(property);
+    }
+
+    public long readAppPropertyAsLong(final AppProperty property) {
+        return appPropertyValues.readLongValue(property);
+    }
+
+    public int readAppPropertyAsInt(final AppProperty property) {
+        final long value = appPropertyValues.readLongValue(property);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("app property " + property.getKey() + " value '" + value + "' is out of range for an int");
         }
-        return property.getDefaultValue();
+        return (int)value;
+    }
+
+    public boolean readAppPropertyAsBoolean(final AppProperty property) {
+        return Boolean.parseBoolean(appPropertyValues.readValue(property));
     }
 
     private Convenience helper = new Convenience();
@@ -722,23 +757,74 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     private StoredValue readStoredValue(final PwmSetting setting) {
-        if (dataCache.settings.containsKey(setting)) {
-            return dataCache.settings.get(setting);
+        final StoredValue cachedValue = dataCache.settings.get(setting);
+        if (cachedValue != null) {
+            return cachedValue;
         }
 
         final StoredValue readValue = storedConfiguration.readSetting(setting);
-        dataCache.settings.put(setting, readValue);
+        if (readValue != null) {
+            dataCache.settings.put(setting, readValue);
+        }
         return readValue;
     }
 
+    /**
+     * Lazily populated values derived from the stored configuration.  A {@link Configuration} is shared by all
+     * request threads, so every map is concurrent and cached values are immutable; concurrent callers may compute the
+     * same value more than once but always see a complete result.
+     */
     private static class DataCache implements Serializable {
-        private final Map<String,Map<Locale,PwmPasswordPolicy>> cachedPasswordPolicy = new HashMap<>();
-        private final Map<String,Map<Locale,ChallengeProfile>> challengeProfile = new HashMap<>();
-        private Map<Locale,String> localeFlagMap = null;
-        private Map<String,LdapProfile> ldapProfiles;
-        private final Map<PwmSetting, StoredValue> settings = new EnumMap<>(PwmSetting.class);
-        private final Map<String,Map<Locale,String>> customText = new HashMap<>();
-        private final Map<ProfileType,Map<String,Profile>> profileCache = new HashMap<>();
+        private final Map<String,PwmPasswordPolicy> cachedPasswordPolicy = new ConcurrentHashMap<>();
+        private final Map<String,ChallengeProfile> challengeProfile = new ConcurrentHashMap<>();
+        private volatile Map<Locale,String> localeFlagMap = null;
+        private volatile Map<String,LdapProfile> ldapProfiles;
+        private final Map<PwmSetting, StoredValue> settings = new ConcurrentHashMap<>();
+        private final Map<String,Map<Locale,String>> customText = new ConcurrentHashMap<>();
+        private final Map<Locale,LocalizedMessageTable> localizedMessageTables = new ConcurrentHashMap<>();
+        private final Map<ProfileType,Map<String,Profile>> profileCache = new ConcurrentHashMap<>();
+
+        private static String profileLocaleKey(final String profile, final Locale locale) {
+            return profile + "|" + (locale == null ? "" : locale.toString());
+        }
+    }
+
+    /**
+     * App property values resolved once when the configuration is loaded, with the configured overrides applied
+     * over the {@link AppProperty} defaults and numeric values pre-parsed.
+     */
+    private static class AppPropertyValues implements Serializable {
+        private final Map<AppProperty,String> values = new EnumMap<>(AppProperty.class);
+        private final Map<AppProperty,Long> longValues = new EnumMap<>(AppProperty.class);
+
+        private AppPropertyValues(final List<String> overrideValues) {
+            final Map<String,String> configurationValues = StringUtil.convertStringListToNameValuePair(overrideValues,"=");
+            for (final AppProperty appProperty : AppProperty.values()) {
+                final String value = configurationValues.containsKey(appProperty.getKey())
+                        ? configurationValues.get(appProperty.getKey())
+                        : appProperty.getDefaultValue();
+                values.put(appProperty, value);
+                if (value != null) {
+                    try {
+                        longValues.put(appProperty, Long.parseLong(value.trim()));
+                    } catch (NumberFormatException e) {
+                        /* not a numeric property */
+                    }
+                }
+            }
+        }
+
+        private String readValue(final AppProperty appProperty) {
+            return values.get(appProperty);
+        }
+
+        private long readLongValue(final AppProperty appProperty) {
+            final Long value = longValues.get(appProperty);
+            if (value == null) {
+                throw new NumberFormatException("app property " + appProperty.getKey() + " value '" + values.get(appProperty) + "' is not numeric");
+            }
+            return value;
+        }
     }
 
     public Map<AppProperty,String> readAllNonDefaultAppProperties() {
@@ -784,14 +870,19 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public Map<String,Profile> profileMap(final ProfileType profileType) {
-        if (!dataCache.profileCache.containsKey(profileType)) {
-            dataCache.profileCache.put(profileType,new LinkedHashMap<String, Profile>());
-            for (final String profileID : ProfileUtility.profileIDsForCategory(this, profileType.getCategory())) {
-                final Profile newProfile = newProfileForID(profileType, profileID);
-                dataCache.profileCache.get(profileType).put(profileID, newProfile);
-            }
+        final Map<String,Profile> cachedProfiles = dataCache.profileCache.get(profileType);
+        if (cachedProfiles != null) {
+            return cachedProfiles;
+        }
+
+        final Map<String,Profile> profiles = new LinkedHashMap<>();
+        for (final String profileID : ProfileUtility.profileIDsForCategory(this, profileType.getCategory())) {
+            final Profile newProfile = newProfileForID(profileType, profileID);
+            profiles.put(profileID, newProfile);
         }
-        return dataCache.profileCache.get(profileType);
+        final Map<String,Profile> unmodifiableProfiles = Collections.unmodifiableMap(profiles);
+        dataCache.profileCache.put(profileType, unmodifiableProfiles);
+        return unmodifiableProfiles;
     }
 
     private Profile newProfileForID(final ProfileType profileType, final String profileID) {
@@ -817,7 +908,7 @@ public class Configuration implements Serializable, SettingReader {
 
 
     public boolean isDevDebugMode() {
-        return Boolean.parseBoolean(readAppProperty(AppProperty.LOGGING_DEV_OUTPUT));
+        return readAppPropertyAsBoolean(AppProperty.LOGGING_DEV_OUTPUT);
     }
     
     public String configurationHash() 
@@ -161,7 +161,7 @@ public class ConfigurationReader {
                 final File pwmPath = pwmApplication.getApplicationPath();
                 backupDirectory = Helper.figureFilepath(backupDirSetting, pwmPath);
             }
-            backupRotations = Integer.parseInt(configuration.readAppProperty(AppProperty.BACKUP_CONFIG_COUNT));
+            backupRotations = configuration.readAppPropertyAsInt(AppProperty.BACKUP_CONFIG_COUNT);
         }
 
 
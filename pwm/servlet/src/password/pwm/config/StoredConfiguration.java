@@ -23,6 +23,7 @@
 package password.pwm.config;
 
 import org.jdom2.*;
+import org.jdom2.filter.Filters;
 import org.jdom2.xpath.XPathExpression;
 import org.jdom2.xpath.XPathFactory;
 import password.pwm.AppProperty;
@@ -46,6 +47,7 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -118,6 +120,7 @@ public class StoredConfiguration implements Serializable {
     private boolean locked = false;
     private boolean setting_writeLabels = false;
     private final ReentrantReadWriteLock domModifyLock = new ReentrantReadWriteLock();
+    private transient volatile DocumentIndex documentIndex;
 
 // -------------------------- STATIC METHODS --------------------------
 
@@ -128,6 +131,7 @@ public class StoredConfiguration implements Serializable {
     public static StoredConfiguration copy(final StoredConfiguration input) {
         final StoredConfiguration copy = new StoredConfiguration();
         copy.document = input.document.clone();
+        copy.resetIndex();
         return copy;
     }
 
@@ -142,6 +146,7 @@ public class StoredConfiguration implements Serializable {
 
         try {
             newConfiguration.document = inputDocument;
+            newConfiguration.resetIndex();
             newConfiguration.createTime(); // verify create time;
             ConfigurationCleaner.cleanup(newConfiguration);
         } catch (Exception e) {
@@ -192,8 +197,7 @@ public class StoredConfiguration implements Serializable {
             if (settingValueRecord.getSetting().getSyntax() == PwmSettingSyntax.PASSWORD) {
                 this.resetSetting(settingValueRecord.getSetting(),settingValueRecord.getProfile(),null);
                 if (comment != null && !comment.isEmpty()) {
-                    final XPathExpression xp = XPathBuilder.xpathForSetting(settingValueRecord.getSetting(), settingValueRecord.getProfile());
-                    final Element settingElement = (Element)xp.evaluateFirst(document);
+                    final Element settingElement = index().settingElement(settingValueRecord.getSetting(), settingValueRecord.getProfile());
                     if (settingElement != null) {
                         settingElement.addContent(new Comment(comment));
                     }
@@ -211,9 +215,13 @@ public class StoredConfiguration implements Serializable {
 
 
     public String readConfigProperty(final ConfigProperty propertyName) {
-        final XPathExpression xp = XPathBuilder.xpathForConfigProperty(propertyName);
-        final Element propertyElement = (Element)xp.evaluateFirst(document);
-        return propertyElement == null ? null : propertyElement.getText();
+        domModifyLock.readLock().lock();
+        try {
+            final Element propertyElement = index().configPropertyElements.get(propertyName.getKey());
+            return propertyElement == null ? null : propertyElement.getText();
+        } finally {
+            domModifyLock.readLock().unlock();
+        }
     }
 
     public void writeConfigProperty(
@@ -223,7 +231,7 @@ public class StoredConfiguration implements Serializable {
         domModifyLock.writeLock().lock();
         try {
 
-            final XPathExpression xp = XPathBuilder.xpathForConfigProperty(propertyName);
+            final XPathExpression<Element> xp = XPathBuilder.xpathForConfigProperty(propertyName);
             final List<Element> propertyElements = xp.evaluate(document);
             for (final Element propertyElement : propertyElements) {
                 propertyElement.detach();
@@ -233,17 +241,24 @@ public class StoredConfiguration implements Serializable {
             propertyElement.setAttribute(new Attribute(XML_ATTRIBUTE_KEY,propertyName.getKey()));
             propertyElement.setContent(new Text(value));
 
-            if (null == XPathBuilder.xpathForConfigProperties().evaluateFirst(document)) {
+            final DocumentIndex index = index();
+            if (index.configPropertiesElement == null) {
                 Element configProperties = new Element(XML_ELEMENT_PROPERTIES);
                 configProperties.setAttribute(new Attribute(XML_ATTRIBUTE_TYPE,XML_ATTRIBUTE_VALUE_CONFIG));
                 document.getRootElement().addContent(configProperties);
+                index.configPropertiesElement = configProperties;
             }
 
-            final XPathExpression xp2 = XPathBuilder.xpathForConfigProperties();
-            final Element propertiesElement = (Element)xp2.evaluateFirst(document);
+            final Element propertiesElement = index.configPropertiesElement;
             propertyElement.setAttribute(XML_ATTRIBUTE_MODIFY_TIME,PwmConstants.DEFAULT_DATETIME_FORMAT.format(new Date()));
             propertiesElement.setAttribute(XML_ATTRIBUTE_MODIFY_TIME,PwmConstants.DEFAULT_DATETIME_FORMAT.format(new Date()));
             propertiesElement.addContent(propertyElement);
+            index.configPropertyElements.put(propertyName.getKey(), propertyElement);
+
+            if (propertyName == ConfigProperty.PROPERTY_KEY_TEMPLATE) {
+                // default values depend on the template
+                index.settingValues.clear();
+            }
         } finally {
             domModifyLock.writeLock().unlock();
         }
@@ -256,8 +271,7 @@ public class StoredConfiguration implements Serializable {
     public Map<String,String> readLocaleBundleMap(final String bundleName, final String keyName) {
         domModifyLock.readLock().lock();
         try {
-            final XPathExpression xp = XPathBuilder.xpathForLocaleBundleSetting(bundleName, keyName);
-            final Element localeBundleElement = (Element)xp.evaluateFirst(document);
+            final Element localeBundleElement = index().localeBundleElements.get(DocumentIndex.localeBundleKey(bundleName, keyName));
             if (localeBundleElement != null) {
                 final Map<String,String> bundleMap = new LinkedHashMap<>();
                 for (final Element valueElement : localeBundleElement.getChildren("value")) {
@@ -308,13 +322,14 @@ public class StoredConfiguration implements Serializable {
         preModifyActions();
         domModifyLock.writeLock().lock();
         try {
-            final XPathExpression xp = XPathBuilder.xpathForLocaleBundleSetting(bundleName, keyName);
+            final XPathExpression<Element> xp = XPathBuilder.xpathForLocaleBundleSetting(bundleName, keyName);
             final List<Element> oldBundleElements = xp.evaluate(document);
             if (oldBundleElements != null) {
                 for (final Element element : oldBundleElements) {
                     element.detach();
                 }
             }
+            index().localeBundleElements.remove(DocumentIndex.localeBundleKey(bundleName, keyName));
         } finally {
             domModifyLock.writeLock().unlock();
         }
@@ -329,10 +344,11 @@ public class StoredConfiguration implements Serializable {
         domModifyLock.writeLock().lock();
         preModifyActions();
         try {
-            final Element settingElement = createOrGetSettingElement(document, setting, profileID);
+            final Element settingElement = createOrGetSettingElement(setting, profileID);
             settingElement.removeContent();
             settingElement.addContent(new Element(XML_ELEMENT_DEFAULT));
             updateMetaData(settingElement, userIdentity);
+            index().settingValues.remove(DocumentIndex.settingKey(setting, profileID));
         } finally {
             domModifyLock.writeLock().unlock();
         }
@@ -345,6 +361,9 @@ public class StoredConfiguration implements Serializable {
     public boolean isDefaultValue(final PwmSetting setting, final String profileID) {
         domModifyLock.readLock().lock();
         try {
+            if (!index().hasStoredValue(setting, profileID)) {
+                return true;
+            }
             final StoredValue currentValue = readSetting(setting, profileID);
             if (setting.getSyntax() == PwmSettingSyntax.PASSWORD) {
                 return currentValue == null || currentValue.toNativeObject() == null;
@@ -473,6 +492,7 @@ public class StoredConfiguration implements Serializable {
             throws IOException, PwmUnrecoverableException
     {
         ConfigurationCleaner.updateMandatoryElements(document);
+        resetIndex();
         XmlUtil.outputDocument(document, outputStream);
     }
 
@@ -545,8 +565,7 @@ public class StoredConfiguration implements Serializable {
     }
 
     public SettingMetaData readSettingMetadata(final PwmSetting setting, final String profileID) {
-        final XPathExpression xp = XPathBuilder.xpathForSetting(setting, profileID);
-        final Element settingElement = (Element)xp.evaluateFirst(document);
+        final Element settingElement = index().settingElement(setting, profileID);
 
         if (settingElement == null) {
             return null;
@@ -662,23 +681,27 @@ public class StoredConfiguration implements Serializable {
         }
         domModifyLock.readLock().lock();
         try {
-            final XPathExpression xp = XPathBuilder.xpathForSetting(setting, profileID);
-            final Element settingElement = (Element)xp.evaluateFirst(document);
-
-            if (settingElement == null) {
-                return defaultValue(setting, getTemplate());
+            final DocumentIndex index = index();
+            final String settingKey = DocumentIndex.settingKey(setting, profileID);
+            final StoredValue cachedValue = index.settingValues.get(settingKey);
+            if (cachedValue != null) {
+                return cachedValue;
             }
 
-            if (settingElement.getChild(XML_ELEMENT_DEFAULT) != null) {
-                return defaultValue(setting, getTemplate());
+            final StoredValue storedValue;
+            if (!index.hasStoredValue(setting, profileID)) {
+                storedValue = defaultValue(setting, getTemplate());
+            } else {
+                try {
+                    storedValue = ValueFactory.fromXmlValues(setting, index.settingElement(setting, profileID), getKey());
+                } catch (PwmException e) {
+                    final String errorMsg = "unexpected error reading setting '" + setting.getKey() + "' profile '" + profileID + "', error: " + e.getMessage();
+                    throw new IllegalStateException(errorMsg);
+                }
             }
 
-            try {
-                return ValueFactory.fromXmlValues(setting, settingElement, getKey());
-            } catch (PwmException e) {
-                final String errorMsg = "unexpected error reading setting '" + setting.getKey() + "' profile '" + profileID + "', error: " + e.getMessage();
-                throw new IllegalStateException(errorMsg);
-            }
+            index.settingValues.put(settingKey, storedValue);
+            return storedValue;
         } finally {
             domModifyLock.readLock().unlock();
         }
@@ -726,6 +749,7 @@ public class StoredConfiguration implements Serializable {
             }
             localeBundleElement.setAttribute(XML_ATTRIBUTE_MODIFY_TIME,PwmConstants.DEFAULT_DATETIME_FORMAT.format(new Date()));
             document.getRootElement().addContent(localeBundleElement);
+            index().localeBundleElements.put(DocumentIndex.localeBundleKey(bundleName, keyName), localeBundleElement);
         } finally {
             domModifyLock.writeLock().unlock();
         }
@@ -758,7 +782,7 @@ public class StoredConfiguration implements Serializable {
         changeLog.updateChangeLog(setting, profileID, value);
         domModifyLock.writeLock().lock();
         try {
-            final Element settingElement = createOrGetSettingElement(document, setting, profileID);
+            final Element settingElement = createOrGetSettingElement(setting, profileID);
             settingElement.removeContent();
             settingElement.setAttribute(XML_ATTRIBUTE_SYNTAX, setting.getSyntax().toString());
             settingElement.setAttribute(XML_ATTRIBUTE_SYNTAX_VERSION, Integer.toString(value.currentSyntaxVersion()));
@@ -779,6 +803,7 @@ public class StoredConfiguration implements Serializable {
             }
 
             updateMetaData(settingElement, userIdentity);
+            index().settingValues.remove(DocumentIndex.settingKey(setting, profileID));
         } finally {
             domModifyLock.writeLock().unlock();
         }
@@ -844,14 +869,14 @@ public class StoredConfiguration implements Serializable {
     }
 
     private static abstract class XPathBuilder {
-        private static XPathExpression xpathForLocaleBundleSetting(final String bundleName, final String keyName) {
+        private static XPathExpression<Element> xpathForLocaleBundleSetting(final String bundleName, final String keyName) {
             final XPathFactory xpfac = XPathFactory.instance();
             final String xpathString;
             xpathString = "//localeBundle[@bundle=\"" + bundleName + "\"][@key=\"" + keyName + "\"]";
-            return xpfac.compile(xpathString);
+            return xpfac.compile(xpathString, Filters.element());
         }
 
-        private static XPathExpression xpathForSetting(final PwmSetting setting, final String profileID) {
+        private static XPathExpression<Element> xpathForSetting(final PwmSetting setting, final String profileID) {
             final XPathFactory xpfac = XPathFactory.instance();
             final String xpathString;
             if (profileID == null || profileID.length() < 1) {
@@ -860,38 +885,32 @@ public class StoredConfiguration implements Serializable {
                 xpathString = "//setting[@key=\"" + setting.getKey() + "\"][@profile=\"" + profileID + "\"]";
             }
 
-            return xpfac.compile(xpathString);
+            return xpfac.compile(xpathString, Filters.element());
         }
 
-        private static XPathExpression xpathForAppProperty(final AppProperty appProperty) {
+        private static XPathExpression<Element> xpathForAppProperty(final AppProperty appProperty) {
             final XPathFactory xpfac = XPathFactory.instance();
             final String xpathString;
             xpathString = "//" + XML_ELEMENT_PROPERTIES + "[@" + XML_ATTRIBUTE_TYPE + "=\"" + XML_ATTRIBUTE_VALUE_APP + "\"]/"
                     + XML_ELEMENT_PROPERTY + "[@" + XML_ATTRIBUTE_KEY + "=\"" + appProperty.getKey() + "\"]";
-            return xpfac.compile(xpathString);
+            return xpfac.compile(xpathString, Filters.element());
         }
 
-        private static XPathExpression xpathForAppProperties() {
+        private static XPathExpression<Element> xpathForAppProperties() {
             final XPathFactory xpfac = XPathFactory.instance();
             final String xpathString;
             xpathString = "//" + XML_ELEMENT_PROPERTIES + "[@" + XML_ATTRIBUTE_TYPE + "=\"" + XML_ATTRIBUTE_VALUE_APP + "\"]";
-            return xpfac.compile(xpathString);
+            return xpfac.compile(xpathString, Filters.element());
         }
 
-        private static XPathExpression xpathForConfigProperty(final ConfigProperty configProperty) {
+        private static XPathExpression<Element> xpathForConfigProperty(final ConfigProperty configProperty) {
             final XPathFactory xpfac = XPathFactory.instance();
             final String xpathString;
             xpathString = "//" + XML_ELEMENT_PROPERTIES + "[@" + XML_ATTRIBUTE_TYPE + "=\"" + XML_ATTRIBUTE_VALUE_CONFIG + "\"]/"
                     + XML_ELEMENT_PROPERTY + "[@" + XML_ATTRIBUTE_KEY + "=\"" + configProperty.getKey() + "\"]";
-            return xpfac.compile(xpathString);
+            return xpfac.compile(xpathString, Filters.element());
         }
 
-        private static XPathExpression xpathForConfigProperties() {
-            final XPathFactory xpfac = XPathFactory.instance();
-            final String xpathString;
-            xpathString = "//" + XML_ELEMENT_PROPERTIES + "[@" + XML_ATTRIBUTE_TYPE + "=\"" + XML_ATTRIBUTE_VALUE_CONFIG + "\"]";
-            return xpfac.compile(xpathString);
-        }
     }
 
 
@@ -899,9 +918,13 @@ public class StoredConfiguration implements Serializable {
         private static void cleanup(final StoredConfiguration configuration) {
             updateProperitiesWithoutType(configuration);
             updateMandatoryElements(configuration.document);
+            configuration.resetIndex();
             profilizeNonProfiledSettings(configuration);
+            configuration.resetIndex();
             stripOrphanedProfileSettings(configuration);
+            configuration.resetIndex();
             migrateAppProperties(configuration);
+            configuration.resetIndex();
             updateDeprecatedSettings(configuration);
         }
 
@@ -909,8 +932,8 @@ public class StoredConfiguration implements Serializable {
             final Element rootElement = document.getRootElement();
 
             {
-                final XPathExpression commentXPath = XPathFactory.instance().compile("//comment()[1]");
-                final Comment existingComment = (Comment)commentXPath.evaluateFirst(rootElement);
+                final XPathExpression<Comment> commentXPath = XPathFactory.instance().compile("//comment()[1]", Filters.comment());
+                final Comment existingComment = commentXPath.evaluateFirst(rootElement);
                 if (existingComment != null) {
                     existingComment.detach();
                 }
@@ -926,13 +949,13 @@ public class StoredConfiguration implements Serializable {
             { // migrate old properties
 
                 // read correct (new) //properties[@type="config"]
-                final XPathExpression configPropertiesXpath = XPathFactory.instance().compile(
-                        "//" + XML_ELEMENT_PROPERTIES + "[@" + XML_ATTRIBUTE_TYPE + "=\"" + XML_ATTRIBUTE_VALUE_CONFIG + "\"]");
-                final Element configPropertiesElement = (Element)configPropertiesXpath.evaluateFirst(rootElement);
+                final XPathExpression<Element> configPropertiesXpath = XPathFactory.instance().compile(
+                        "//" + XML_ELEMENT_PROPERTIES + "[@" + XML_ATTRIBUTE_TYPE + "=\"" + XML_ATTRIBUTE_VALUE_CONFIG + "\"]", Filters.element());
+                final Element configPropertiesElement = configPropertiesXpath.evaluateFirst(rootElement);
 
                 // read list of old //properties[not (@type)]/property
-                final XPathExpression nonAttributedProperty = XPathFactory.instance().compile(
-                        "//" + XML_ELEMENT_PROPERTIES + "[not (@" + XML_ATTRIBUTE_TYPE + ")]/" + XML_ELEMENT_PROPERTY);
+                final XPathExpression<Element> nonAttributedProperty = XPathFactory.instance().compile(
+                        "//" + XML_ELEMENT_PROPERTIES + "[not (@" + XML_ATTRIBUTE_TYPE + ")]/" + XML_ELEMENT_PROPERTY, Filters.element());
                 final List<Element> nonAttributedProperties = nonAttributedProperty.evaluate(rootElement);
 
                 if (configPropertiesElement != null && nonAttributedProperties != null) {
@@ -943,8 +966,8 @@ public class StoredConfiguration implements Serializable {
                 }
 
                 // remove old //properties[not (@type] element
-                final XPathExpression oldPropertiesXpath = XPathFactory.instance().compile(
-                        "//" + XML_ELEMENT_PROPERTIES + "[not (@" + XML_ATTRIBUTE_TYPE + ")]");
+                final XPathExpression<Element> oldPropertiesXpath = XPathFactory.instance().compile(
+                        "//" + XML_ELEMENT_PROPERTIES + "[not (@" + XML_ATTRIBUTE_TYPE + ")]", Filters.element());
                 final List<Element> oldPropertiesElements = oldPropertiesXpath.evaluate(rootElement);
                 if (oldPropertiesElements != null) {
                     for (Element element : oldPropertiesElements) {
@@ -983,8 +1006,8 @@ public class StoredConfiguration implements Serializable {
             for (final PwmSetting setting : PwmSetting.values()) {
                 if (setting.getCategory().hasProfiles()) {
 
-                    final XPathExpression xp = XPathBuilder.xpathForSetting(setting, null);
-                    final Element settingElement = (Element)xp.evaluateFirst(document);
+                    final XPathExpression<Element> xp = XPathBuilder.xpathForSetting(setting, null);
+                    final Element settingElement = xp.evaluateFirst(document);
                     if (settingElement != null) {
                         LOGGER.info("moving setting " + setting.getKey() + " without profile attribute to profile \"" + NEW_PROFILE_NAME + "\".");
                         // change setting to "default" profile.
@@ -1014,8 +1037,8 @@ public class StoredConfiguration implements Serializable {
             final Document document = storedConfiguration.document;
             final String xpathString = "//properties[not(@type)]";
             final XPathFactory xpfac = XPathFactory.instance();
-            final XPathExpression xp = xpfac.compile(xpathString);
-            final List<Element> propertiesElements = (List<Element>)xp.evaluate(document);
+            final XPathExpression<Element> xp = xpfac.compile(xpathString, Filters.element());
+            final List<Element> propertiesElements = xp.evaluate(document);
             for (final Element propertiesElement : propertiesElements) {
                 propertiesElement.setAttribute(XML_ATTRIBUTE_TYPE,XML_ATTRIBUTE_VALUE_CONFIG);
             }
@@ -1028,8 +1051,8 @@ public class StoredConfiguration implements Serializable {
                 if (setting.getCategory().hasProfiles()) {
                     final List<String> validProfiles = storedConfiguration.profilesForSetting(setting);
                     final String xpathString = "//setting[@key=\"" + setting.getKey() + "\"]";
-                    final XPathExpression xp = xpfac.compile(xpathString);
-                    final List<Element> settingElements = (List<Element>)xp.evaluate(document);
+                    final XPathExpression<Element> xp = xpfac.compile(xpathString, Filters.element());
+                    final List<Element> settingElements = xp.evaluate(document);
                     for (final Element settingElement : settingElements) {
                         final String profileID = settingElement.getAttributeValue(XML_ATTRIBUTE_PROFILE);
                         if (profileID != null) {
@@ -1045,8 +1068,8 @@ public class StoredConfiguration implements Serializable {
 
         private static void migrateAppProperties(final StoredConfiguration storedConfiguration) {
             final Document document = storedConfiguration.document;
-            final XPathExpression xPathExpression = XPathBuilder.xpathForAppProperties();
-            final List<Element> appPropertiesElements = (List<Element>)xPathExpression.evaluate(document);
+            final XPathExpression<Element> xPathExpression = XPathBuilder.xpathForAppProperties();
+            final List<Element> appPropertiesElements = xPathExpression.evaluate(document);
             for (final Element element : appPropertiesElements) {
                 final List<Element> properties = element.getChildren();
                 for (final Element property : properties) {
@@ -1316,13 +1339,12 @@ public class StoredConfiguration implements Serializable {
         }
     }
 
-    private static Element createOrGetSettingElement(
-            final Document document,
+    private Element createOrGetSettingElement(
             final PwmSetting setting,
             final String profileID
     ) {
-        final XPathExpression xp = XPathBuilder.xpathForSetting(setting, profileID);
-        final Element existingSettingElement = (Element)xp.evaluateFirst(document);
+        final DocumentIndex index = index();
+        final Element existingSettingElement = index.settingElement(setting, profileID);
         if (existingSettingElement != null) {
             return existingSettingElement;
         }
@@ -1340,10 +1362,97 @@ public class StoredConfiguration implements Serializable {
             document.getRootElement().addContent(settingsElement);
         }
         settingsElement.addContent(settingElement);
+        index.settingElements.put(DocumentIndex.settingKey(setting, profileID), settingElement);
 
         return settingElement;
     }
 
+    private DocumentIndex index() {
+        DocumentIndex index = documentIndex;
+        if (index == null) {
+            index = new DocumentIndex(document);
+            documentIndex = index;
+        }
+        return index;
+    }
+
+    private void resetIndex() {
+        documentIndex = null;
+    }
+
+    /**
+     * Hash index over the setting, property and locale bundle elements of the configuration document, so that reads
+     * are map lookups instead of XPath evaluations against the whole DOM.  The index is updated in place by the
+     * write methods of this class; anything that rearranges the document wholesale calls {@link #resetIndex()}
+     * and the index is rebuilt on next use.  Parsed setting values are cached here as well and dropped whenever
+     * the underlying setting element is written.
+     */
+    private static class DocumentIndex {
+        private final Map<String,Element> settingElements = new ConcurrentHashMap<>();
+        private final Map<String,Element> configPropertyElements = new ConcurrentHashMap<>();
+        private final Map<String,Element> localeBundleElements = new ConcurrentHashMap<>();
+        private final Map<String,StoredValue> settingValues = new ConcurrentHashMap<>();
+        private volatile Element configPropertiesElement;
+
+        private DocumentIndex(final Document document) {
+            // first element in document order wins, matching the XPath evaluateFirst() lookups this index replaces
+            for (final Element element : document.getRootElement().getDescendants(Filters.element())) {
+                final String elementName = element.getName();
+                if (XML_ELEMENT_SETTING.equals(elementName)) {
+                    final String key = element.getAttributeValue(XML_ATTRIBUTE_KEY);
+                    if (key != null) {
+                        putIfAbsent(settingElements, settingKey(key, element.getAttributeValue(XML_ATTRIBUTE_PROFILE)), element);
+                    }
+                } else if (XML_ELEMENT_PROPERTIES.equals(elementName)) {
+                    if (XML_ATTRIBUTE_VALUE_CONFIG.equals(element.getAttributeValue(XML_ATTRIBUTE_TYPE))) {
+                        if (configPropertiesElement == null) {
+                            configPropertiesElement = element;
+                        }
+                        for (final Element propertyElement : element.getChildren(XML_ELEMENT_PROPERTY)) {
+                            final String key = propertyElement.getAttributeValue(XML_ATTRIBUTE_KEY);
+                            if (key != null) {
+                                putIfAbsent(configPropertyElements, key, propertyElement);
+                            }
+                        }
+                    }
+                } else if ("localeBundle".equals(elementName)) {
+                    final String bundle = element.getAttributeValue("bundle");
+                    final String key = element.getAttributeValue("key");
+                    if (bundle != null && key != null) {
+                        putIfAbsent(localeBundleElements, localeBundleKey(bundle, key), element);
+                    }
+                }
+            }
+        }
+
+        private Element settingElement(final PwmSetting setting, final String profileID) {
+            return settingElements.get(settingKey(setting, profileID));
+        }
+
+        private boolean hasStoredValue(final PwmSetting setting, final String profileID) {
+            final Element settingElement = settingElement(setting, profileID);
+            return settingElement != null && settingElement.getChild(XML_ELEMENT_DEFAULT) == null;
+        }
+
+        private static String settingKey(final PwmSetting setting, final String profileID) {
+            return settingKey(setting.getKey(), profileID);
+        }
+
+        private static String settingKey(final String settingKey, final String profileID) {
+            return settingKey + "|" + (profileID == null ? "" : profileID);
+        }
+
+        private static String localeBundleKey(final String bundleName, final String keyName) {
+            return bundleName + "!" + keyName;
+        }
+
+        private static void putIfAbsent(final Map<String,Element> map, final String key, final Element element) {
+            if (!map.containsKey(key)) {
+                map.put(key, element);
+            }
+        }
+    }
+
     static class SettingValueRecord implements Serializable {
         private PwmSetting setting;
         private String profile;
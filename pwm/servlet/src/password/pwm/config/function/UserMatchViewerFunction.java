@@ -55,8 +55,7 @@ public class UserMatchViewerFunction implements SettingUIFunction {
             throws Exception
     {
         final Locale userLocale = pwmSession == null ? PwmConstants.DEFAULT_LOCALE : pwmSession.getSessionStateBean().getLocale();
-        final int maxResultSize = Integer.parseInt(
-                pwmApplication.getConfig().readAppProperty(AppProperty.CONFIG_EDITOR_QUERY_FILTER_TEST_LIMIT));
+        final int maxResultSize = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.CONFIG_EDITOR_QUERY_FILTER_TEST_LIMIT);
         final Map<String,List<String>> matchingUsers = discoverMatchingUsers(maxResultSize, storedConfiguration, setting, profile);
         return convertResultsToHtmlTable(
                 pwmApplication, userLocale, matchingUsers, maxResultSize
@@ -51,6 +51,8 @@ public class PwmPasswordPolicy implements Profile,Serializable {
 
     private transient final ChaiPasswordPolicy chaiPasswordPolicy;
 
+    private transient volatile RuleHelper ruleHelper;
+
     private String profileID;
     private List<UserPermission> userPermissions;
     private String ruleText;
@@ -145,8 +147,17 @@ public class PwmPasswordPolicy implements Profile,Serializable {
         return chaiPasswordPolicy;
     }
 
+    /**
+     * The policy map does not change once the policy is created, so the rule helper, which holds the parsed and
+     * compiled rule values, is created once per policy.
+     */
     public RuleHelper getRuleHelper() {
-        return new RuleHelper(this);
+        RuleHelper helper = ruleHelper;
+        if (helper == null) {
+            helper = new RuleHelper(this);
+            ruleHelper = helper;
+        }
+        return helper;
     }
 
     public String getValue(final PwmPasswordRule rule) {
@@ -283,46 +294,87 @@ public class PwmPasswordPolicy implements Profile,Serializable {
 
     public static class RuleHelper {
         private final PwmPasswordPolicy passwordPolicy;
-        private final PasswordRuleHelper chaiRuleHelper;
+        private final int[] intValues = new int[PwmPasswordRule.values().length];
+        private final boolean[] booleanValues = new boolean[PwmPasswordRule.values().length];
+        private final List<String> disallowedValues;
+        private final Set<String> lowerCaseDisallowedValues;
+        private final List<String> disallowedAttributes;
+        private final List<Pattern> regExMatch;
+        private final List<Pattern> regExNoMatch;
+        private final List<Pattern> charGroupValues;
+        private final ADPolicyComplexity adComplexityLevel;
 
         public RuleHelper(final PwmPasswordPolicy passwordPolicy) {
             this.passwordPolicy = passwordPolicy;
-            chaiRuleHelper = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy(passwordPolicy.policyMap).getRuleHelper();
+            final PasswordRuleHelper chaiRuleHelper = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy(passwordPolicy.policyMap).getRuleHelper();
+
+            for (final PwmPasswordRule rule : PwmPasswordRule.values()) {
+                final String value = passwordPolicy.policyMap.get(rule.getKey());
+                if (isNumericRule(rule)) {
+                    final int defaultValue = StringHelper.convertStrToInt(rule.getDefaultValue(), 0);
+                    intValues[rule.ordinal()] = StringHelper.convertStrToInt(value, defaultValue);
+                } else if (rule.getRuleType() == ChaiPasswordRule.RuleType.BOOLEAN) {
+                    booleanValues[rule.ordinal()] = StringHelper.convertStrToBoolean(value);
+                }
+            }
+
+            disallowedValues = Collections.unmodifiableList(new ArrayList<>(chaiRuleHelper.getDisallowedValues()));
+            final Set<String> lowerCaseValues = new LinkedHashSet<>();
+            for (final String value : disallowedValues) {
+                if (value != null && value.length() > 0) {
+                    lowerCaseValues.add(value.toLowerCase());
+                }
+            }
+            lowerCaseDisallowedValues = Collections.unmodifiableSet(lowerCaseValues);
+            disallowedAttributes = Collections.unmodifiableList(new ArrayList<>(chaiRuleHelper.getDisallowedAttributes()));
+            regExMatch = readRegExSetting(PwmPasswordRule.RegExMatch);
+            regExNoMatch = readRegExSetting(PwmPasswordRule.RegExNoMatch);
+            charGroupValues = readRegExSetting(PwmPasswordRule.CharGroupsValues);
+
+            final String strLevel = passwordPolicy.getValue(PwmPasswordRule.ADComplexityLevel);
+            adComplexityLevel = strLevel == null || strLevel.isEmpty() ? ADPolicyComplexity.NONE : ADPolicyComplexity.valueOf(strLevel);
+        }
+
+        private static boolean isNumericRule(final PwmPasswordRule rule) {
+            return rule.getRuleType() == ChaiPasswordRule.RuleType.MIN
+                    || rule.getRuleType() == ChaiPasswordRule.RuleType.MAX
+                    || rule.getRuleType() == ChaiPasswordRule.RuleType.NUMERIC;
         }
 
         public List<String> getDisallowedValues() {
-            return chaiRuleHelper.getDisallowedValues();
+            return disallowedValues;
+        }
+
+        /**
+         * @return the non-empty disallowed values, in lower case
+         */
+        public Set<String> getLowerCaseDisallowedValues() {
+            return lowerCaseDisallowedValues;
         }
 
         public List<String> getDisallowedAttributes() {
-            return chaiRuleHelper.getDisallowedAttributes();
+            return disallowedAttributes;
         }
 
         public List<Pattern> getRegExMatch() {
-            return readRegExSetting(PwmPasswordRule.RegExMatch);
+            return regExMatch;
         }
 
         public List<Pattern> getRegExNoMatch() {
-            return readRegExSetting(PwmPasswordRule.RegExNoMatch);
+            return regExNoMatch;
         }
 
         public List<Pattern> getCharGroupValues() {
-            return readRegExSetting(PwmPasswordRule.CharGroupsValues);
+            return charGroupValues;
         }
 
 
         public int readIntValue(final PwmPasswordRule rule) {
-            if (
-                    (rule.getRuleType() != ChaiPasswordRule.RuleType.MIN) &&
-                            (rule.getRuleType() != ChaiPasswordRule.RuleType.MAX) &&
-                            (rule.getRuleType() != ChaiPasswordRule.RuleType.NUMERIC)
-                    ) {
+            if (!isNumericRule(rule)) {
                 throw new IllegalArgumentException("attempt to read non-numeric rule value as int for rule " + rule);
             }
 
-            final String value = passwordPolicy.policyMap.get(rule.getKey());
-            final int defaultValue = StringHelper.convertStrToInt(rule.getDefaultValue(), 0);
-            return StringHelper.convertStrToInt(value, defaultValue);
+            return intValues[rule.ordinal()];
         }
 
         public boolean readBooleanValue(final PwmPasswordRule rule) {
@@ -330,8 +382,7 @@ public class PwmPasswordPolicy implements Profile,Serializable {
                 throw new IllegalArgumentException("attempt to read non-boolean rule value as boolean for rule " + rule);
             }
 
-            final String value = passwordPolicy.policyMap.get(rule.getKey());
-            return StringHelper.convertStrToBoolean(value);
+            return booleanValues[rule.ordinal()];
         }
 
         private List<Pattern> readRegExSetting(final PwmPasswordRule rule) {
@@ -354,7 +405,7 @@ public class PwmPasswordPolicy implements Profile,Serializable {
                 }
             }
 
-            return patterns;
+            return Collections.unmodifiableList(patterns);
         }
 
         public String getChangeMessage() {
@@ -363,11 +414,7 @@ public class PwmPasswordPolicy implements Profile,Serializable {
         }
 
         public ADPolicyComplexity getADComplexityLevel() {
-            final String strLevel = passwordPolicy.getValue(PwmPasswordRule.ADComplexityLevel);
-            if (strLevel == null || strLevel.isEmpty()) {
-                return ADPolicyComplexity.NONE;
-            }
-            return ADPolicyComplexity.valueOf(strLevel);
+            return adComplexityLevel;
         }
     }
 
@@ -0,0 +1,487 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.event;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmException;
+import password.pwm.health.HealthRecord;
+import password.pwm.health.HealthStatus;
+import password.pwm.health.HealthTopic;
+import password.pwm.util.Helper;
+import password.pwm.util.JsonUtil;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.localdb.LocalDBStoredQueue;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable queue of audit records waiting to be delivered to the {@link Sink}s of the {@link AuditManager}.
+ * <p/>
+ * Submitted records are written to a {@link LocalDBStoredQueue} and delivered by a single background thread, so the
+ * submitting request thread only pays for one LocalDB write.  Each sink reads the queue in batches from its own
+ * durable cursor, so a sink that is failing does not hold back delivery to the other sinks.  Records are only removed
+ * from the queue once every sink has accepted them, so records still queued at shutdown are delivered after the next
+ * start.  A sink that fails is retried with an increasing delay.  Records a sink still can not accept after the
+ * maximum age has passed are skipped for that sink only, so one unavailable sink does not hold the queue indefinitely.
+ * <p/>
+ * A sink with a delay is only delivered to once its undelivered records have waited for the delay or a full batch is
+ * waiting, so bursts of records are coalesced into a single delivery to that sink.  Other sinks are delivered to
+ * as records arrive.
+ */
+public class AuditEventQueue {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(AuditEventQueue.class);
+
+    private static final String QUEUE_STORAGE_DELIMINATOR = "###";
+    private static final int WARNING_WINDOW_MS = 30 * 60 * 1000;
+    private static final int CLOSE_WAIT_MS = 5 * 1000;
+    private static final String CURSOR_STORAGE_KEY = "auditQueue.sinkCursors";
+
+    /**
+     * A destination for audit records.  Implementations must either accept the whole batch or throw, and should
+     * tolerate a record being delivered a second time after a restart.
+     */
+    interface Sink {
+        String getName();
+
+        /**
+         * @return how long records may wait to be coalesced with later records before being delivered, or zero to
+         * deliver immediately
+         */
+        long getDelayMs();
+
+        /**
+         * @return the most records to deliver to the sink at once, or zero for the queue's batch size.  A sink that
+         * delivers records one at a time should return 1, so a failure part way through a batch does not cause the
+         * records it already delivered to be delivered again.
+         */
+        int getMaxBatchSize();
+
+        void deliver(List<AuditRecord> records) throws PwmException;
+    }
+
+    static class Settings {
+        private final int batchSize;
+        private final long retryMinMs;
+        private final long retryMaxMs;
+        private final long maxAgeMs;
+        private final int warnQueueSize;
+
+        Settings(final int batchSize, final long retryMinMs, final long retryMaxMs, final long maxAgeMs, final int warnQueueSize) {
+            this.batchSize = Math.max(1, batchSize);
+            this.retryMinMs = Math.max(1, retryMinMs);
+            this.retryMaxMs = Math.max(this.retryMinMs, retryMaxMs);
+            this.maxAgeMs = maxAgeMs;
+            this.warnQueueSize = warnQueueSize;
+        }
+    }
+
+    private final LocalDBStoredQueue queue;
+    private final List<SinkState> sinkStates = new ArrayList<>();
+    private final Settings settings;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private volatile int queueHighWaterMark;
+    private volatile boolean dispatchScheduled;
+    private volatile boolean closed;
+
+    // only accessed by the dispatch thread
+    private long nextWakeTime;
+
+    AuditEventQueue(
+            final LocalDBStoredQueue queue,
+            final List<Sink> sinks,
+            final Settings settings,
+            final String threadName
+    ) {
+        this.queue = queue;
+        this.settings = settings;
+        final Map<String,String> storedCursors = readCursors();
+        for (final Sink sink : sinks) {
+            final SinkState sinkState = new SinkState(sink);
+            final String storedCursor = storedCursors.get(sink.getName());
+            if (storedCursor != null) {
+                sinkState.cursor = Math.min(Integer.parseInt(storedCursor), queue.size());
+            }
+            sinkStates.add(sinkState);
+        }
+
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, Helper.makePwmThreadFactory(threadName + "-", true));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = executor;
+
+        if (!queue.isEmpty()) {
+            LOGGER.debug("resuming delivery of " + queue.size() + " queued audit events");
+        }
+        scheduleDispatch(0);
+    }
+
+    void submit(final AuditRecord auditRecord) {
+        queue.offerLast(serializeRecord(auditRecord));
+        submittedCount.incrementAndGet();
+
+        final int queueSize = queue.size();
+        if (queueSize > queueHighWaterMark) {
+            queueHighWaterMark = queueSize;
+        }
+        scheduleDispatch(0);
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    void close() {
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("audit event delivery did not complete before shutdown, " + queue.size() + " events will be delivered on next startup");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    List<HealthRecord> healthCheck() {
+        final List<HealthRecord> healthRecords = new ArrayList<>();
+        final int queueSize = queue.size();
+        if (settings.warnQueueSize > 0 && queueSize >= settings.warnQueueSize) {
+            healthRecords.add(new HealthRecord(HealthStatus.WARN, HealthTopic.Audit,
+                    "audit event queue has " + queueSize + " undelivered events (high water mark " + queueHighWaterMark + ")"));
+        }
+        for (final SinkState sinkState : sinkStates) {
+            final ErrorInformation lastError = sinkState.lastError;
+            if (lastError != null && TimeDuration.fromCurrent(lastError.getDate()).isShorterThan(WARNING_WINDOW_MS)) {
+                healthRecords.add(new HealthRecord(HealthStatus.WARN, HealthTopic.Audit,
+                        "audit event delivery to " + sinkState.sink.getName() + " failed " + sinkState.consecutiveFailures
+                                + " time(s): " + lastError.toDebugStr()));
+            }
+        }
+        return healthRecords;
+    }
+
+    Map<String,Object> debugStats() {
+        final Map<String,Object> stats = new LinkedHashMap<>();
+        stats.put("queueSize", queue.size());
+        stats.put("queueHighWaterMark", queueHighWaterMark);
+        stats.put("submitted", submittedCount.get());
+        for (final SinkState sinkState : sinkStates) {
+            final Map<String,Object> sinkStats = new LinkedHashMap<>();
+            sinkStats.put("undelivered", Math.max(0, queue.size() - sinkState.cursor));
+            sinkStats.put("delivered", sinkState.deliveredCount.get());
+            sinkStats.put("failures", sinkState.failureCount.get());
+            sinkStats.put("expired", sinkState.expiredCount.get());
+            sinkStats.put("lastBatchMs", sinkState.lastBatchMs);
+            stats.put(sinkState.sink.getName(), sinkStats);
+        }
+        return stats;
+    }
+
+    private void scheduleDispatch(final long delayMs) {
+        if (closed) {
+            return;
+        }
+        final long wakeTime;
+        if (delayMs <= 0) {
+            if (dispatchScheduled) {
+                return;
+            }
+            dispatchScheduled = true;
+            wakeTime = 0;
+        } else {
+            wakeTime = System.currentTimeMillis() + delayMs;
+            if (nextWakeTime != 0 && nextWakeTime <= wakeTime) {
+                return;
+            }
+            nextWakeTime = wakeTime;
+        }
+        try {
+            executor.schedule(new DispatchTask(wakeTime), Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            if (!closed) {
+                LOGGER.error("unable to schedule audit event delivery: " + e.getMessage());
+            }
+        }
+    }
+
+    private class DispatchTask implements Runnable {
+        private final long wakeTime;
+
+        private DispatchTask(final long wakeTime) {
+            this.wakeTime = wakeTime;
+        }
+
+        @Override
+        public void run() {
+            if (wakeTime == 0) {
+                dispatchScheduled = false;
+            } else if (wakeTime == nextWakeTime) {
+                nextWakeTime = 0;
+            }
+            try {
+                dispatch();
+            } catch (Throwable e) {
+                LOGGER.error("unexpected error delivering audit events: " + e.getMessage(), e);
+                scheduleDispatch(settings.retryMaxMs);
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (!closed) {
+            boolean delivered = false;
+            long wakeDelay = 0;
+            for (final SinkState sinkState : sinkStates) {
+                fillPendingRecords(sinkState);
+                if (sinkState.pendingStoredCount == 0) {
+                    continue;
+                }
+
+                final long sinkWakeDelay = nextAttemptDelay(sinkState);
+                if (sinkWakeDelay > 0) {
+                    wakeDelay = minDelay(wakeDelay, sinkWakeDelay);
+                } else if (deliver(sinkState)) {
+                    delivered = true;
+                } else {
+                    wakeDelay = minDelay(wakeDelay, sinkState.nextAttemptTime - System.currentTimeMillis());
+                }
+            }
+
+            if (delivered || sinkStates.isEmpty()) {
+                removeDeliveredRecords();
+            }
+
+            if (!delivered) {
+                if (wakeDelay > 0) {
+                    scheduleDispatch(wakeDelay);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Extends the sink's pending records with records queued after them, up to the sink's batch size.  The head of the
+     * stored queue is only removed by the dispatch thread, so the records already pending are unchanged.
+     */
+    private void fillPendingRecords(final SinkState sinkState) {
+        final int batchSize = batchSize(sinkState);
+        if (sinkState.pendingStoredCount >= batchSize) {
+            return;
+        }
+        final List<String> storedValues = queue.get(sinkState.cursor + sinkState.pendingStoredCount, batchSize - sinkState.pendingStoredCount);
+        if (!storedValues.isEmpty()) {
+            sinkState.pendingRecords.addAll(decodeRecords(storedValues));
+            sinkState.pendingStoredCount += storedValues.size();
+        }
+    }
+
+    /**
+     * Removes the records every sink has moved past from the head of the stored queue.  The lowered cursors are stored
+     * before the records are removed, so an interrupted removal causes records to be delivered again rather than
+     * skipped.
+     */
+    private void removeDeliveredRecords() {
+        int removalCount = queue.size();
+        for (final SinkState sinkState : sinkStates) {
+            removalCount = Math.min(removalCount, sinkState.cursor);
+        }
+        for (final SinkState sinkState : sinkStates) {
+            sinkState.cursor -= removalCount;
+        }
+        writeCursors();
+        if (removalCount > 0) {
+            queue.removeFirst(removalCount);
+        }
+    }
+
+    private Map<String,String> readCursors() {
+        try {
+            final String storedValue = queue.getPwmDB().get(LocalDB.DB.PWM_META, CURSOR_STORAGE_KEY);
+            if (storedValue != null) {
+                return JsonUtil.deserializeStringMap(storedValue);
+            }
+        } catch (LocalDBException | RuntimeException e) {
+            LOGGER.error("unable to read audit event queue positions, queued events will be delivered again to all destinations: " + e.getMessage());
+        }
+        return Collections.emptyMap();
+    }
+
+    private void writeCursors() {
+        final Map<String,String> cursors = new LinkedHashMap<>();
+        for (final SinkState sinkState : sinkStates) {
+            cursors.put(sinkState.sink.getName(), Integer.toString(sinkState.cursor));
+        }
+        try {
+            queue.getPwmDB().put(LocalDB.DB.PWM_META, CURSOR_STORAGE_KEY, JsonUtil.serializeMap(cursors));
+        } catch (LocalDBException e) {
+            throw new IllegalStateException("unexpected localDB error while storing audit event queue positions: " + e.getMessage(), e);
+        }
+    }
+
+    private int batchSize(final SinkState sinkState) {
+        final int sinkBatchSize = sinkState.sink.getMaxBatchSize();
+        return sinkBatchSize > 0 ? Math.min(sinkBatchSize, settings.batchSize) : settings.batchSize;
+    }
+
+    /**
+     * @return the time until the sink should next be delivered to, or zero if it should be delivered to now
+     */
+    private long nextAttemptDelay(final SinkState sinkState) {
+        final long now = System.currentTimeMillis();
+        final long retryDelay = sinkState.nextAttemptTime - now;
+        if (retryDelay > 0) {
+            return retryDelay;
+        }
+        final long sinkDelay = sinkState.sink.getDelayMs();
+        if (sinkDelay > 0 && sinkState.pendingStoredCount < batchSize(sinkState)) {
+            // queued timestamps only have second precision, so the wait is measured from when the records were first seen
+            if (sinkState.waitingSince == 0) {
+                sinkState.waitingSince = now;
+            }
+            final long coalesceDelay = sinkState.waitingSince + sinkDelay - now;
+            if (coalesceDelay > 0) {
+                return coalesceDelay;
+            }
+        }
+        return 0;
+    }
+
+    private static long minDelay(final long currentDelay, final long newDelay) {
+        return currentDelay <= 0 ? newDelay : Math.min(currentDelay, newDelay);
+    }
+
+    private boolean deliver(final SinkState sinkState) {
+        final List<AuditRecord> records = Collections.unmodifiableList(new ArrayList<>(sinkState.pendingRecords));
+        if (records.isEmpty()) {
+            // every pending value failed to decode
+            sinkState.advance();
+            return true;
+        }
+
+        final long startTime = System.currentTimeMillis();
+        try {
+            sinkState.sink.deliver(records);
+            sinkState.recordSuccess(records.size(), System.currentTimeMillis() - startTime);
+            return true;
+        } catch (Exception e) {
+            final ErrorInformation errorInformation = e instanceof PwmException
+                    ? ((PwmException) e).getErrorInformation()
+                    : new ErrorInformation(PwmError.ERROR_UNKNOWN, e.getMessage());
+            sinkState.recordFailure(errorInformation);
+
+            final AuditRecord newestRecord = records.get(records.size() - 1);
+            if (settings.maxAgeMs > 0 && TimeDuration.fromCurrent(newestRecord.getTimestamp()).isLongerThan(settings.maxAgeMs)) {
+                LOGGER.error("discarding " + records.size() + " audit events for " + sinkState.sink.getName()
+                        + ", maximum queued age exceeded; last error: " + errorInformation.toDebugStr());
+                sinkState.expiredCount.addAndGet(records.size());
+                sinkState.advance();
+                return true;
+            }
+
+            LOGGER.error("error delivering " + records.size() + " audit events to " + sinkState.sink.getName()
+                    + ", will retry in " + TimeDuration.asCompactString(sinkState.nextAttemptTime - System.currentTimeMillis())
+                    + ": " + errorInformation.toDebugStr());
+            return false;
+        }
+    }
+
+    private static List<AuditRecord> decodeRecords(final List<String> storedValues) {
+        final List<AuditRecord> records = new ArrayList<>();
+        for (final String storedValue : storedValues) {
+            final AuditRecord record = deserializeRecord(storedValue);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static String serializeRecord(final AuditRecord auditRecord) {
+        return auditRecord.getClass().getName() + QUEUE_STORAGE_DELIMINATOR + JsonUtil.serialize(auditRecord);
+    }
+
+    private static AuditRecord deserializeRecord(final String storedValue) {
+        try {
+            final String[] splitString = storedValue.split(QUEUE_STORAGE_DELIMINATOR, 2);
+            final Class<?> recordClass = Class.forName(splitString[0]);
+            return (AuditRecord) JsonUtil.deserialize(splitString[1], recordClass);
+        } catch (Exception e) {
+            LOGGER.error("error decoding queued audit event, discarding; error: " + e.getMessage() + ", event=" + storedValue);
+            return null;
+        }
+    }
+
+    private class SinkState {
+        private final Sink sink;
+        private final AtomicLong deliveredCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final AtomicLong expiredCount = new AtomicLong();
+        private volatile long lastBatchMs;
+        private volatile ErrorInformation lastError;
+        private volatile int consecutiveFailures;
+        private volatile int cursor;
+        private long nextAttemptTime;
+        private long waitingSince;
+        private int pendingStoredCount;
+        private final List<AuditRecord> pendingRecords = new ArrayList<>();
+
+        private SinkState(final Sink sink) {
+            this.sink = sink;
+        }
+
+        private void recordSuccess(final int recordCount, final long batchMs) {
+            deliveredCount.addAndGet(recordCount);
+            lastBatchMs = batchMs;
+            consecutiveFailures = 0;
+            nextAttemptTime = 0;
+            lastError = null;
+            advance();
+            LOGGER.trace("delivered " + recordCount + " audit events to " + sink.getName() + " in " + TimeDuration.asCompactString(batchMs));
+        }
+
+        private void advance() {
+            cursor += pendingStoredCount;
+            pendingStoredCount = 0;
+            pendingRecords.clear();
+            waitingSince = 0;
+        }
+
+        private void recordFailure(final ErrorInformation errorInformation) {
+            failureCount.incrementAndGet();
+            lastError = errorInformation;
+            final int failures = ++consecutiveFailures;
+            final long retryDelay = Math.min(settings.retryMaxMs, settings.retryMinMs << Math.min(failures - 1, 20));
+            nextAttemptTime = System.currentTimeMillis() + retryDelay;
+        }
+    }
+}
@@ -46,6 +46,7 @@ import password.pwm.util.Helper;
 import password.pwm.util.JsonUtil;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroMachine;
 
@@ -65,6 +66,7 @@ public class AuditManager implements PwmService {
     private ErrorInformation lastError;
     private UserHistoryStore userHistoryStore;
     private AuditVault auditVault;
+    private AuditEventQueue auditEventQueue;
 
     private PwmApplication pwmApplication;
 
@@ -254,7 +256,7 @@ public class AuditManager implements PwmService {
         }
         {
             final TimeDuration maxRecordAge = new TimeDuration(pwmApplication.getConfig().readSettingAsLong(PwmSetting.EVENTS_AUDIT_MAX_AGE) * 1000);
-            final int maxRecords = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.AUDIT_VAULT_MAX_RECORDS));
+            final int maxRecords = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.AUDIT_VAULT_MAX_RECORDS);
             final AuditVault.Settings settings = new AuditVault.Settings(
                     maxRecords,
                     maxRecordAge
@@ -265,16 +267,135 @@ public class AuditManager implements PwmService {
                 auditVault.init(settings);
             }
         }
+        {
+            final Configuration config = pwmApplication.getConfig();
+            final AuditEventQueue.Settings queueSettings = new AuditEventQueue.Settings(
+                    config.readAppPropertyAsInt(AppProperty.QUEUE_AUDIT_BATCH_SIZE),
+                    config.readAppPropertyAsLong(AppProperty.QUEUE_AUDIT_RETRY_MIN_MS),
+                    config.readAppPropertyAsLong(AppProperty.QUEUE_AUDIT_RETRY_MAX_MS),
+                    config.readAppPropertyAsLong(AppProperty.QUEUE_AUDIT_MAX_AGE_MS),
+                    config.readAppPropertyAsInt(AppProperty.QUEUE_AUDIT_WARN_COUNT)
+            );
+            final LocalDBStoredQueue localDBQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
+                    pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.AUDIT_QUEUE);
+            auditEventQueue = new AuditEventQueue(
+                    localDBQueue,
+                    makeSinks(),
+                    queueSettings,
+                    Helper.makeThreadName(pwmApplication, AuditManager.class)
+            );
+        }
 
         this.status = STATUS.OPEN;
     }
 
+    private List<AuditEventQueue.Sink> makeSinks() {
+        final long userHistoryDelayMs = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_AUDIT_USER_HISTORY_DELAY_MS);
+        final List<AuditEventQueue.Sink> sinks = new ArrayList<>();
+        if (auditVault != null) {
+            sinks.add(new AuditEventQueue.Sink() {
+                public String getName() {
+                    return "vault";
+                }
+
+                public long getDelayMs() {
+                    return 0;
+                }
+
+                public int getMaxBatchSize() {
+                    return 0;
+                }
+
+                public void deliver(final List<AuditRecord> records) {
+                    auditVault.addAll(records);
+                }
+            });
+        }
+
+        if (settings.alertFromAddress != null && settings.alertFromAddress.length() > 0) {
+            sinks.add(new AuditEventQueue.Sink() {
+                public String getName() {
+                    return "email";
+                }
+
+                public long getDelayMs() {
+                    return 0;
+                }
+
+                public int getMaxBatchSize() {
+                    // each record is a separate email, so after a failure only the unsent records are retried
+                    return 1;
+                }
+
+                public void deliver(final List<AuditRecord> records) throws PwmUnrecoverableException {
+                    for (final AuditRecord record : records) {
+                        sendAsEmail(record);
+                    }
+                }
+            });
+        }
+
+        sinks.add(new AuditEventQueue.Sink() {
+            public String getName() {
+                return "userHistory";
+            }
+
+            public long getDelayMs() {
+                return userHistoryDelayMs;
+            }
+
+            public int getMaxBatchSize() {
+                return 0;
+            }
+
+            public void deliver(final List<AuditRecord> records) throws PwmUnrecoverableException {
+                final List<UserAuditRecord> userRecords = new ArrayList<>();
+                for (final AuditRecord record : records) {
+                    if (record instanceof UserAuditRecord && record.getEventCode().isStoreOnUser()) {
+                        userRecords.add((UserAuditRecord) record);
+                    }
+                }
+                if (!userRecords.isEmpty()) {
+                    userHistoryStore.updateUserHistory(userRecords);
+                }
+            }
+        });
+
+        if (syslogManager != null) {
+            sinks.add(new AuditEventQueue.Sink() {
+                public String getName() {
+                    return "syslog";
+                }
+
+                public long getDelayMs() {
+                    return 0;
+                }
+
+                public int getMaxBatchSize() {
+                    return 0;
+                }
+
+                public void deliver(final List<AuditRecord> records) throws PwmOperationalException {
+                    for (final AuditRecord record : records) {
+                        syslogManager.add(record);
+                    }
+                }
+            });
+        }
+
+        return sinks;
+    }
+
     @Override
     public void close() {
+        this.status = STATUS.CLOSED;
+        if (auditEventQueue != null) {
+            auditEventQueue.close();
+            auditEventQueue = null;
+        }
         if (syslogManager != null) {
             syslogManager.close();
         }
-        this.status = STATUS.CLOSED;
     }
 
     @Override
@@ -288,6 +409,10 @@ public class AuditManager implements PwmService {
             healthRecords.addAll(syslogManager.healthCheck());
         }
 
+        if (auditEventQueue != null) {
+            healthRecords.addAll(auditEventQueue.healthCheck());
+        }
+
         if (lastError != null) {
             healthRecords.add(new HealthRecord(HealthStatus.WARN, HealthTopic.Audit, lastError.toDebugStr()));
         }
@@ -404,27 +529,13 @@ public class AuditManager implements PwmService {
         // add to debug log
         LOGGER.info("audit event: " + jsonRecord);
 
-        // add to audit db
-        if (auditVault != null) {
-            auditVault.add(auditRecord);
-        }
-
-        // email alert
-        sendAsEmail(auditRecord);
-
-        // add to user ldap record
-        if (auditRecord instanceof UserAuditRecord && auditRecord.getEventCode().isStoreOnUser()) {
-            userHistoryStore.updateUserHistory((UserAuditRecord)auditRecord);
-        }
-
-        // send to syslog
-        if (syslogManager != null) {
-            try {
-                syslogManager.add(auditRecord);
-            } catch (PwmOperationalException e) {
-                lastError = e.getErrorInformation();
-            }
+        // queue for delivery to the audit vault, email, user history and syslog
+        final AuditEventQueue queue = auditEventQueue;
+        if (queue == null) {
+            LOGGER.warn("discarding audit event (AuditManager is closing); event=" + jsonRecord);
+            return;
         }
+        queue.submit(auditRecord);
     }
 
 
@@ -508,6 +619,14 @@ public class AuditManager implements PwmService {
         return syslogManager != null ? syslogManager.queueSize() : 0;
     }
 
+    public int auditQueueSize() {
+        return auditEventQueue != null ? auditEventQueue.size() : 0;
+    }
+
+    public Map<String,Object> auditQueueStats() {
+        return auditEventQueue != null ? auditEventQueue.debugStats() : Collections.<String,Object>emptyMap();
+    }
+
     private static Set<AuditEvent> figurePermittedEvents(final Configuration configuration) {
         final Set<AuditEvent> eventSet = new HashSet<>();
         eventSet.addAll(configuration.readSettingAsOptionList(PwmSetting.AUDIT_SYSTEM_EVENTS,AuditEvent.class));
@@ -25,6 +25,7 @@ package password.pwm.event;
 import password.pwm.util.TimeDuration;
 
 import java.util.Iterator;
+import java.util.List;
 
 public interface AuditVault {
 
@@ -36,6 +37,8 @@ public interface AuditVault {
 
     void add(AuditRecord record);
 
+    void addAll(List<AuditRecord> records);
+
     static class Settings {
         private int maxRecordCount;
         private TimeDuration maxRecordAge;
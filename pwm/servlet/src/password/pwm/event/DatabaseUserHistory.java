@@ -37,8 +37,7 @@ import password.pwm.util.db.DatabaseTable;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 class DatabaseUserHistory implements UserHistoryStore {
     private static final PwmLogger LOGGER = PwmLogger.forClass(DatabaseUserHistory.class);
@@ -55,20 +54,43 @@ class DatabaseUserHistory implements UserHistoryStore {
 
     @Override
     public void updateUserHistory(UserAuditRecord auditRecord) throws PwmUnrecoverableException {
-        final UserIdentity targetUserDN = new UserIdentity(auditRecord.getPerpetratorDN(),auditRecord.getPerpetratorLdapProfile());
-        final String guid;
-        try {
-            guid = LdapOperationsHelper.readLdapGuidValue(pwmApplication, null, targetUserDN, false);
-        } catch (ChaiUnavailableException e) {
-            LOGGER.error("unable to read guid for user '" + targetUserDN + "', cannot update user history, error: " + e.getMessage());
-            return;
+        updateUserHistory(Collections.singletonList(auditRecord));
+    }
+
+    @Override
+    public void updateUserHistory(List<UserAuditRecord> auditRecords) throws PwmUnrecoverableException {
+        // group by user so each user's history is only read and written once
+        final Map<UserIdentity,List<UserAuditRecord>> recordsByUser = new LinkedHashMap<>();
+        for (final UserAuditRecord auditRecord : auditRecords) {
+            final UserIdentity targetUserDN = new UserIdentity(auditRecord.getPerpetratorDN(),auditRecord.getPerpetratorLdapProfile());
+            List<UserAuditRecord> userRecords = recordsByUser.get(targetUserDN);
+            if (userRecords == null) {
+                userRecords = new ArrayList<>();
+                recordsByUser.put(targetUserDN, userRecords);
+            }
+            userRecords.add(auditRecord);
         }
 
         try {
-            final StoredHistory storedHistory;
-            storedHistory = readStoredHistory(guid);
-            storedHistory.getRecords().add(auditRecord);
-            writeStoredHistory(guid,storedHistory);
+            // every user's history is written in one transaction, so a failed batch leaves nothing half written
+            final Map<String,StoredHistory> updatedHistories = new LinkedHashMap<>();
+            for (final UserIdentity targetUserDN : recordsByUser.keySet()) {
+                final String guid;
+                try {
+                    guid = LdapOperationsHelper.readLdapGuidValue(pwmApplication, null, targetUserDN, false);
+                } catch (ChaiUnavailableException e) {
+                    LOGGER.error("unable to read guid for user '" + targetUserDN + "', cannot update user history, error: " + e.getMessage());
+                    continue;
+                }
+
+                StoredHistory storedHistory = updatedHistories.get(guid);
+                if (storedHistory == null) {
+                    storedHistory = readStoredHistory(guid);
+                    updatedHistories.put(guid, storedHistory);
+                }
+                storedHistory.getRecords().addAll(recordsByUser.get(targetUserDN));
+            }
+            writeStoredHistories(updatedHistories);
         } catch (DatabaseException e) {
             throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,e.getMessage()));
         }
@@ -92,12 +114,12 @@ class DatabaseUserHistory implements UserHistoryStore {
         return JsonUtil.deserialize(str,StoredHistory.class);
     }
 
-    private void writeStoredHistory(final String guid, final StoredHistory storedHistory) throws DatabaseException {
-        if (storedHistory == null) {
-            return;
+    private void writeStoredHistories(final Map<String,StoredHistory> storedHistories) throws DatabaseException {
+        final Map<String,String> values = new LinkedHashMap<>();
+        for (final Map.Entry<String,StoredHistory> entry : storedHistories.entrySet()) {
+            values.put(entry.getKey(), JsonUtil.serialize(entry.getValue()));
         }
-        final String str = JsonUtil.serialize(storedHistory);
-        databaseAccessor.put(TABLE,guid,str);
+        databaseAccessor.putAll(TABLE, values);
     }
 
     static class StoredHistory implements Serializable {
@@ -22,6 +22,7 @@
 
 package password.pwm.event;
 
+import com.google.gson.annotations.SerializedName;
 import com.novell.ldapchai.ChaiUser;
 import com.novell.ldapchai.exception.ChaiOperationException;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
@@ -33,24 +34,31 @@ import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.bean.UserIdentity;
 import password.pwm.bean.UserInfoBean;
 import password.pwm.config.PwmSetting;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.JsonUtil;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.StringReader;
-import java.util.Collections;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Wrapper class to handle user event history.
+ * <p/>
+ * The history is stored in a {@link ConfigObjectRecord} on the user entry, and is trimmed to the configured maximum
+ * event count and age on every write.  Histories are read in either the xml format or the compact json format, but
+ * are only written as json when the {@link AppProperty#EVENTS_LDAP_JSON_FORMAT} property is enabled, so servers of
+ * older versions sharing the directory can still read them until every server is upgraded.  All records of a batch
+ * for the same user are applied with a single read and write of the user's attribute.  Events already present in the
+ * stored history are not added again, so a batch redelivered after a partial failure does not duplicate the users
+ * that were already written.
  *
  * @author Jason D. Rivard
  */
@@ -78,22 +86,13 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
     public void updateUserHistory(final UserAuditRecord auditRecord)
             throws PwmUnrecoverableException
     {
-        try {
-            updateUserHistoryImpl(auditRecord);
-        } catch (ChaiUnavailableException e) {
-            throw new PwmUnrecoverableException(PwmError.forChaiError(e.getErrorCode()));
-        }
+        updateUserHistory(Collections.singletonList(auditRecord));
     }
 
-    void updateUserHistoryImpl(final UserAuditRecord auditRecord)
-            throws PwmUnrecoverableException, ChaiUnavailableException
+    public void updateUserHistory(final List<UserAuditRecord> auditRecords)
+            throws PwmUnrecoverableException
     {
-        // user info
-        final UserIdentity userIdentity = new UserIdentity(auditRecord.getPerpetratorDN(),auditRecord.getPerpetratorLdapProfile());
-        final ChaiUser theUser = pwmApplication.getProxiedChaiUser(userIdentity);
-
         // settings
-        final String corRecordIdentifer = COR_RECORD_ID;
         final String corAttribute = pwmApplication.getConfig().readSettingAsString(PwmSetting.EVENTS_LDAP_ATTRIBUTE);
 
         // quit if settings no good;
@@ -102,37 +101,75 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
             return;
         }
 
-        // read current value;
-        final StoredHistory storedHistory;
-        final ConfigObjectRecord theCor;
+        final int maxUserEvents = (int) pwmApplication.getConfig().readSettingAsLong(PwmSetting.EVENTS_LDAP_MAX_EVENTS);
+        final long maxEventAgeMs = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.EVENTS_LDAP_MAX_AGE_MS);
+        final boolean jsonFormat = pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.EVENTS_LDAP_JSON_FORMAT);
+
+        // group by user so each user's attribute is only read and written once
+        final Map<UserIdentity,List<UserAuditRecord>> recordsByUser = new LinkedHashMap<>();
+        for (final UserAuditRecord auditRecord : auditRecords) {
+            final UserIdentity userIdentity = new UserIdentity(auditRecord.getPerpetratorDN(),auditRecord.getPerpetratorLdapProfile());
+            List<UserAuditRecord> userRecords = recordsByUser.get(userIdentity);
+            if (userRecords == null) {
+                userRecords = new ArrayList<>();
+                recordsByUser.put(userIdentity, userRecords);
+            }
+            userRecords.add(auditRecord);
+        }
+
         try {
-            final List corList = ConfigObjectRecord.readRecordFromLDAP(theUser, corAttribute, corRecordIdentifer, null, null);
-            if (!corList.isEmpty()) {
-                theCor = (ConfigObjectRecord) corList.get(0);
-            } else {
-                theCor = ConfigObjectRecord.createNew(theUser, corAttribute, corRecordIdentifer, null, null);
+            for (final UserIdentity userIdentity : recordsByUser.keySet()) {
+                final ChaiUser theUser = pwmApplication.getProxiedChaiUser(userIdentity);
+                try {
+                    writeUserHistory(theUser, corAttribute, recordsByUser.get(userIdentity), maxUserEvents, maxEventAgeMs, jsonFormat);
+                } catch (ChaiOperationException e) {
+                    LOGGER.error("ldap error writing user event log for " + userIdentity + ": " + e.getMessage());
+                }
             }
+        } catch (ChaiUnavailableException e) {
+            throw new PwmUnrecoverableException(PwmError.forChaiError(e.getErrorCode()));
+        }
+    }
 
-            storedHistory = StoredHistory.fromXml(theCor.getPayload());
-        } catch (ChaiOperationException e) {
-            LOGGER.error("ldap error writing user event log: " + e.getMessage());
-            return;
+    /**
+     * Adds the records to the user's stored history with one read and one write of the history attribute.
+     *
+     * @return the length of the written history value
+     */
+    static int writeUserHistory(
+            final ChaiUser theUser,
+            final String corAttribute,
+            final List<UserAuditRecord> auditRecords,
+            final int maxUserEvents,
+            final long maxEventAgeMs,
+            final boolean jsonFormat
+    )
+            throws ChaiUnavailableException, ChaiOperationException
+    {
+        // read current value;
+        final ConfigObjectRecord theCor;
+        final List corList = ConfigObjectRecord.readRecordFromLDAP(theUser, corAttribute, COR_RECORD_ID, null, null);
+        if (!corList.isEmpty()) {
+            theCor = (ConfigObjectRecord) corList.get(0);
+        } else {
+            theCor = ConfigObjectRecord.createNew(theUser, corAttribute, COR_RECORD_ID, null, null);
         }
+        final StoredHistory storedHistory = StoredHistory.fromPayload(theCor.getPayload());
 
-        // add next record to blob
-        final StoredEvent storedEvent = StoredEvent.fromAuditRecord(auditRecord);
-        storedHistory.addEvent(storedEvent);
+        // add next records to blob
+        final List<StoredEvent> newEvents = new ArrayList<>();
+        for (final UserAuditRecord auditRecord : auditRecords) {
+            newEvents.add(StoredEvent.fromAuditRecord(auditRecord));
+        }
+        storedHistory.mergeEvents(newEvents);
 
         // trim the blob.
-        final int maxUserEvents = (int) pwmApplication.getConfig().readSettingAsLong(PwmSetting.EVENTS_LDAP_MAX_EVENTS);
-        storedHistory.trim(maxUserEvents);
+        storedHistory.trim(maxUserEvents, maxEventAgeMs);
 
         // write the blob.
-        try {
-            theCor.updatePayload(storedHistory.toXml());
-        } catch (ChaiOperationException e) {
-            LOGGER.error("ldap error writing user event log: " + e.getMessage());
-        }
+        final String payload = storedHistory.toPayload(jsonFormat);
+        theCor.updatePayload(payload);
+        return payload.length();
     }
 
     public List<UserAuditRecord> readUserHistory(final UserInfoBean userInfoBean)
@@ -165,7 +202,7 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
 
             if (!corList.isEmpty()) {
                 final ConfigObjectRecord theCor = (ConfigObjectRecord) corList.get(0);
-                return StoredHistory.fromXml(theCor.getPayload());
+                return StoredHistory.fromPayload(theCor.getPayload());
             }
         } catch (ChaiOperationException e) {
             LOGGER.error("ldap error reading user event log: " + e.getMessage());
@@ -173,17 +210,52 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
         return new StoredHistory();
     }
 
-    private static class StoredHistory {
+    static class StoredHistory {
         private final LinkedList<StoredEvent> records = new LinkedList<>();
 
         public void addEvent(final StoredEvent storedEvent) {
             records.add(storedEvent);
         }
 
-        public void trim(final int size) {
+        /**
+         * Adds the events, skipping any with the same timestamp and audit event as an event that was already stored.
+         * Identical events within the added list are all kept.
+         *
+         * @return the number of events added
+         */
+        public int mergeEvents(final List<StoredEvent> storedEvents) {
+            final Set<String> storedKeys = new HashSet<>();
+            for (final StoredEvent loopEvent : records) {
+                storedKeys.add(loopEvent.getMergeKey());
+            }
+            int added = 0;
+            for (final StoredEvent storedEvent : storedEvents) {
+                if (!storedKeys.contains(storedEvent.getMergeKey())) {
+                    records.add(storedEvent);
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        public void trim(final int size, final long maxAgeMs) {
             while (records.size() > size) {
                 records.removeFirst();
             }
+            if (maxAgeMs > 0) {
+                final long oldestTimestamp = System.currentTimeMillis() - maxAgeMs;
+                while (!records.isEmpty() && records.getFirst().getTimestamp() < oldestTimestamp) {
+                    records.removeFirst();
+                }
+            }
+        }
+
+        public int size() {
+            return records.size();
+        }
+
+        public List<StoredEvent> getEvents() {
+            return Collections.unmodifiableList(records);
         }
 
         public List<UserAuditRecord> asAuditRecords(final UserInfoBean userInfoBean) {
@@ -194,7 +266,21 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
             return Collections.unmodifiableList(returnList);
         }
 
-        public String toXml() {
+        public String toPayload(final boolean jsonFormat) {
+            return jsonFormat ? toJson() : toXml();
+        }
+
+        private String toJson() {
+            final List<StoredEvent> storedEvents = new ArrayList<>();
+            for (final StoredEvent loopEvent : records) {
+                if (loopEvent.getAuditEvent() != null) {
+                    storedEvents.add(loopEvent);
+                }
+            }
+            return JsonUtil.serializeCollection(storedEvents);
+        }
+
+        private String toXml() {
             final Element rootElement = new Element(XML_NODE_ROOT);
 
             for (final StoredEvent loopEvent : records) {
@@ -202,11 +288,11 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
                     final Element hrElement = new Element(XML_NODE_RECORD);
                     hrElement.setAttribute(XML_ATTR_TIMESTAMP, String.valueOf(loopEvent.getTimestamp()));
                     hrElement.setAttribute(XML_ATTR_TRANSACTION, loopEvent.getAuditEvent().getMessage().getKey());
-                    if (loopEvent.getSourceAddress() != null && loopEvent.getSourceAddress().length() > 0) {
-                        hrElement.setAttribute(XML_ATTR_SRC_IP,loopEvent.getSourceAddress());
+                    if (loopEvent.getSourceAddress() != null) {
+                        hrElement.setAttribute(XML_ATTR_SRC_IP, loopEvent.getSourceAddress());
                     }
-                    if (loopEvent.getSourceHost() != null && loopEvent.getSourceHost().length() > 0) {
-                        hrElement.setAttribute(XML_ATTR_SRC_HOST,loopEvent.getSourceHost());
+                    if (loopEvent.getSourceHost() != null) {
+                        hrElement.setAttribute(XML_ATTR_SRC_HOST, loopEvent.getSourceHost());
                     }
                     if (loopEvent.getMessage() != null) {
                         hrElement.setContent(new CDATA(loopEvent.getMessage()));
@@ -221,7 +307,31 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
             return outputter.outputString(doc);
         }
 
-        public static StoredHistory fromXml(final String input) {
+        public static StoredHistory fromPayload(final String input) {
+            if (input != null && input.trim().startsWith("[")) {
+                return fromJson(input);
+            }
+            return fromXml(input);
+        }
+
+        private static StoredHistory fromJson(final String input) {
+            final StoredHistory returnHistory = new StoredHistory();
+            try {
+                final StoredEvent[] storedEvents = JsonUtil.deserialize(input, StoredEvent[].class);
+                if (storedEvents != null) {
+                    for (final StoredEvent storedEvent : storedEvents) {
+                        if (storedEvent != null && storedEvent.getAuditEvent() != null) {
+                            returnHistory.addEvent(storedEvent);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.error("error parsing user event history record: " + e.getMessage());
+            }
+            return returnHistory;
+        }
+
+        private static StoredHistory fromXml(final String input) {
             final StoredHistory returnHistory = new StoredHistory();
 
             if (input == null || input.length() < 1) {
@@ -237,8 +347,8 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
                     final long timeStamp = hrElement.getAttribute(XML_ATTR_TIMESTAMP).getLongValue();
                     final String transactionCode = hrElement.getAttribute(XML_ATTR_TRANSACTION).getValue();
                     final AuditEvent eventCode = AuditEvent.forKey(transactionCode);
-                    final String srcAddr = hrElement.getAttribute(XML_ATTR_SRC_IP) != null ? hrElement.getAttribute(XML_ATTR_SRC_IP).toString() : "";
-                    final String srcHost = hrElement.getAttribute(XML_ATTR_SRC_HOST) != null ? hrElement.getAttribute(XML_ATTR_SRC_HOST).toString() : "";
+                    final String srcAddr = hrElement.getAttribute(XML_ATTR_SRC_IP) != null ? hrElement.getAttribute(XML_ATTR_SRC_IP).getValue() : "";
+                    final String srcHost = hrElement.getAttribute(XML_ATTR_SRC_HOST) != null ? hrElement.getAttribute(XML_ATTR_SRC_HOST).getValue() : "";
                     final String message = hrElement.getText();
                     final StoredEvent storedEvent = new StoredEvent(eventCode,timeStamp,message,srcAddr,srcHost);
                     returnHistory.addEvent(storedEvent);
@@ -252,20 +362,32 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
         }
     }
 
-    private static class StoredEvent implements Serializable {
+    /**
+     * A single stored event.  Serialized names are kept short as they are repeated for every event in the stored json.
+     */
+    static class StoredEvent implements Serializable {
+        @SerializedName("e")
         private AuditEvent auditEvent;
+
+        @SerializedName("t")
         private long timestamp;
+
+        @SerializedName("m")
         private String message;
+
+        @SerializedName("a")
         private String sourceAddress;
+
+        @SerializedName("h")
         private String sourceHost;
 
 
         private StoredEvent(AuditEvent auditEvent, long timestamp, String message, String sourceAddress, String sourceHost) {
             this.auditEvent = auditEvent;
             this.timestamp = timestamp;
-            this.message = message;
-            this.sourceAddress = sourceAddress;
-            this.sourceHost = sourceHost;
+            this.message = emptyToNull(message);
+            this.sourceAddress = emptyToNull(sourceAddress);
+            this.sourceHost = emptyToNull(sourceHost);
         }
 
         public AuditEvent getAuditEvent() {
@@ -288,6 +410,14 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
             return sourceHost;
         }
 
+        private String getMergeKey() {
+            return timestamp + ":" + auditEvent;
+        }
+
+        private static String emptyToNull(final String input) {
+            return input == null || input.length() < 1 ? null : input;
+        }
+
         public static StoredEvent fromAuditRecord(final UserAuditRecord auditRecord) {
             return new StoredEvent(auditRecord.getEventCode(),auditRecord.getTimestamp().getTime(),auditRecord.getMessage(),auditRecord.getSourceAddress(),auditRecord.getSourceHost());
         }
@@ -309,4 +439,3 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
 // -------------------------- INNER CLASSES --------------------------
 
 }
-
@@ -30,9 +30,7 @@ import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 
-import java.util.Date;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 
 public class LocalDbAuditVault implements AuditVault {
     private static final PwmLogger LOGGER = PwmLogger.forClass(LocalDbAuditVault.class);
@@ -125,33 +123,49 @@ public class LocalDbAuditVault implements AuditVault {
 
         final String jsonRecord = JsonUtil.serialize(record);
         auditDB.addLast(jsonRecord);
-        trim();
+        trim(MAX_REMOVALS_PER_ADD);
     }
 
-    private void trim() {
-        if (oldestRecord != null && TimeDuration.fromCurrent(oldestRecord).isLongerThan(settings.getMaxRecordAge())) {
+    public void addAll(final List<AuditRecord> records) {
+        if (records == null || records.isEmpty()) {
             return;
         }
 
+        final List<String> jsonRecords = new ArrayList<>(records.size());
+        for (final AuditRecord record : records) {
+            if (record != null) {
+                jsonRecords.add(JsonUtil.serialize(record));
+            }
+        }
+        auditDB.addLast(jsonRecords);
+        trim(MAX_REMOVALS_PER_ADD * Math.max(1, jsonRecords.size()));
+    }
+
+    private void trim(final int maxRemovals) {
         if (auditDB.isEmpty()) {
             return;
         }
 
         int workActions = 0;
-        while (workActions < MAX_REMOVALS_PER_ADD && !auditDB.isEmpty()) {
-            final String stringFirstRecord = auditDB.getFirst();
-            final UserAuditRecord firstRecord = JsonUtil.deserialize(stringFirstRecord, UserAuditRecord.class);
-            oldestRecord = firstRecord.getTimestamp();
-            if (TimeDuration.fromCurrent(oldestRecord).isLongerThan(settings.getMaxRecordAge())) {
-                auditDB.removeFirst();
-                workActions++;
-            } else {
-                return;
+
+        // the oldest record is only re-read once it may have passed the maximum age
+        if (oldestRecord == null || TimeDuration.fromCurrent(oldestRecord).isLongerThan(settings.getMaxRecordAge())) {
+            while (workActions < maxRemovals && !auditDB.isEmpty()) {
+                final String stringFirstRecord = auditDB.getFirst();
+                final UserAuditRecord firstRecord = JsonUtil.deserialize(stringFirstRecord, UserAuditRecord.class);
+                oldestRecord = firstRecord.getTimestamp();
+                if (TimeDuration.fromCurrent(oldestRecord).isLongerThan(settings.getMaxRecordAge())) {
+                    auditDB.removeFirst();
+                    workActions++;
+                } else {
+                    break;
+                }
             }
         }
 
-        while (auditDB.size() > settings.getMaxRecordCount() && workActions < MAX_REMOVALS_PER_ADD) {
+        while (auditDB.size() > settings.getMaxRecordCount() && workActions < maxRemovals) {
             auditDB.removeFirst();
+            oldestRecord = null;
             workActions++;
         }
     }
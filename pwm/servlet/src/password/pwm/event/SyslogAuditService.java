@@ -88,9 +88,9 @@ public class SyslogAuditService {
     {
         timer = new Timer(Helper.makeThreadName(pwmApplication,SyslogAuditService.class),true);
 
-        MAX_QUEUE_SIZE = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_SYSLOG_MAX_COUNT));
-        MAX_AGE_MS = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_SYSLOG_MAX_AGE_MS));
-        RETRY_TIMEOUT_MS = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_SYSLOG_RETRY_TIMEOUT_MS));
+        MAX_QUEUE_SIZE = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.QUEUE_SYSLOG_MAX_COUNT);
+        MAX_AGE_MS = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_SYSLOG_MAX_AGE_MS);
+        RETRY_TIMEOUT_MS = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_SYSLOG_RETRY_TIMEOUT_MS);
 
         syslogQueue = LocalDBStoredQueue.createLocalDBStoredQueue(pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SYSLOG_QUEUE);
 
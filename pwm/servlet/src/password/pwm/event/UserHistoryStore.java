@@ -30,5 +30,10 @@ import java.util.List;
 public interface UserHistoryStore {
     void updateUserHistory(final UserAuditRecord auditRecord) throws PwmUnrecoverableException;
 
+    /**
+     * Adds the records to the history of their users, reading and writing each user's stored history once.
+     */
+    void updateUserHistory(final List<UserAuditRecord> auditRecords) throws PwmUnrecoverableException;
+
     List<UserAuditRecord> readUserHistory(final UserInfoBean userInfoBean) throws PwmUnrecoverableException;
 }
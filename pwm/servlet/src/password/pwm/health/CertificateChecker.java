@@ -65,7 +65,7 @@ public class CertificateChecker implements HealthChecker {
     }
 
     private static List<HealthRecord> doHealthCheck(Configuration configuration, PwmSetting setting, X509Certificate[] certificates) {
-        final long warnDurationMs = 1000 * Long.parseLong(configuration.readAppProperty(AppProperty.HEALTH_CERTIFICATE_WARN_SECONDS));
+        final long warnDurationMs = 1000 * configuration.readAppPropertyAsLong(AppProperty.HEALTH_CERTIFICATE_WARN_SECONDS);
 
         if (certificates != null) {
             final List<HealthRecord> returnList = new ArrayList<>();
@@ -74,6 +74,8 @@ public enum HealthMessage {
     ServiceClosed_LocalDBUnavail            (HealthStatus.CAUTION,  HealthTopic.Application),
     ServiceClosed_AppReadOnly               (HealthStatus.CAUTION,  HealthTopic.Application),
     SMS_SendFailure                         (HealthStatus.WARN,     HealthTopic.SMS),
+    HealthCheck_Timeout                     (HealthStatus.WARN,     HealthTopic.Application),
+    HealthCheck_Pending                     (HealthStatus.CAUTION,  HealthTopic.Application),
 
     ;
 
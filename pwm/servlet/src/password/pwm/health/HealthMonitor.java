@@ -27,26 +27,40 @@ import password.pwm.PwmApplication;
 import password.pwm.PwmService;
 import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.PwmException;
+import password.pwm.util.Helper;
+import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Runs each registered {@link HealthChecker} in the background on its own interval, with a per-checker timeout.  Callers
+ * are always served the most recently completed set of results and never wait on a checker, except when an immediate
+ * refresh is requested.
+ */
 public class HealthMonitor implements PwmService {
     private static final PwmLogger LOGGER = PwmLogger.forClass(HealthMonitor.class);
     private static final int MIN_INTERVAL_SECONDS = 30;
     private static final int MAX_INTERVAL_SECONDS = 60 * 60 * 24;
 
     private PwmApplication pwmApplication;
-    private Set<HealthRecord> healthRecords = Collections.emptySet();
-    private final List<HealthChecker> healthCheckers = new ArrayList<>();
+    private volatile Set<HealthRecord> healthRecords = Collections.emptySet();
+    private final List<HealthCheckJob> healthCheckJobs = new CopyOnWriteArrayList<>();
 
-    private Date lastHealthCheckDate = null;
+    private volatile Date lastHealthCheckDate = null;
     private int intervalSeconds = 0;
+    private TimeDuration checkTimeout = new TimeDuration(30 * 1000);
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executorService;
+    private final AtomicBoolean initialCheckRequested = new AtomicBoolean(false);
 
-    private Map<HealthProperty, Serializable> healthProperties = new HashMap<>();
+    private Map<HealthProperty, Serializable> healthProperties = new ConcurrentHashMap<>();
 
-    private STATUS status = STATUS.NEW;
+    private volatile STATUS status = STATUS.NEW;
 
     public enum HealthProperty {
         LdapVendorSameCheck,
@@ -78,21 +92,32 @@ public class HealthMonitor implements PwmService {
     }
 
     public void registerHealthCheck(final HealthChecker healthChecker) {
-        healthCheckers.add(healthChecker);
+        registerHealthCheck(healthChecker, new TimeDuration(intervalSeconds * 1000L), checkTimeout);
+    }
+
+    public void registerHealthCheck(final HealthChecker healthChecker, final TimeDuration interval, final TimeDuration timeout) {
+        final HealthCheckJob job = new HealthCheckJob(healthChecker, timeout);
+        healthCheckJobs.add(job);
+        if (scheduler != null) {
+            scheduler.scheduleWithFixedDelay(job, interval.getTotalMilliseconds(), interval.getTotalMilliseconds(), TimeUnit.MILLISECONDS);
+        }
     }
 
     public Set<HealthRecord> getHealthRecords() {
         return getHealthRecords(false);
     }
 
-    public synchronized Set<HealthRecord> getHealthRecords(final boolean refreshImmediate) {
-        if (lastHealthCheckDate == null || refreshImmediate) {
-            doHealthChecks();
-        } else {
-            final long lastHealthCheckMs = lastHealthCheckDate.getTime();
-            final long lastValidHealthCheckMs = System.currentTimeMillis() - (intervalSeconds * 1000);
-            if (lastHealthCheckMs < lastValidHealthCheckMs) {
-                doHealthChecks();
+    public Set<HealthRecord> getHealthRecords(final boolean refreshImmediate) {
+        if (status != STATUS.OPEN) {
+            return healthRecords;
+        }
+
+        if (refreshImmediate) {
+            initialCheckRequested.set(true);
+            executeAllAndWait();
+        } else if (initialCheckRequested.compareAndSet(false, true)) {
+            for (final HealthCheckJob job : healthCheckJobs) {
+                job.execute();
             }
         }
         return healthRecords;
@@ -105,7 +130,7 @@ public class HealthMonitor implements PwmService {
     public void init(PwmApplication pwmApplication) throws PwmException {
         status = STATUS.OPENING;
         this.pwmApplication = pwmApplication;
-        this.intervalSeconds = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.HEALTH_MIN_CHECK_INTERVAL_SECONDS));
+        this.intervalSeconds = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.HEALTH_MIN_CHECK_INTERVAL_SECONDS);
 
         if (intervalSeconds < MIN_INTERVAL_SECONDS) {
             intervalSeconds = MIN_INTERVAL_SECONDS;
@@ -113,11 +138,26 @@ public class HealthMonitor implements PwmService {
             intervalSeconds = MAX_INTERVAL_SECONDS;
         }
 
+        final long certificateIntervalSeconds = Math.max(intervalSeconds,
+                pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.HEALTH_CERTIFICATE_CHECK_INTERVAL_SECONDS));
+
+        open(
+                new TimeDuration(pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.HEALTH_CHECK_TIMEOUT_MS)),
+                Helper.makeThreadName(pwmApplication, this.getClass())
+        );
+
         registerHealthCheck(new LDAPStatusChecker());
         registerHealthCheck(new JavaChecker());
         registerHealthCheck(new ConfigurationChecker());
         registerHealthCheck(new LocalDBHealthChecker());
-        registerHealthCheck(new CertificateChecker());
+        registerHealthCheck(new CertificateChecker(), new TimeDuration(certificateIntervalSeconds * 1000), checkTimeout);
+        registerHealthCheck(new PwmServiceHealthChecker());
+    }
+
+    void open(final TimeDuration checkTimeout, final String threadName) {
+        this.checkTimeout = checkTimeout;
+        scheduler = Executors.newSingleThreadScheduledExecutor(Helper.makePwmThreadFactory(threadName + " scheduler-", true));
+        executorService = Executors.newCachedThreadPool(Helper.makePwmThreadFactory(threadName + " checker-", true));
 
         final Set<HealthRecord> newHealthRecords = new HashSet<>();
         newHealthRecords.add(new HealthRecord(HealthStatus.CAUTION, HealthTopic.Application, "Health Check operation has not been performed since PWM has started."));
@@ -127,42 +167,63 @@ public class HealthMonitor implements PwmService {
     }
 
     public void close() {
-        healthRecords = Collections.emptySet();
         status = STATUS.CLOSED;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+        healthRecords = Collections.emptySet();
     }
 
     public List<HealthRecord> healthCheck() {
         return Collections.emptyList();
     }
 
-    private void doHealthChecks() {
-        if (status != STATUS.OPEN) {
-            return;
+    private void executeAllAndWait() {
+        final long startTime = System.currentTimeMillis();
+        final List<Future<?>> futures = new ArrayList<>();
+        long maxTimeoutMs = 0;
+        for (final HealthCheckJob job : healthCheckJobs) {
+            final Future<?> future = job.execute();
+            if (future != null) {
+                futures.add(future);
+            }
+            maxTimeoutMs = Math.max(maxTimeoutMs, job.timeout.getTotalMilliseconds());
         }
 
-        LOGGER.trace("beginning health check process");
-        final List<HealthRecord> newResults = new ArrayList<>();
-        for (final HealthChecker loopChecker : healthCheckers) {
+        for (final Future<?> future : futures) {
+            final long remainingMs = maxTimeoutMs - (System.currentTimeMillis() - startTime);
+            if (remainingMs <= 0) {
+                return;
+            }
             try {
-                final List<HealthRecord> loopResults = loopChecker.doHealthCheck(pwmApplication);
-                if (loopResults != null) {
-                    newResults.addAll(loopResults);
-                }
+                future.get(remainingMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
-                LOGGER.warn("unexpected error during healthCheck: " + e.getMessage(), e);
+                /* results (or timeout record) are recorded by the job itself */
             }
         }
-        for (final PwmService service : pwmApplication.getPwmServices()) {
-            final List<HealthRecord> loopResults = service.healthCheck();
-            if (loopResults != null) {
-                newResults.addAll(loopResults);
+    }
+
+    private synchronized void updateHealthRecords() {
+        final Set<HealthRecord> sortedRecordList = new TreeSet<>();
+        for (final HealthCheckJob job : healthCheckJobs) {
+            final List<HealthRecord> jobResults = job.lastResults;
+            if (jobResults == null) {
+                // a checker that has never completed must not let the overall status read as good
+                sortedRecordList.add(HealthRecord.forMessage(HealthMessage.HealthCheck_Pending, job.name));
+            } else {
+                sortedRecordList.addAll(jobResults);
             }
         }
-        final Set<HealthRecord> sortedRecordList = new TreeSet<>();
-        sortedRecordList.addAll(newResults);
         healthRecords = Collections.unmodifiableSet(sortedRecordList);
         lastHealthCheckDate = new Date();
-        LOGGER.trace("health check process completed");
     }
 
     public ServiceInfo serviceInfo()
@@ -174,4 +235,124 @@ public class HealthMonitor implements PwmService {
     {
         return healthProperties;
     }
+
+    private class HealthCheckJob implements Runnable {
+        private final String name;
+        private final HealthChecker healthChecker;
+        private final TimeDuration timeout;
+
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        private volatile List<HealthRecord> lastResults = null;
+
+        private HealthCheckJob(final HealthChecker healthChecker, final TimeDuration timeout) {
+            this.name = healthChecker.getClass().getSimpleName();
+            this.healthChecker = healthChecker;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void run() {
+            execute();
+        }
+
+        /**
+         * Start the checker on the worker pool unless it is still running from a previous execution.
+         *
+         * @return the future of the started execution, or null if it was not started
+         */
+        private Future<?> execute() {
+            final ExecutorService workerService = executorService;
+            final ScheduledExecutorService timeoutService = scheduler;
+            if (status != STATUS.OPEN || workerService == null || timeoutService == null) {
+                return null;
+            }
+
+            if (!running.compareAndSet(false, true)) {
+                return null;
+            }
+
+            final AtomicBoolean started = new AtomicBoolean(false);
+            final AtomicBoolean timedOut = new AtomicBoolean(false);
+            final Future<?> future;
+            try {
+                future = workerService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (started.compareAndSet(false, true)) {
+                            doHealthCheck(timedOut);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+                return null;
+            }
+
+            timeoutService.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!future.isDone()) {
+                        if (started.compareAndSet(false, true)) {
+                            // never began executing, so there is no thread left to clear the running flag
+                            future.cancel(false);
+                            running.set(false);
+                        }
+                        handleTimeout(future, timedOut);
+                    }
+                }
+            }, timeout.getTotalMilliseconds(), TimeUnit.MILLISECONDS);
+
+            return future;
+        }
+
+        private void doHealthCheck(final AtomicBoolean timedOut) {
+            final long startTime = System.currentTimeMillis();
+            try {
+                final List<HealthRecord> results = healthChecker.doHealthCheck(pwmApplication);
+                synchronized (this) {
+                    // an interrupted checker's late results must not replace the timeout record
+                    if (!timedOut.get()) {
+                        lastResults = results == null
+                                ? Collections.<HealthRecord>emptyList()
+                                : Collections.unmodifiableList(new ArrayList<>(results));
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.warn("unexpected error during healthCheck " + name + ": " + e.getMessage(), e);
+            } finally {
+                running.set(false);
+                LOGGER.trace("health check " + name + " completed in " + TimeDuration.fromCurrent(startTime).asCompactString());
+            }
+            if (status == STATUS.OPEN) {
+                updateHealthRecords();
+            }
+        }
+
+        private void handleTimeout(final Future<?> future, final AtomicBoolean timedOut) {
+            LOGGER.warn("health check " + name + " did not complete within " + timeout.asCompactString() + ", will be interrupted");
+            synchronized (this) {
+                timedOut.set(true);
+                lastResults = Collections.singletonList(HealthRecord.forMessage(
+                        HealthMessage.HealthCheck_Timeout,
+                        name,
+                        timeout.asCompactString()
+                ));
+            }
+            future.cancel(true);
+            updateHealthRecords();
+        }
+    }
+
+    private static class PwmServiceHealthChecker implements HealthChecker {
+        public List<HealthRecord> doHealthCheck(final PwmApplication pwmApplication) {
+            final List<HealthRecord> newResults = new ArrayList<>();
+            for (final PwmService service : pwmApplication.getPwmServices()) {
+                final List<HealthRecord> loopResults = service.healthCheck();
+                if (loopResults != null) {
+                    newResults.addAll(loopResults);
+                }
+            }
+            return newResults;
+        }
+    }
 }
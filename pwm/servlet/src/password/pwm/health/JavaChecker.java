@@ -32,12 +32,12 @@ public class JavaChecker implements HealthChecker {
     public List<HealthRecord> doHealthCheck(final PwmApplication pwmApplication) {
         final List<HealthRecord> records = new ArrayList<>();
 
-        final int maxActiveThreads = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.HEALTH_JAVA_MAX_THREADS));
+        final int maxActiveThreads = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.HEALTH_JAVA_MAX_THREADS);
         if (Thread.activeCount() > maxActiveThreads) {
             records.add(HealthRecord.forMessage(HealthMessage.Java_HighThreads));
         }
 
-        final long minMemory = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.HEALTH_JAVA_MIN_HEAP_BYTES));
+        final long minMemory = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.HEALTH_JAVA_MIN_HEAP_BYTES);
         if (Runtime.getRuntime().maxMemory() <= minMemory) {
             records.add(HealthRecord.forMessage(HealthMessage.Java_SmallHeap));
         }
@@ -95,7 +95,7 @@ public class LDAPStatusChecker implements HealthChecker {
             if (errorInfo != null) {
                 final TimeDuration errorAge = TimeDuration.fromCurrent(errorInfo.getDate().getTime());
 
-                final long cautionDurationMS = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.HEALTH_LDAP_CAUTION_DURATION_MS));
+                final long cautionDurationMS = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.HEALTH_LDAP_CAUTION_DURATION_MS);
                 if (errorAge.isShorterThan(cautionDurationMS)) {
                     final String ageString = errorAge.asLongString();
                     final String errorDate = PwmConstants.DEFAULT_DATETIME_FORMAT.format(errorInfo.getDate());
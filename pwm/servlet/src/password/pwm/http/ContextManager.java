@@ -180,9 +180,9 @@ public class ContextManager implements Serializable {
         taskMaster = new Timer(threadName, true);
         taskMaster.schedule(new RestartFlagWatcher(), 1031, 1031);
 
-        final boolean reloadOnChange = Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.CONFIG_RELOAD_ON_CHANGE));
+        final boolean reloadOnChange = pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.CONFIG_RELOAD_ON_CHANGE);
         if (reloadOnChange) {
-            final long fileScanFrequencyMs = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.CONFIG_FILE_SCAN_FREQUENCY));
+            final long fileScanFrequencyMs = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.CONFIG_FILE_SCAN_FREQUENCY);
             taskMaster.schedule(new ConfigFileWatcher(), fileScanFrequencyMs, fileScanFrequencyMs);
         }
 
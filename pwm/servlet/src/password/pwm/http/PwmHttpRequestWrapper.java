@@ -67,7 +67,7 @@ public abstract class PwmHttpRequestWrapper {
 
     public String readRequestBodyAsString()
             throws IOException, PwmUnrecoverableException {
-        final int maxChars = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_BODY_MAXREAD_LENGTH));
+        final int maxChars = configuration.readAppPropertyAsInt(AppProperty.HTTP_BODY_MAXREAD_LENGTH);
         return readRequestBodyAsString(maxChars);
     }
 
@@ -105,9 +105,9 @@ public abstract class PwmHttpRequestWrapper {
         final String bodyString = readRequestBodyAsString();
         final Map<String, String> inputMap = JsonUtil.deserializeStringMap(bodyString);
 
-        final boolean trim = Boolean.parseBoolean(configuration.readAppProperty(AppProperty.SECURITY_INPUT_TRIM));
-        final boolean passwordTrim = Boolean.parseBoolean(configuration.readAppProperty(AppProperty.SECURITY_INPUT_PASSWORD_TRIM));
-        final int maxLength = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
+        final boolean trim = configuration.readAppPropertyAsBoolean(AppProperty.SECURITY_INPUT_TRIM);
+        final boolean passwordTrim = configuration.readAppPropertyAsBoolean(AppProperty.SECURITY_INPUT_PASSWORD_TRIM);
+        final int maxLength = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
 
         final Map<String, String> outputMap = new LinkedHashMap<>();
         if (inputMap != null) {
@@ -134,8 +134,8 @@ public abstract class PwmHttpRequestWrapper {
     public PasswordData readParameterAsPassword(final String name)
             throws PwmUnrecoverableException 
     {
-        final int maxLength = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
-        final boolean trim = Boolean.parseBoolean(configuration.readAppProperty(AppProperty.SECURITY_INPUT_TRIM));
+        final int maxLength = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
+        final boolean trim = configuration.readAppPropertyAsBoolean(AppProperty.SECURITY_INPUT_TRIM);
         
         final String rawValue = httpServletRequest.getParameter(name);
         if (rawValue != null) {
@@ -161,14 +161,14 @@ public abstract class PwmHttpRequestWrapper {
 
     public String readParameterAsString(final String name, final String valueIfNotPresent)
             throws PwmUnrecoverableException {
-        final int maxLength = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
+        final int maxLength = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
         final String returnValue = readParameterAsString(name, maxLength);
         return returnValue == null || returnValue.isEmpty() ? valueIfNotPresent : returnValue;
     }
 
     public String readParameterAsString(final String name)
             throws PwmUnrecoverableException {
-        final int maxLength = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
+        final int maxLength = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
         return readParameterAsString(name, maxLength);
     }
 
@@ -195,7 +195,7 @@ public abstract class PwmHttpRequestWrapper {
             throws PwmUnrecoverableException 
     {
         final HttpServletRequest req = this.getHttpServletRequest();
-        final boolean trim = Boolean.parseBoolean(configuration.readAppProperty(AppProperty.SECURITY_INPUT_TRIM));
+        final boolean trim = configuration.readAppPropertyAsBoolean(AppProperty.SECURITY_INPUT_TRIM);
         final String[] rawValues = req.getParameterValues(name);
         if (rawValues == null || rawValues.length == 0) {
             return Collections.emptyList();
@@ -219,7 +219,7 @@ public abstract class PwmHttpRequestWrapper {
     }
 
     public String readHeaderValueAsString(final String headerName) {
-        final int maxChars = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
+        final int maxChars = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
         final HttpServletRequest req = this.getHttpServletRequest();
         final String rawValue = req.getHeader(headerName);
         final String sanitizedInputValue = Validator.sanitizeInputValue(configuration, rawValue, maxChars);
@@ -227,7 +227,7 @@ public abstract class PwmHttpRequestWrapper {
     }
 
     public Map<String, List<String>> readHeaderValuesMap() {
-        final int maxChars = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
+        final int maxChars = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
         final HttpServletRequest req = this.getHttpServletRequest();
         final Map<String, List<String>> returnObj = new LinkedHashMap<>();
 
@@ -250,7 +250,7 @@ public abstract class PwmHttpRequestWrapper {
     }
 
     public List<String> parameterNames() {
-        final int maxChars = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
+        final int maxChars = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
         final List<String> returnObj = new ArrayList();
         for (Enumeration nameEnum = getHttpServletRequest().getParameterNames(); nameEnum.hasMoreElements(); ) {
             final String paramName = nameEnum.nextElement().toString();
@@ -272,7 +272,7 @@ public abstract class PwmHttpRequestWrapper {
 
     public Map<String, List<String>> readMultiParametersAsMap()
             throws PwmUnrecoverableException {
-        final int maxLength = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_PARAM_MAX_READ_LENGTH));
+        final int maxLength = configuration.readAppPropertyAsInt(AppProperty.HTTP_PARAM_MAX_READ_LENGTH);
         final Map<String, List<String>> returnObj = new HashMap<>();
         for (String paramName : parameterNames()) {
             final List<String> values = readParameterAsStrings(paramName, maxLength);
@@ -282,7 +282,7 @@ public abstract class PwmHttpRequestWrapper {
     }
 
     public String readCookie(final String cookieName) {
-        final int maxChars = Integer.parseInt(configuration.readAppProperty(AppProperty.HTTP_COOKIE_MAX_READ_LENGTH));
+        final int maxChars = configuration.readAppPropertyAsInt(AppProperty.HTTP_COOKIE_MAX_READ_LENGTH);
         final Cookie[] cookies = this.getHttpServletRequest().getCookies();
         for (final Cookie cookie : cookies) {
             if (cookie.getName() != null && cookie.getName().equals(cookieName)) {
@@ -80,7 +80,7 @@ public class PwmSession implements Serializable {
             throw new IllegalStateException("PwmApplication must be available during session creation");
         }
 
-        final int sessionValidationKeyLength = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_SESSION_VALIDATION_KEY_LENGTH));
+        final int sessionValidationKeyLength = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.HTTP_SESSION_VALIDATION_KEY_LENGTH);
         sessionStateBean = new SessionStateBean(sessionValidationKeyLength);
         sessionStateBean.regenerateSessionVerificationKey();
         this.sessionStateBean.setSessionID(null);
@@ -100,7 +100,7 @@ public class PwmSession implements Serializable {
             pwmApplication.getStatisticsManager().incrementValue(Statistic.HTTP_SESSIONS);
         }
 
-        settings.restKeyLength = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.SECURITY_WS_REST_CLIENT_KEY_LENGTH));
+        settings.restKeyLength = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.SECURITY_WS_REST_CLIENT_KEY_LENGTH);
         LOGGER.trace(this,"created new session");
     }
 
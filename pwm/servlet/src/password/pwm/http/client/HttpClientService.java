@@ -0,0 +1,150 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.http.client;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.pool.PoolStats;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.PwmService;
+import password.pwm.config.Configuration;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.error.PwmException;
+import password.pwm.health.HealthRecord;
+import password.pwm.util.Helper;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application wide {@link HttpClient} shared by all outbound http callers, such as the sms gateway, external rest
+ * macros and web services.  Connections are pooled and kept alive between requests, limited in total and per route,
+ * and closed by a background task once idle for longer than the configured idle timeout.
+ * <p/>
+ * Callers must consume or release the response entity of every request so the connection is returned to the pool.
+ */
+public class HttpClientService implements PwmService {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(HttpClientService.class);
+
+    private STATUS status = STATUS.NEW;
+    private PoolingClientConnectionManager connectionManager;
+    private HttpClient httpClient;
+    private ScheduledExecutorService evictionExecutor;
+
+    @Override
+    public STATUS status() {
+        return status;
+    }
+
+    @Override
+    public void init(final PwmApplication pwmApplication)
+            throws PwmException
+    {
+        status = STATUS.OPENING;
+        final Configuration config = pwmApplication.getConfig();
+
+        connectionManager = makeConnectionManager(
+                config.readAppPropertyAsInt(AppProperty.HTTP_CLIENT_MAX_CONNECTIONS),
+                config.readAppPropertyAsInt(AppProperty.HTTP_CLIENT_MAX_CONNECTIONS_PER_ROUTE)
+        );
+        httpClient = PwmHttpClient.makeHttpClient(config, connectionManager);
+
+        final long idleTimeoutMs = config.readAppPropertyAsLong(AppProperty.HTTP_CLIENT_IDLE_TIMEOUT_MS);
+        if (idleTimeoutMs > 0) {
+            evictionExecutor = Executors.newSingleThreadScheduledExecutor(
+                    Helper.makePwmThreadFactory(Helper.makeThreadName(pwmApplication, HttpClientService.class) + "-", true));
+            evictionExecutor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        connectionManager.closeExpiredConnections();
+                        connectionManager.closeIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS);
+                    } catch (Exception e) {
+                        LOGGER.error("error closing idle http connections: " + e.getMessage());
+                    }
+                }
+            }, idleTimeoutMs, idleTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        status = STATUS.OPEN;
+        LOGGER.debug("opened http client connection pool, max connections " + connectionManager.getMaxTotal()
+                + ", max per route " + connectionManager.getDefaultMaxPerRoute());
+    }
+
+    static PoolingClientConnectionManager makeConnectionManager(final int maxConnections, final int maxConnectionsPerRoute) {
+        final PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault());
+        connectionManager.setMaxTotal(Math.max(1, maxConnections));
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, Math.min(maxConnections, maxConnectionsPerRoute)));
+        return connectionManager;
+    }
+
+    @Override
+    public void close() {
+        status = STATUS.CLOSED;
+        if (evictionExecutor != null) {
+            evictionExecutor.shutdownNow();
+            evictionExecutor = null;
+        }
+        if (connectionManager != null) {
+            connectionManager.shutdown();
+        }
+    }
+
+    @Override
+    public List<HealthRecord> healthCheck() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ServiceInfo serviceInfo() {
+        return new ServiceInfo(Collections.<DataStorageMethod>emptyList());
+    }
+
+    /**
+     * @return the shared client, or null if the service is not open
+     */
+    public HttpClient getHttpClient() {
+        return status == STATUS.OPEN ? httpClient : null;
+    }
+
+    public Map<String,Object> connectionPoolStats() {
+        if (status != STATUS.OPEN) {
+            return Collections.emptyMap();
+        }
+        final PoolStats poolStats = connectionManager.getTotalStats();
+        final Map<String,Object> stats = new LinkedHashMap<>();
+        stats.put("leased", poolStats.getLeased());
+        stats.put("available", poolStats.getAvailable());
+        stats.put("pending", poolStats.getPending());
+        stats.put("max", poolStats.getMax());
+        return stats;
+    }
+}
@@ -7,11 +7,14 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.*;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.conn.params.ConnRoutePNames;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpProtocolParams;
 import org.apache.http.util.EntityUtils;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.config.Configuration;
@@ -43,8 +46,34 @@ public class PwmHttpClient {
         this.pwmSession = pwmSession;
     }
 
+    /**
+     * Returns the application's shared, pooled client.
+     *
+     * @throws IOException if the {@link HttpClientService} is not available
+     */
+    public static HttpClient getHttpClient(final PwmApplication pwmApplication)
+            throws IOException
+    {
+        final HttpClientService httpClientService = pwmApplication.getHttpClientService();
+        if (httpClientService != null) {
+            final HttpClient httpClient = httpClientService.getHttpClient();
+            if (httpClient != null) {
+                return httpClient;
+            }
+        }
+        throw new IOException("http client service is not available");
+    }
+
+    /**
+     * Returns a new, unpooled client for the configuration.  Should only be used where there is no running
+     * application, such as for testing settings being edited, and the connection manager should be shut down after use.
+     */
     public static HttpClient getHttpClient(final Configuration configuration) {
-        final DefaultHttpClient httpClient = new DefaultHttpClient();
+        return makeHttpClient(configuration, null);
+    }
+
+    static HttpClient makeHttpClient(final Configuration configuration, final ClientConnectionManager connectionManager) {
+        final DefaultHttpClient httpClient = connectionManager == null ? new DefaultHttpClient() : new DefaultHttpClient(connectionManager);
         final String strValue = configuration.readSettingAsString(PwmSetting.HTTP_PROXY_URL);
         if (strValue != null && strValue.length() > 0) {
             final URI proxyURI = URI.create(strValue);
@@ -63,6 +92,9 @@ public class PwmHttpClient {
         }
         final String userAgent = PwmConstants.PWM_APP_NAME + " " + PwmConstants.SERVLET_VERSION;
         httpClient.getParams().setParameter(HttpProtocolParams.USER_AGENT, userAgent);
+        HttpConnectionParams.setTcpNoDelay(httpClient.getParams(), true);
+        HttpConnectionParams.setConnectionTimeout(httpClient.getParams(), configuration.readAppPropertyAsInt(AppProperty.HTTP_CLIENT_CONNECT_TIMEOUT_MS));
+        HttpConnectionParams.setSoTimeout(httpClient.getParams(), configuration.readAppPropertyAsInt(AppProperty.HTTP_CLIENT_SOCKET_TIMEOUT_MS));
         return httpClient;
     }
 
@@ -137,7 +169,7 @@ public class PwmHttpClient {
             }
         }
 
-        final HttpClient httpClient = getHttpClient(pwmApplication.getConfig());
+        final HttpClient httpClient = getHttpClient(pwmApplication);
         LOGGER.trace(pwmSession, "preparing to send (id=" + counter + ") " + clientRequest.toDebugString());
 
         final HttpResponse httpResponse = httpClient.execute(httpRequest);
@@ -116,7 +116,7 @@ public class RequestInitializationFilter implements Filter {
             return;
         }
         
-        final boolean recycleEnabled = Boolean.parseBoolean( pwmRequest.getConfig().readAppProperty(AppProperty.HTTP_SESSION_RECYCLE_AT_AUTH));
+        final boolean recycleEnabled = pwmRequest.getConfig().readAppPropertyAsBoolean(AppProperty.HTTP_SESSION_RECYCLE_AT_AUTH);
         
         if (!recycleEnabled) {
             return;
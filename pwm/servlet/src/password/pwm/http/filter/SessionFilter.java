@@ -358,7 +358,7 @@ public class SessionFilter extends AbstractPwmFilter {
             final String themeCookieName = config.readAppProperty(AppProperty.HTTP_COOKIE_THEME_NAME);
             if (themeCookieName != null && themeCookieName.length() > 0) {
                 final Cookie newCookie = new Cookie(themeCookieName, themeReqParameter);
-                newCookie.setMaxAge(Integer.parseInt(config.readAppProperty(AppProperty.HTTP_COOKIE_THEME_AGE)));
+                newCookie.setMaxAge(config.readAppPropertyAsInt(AppProperty.HTTP_COOKIE_THEME_AGE));
                 newCookie.setPath(pwmRequest.getContextPath() + "/");
                 final String configuredTheme = config.readSettingAsString(PwmSetting.INTERFACE_THEME);
                 if (configuredTheme != null && configuredTheme.equalsIgnoreCase(themeReqParameter)) {
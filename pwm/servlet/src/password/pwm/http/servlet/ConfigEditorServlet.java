@@ -656,8 +656,7 @@ public class ConfigEditorServlet extends PwmServlet {
 
         final Map<String, PwmRequest.FileUploadItem> fileUploads;
         try {
-            final int maxFileSize = Integer.parseInt(
-                    pwmRequest.getConfig().readAppProperty(AppProperty.CONFIG_MAX_JDBC_JAR_SIZE));
+            final int maxFileSize = pwmRequest.getConfig().readAppPropertyAsInt(AppProperty.CONFIG_MAX_JDBC_JAR_SIZE);
             fileUploads = pwmRequest.readFileUploads(maxFileSize, 1);
         } catch (PwmException e) {
             pwmRequest.outputJsonResult(RestResultBean.fromError(e.getErrorInformation(), pwmRequest));
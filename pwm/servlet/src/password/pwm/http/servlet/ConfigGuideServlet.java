@@ -210,7 +210,7 @@ public class ConfigGuideServlet extends PwmServlet {
 
         pwmSession.setSessionTimeout(
                 pwmRequest.getHttpServletRequest().getSession(),
-                Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.CONFIG_GUIDE_IDLE_TIMEOUT)));
+                pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.CONFIG_GUIDE_IDLE_TIMEOUT));
 
         if (configGuideBean.getStep() == STEP.LDAPCERT) {
             final String ldapServerString = ((List<String>) configGuideBean.getStoredConfiguration().readSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE_KEY).toNativeObject()).get(0);
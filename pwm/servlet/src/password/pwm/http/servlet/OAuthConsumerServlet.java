@@ -235,7 +235,7 @@ public class OAuthConsumerServlet extends PwmServlet {
             final PwmRequest pwmRequest
     )
     {
-        if (!Boolean.parseBoolean(pwmRequest.getConfig().readAppProperty(AppProperty.OAUTH_ENABLE_TOKEN_REFRESH))) {
+        if (!pwmRequest.getConfig().readAppPropertyAsBoolean(AppProperty.OAUTH_ENABLE_TOKEN_REFRESH)) {
             return false;
         }
 
@@ -357,7 +357,7 @@ public class OAuthConsumerServlet extends PwmServlet {
         bodyEntity.setContentType(PwmConstants.ContentTypeValue.form.getHeaderValue());
         httpPost.setEntity(bodyEntity);
 
-        final HttpResponse httpResponse = PwmHttpClient.getHttpClient(pwmRequest.getConfig()).execute(httpPost);
+        final HttpResponse httpResponse = PwmHttpClient.getHttpClient(pwmRequest.getPwmApplication()).execute(httpPost);
         final String bodyResponse = EntityUtils.toString(httpResponse.getEntity());
 
         final StringBuilder debugOutput = new StringBuilder();
@@ -46,14 +46,21 @@ import password.pwm.util.JsonUtil;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.cache.CacheKey;
 import password.pwm.util.cache.CachePolicy;
+import password.pwm.util.cache.CachedBinary;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroMachine;
 import password.pwm.util.stats.Statistic;
 import password.pwm.util.stats.StatisticsManager;
 import password.pwm.ws.server.RestResultBean;
 
+import javax.imageio.ImageIO;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
@@ -142,11 +149,11 @@ public class PeopleSearchServlet extends PwmServlet {
         }
     }
 
-    private static class PhotoData {
+    static class PhotoData {
         private final String mimeType;
         private byte[] contents;
 
-        private PhotoData(String mimeType, byte[] contents) {
+        PhotoData(String mimeType, byte[] contents) {
             this.mimeType = mimeType;
             this.contents = contents;
         }
@@ -312,7 +319,7 @@ public class PeopleSearchServlet extends PwmServlet {
         pwmRequest.outputJsonResult(restResultBean);
         final long maxCacheSeconds = pwmRequest.getConfig().readSettingAsLong(PwmSetting.PEOPLE_SEARCH_MAX_CACHE_SECONDS);
         if (maxCacheSeconds > 0) {
-            final Date expiration = new Date(System.currentTimeMillis() * maxCacheSeconds * 1000);
+            final Date expiration = new Date(System.currentTimeMillis() + maxCacheSeconds * 1000);
             pwmRequest.getPwmApplication().getCacheService().put(cacheKey, CachePolicy.makePolicy(expiration), JsonUtil.serialize(outputData));
         }
 
@@ -425,7 +432,7 @@ public class PeopleSearchServlet extends PwmServlet {
 
         final long maxCacheSeconds = pwmRequest.getConfig().readSettingAsLong(PwmSetting.PEOPLE_SEARCH_MAX_CACHE_SECONDS);
         if (maxCacheSeconds > 0) {
-            final Date expiration = new Date(System.currentTimeMillis() * maxCacheSeconds * 1000);
+            final Date expiration = new Date(System.currentTimeMillis() + maxCacheSeconds * 1000);
             pwmRequest.getPwmApplication().getCacheService().put(cacheKey, CachePolicy.makePolicy(expiration),
                     JsonUtil.serializeMap(resultOutput));
         }
@@ -453,7 +460,7 @@ public class PeopleSearchServlet extends PwmServlet {
         }
 
         try {
-            readPhotoDataFromLdap(pwmRequest, userIdentity);
+            readPhotoData(pwmRequest, userIdentity);
         } catch (PwmOperationalException e) {
             LOGGER.debug(pwmRequest, "determined " + userIdentity + " does not have photo data available while generating detail data");
             return null;
@@ -499,9 +506,9 @@ public class PeopleSearchServlet extends PwmServlet {
         LOGGER.info(pwmRequest, "received user photo request by "
                 + pwmRequest.getPwmSession().getUserInfoBean().getUserIdentity().toString() + " for user " + userIdentity.toString());
 
-        final PhotoData photoData;
+        final CachedBinary photoData;
         try {
-            photoData = readPhotoDataFromLdap(pwmRequest, userIdentity);
+            photoData = readPhotoData(pwmRequest, userIdentity);
         } catch (PwmOperationalException e) {
             final ErrorInformation errorInformation = e.getErrorInformation();
             LOGGER.error(pwmRequest, errorInformation);
@@ -509,11 +516,22 @@ public class PeopleSearchServlet extends PwmServlet {
             return;
         }
 
+        final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
+        final long maxCacheSeconds = pwmRequest.getConfig().readSettingAsLong(PwmSetting.PEOPLE_SEARCH_MAX_CACHE_SECONDS);
+        response.setHeader("Cache-Control", maxCacheSeconds > 0 ? "private, max-age=" + maxCacheSeconds : "private, no-cache");
+        response.setHeader("ETag", photoData.getETag());
+        response.setDateHeader("Last-Modified", photoData.getLastModified().getTime());
+        if (ResourceFileServlet.notModified(pwmRequest.getHttpServletRequest(), photoData.getETag(), photoData.getLastModified().getTime())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
         OutputStream outputStream = null;
         try {
-            pwmRequest.getPwmResponse().getHttpServletResponse().setContentType(photoData.getMimeType());
+            response.setContentType(photoData.getContentType());
+            response.setContentLength(photoData.getContent().length);
             outputStream = pwmRequest.getPwmResponse().getOutputStream();
-            outputStream.write(photoData.getContents());
+            outputStream.write(photoData.getContent());
         } finally {
             if (outputStream != null) {
                 outputStream.close();
@@ -530,7 +548,7 @@ public class PeopleSearchServlet extends PwmServlet {
     )
             throws ChaiUnavailableException, PwmUnrecoverableException
     {
-        final int MAX_VALUES = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.PEOPLESEARCH_MAX_VALUE_COUNT));
+        final int MAX_VALUES = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.PEOPLESEARCH_MAX_VALUE_COUNT);
         final Set<String> searchAttributes = getSearchAttributes(pwmApplication.getConfig());
         final List<AttributeDetailBean> returnObj = new ArrayList<>();
         for (FormConfiguration formConfiguration : detailForm) {
@@ -608,7 +626,7 @@ public class PeopleSearchServlet extends PwmServlet {
             throws ChaiUnavailableException, PwmUnrecoverableException {
         final ChaiUser chaiUser = getChaiUser(pwmApplication, pwmSession, userIdentity);
         final UserInfoBean userInfoBean;
-        if (Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.PEOPLESEARCH_DISPLAYNAME_USEALLMACROS))) {
+        if (pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.PEOPLESEARCH_DISPLAYNAME_USEALLMACROS)) {
             final Locale locale = pwmSession.getSessionStateBean().getLocale();
             final ChaiProvider chaiProvider = pwmApplication.getProxiedChaiUser(userIdentity).getChaiProvider();
             userInfoBean = new UserInfoBean();
@@ -639,6 +657,81 @@ public class PeopleSearchServlet extends PwmServlet {
         }
     }
 
+    /**
+     * Reads the user's photo from the binary cache, or from ldap (downscaled when
+     * {@link AppProperty#PEOPLESEARCH_PHOTO_MAX_DIMENSION} is set) and caches it.  Photos are keyed by user DN, and
+     * also by the requesting user when the proxy connection is not used, matching the other people search cache keys.
+     */
+    private static CachedBinary readPhotoData(
+            final PwmRequest pwmRequest,
+            final UserIdentity userIdentity
+    )
+            throws ChaiUnavailableException, PwmUnrecoverableException, PwmOperationalException
+    {
+        final PwmApplication pwmApplication = pwmRequest.getPwmApplication();
+        final boolean useProxy = useProxy(pwmApplication, pwmRequest.getPwmSession());
+        final CacheKey cacheKey = CacheKey.makeCacheKey(
+                PeopleSearchServlet.class,
+                useProxy ? null : pwmRequest.getPwmSession().getUserInfoBean().getUserIdentity(),
+                "photo-" + userIdentity.toDelimitedKey()
+        );
+
+        final CachedBinary cachedPhoto = pwmApplication.getCacheService().getBinary(cacheKey);
+        if (cachedPhoto != null) {
+            return cachedPhoto;
+        }
+
+        PhotoData photoData = readPhotoDataFromLdap(pwmRequest, userIdentity);
+        final int maxDimension = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.PEOPLESEARCH_PHOTO_MAX_DIMENSION);
+        if (maxDimension > 0) {
+            photoData = scalePhoto(photoData, maxDimension);
+        }
+
+        final CachedBinary cachedBinary = new CachedBinary(photoData.getContents(), photoData.getMimeType());
+        final long maxCacheSeconds = pwmApplication.getConfig().readSettingAsLong(PwmSetting.PEOPLE_SEARCH_MAX_CACHE_SECONDS);
+        if (maxCacheSeconds > 0) {
+            pwmApplication.getCacheService().putBinary(cacheKey, CachePolicy.makePolicy(maxCacheSeconds * 1000), cachedBinary);
+        }
+        return cachedBinary;
+    }
+
+    /**
+     * Scales the photo down so neither side is larger than maxDimension.  The original is returned when it is already
+     * small enough, can not be decoded, or the scaled image would not be smaller.
+     */
+    static PhotoData scalePhoto(final PhotoData photoData, final int maxDimension) {
+        try {
+            final BufferedImage image = ImageIO.read(new ByteArrayInputStream(photoData.getContents()));
+            if (image == null || (image.getWidth() <= maxDimension && image.getHeight() <= maxDimension)) {
+                return photoData;
+            }
+
+            final double scale = Math.min((double) maxDimension / image.getWidth(), (double) maxDimension / image.getHeight());
+            final int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+            final int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+            final boolean jpeg = "image/jpeg".equals(photoData.getMimeType());
+            final BufferedImage scaledImage = new BufferedImage(width, height, jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D graphics = scaledImage.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(image, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            final String formatName = jpeg ? "jpeg" : "png";
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            if (!ImageIO.write(scaledImage, formatName, outputStream) || outputStream.size() >= photoData.getContents().length) {
+                return photoData;
+            }
+            return new PhotoData("image/" + formatName, outputStream.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("unable to scale user photo, original will be used: " + e.getMessage());
+            return photoData;
+        }
+    }
+
     private static PhotoData readPhotoDataFromLdap(
             final PwmRequest pwmRequest,
             final UserIdentity userIdentity
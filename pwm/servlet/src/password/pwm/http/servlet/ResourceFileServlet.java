@@ -22,7 +22,6 @@
 
 package password.pwm.http.servlet;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
@@ -53,7 +52,6 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
@@ -72,6 +70,7 @@ public class ResourceFileServlet extends HttpServlet {
     private boolean setting_enableGzip = false;
     private boolean setting_enablePathNonce = false;
     private long setting_maxCacheBytes = 1024;
+    private long setting_maxIndexBytes = 0;
 
     private final Map<String, ZipFile> zipResources = new HashMap<>();
     private final Map<String, FileResource> customFileBundle = new HashMap<>();
@@ -108,22 +107,20 @@ public class ResourceFileServlet extends HttpServlet {
         }
     }
 
-    void init(final PwmApplication pwmApplication) {
-        final int setting_maxCacheItems = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS));
-        setting_expireSeconds = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_EXPIRATION_SECONDS));
-        setting_enableGzip = Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_ENABLE_GZIP));
-        setting_enablePathNonce = Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_ENABLE_PATH_NONCE));
-        setting_maxCacheBytes = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_MAX_CACHE_BYTES));
+    synchronized void init(final PwmApplication pwmApplication) {
+        if (pwmApplicationInitialized && getIndex(this.getServletContext()) != null) {
+            return;
+        }
+        setting_expireSeconds = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.HTTP_RESOURCES_EXPIRATION_SECONDS);
+        setting_enableGzip = pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.HTTP_RESOURCES_ENABLE_GZIP);
+        setting_enablePathNonce = pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.HTTP_RESOURCES_ENABLE_PATH_NONCE);
+        setting_maxCacheBytes = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.HTTP_RESOURCES_MAX_CACHE_BYTES);
+        setting_maxIndexBytes = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.HTTP_RESOURCES_MAX_INDEX_BYTES);
 
         final String noncePrefix = pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_NONCE_PATH_PREFIX);
         noncePattern = Pattern.compile(noncePrefix + "[^/]*?/");
         nonceValue = pwmApplication.getInstanceNonce();
 
-        final ConcurrentMap<CacheKey, CacheEntry> newCacheMap = new ConcurrentLinkedHashMap.Builder<CacheKey, CacheEntry>()
-                .maximumWeightedCapacity(setting_maxCacheItems)
-                .build();
-        this.getServletContext().setAttribute(PwmConstants.CONTEXT_ATTR_RESOURCE_CACHE, newCacheMap);
-
         final Map<FileValue.FileInformation, FileValue.FileContent> files = pwmApplication.getConfig().readSettingAsFile(PwmSetting.DISPLAY_CUSTOM_RESOURCE_BUNDLE);
         if (files != null && !files.isEmpty()) {
             final FileValue.FileInformation fileInformation = files.keySet().iterator().next();
@@ -136,6 +133,10 @@ public class ResourceFileServlet extends HttpServlet {
                 e.printStackTrace();
             }
         }
+
+        // resources are indexed as they are requested, so neither startup nor a config reload reads every resource
+        final ResourceIndex resourceIndex = new ResourceIndex(this.getServletContext(), setting_maxCacheBytes, setting_maxIndexBytes);
+        this.getServletContext().setAttribute(PwmConstants.CONTEXT_ATTR_RESOURCE_CACHE, resourceIndex);
         pwmApplicationInitialized = true;
     }
 
@@ -150,9 +151,8 @@ public class ResourceFileServlet extends HttpServlet {
         processRequest(req, resp);
     }
 
-    private static Map<CacheKey, CacheEntry> getCache(final ServletContext servletContext) {
-        Map<CacheKey, CacheEntry> cacheMap = (Map) servletContext.getAttribute(PwmConstants.CONTEXT_ATTR_RESOURCE_CACHE);
-        return cacheMap == null ? new HashMap() : cacheMap;
+    private static ResourceIndex getIndex(final ServletContext servletContext) {
+        return (ResourceIndex) servletContext.getAttribute(PwmConstants.CONTEXT_ATTR_RESOURCE_CACHE);
     }
 
     private static EventRateMeter.MovingAverage getCacheHitRatio(final ServletContext servletContext) {
@@ -165,11 +165,11 @@ public class ResourceFileServlet extends HttpServlet {
         return cacheHitRatio;
     }
 
+    /**
+     * Discards the resource index, resources are indexed again as they are requested.
+     */
     public static void clearCache(final ServletContext servletContext) {
-        final Map cache = getCache(servletContext);
-        if (cache != null) {
-            cache.clear();
-        }
+        servletContext.removeAttribute(PwmConstants.CONTEXT_ATTR_RESOURCE_CACHE);
     }
 
     public void processRequest(
@@ -185,7 +185,7 @@ public class ResourceFileServlet extends HttpServlet {
             pwmRequest = PwmRequest.forRequest(request, response);
             sessionLabel = pwmRequest.getSessionLabel();
             pwmApplication = pwmRequest.getPwmApplication();
-            if (!pwmApplicationInitialized) {
+            if (!pwmApplicationInitialized || getIndex(this.getServletContext()) == null) {
                 init(pwmApplication);
             }
         } catch (PwmException e) {
@@ -202,9 +202,20 @@ public class ResourceFileServlet extends HttpServlet {
             LOGGER.error(sessionLabel, "unexpected error detecting/handling special request uri: " + e.getMessage());
         }
 
+        final String filename = requestedFileName(requestURI, request);
+        final ResourceIndex resourceIndex = getIndex(this.getServletContext());
+        if (resourceIndex != null) {
+            final ResourceIndex.IndexedResource indexedResource = resourceIndex.get(filename);
+            if (indexedResource != null) {
+                respondFromIndex(pwmRequest, pwmApplication, sessionLabel, requestURI, request, response, indexedResource);
+                getCacheHitRatio(this.getServletContext()).update(1);
+                return;
+            }
+        }
+
         final FileResource file;
         try {
-            file = resolveRequestedFile(this.getServletContext(), requestURI, request, zipResources, customFileBundle);
+            file = resolveRequestedFile(this.getServletContext(), requestURI, filename, request, zipResources, customFileBundle);
         } catch (PwmUnrecoverableException e) {
             response.sendError(500, e.getMessage());
             if (pwmRequest != null) {
@@ -225,6 +236,20 @@ public class ResourceFileServlet extends HttpServlet {
             return;
         }
 
+        if (resourceIndex != null) {
+            ResourceIndex.IndexedResource indexedResource = null;
+            try {
+                indexedResource = resourceIndex.index(filename, file);
+            } catch (IOException e) {
+                LOGGER.warn(sessionLabel, "unable to index resource " + file.getName() + ", error: " + e.getMessage());
+            }
+            if (indexedResource != null) {
+                respondFromIndex(pwmRequest, pwmApplication, sessionLabel, requestURI, request, response, indexedResource);
+                getCacheHitRatio(this.getServletContext()).update(0);
+                return;
+            }
+        }
+
         // Get content type by file name and set default GZIP support and content disposition.
         String contentType = getServletContext().getMimeType(file.getName());
         boolean acceptsGzip = false;
@@ -275,122 +300,134 @@ public class ResourceFileServlet extends HttpServlet {
         ServletHelper.addPwmResponseHeaders(pwmRequest, false);
 
         try {
-            boolean fromCache = false;
-            StringBuilder debugText = new StringBuilder();
-            try {
-                fromCache = handleCacheableResponse(response, file, acceptsGzip);
-                if (fromCache || acceptsGzip) {
-                    debugText.append("(");
-                    if (fromCache) debugText.append("cached");
-                    if (fromCache && acceptsGzip) debugText.append(", ");
-                    if (acceptsGzip) debugText.append("gzip");
-                    debugText.append(")");
-                } else {
-                    debugText = new StringBuilder("(not cached)");
-                }
-                if (pwmApplication != null) {
-                    StatisticsManager.incrementStat(pwmApplication, Statistic.HTTP_RESOURCE_REQUESTS);
-                }
-            } catch (UncacheableResourceException e) {
-                handleUncachedResponse(response, file, acceptsGzip);
-                debugText = new StringBuilder();
-                debugText.append("(uncacheable");
-                if (acceptsGzip) debugText.append(", gzip");
-                debugText.append(")");
-            }
+            handleUncachedResponse(response, file, acceptsGzip);
             if (pwmRequest != null) {
                 try {
-                    pwmRequest.debugHttpRequestToLog(debugText.toString());
+                    pwmRequest.debugHttpRequestToLog(acceptsGzip ? "(not indexed, gzip)" : "(not indexed)");
                 } catch (PwmUnrecoverableException e) {
                         /* noop */
                 }
             }
-            EventRateMeter.MovingAverage cacheHitRatio = getCacheHitRatio(this.getServletContext());
-            cacheHitRatio.update(fromCache ? 1 : 0);
+            if (pwmApplication != null) {
+                StatisticsManager.incrementStat(pwmApplication, Statistic.HTTP_RESOURCE_REQUESTS);
+            }
+            getCacheHitRatio(this.getServletContext()).update(0);
         } catch (Exception e) {
             LOGGER.error(sessionLabel, "error fulfilling response for url '" + requestURI + "', error: " + e.getMessage());
         }
     }
 
-    public static long bytesInCache(final ServletContext servletContext) {
-        final Map<CacheKey, CacheEntry> responseCache = getCache(servletContext);
-        final Map<CacheKey, CacheEntry> cacheCopy = new HashMap<>();
-        cacheCopy.putAll(responseCache);
-        long cacheByteCount = 0;
-        for (final CacheKey cacheKey : cacheCopy.keySet()) {
-            final CacheEntry cacheEntry = responseCache.get(cacheKey);
-            if (cacheEntry != null && cacheEntry.getEntity() != null) {
-                cacheByteCount += cacheEntry.getEntity().length;
+    private void respondFromIndex(
+            final PwmRequest pwmRequest,
+            final PwmApplication pwmApplication,
+            final SessionLabel sessionLabel,
+            final String requestURI,
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final ResourceIndex.IndexedResource indexedResource
+    ) {
+        try {
+            handleIndexedResponse(pwmRequest, request, response, indexedResource);
+            if (pwmApplication != null) {
+                StatisticsManager.incrementStat(pwmApplication, Statistic.HTTP_RESOURCE_REQUESTS);
             }
+        } catch (Exception e) {
+            LOGGER.error(sessionLabel, "error fulfilling response for url '" + requestURI + "', error: " + e.getMessage());
         }
-        return cacheByteCount;
     }
 
-    public static int itemsInCache(final ServletContext servletContext) {
-        final Map<CacheKey, CacheEntry> responseCache = getCache(servletContext);
-        return responseCache.size();
-    }
-
-    public static Percent cacheHitRatio(final ServletContext servletContext) {
-        final BigDecimal numerator = BigDecimal.valueOf(getCacheHitRatio(servletContext).getAverage());
-        final BigDecimal denominator = BigDecimal.ONE;
-        return new Percent(numerator, denominator);
-    }
-
-    private boolean handleCacheableResponse(
+    /**
+     * Answers from the resource index: a 304 when the client already has the representation, otherwise the
+     * precomputed (and, when accepted, precompressed) content written directly from the index.
+     */
+    private void handleIndexedResponse(
+            final PwmRequest pwmRequest,
+            final HttpServletRequest request,
             final HttpServletResponse response,
-            final FileResource file,
-            final boolean acceptsGzip
-    ) throws
-            UncacheableResourceException, IOException {
-        final Map<CacheKey, CacheEntry> responseCache = getCache(getServletContext());
+            final ResourceIndex.IndexedResource indexedResource
+    )
+            throws IOException
+    {
+        final ResourceIndex.ContentEncoding contentEncoding = setting_enableGzip
+                ? indexedResource.selectEncoding(request.getHeader("Accept-Encoding"))
+                : null;
+        final String eTag = indexedResource.getETag(contentEncoding);
 
-        if (file.length() > setting_maxCacheBytes) {
-            throw new UncacheableResourceException("file to large to cache");
+        response.reset();
+        response.setDateHeader("Expires", System.currentTimeMillis() + (setting_expireSeconds * 1000l));
+        response.setHeader("Cache-Control", "public, max-age=" + setting_expireSeconds);
+        response.setHeader("ETag", eTag);
+        if (indexedResource.getLastModified() > 0) {
+            response.setDateHeader("Last-Modified", indexedResource.getLastModified());
         }
+        if (setting_enableGzip && indexedResource.hasEncodedContent()) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        ServletHelper.addPwmResponseHeaders(pwmRequest, false);
 
-        boolean fromCache = false;
-        final CacheKey cacheKey = new CacheKey(file, acceptsGzip);
-        CacheEntry cacheEntry = responseCache.get(cacheKey);
-        if (cacheEntry == null) {
-            final Map<String, String> headers = new HashMap<>();
-            final ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
-            final InputStream input = file.getInputStream();
+        if (notModified(request, eTag, indexedResource.getLastModified())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            if (pwmRequest != null) {
+                try {
+                    pwmRequest.debugHttpRequestToLog("returning HTTP 304 status");
+                } catch (PwmUnrecoverableException e2) { /* noop */ }
+            }
+            return;
+        }
 
+        final byte[] content = indexedResource.getContent(contentEncoding);
+        response.setContentType(indexedResource.getContentType());
+        if (contentEncoding != null) {
+            response.setHeader("Content-Encoding", contentEncoding.getHeaderValue());
+        }
+        response.setContentLength(content.length);
+        if (pwmRequest != null) {
             try {
-                if (acceptsGzip) {
-                    final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(output, BUFFER_SIZE);
-                    headers.put("Content-Encoding", "gzip");
-                    copy(input, gzipOutputStream);
-                    close(gzipOutputStream);
-                } else {
-                    copy(input, output);
-                }
+                pwmRequest.debugHttpRequestToLog(contentEncoding == null ? "(indexed)" : "(indexed, " + contentEncoding.getHeaderValue() + ")");
+            } catch (PwmUnrecoverableException e) { /* noop */ }
+        }
+
+        if (!"HEAD".equalsIgnoreCase(request.getMethod())) {
+            final OutputStream responseOutputStream = response.getOutputStream();
+            try {
+                responseOutputStream.write(content);
             } finally {
-                close(input);
-                close(output);
+                close(responseOutputStream);
             }
-
-            final byte[] entity = output.toByteArray();
-            headers.put("Content-Length", String.valueOf(entity.length));
-            cacheEntry = new CacheEntry(entity, headers);
-        } else {
-            fromCache = true;
         }
+    }
 
-        responseCache.put(cacheKey, cacheEntry);
-        for (final String key : cacheEntry.getHeaderStrings().keySet()) {
-            response.setHeader(key, cacheEntry.getHeaderStrings().get(key));
+    static boolean notModified(final HttpServletRequest request, final String eTag, final long lastModified) {
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ResourceIndex.matchesETag(ifNoneMatch, eTag);
         }
 
-        final OutputStream responseOutputStream = response.getOutputStream();
-        try {
-            copy(new ByteArrayInputStream(cacheEntry.getEntity()), responseOutputStream);
-        } finally {
-            close(responseOutputStream);
+        if (lastModified > 0) {
+            try {
+                final long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+                return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
         }
+        return false;
+    }
 
-        return fromCache;
+    public static long bytesInCache(final ServletContext servletContext) {
+        final ResourceIndex resourceIndex = getIndex(servletContext);
+        return resourceIndex == null ? 0 : resourceIndex.byteCount();
+    }
+
+    public static int itemsInCache(final ServletContext servletContext) {
+        final ResourceIndex resourceIndex = getIndex(servletContext);
+        return resourceIndex == null ? 0 : resourceIndex.size();
+    }
+
+    public static Percent cacheHitRatio(final ServletContext servletContext) {
+        final BigDecimal numerator = BigDecimal.valueOf(getCacheHitRatio(servletContext).getAverage());
+        final BigDecimal denominator = BigDecimal.ONE;
+        return new Percent(numerator, denominator);
     }
 
     private static void handleUncachedResponse(
@@ -477,14 +514,8 @@ public class ResourceFileServlet extends HttpServlet {
         }
     }
 
-    private static FileResource resolveRequestedFile(
-            final ServletContext servletContext,
-            final String requestURI,
-            final HttpServletRequest request,
-            final Map<String, ZipFile> zipResources,
-            final Map<String, FileResource> customResources
-    )
-            throws UnsupportedEncodingException, PwmUnrecoverableException
+    private static String requestedFileName(final String requestURI, final HttpServletRequest request)
+            throws UnsupportedEncodingException
     {
         // Get requested file by path info.
         final String requestFileURI = requestURI.substring(request.getContextPath().length(), requestURI.length());
@@ -497,6 +528,20 @@ public class ResourceFileServlet extends HttpServlet {
             filename = filename.substring(0, filename.indexOf(";"));
         }
 
+        return filename;
+    }
+
+    private static FileResource resolveRequestedFile(
+            final ServletContext servletContext,
+            final String requestURI,
+            final String filename,
+            final HttpServletRequest request,
+            final Map<String, ZipFile> zipResources,
+            final Map<String, FileResource> customResources
+    )
+            throws PwmUnrecoverableException
+    {
+
         for (final String customFileName : customResources.keySet()) {
             final String testName = request.getContextPath() + "/public/resources/" + customFileName;
             if (testName.equals(requestURI)) {
@@ -582,63 +627,6 @@ public class ResourceFileServlet extends HttpServlet {
         }
     }
 
-    private static final class UncacheableResourceException extends Exception {
-        private UncacheableResourceException(String message) {
-            super(message);
-        }
-    }
-
-    private static final class CacheEntry implements Serializable {
-        final private byte[] entity;
-        final private Map<String, String> headerStrings;
-
-        private CacheEntry(final byte[] entity, final Map<String, String> headerStrings) {
-            this.entity = entity;
-            this.headerStrings = headerStrings;
-        }
-
-        public byte[] getEntity() {
-            return entity;
-        }
-
-        public Map<String, String> getHeaderStrings() {
-            return headerStrings;
-        }
-    }
-
-    private static final class CacheKey implements Serializable {
-        final private String fileName;
-        final private boolean acceptsGzip;
-        final private long fileModificationTimestamp;
-
-        private CacheKey(final FileResource file, final boolean acceptsGzip) {
-            this.fileName = file.getName();
-            this.acceptsGzip = acceptsGzip;
-            this.fileModificationTimestamp = file.lastModified();
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            CacheKey cacheKey = (CacheKey) o;
-
-            return acceptsGzip == cacheKey.acceptsGzip &&
-                    fileModificationTimestamp == cacheKey.fileModificationTimestamp &&
-                    !(fileName != null ? !fileName.equals(cacheKey.fileName) : cacheKey.fileName != null);
-
-        }
-
-        @Override
-        public int hashCode() {
-            int result = fileName != null ? fileName.hashCode() : 0;
-            result = 31 * result + (acceptsGzip ? 1 : 0);
-            result = 31 * result + (int) (fileModificationTimestamp ^ (fileModificationTimestamp >>> 32));
-            return result;
-        }
-    }
-
     static interface FileResource {
         InputStream getInputStream() throws IOException;
 
@@ -757,7 +745,7 @@ public class ResourceFileServlet extends HttpServlet {
     }
 
     public static String makeResourcePathNonce(final PwmApplication pwmApplication) {
-        final boolean enablePathNonce = Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_ENABLE_PATH_NONCE));
+        final boolean enablePathNonce = pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.HTTP_RESOURCES_ENABLE_PATH_NONCE);
         final String noncePrefix = pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_RESOURCES_NONCE_PATH_PREFIX);
         if (enablePathNonce) {
             return '/' + noncePrefix + pwmApplication.getInstanceNonce();
@@ -0,0 +1,365 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2014 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.http.servlet;
+
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.SecureHelper;
+import password.pwm.util.logging.PwmLogger;
+
+import javax.servlet.ServletContext;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Index of the static web resources served by {@link ResourceFileServlet}.  A resource is indexed the first time it
+ * is requested, and holds its content, a strong ETag derived from a hash of the content, and a precompressed copy for
+ * each supported {@link ContentEncoding} that is smaller than the original, so later requests are answered without
+ * compressing anything.  The only file system access for an indexed resource is a check of its last modified time, and
+ * a resource whose source has changed since it was indexed is dropped and indexed again.
+ * <p/>
+ * Resources are keyed by their decoded path relative to the web application context, for example
+ * <code>/public/resources/style.css</code>.  Files larger than the per-file limit, or whose stored size including the
+ * compressed copies would exceed the total size limit, are not indexed and are served by the servlet's streaming path
+ * instead.
+ */
+class ResourceIndex {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(ResourceIndex.class);
+
+    private static final int BUFFER_SIZE = 10 * 1024;
+
+    /**
+     * Content encodings resources are precompressed with, in order of preference.
+     */
+    enum ContentEncoding {
+        GZIP("gzip") {
+            byte[] compress(final byte[] input) throws IOException {
+                final ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 64);
+                final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(output, BUFFER_SIZE) {
+                    {
+                        def.setLevel(Deflater.BEST_COMPRESSION);
+                    }
+                };
+                gzipOutputStream.write(input);
+                gzipOutputStream.close();
+                return output.toByteArray();
+            }
+        },
+
+        ;
+
+        private final String headerValue;
+
+        ContentEncoding(final String headerValue) {
+            this.headerValue = headerValue;
+        }
+
+        public String getHeaderValue() {
+            return headerValue;
+        }
+
+        abstract byte[] compress(byte[] input) throws IOException;
+    }
+
+    private final Map<String, IndexedResource> resources = new ConcurrentHashMap<>();
+    private final ServletContext servletContext;
+    private final long maxFileBytes;
+    private final long maxTotalBytes;
+    private volatile long totalBytes;
+
+    ResourceIndex(final ServletContext servletContext, final long maxFileBytes, final long maxTotalBytes) {
+        this.servletContext = servletContext;
+        this.maxFileBytes = maxFileBytes;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * Returns the indexed copy of a resource, reading and compressing it if it is not yet indexed.
+     *
+     * @return the indexed resource, or null if the resource does not fit in the index
+     */
+    IndexedResource index(final String path, final ResourceFileServlet.FileResource fileResource) throws IOException {
+        final IndexedResource existing = get(path);
+        if (existing != null) {
+            return existing;
+        }
+
+        // the stored size is at least the file length, so files that can not fit are not read
+        final long length = fileResource.length();
+        if (length < 0 || length > maxFileBytes || totalBytes + length > maxTotalBytes) {
+            return null;
+        }
+
+        // read before the content, so a change while reading is seen on the next request
+        final long lastModified = fileResource.lastModified();
+        InputStream inputStream = null;
+        try {
+            inputStream = fileResource.getInputStream();
+            return add(path, readFully(inputStream), lastModified, fileResource);
+        } finally {
+            close(inputStream);
+        }
+    }
+
+    /**
+     * @return the indexed resource, or null if the resource and its compressed copies exceed the total size limit
+     */
+    private IndexedResource add(
+            final String path,
+            final byte[] content,
+            final long lastModified,
+            final ResourceFileServlet.FileResource source
+    )
+            throws IOException
+    {
+        final String contentType = contentTypeForName(path);
+        final String hash;
+        try {
+            hash = SecureHelper.hash(new ByteArrayInputStream(content), SecureHelper.HashAlgorithm.SHA1);
+        } catch (PwmUnrecoverableException e) {
+            throw new IOException(e.getMessage());
+        }
+
+        final Map<ContentEncoding, byte[]> encodedContent = new EnumMap<>(ContentEncoding.class);
+        if (isCompressible(contentType)) {
+            for (final ContentEncoding contentEncoding : ContentEncoding.values()) {
+                final byte[] compressed = contentEncoding.compress(content);
+                if (compressed.length < content.length) {
+                    encodedContent.put(contentEncoding, compressed);
+                }
+            }
+        }
+
+        final IndexedResource indexedResource = new IndexedResource(content, contentType, hash, lastModified, source, encodedContent);
+        synchronized (this) {
+            final IndexedResource existing = resources.get(path);
+            if (existing != null) {
+                return existing;
+            }
+            if (totalBytes + indexedResource.byteCount() > maxTotalBytes) {
+                LOGGER.trace("not indexing " + path + ", resource index size limit reached");
+                return null;
+            }
+            resources.put(path, indexedResource);
+            totalBytes += indexedResource.byteCount();
+        }
+        return indexedResource;
+    }
+
+    /**
+     * @return the indexed resource, or null if the resource is not indexed or its source has changed since it was
+     */
+    IndexedResource get(final String path) {
+        final IndexedResource indexedResource = resources.get(path);
+        if (indexedResource != null && indexedResource.isStale()) {
+            LOGGER.trace("resource " + path + " has been modified since it was indexed, it will be indexed again");
+            synchronized (this) {
+                if (resources.get(path) == indexedResource) {
+                    resources.remove(path);
+                    totalBytes -= indexedResource.byteCount();
+                }
+            }
+            return null;
+        }
+        return indexedResource;
+    }
+
+    int size() {
+        return resources.size();
+    }
+
+    long byteCount() {
+        return totalBytes;
+    }
+
+    private String contentTypeForName(final String path) {
+        String contentType = servletContext.getMimeType(path.substring(path.lastIndexOf('/') + 1));
+        if (contentType == null) {
+            contentType = "application/octet-stream";
+        }
+        if (isCompressible(contentType)) {
+            contentType += ";charset=UTF-8";
+        }
+        return contentType;
+    }
+
+    private static boolean isCompressible(final String contentType) {
+        return contentType.startsWith("text") || contentType.contains("javascript") || contentType.contains("json")
+                || contentType.contains("xml");
+    }
+
+    private static byte[] readFully(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(BUFFER_SIZE);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    private static void close(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                /* noop */
+            }
+        }
+    }
+
+    static class IndexedResource {
+        private final byte[] content;
+        private final String contentType;
+        private final String hash;
+        private final long lastModified;
+        private final ResourceFileServlet.FileResource source;
+        private final Map<ContentEncoding, byte[]> encodedContent;
+
+        private IndexedResource(
+                final byte[] content,
+                final String contentType,
+                final String hash,
+                final long lastModified,
+                final ResourceFileServlet.FileResource source,
+                final Map<ContentEncoding, byte[]> encodedContent
+        ) {
+            this.content = content;
+            this.contentType = contentType;
+            this.hash = hash;
+            this.lastModified = lastModified;
+            this.source = source;
+            this.encodedContent = encodedContent;
+        }
+
+        /**
+         * @return true if the source has been modified or removed since the resource was indexed
+         */
+        private boolean isStale() {
+            return source.lastModified() != lastModified;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public boolean hasEncodedContent() {
+            return !encodedContent.isEmpty();
+        }
+
+        /**
+         * @param acceptEncoding value of the request's Accept-Encoding header, may be null
+         * @return the preferred precompressed encoding accepted by the client, or null for the original content
+         */
+        public ContentEncoding selectEncoding(final String acceptEncoding) {
+            if (acceptEncoding == null || encodedContent.isEmpty()) {
+                return null;
+            }
+            for (final ContentEncoding contentEncoding : ContentEncoding.values()) {
+                if (encodedContent.containsKey(contentEncoding) && acceptsEncoding(acceptEncoding, contentEncoding.getHeaderValue())) {
+                    return contentEncoding;
+                }
+            }
+            return null;
+        }
+
+        public byte[] getContent(final ContentEncoding contentEncoding) {
+            return contentEncoding == null ? content : encodedContent.get(contentEncoding);
+        }
+
+        /**
+         * Each encoding is a different representation, so each gets its own strong ETag.
+         */
+        public String getETag(final ContentEncoding contentEncoding) {
+            return contentEncoding == null
+                    ? '"' + hash + '"'
+                    : '"' + hash + '-' + contentEncoding.getHeaderValue() + '"';
+        }
+
+        private long byteCount() {
+            long count = content.length;
+            for (final byte[] encoded : encodedContent.values()) {
+                count += encoded.length;
+            }
+            return count;
+        }
+    }
+
+    static boolean acceptsEncoding(final String acceptEncoding, final String encoding) {
+        Boolean wildcardAccepted = null;
+        for (final String part : acceptEncoding.split(",")) {
+            final String[] params = part.trim().split(";");
+            final String name = params[0].trim();
+            if (name.equalsIgnoreCase(encoding)) {
+                return qualityAccepted(params);
+            } else if (name.equals("*")) {
+                wildcardAccepted = qualityAccepted(params);
+            }
+        }
+        return wildcardAccepted != null && wildcardAccepted;
+    }
+
+    private static boolean qualityAccepted(final String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            final String param = params[i].replace(" ", "");
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header value against an ETag, as required for conditional GET requests.
+     */
+    static boolean matchesETag(final String ifNoneMatch, final String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        final String opaqueTag = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        for (final String part : ifNoneMatch.split(",")) {
+            String candidate = part.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -75,7 +75,7 @@ public class ErrorMessageTag extends PwmAbstractTag {
                     outputMsg = error.toUserStr(pwmRequest.getPwmSession(), pwmApplication);
                 }
 
-                final boolean allowHtml = pwmApplication != null && Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.HTTP_HEADER_SEND_XVERSION));
+                final boolean allowHtml = pwmApplication != null && pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.HTTP_HEADER_SEND_XVERSION);
                 if (!allowHtml) {
                     outputMsg = StringUtil.escapeHtml(outputMsg);
                 }
@@ -75,6 +75,14 @@ public class LocaleHelper {
     }
 
     public static String getLocalizedMessage(final Locale locale, final String key, final Configuration config, final Class bundleClass, final String[] values) {
+        if (locale != null) {
+            final LocalizedMessageTable table = LocalizedMessageTable.forLocale(locale, config);
+            final LocalizedMessageTable.MessageTemplate message = table == null ? null : table.getMessage(bundleClass, key);
+            if (message != null) {
+                return message.format(values);
+            }
+        }
+
         String returnValue = null;
         if (config != null) {
             final Map<Locale,String> configuredBundle = config.readLocalizedBundle(bundleClass.getName(),key);
@@ -0,0 +1,183 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.i18n;
+
+import password.pwm.config.Configuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every message of the {@link PwmLocaleBundle} bundles for one locale, with the custom text of a configuration
+ * applied and the {@code %1%} style parameters pre-parsed.  Tables are immutable and are built once per
+ * {@link Configuration} (see {@link Configuration#readLocalizedMessageTable(Locale)}), so a reloaded configuration
+ * starts with new tables.
+ */
+public class LocalizedMessageTable implements Serializable {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(LocalizedMessageTable.class);
+
+    /**
+     * Limit on the number of locales with a cached table; lookups for other locales resolve each message directly.
+     */
+    public static final int MAX_CACHED_LOCALES = 100;
+
+    private static final Map<Locale,LocalizedMessageTable> UNCONFIGURED_TABLES = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>,Map<String,MessageTemplate>> messages;
+
+    private LocalizedMessageTable(final Map<Class<?>,Map<String,MessageTemplate>> messages) {
+        this.messages = messages;
+    }
+
+    public static LocalizedMessageTable build(final Locale locale, final Configuration config) {
+        final Map<Class<?>,Map<String,MessageTemplate>> messages = new HashMap<>();
+        for (final PwmLocaleBundle pwmLocaleBundle : PwmLocaleBundle.values()) {
+            final Class<?> bundleClass = pwmLocaleBundle.getTheClass();
+            final ResourceBundle bundle;
+            try {
+                bundle = ResourceBundle.getBundle(bundleClass.getName(), locale);
+            } catch (MissingResourceException e) {
+                LOGGER.warn("missing bundle for " + bundleClass.getName());
+                continue;
+            }
+
+            final Map<String,MessageTemplate> bundleMessages = new HashMap<>();
+            for (final String key : bundle.keySet()) {
+                String value = null;
+                if (config != null) {
+                    final Map<Locale,String> configuredBundle = config.readLocalizedBundle(bundleClass.getName(), key);
+                    if (configuredBundle != null) {
+                        value = configuredBundle.get(LocaleHelper.localeResolver(locale, configuredBundle.keySet()));
+                    }
+                }
+                if (value == null || value.isEmpty()) {
+                    value = bundle.getString(key);
+                }
+                if (value != null) {
+                    bundleMessages.put(key, new MessageTemplate(value));
+                }
+            }
+            messages.put(bundleClass, Collections.unmodifiableMap(bundleMessages));
+        }
+        return new LocalizedMessageTable(Collections.unmodifiableMap(messages));
+    }
+
+    static LocalizedMessageTable forLocale(final Locale locale, final Configuration config) {
+        if (config != null) {
+            return config.readLocalizedMessageTable(locale);
+        }
+
+        LocalizedMessageTable table = UNCONFIGURED_TABLES.get(locale);
+        if (table == null) {
+            if (UNCONFIGURED_TABLES.size() >= MAX_CACHED_LOCALES) {
+                return null;
+            }
+            table = build(locale, null);
+            UNCONFIGURED_TABLES.put(locale, table);
+        }
+        return table;
+    }
+
+    MessageTemplate getMessage(final Class<?> bundleClass, final String key) {
+        final Map<String,MessageTemplate> bundleMessages = messages.get(bundleClass);
+        return bundleMessages == null ? null : bundleMessages.get(key);
+    }
+
+    /**
+     * A message split at its {@code %n%} parameter markers.  Markers without a corresponding non-null value are
+     * left in place.
+     */
+    static class MessageTemplate implements Serializable {
+        private final String rawValue;
+        private final String[] literals;
+        private final int[] parameters;
+
+        MessageTemplate(final String rawValue) {
+            this.rawValue = rawValue;
+
+            final List<String> literals = new ArrayList<>();
+            final List<Integer> parameters = new ArrayList<>();
+            int literalStart = 0;
+            int position = rawValue.indexOf('%');
+            while (position >= 0) {
+                final int end = rawValue.indexOf('%', position + 1);
+                if (end < 0) {
+                    break;
+                }
+                final int parameter = parseParameter(rawValue.substring(position + 1, end));
+                if (parameter > 0) {
+                    literals.add(rawValue.substring(literalStart, position));
+                    parameters.add(parameter - 1);
+                    literalStart = end + 1;
+                    position = rawValue.indexOf('%', literalStart);
+                } else {
+                    position = end;
+                }
+            }
+            literals.add(rawValue.substring(literalStart));
+
+            this.literals = literals.toArray(new String[literals.size()]);
+            this.parameters = new int[parameters.size()];
+            for (int i = 0; i < this.parameters.length; i++) {
+                this.parameters[i] = parameters.get(i);
+            }
+        }
+
+        String format(final String[] values) {
+            if (values == null || parameters.length == 0) {
+                return rawValue;
+            }
+
+            final StringBuilder output = new StringBuilder(rawValue.length() + 32);
+            for (int i = 0; i < parameters.length; i++) {
+                output.append(literals[i]);
+                final int index = parameters[i];
+                if (index < values.length && values[index] != null) {
+                    output.append(values[index]);
+                } else {
+                    output.append('%').append(index + 1).append('%');
+                }
+            }
+            output.append(literals[parameters.length]);
+            return output.toString();
+        }
+
+        private static int parseParameter(final String input) {
+            if (input.isEmpty() || input.length() > 4 || input.charAt(0) == '0') {
+                return -1;
+            }
+            int value = 0;
+            for (int i = 0; i < input.length(); i++) {
+                final char c = input.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+    }
+}
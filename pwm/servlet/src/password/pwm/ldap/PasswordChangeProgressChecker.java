@@ -37,7 +37,6 @@ import password.pwm.util.Percent;
 import password.pwm.util.ProgressInfo;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
-import password.pwm.util.operations.PasswordUtility;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -283,8 +282,8 @@ public class PasswordChangeProgressChecker {
             final ProgressTracker tracker
 
     ) {
-        final long initDelayMs = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.LDAP_PASSWORD_REPLICA_CHECK_INIT_DELAY_MS));
-        final long cycleDelayMs = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.LDAP_PASSWORD_REPLICA_CHECK_CYCLE_DELAY_MS));
+        final long initDelayMs = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.LDAP_PASSWORD_REPLICA_CHECK_INIT_DELAY_MS);
+        final long cycleDelayMs = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.LDAP_PASSWORD_REPLICA_CHECK_CYCLE_DELAY_MS);
         final TimeDuration initialReplicaDelay = new TimeDuration(initDelayMs);
         final TimeDuration cycleReplicaDelay = new TimeDuration(cycleDelayMs);
 
@@ -310,11 +309,17 @@ public class PasswordChangeProgressChecker {
             return null;
         }
 
+        final ReplicationStatusService replicationStatusService = pwmApplication.getReplicationStatusService();
+        if (replicationStatusService == null) {
+            LOGGER.trace(pwmSession, "skipping replica sync check, replication status service is not available");
+            return null;
+        }
+
         tracker.lastReplicaCheckTime = new Date();
         LOGGER.trace(pwmSession, "beginning password replication time check for " + userIdentity.toDelimitedKey());
 
         try {
-            final Map<String,Date> checkResults = PasswordUtility.readIndividualReplicaLastPasswordTimes(pwmApplication,
+            final Map<String,Date> checkResults = replicationStatusService.readReplicaPasswordTimes(
                     pwmSession, userIdentity);
             if (checkResults.size() <= 1) {
                 LOGGER.trace("only one replica returned data, marking as complete");
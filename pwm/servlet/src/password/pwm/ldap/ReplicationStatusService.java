@@ -0,0 +1,387 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.ChaiFactory;
+import com.novell.ldapchai.ChaiUser;
+import com.novell.ldapchai.exception.ChaiUnavailableException;
+import com.novell.ldapchai.provider.ChaiConfiguration;
+import com.novell.ldapchai.provider.ChaiProvider;
+import com.novell.ldapchai.provider.ChaiProviderFactory;
+import com.novell.ldapchai.provider.ChaiSetting;
+import com.novell.ldapchai.util.ChaiUtility;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.PwmService;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.config.Configuration;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.health.HealthRecord;
+import password.pwm.util.Helper;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.operations.PasswordUtility;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Reads the password modification time of a user from each ldap replica, for the password change progress check.
+ * <p/>
+ * Replicas are read concurrently, and a replica that does not answer within the replica timeout is left out of the
+ * result.  Requests for a user whose check is already in progress wait for that check rather than starting another,
+ * and a completed result is reused for the replica check cycle delay, so the number of replica reads follows the
+ * number of users waiting for a password change rather than the number of progress polls.
+ */
+public class ReplicationStatusService implements PwmService {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(ReplicationStatusService.class);
+
+    private STATUS status = STATUS.NEW;
+    private ReplicaReader replicaReader;
+    private long replicaTimeoutMs;
+    private long cacheTimeMs;
+    private ThreadPoolExecutor executor;
+    private final ConcurrentMap<UserIdentity, StatusCheck> statusChecks = new ConcurrentHashMap<>();
+    private volatile long lastPurgeTime = System.currentTimeMillis();
+
+    @Override
+    public STATUS status() {
+        return status;
+    }
+
+    @Override
+    public void init(final PwmApplication pwmApplication)
+            throws PwmException
+    {
+        final Configuration config = pwmApplication.getConfig();
+        // results expire in half a check cycle, so a user polling once per cycle is never handed the previous cycle's result
+        final long cycleDelayMs = config.readAppPropertyAsLong(AppProperty.LDAP_PASSWORD_REPLICA_CHECK_CYCLE_DELAY_MS);
+        open(
+                new LdapReplicaReader(pwmApplication),
+                config.readAppPropertyAsInt(AppProperty.LDAP_PASSWORD_REPLICA_CHECK_MAX_THREADS),
+                config.readAppPropertyAsLong(AppProperty.LDAP_PASSWORD_REPLICA_CHECK_TIMEOUT_MS),
+                cycleDelayMs / 2,
+                Helper.makeThreadName(pwmApplication, ReplicationStatusService.class)
+        );
+    }
+
+    void open(
+            final ReplicaReader replicaReader,
+            final int maxThreads,
+            final long replicaTimeoutMs,
+            final long cacheTimeMs,
+            final String threadName
+    )
+    {
+        status = STATUS.OPENING;
+        this.replicaReader = replicaReader;
+        this.replicaTimeoutMs = replicaTimeoutMs;
+        this.cacheTimeMs = cacheTimeMs;
+
+        final int threadCount = Math.max(1, maxThreads);
+        executor = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(),
+                Helper.makePwmThreadFactory(threadName + "-", true)
+        );
+        executor.allowCoreThreadTimeOut(true);
+
+        status = STATUS.OPEN;
+        LOGGER.debug("opened replication status service, max threads " + threadCount + ", replica timeout " + replicaTimeoutMs + "ms");
+    }
+
+    @Override
+    public void close() {
+        status = STATUS.CLOSED;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        statusChecks.clear();
+        if (replicaReader != null) {
+            replicaReader.close();
+        }
+    }
+
+    @Override
+    public List<HealthRecord> healthCheck() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ServiceInfo serviceInfo() {
+        return new ServiceInfo(Collections.singletonList(DataStorageMethod.LDAP));
+    }
+
+    /**
+     * @return the password modification time read from each replica that answered within the replica timeout,
+     * keyed by replica url
+     */
+    public Map<String,Date> readReplicaPasswordTimes(
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity
+    )
+            throws PwmUnrecoverableException
+    {
+        if (status != STATUS.OPEN) {
+            throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_SERVICE_NOT_AVAILABLE, "replication status service is not open"));
+        }
+
+        while (true) {
+            final long now = System.currentTimeMillis();
+            final StatusCheck existingCheck = statusChecks.get(userIdentity);
+            if (existingCheck != null && !existingCheck.isExpired(now)) {
+                if (!existingCheck.task.isDone()) {
+                    LOGGER.trace(sessionLabel, "awaiting replica check already in progress for " + userIdentity.toDelimitedKey());
+                }
+                return existingCheck.awaitResult();
+            }
+
+            final StatusCheck newCheck = new StatusCheck(sessionLabel, userIdentity);
+            final boolean registered = existingCheck == null
+                    ? statusChecks.putIfAbsent(userIdentity, newCheck) == null
+                    : statusChecks.replace(userIdentity, existingCheck, newCheck);
+            if (registered) {
+                purgeExpiredChecks(now);
+                newCheck.task.run();
+                return newCheck.awaitResult();
+            }
+        }
+    }
+
+    int cachedCheckCount() {
+        return statusChecks.size();
+    }
+
+    private Map<String,Date> checkReplicas(
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity
+    )
+            throws PwmUnrecoverableException
+    {
+        final long startTime = System.currentTimeMillis();
+        final List<String> replicaUrls = replicaReader.replicaUrls(userIdentity);
+        final List<Callable<Date>> readTasks = new ArrayList<>();
+        for (final String replicaUrl : replicaUrls) {
+            readTasks.add(new Callable<Date>() {
+                public Date call() throws Exception {
+                    return replicaReader.readPasswordModificationDate(sessionLabel, replicaUrl, userIdentity);
+                }
+            });
+        }
+
+        final List<Future<Date>> results;
+        try {
+            results = executor.invokeAll(readTasks, replicaTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "interrupted during replica password sync check"));
+        } catch (RejectedExecutionException e) {
+            throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_SERVICE_NOT_AVAILABLE, "replication status service is closed"));
+        }
+
+        final Map<String,Date> returnValue = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            final String replicaUrl = replicaUrls.get(i);
+            final Future<Date> result = results.get(i);
+            try {
+                returnValue.put(replicaUrl, result.get());
+            } catch (CancellationException e) {
+                LOGGER.error(sessionLabel, "replica " + replicaUrl + " did not respond within " + replicaTimeoutMs + "ms during replica password sync check");
+            } catch (ExecutionException e) {
+                LOGGER.error(sessionLabel, "unable to read replica " + replicaUrl + " during replica password sync check: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        LOGGER.trace(sessionLabel, "read password modification time from " + returnValue.size() + " of " + replicaUrls.size()
+                + " replicas in " + TimeDuration.fromCurrent(startTime).asCompactString());
+        return Collections.unmodifiableMap(returnValue);
+    }
+
+    private void purgeExpiredChecks(final long now) {
+        if (now - lastPurgeTime < cacheTimeMs) {
+            return;
+        }
+        lastPurgeTime = now;
+        for (final Map.Entry<UserIdentity, StatusCheck> entry : statusChecks.entrySet()) {
+            if (entry.getValue().isExpired(now)) {
+                statusChecks.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private class StatusCheck {
+        private final UserIdentity userIdentity;
+        private final FutureTask<Map<String,Date>> task;
+        private volatile long completeTime;
+
+        private StatusCheck(final SessionLabel sessionLabel, final UserIdentity userIdentity) {
+            this.userIdentity = userIdentity;
+            this.task = new FutureTask<Map<String,Date>>(new Callable<Map<String,Date>>() {
+                public Map<String,Date> call() throws Exception {
+                    return checkReplicas(sessionLabel, userIdentity);
+                }
+            }) {
+                protected void done() {
+                    completeTime = System.currentTimeMillis();
+                }
+            };
+        }
+
+        private boolean isExpired(final long now) {
+            return task.isDone() && now - completeTime >= cacheTimeMs;
+        }
+
+        private Map<String,Date> awaitResult()
+                throws PwmUnrecoverableException
+        {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "interrupted during replica password sync check"));
+            } catch (ExecutionException e) {
+                // failed checks are not reused
+                statusChecks.remove(userIdentity, this);
+                if (e.getCause() instanceof PwmUnrecoverableException) {
+                    throw (PwmUnrecoverableException) e.getCause();
+                }
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "error during replica password sync check: " + e.getCause().getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Source of the replicas of a user's ldap profile and of the password modification time held by each.
+     */
+    interface ReplicaReader {
+        List<String> replicaUrls(UserIdentity userIdentity)
+                throws PwmUnrecoverableException;
+
+        Date readPasswordModificationDate(SessionLabel sessionLabel, String replicaUrl, UserIdentity userIdentity)
+                throws Exception;
+
+        void close();
+    }
+
+    /**
+     * Reads replicas through a chai provider per replica of the profile's proxy connection, kept open between checks.
+     */
+    private static class LdapReplicaReader implements ReplicaReader {
+        private final PwmApplication pwmApplication;
+        private final ConcurrentMap<String, Map<String, ChaiConfiguration>> profileReplicaConfigs = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, ChaiProvider> replicaProviders = new ConcurrentHashMap<>();
+
+        private LdapReplicaReader(final PwmApplication pwmApplication) {
+            this.pwmApplication = pwmApplication;
+        }
+
+        public List<String> replicaUrls(final UserIdentity userIdentity)
+                throws PwmUnrecoverableException
+        {
+            return new ArrayList<>(replicaConfigs(userIdentity.getLdapProfileID()).keySet());
+        }
+
+        public Date readPasswordModificationDate(
+                final SessionLabel sessionLabel,
+                final String replicaUrl,
+                final UserIdentity userIdentity
+        )
+                throws Exception
+        {
+            final ChaiProvider replicaProvider = replicaProvider(userIdentity.getLdapProfileID(), replicaUrl);
+            try {
+                final ChaiUser replicaUser = ChaiFactory.createChaiUser(userIdentity.getUserDN(), replicaProvider);
+                return PasswordUtility.determinePwdLastModified(pwmApplication, sessionLabel, replicaUser, userIdentity);
+            } catch (ChaiUnavailableException e) {
+                closeProvider(userIdentity.getLdapProfileID() + "|" + replicaUrl, replicaProvider);
+                throw e;
+            }
+        }
+
+        public void close() {
+            for (final Map.Entry<String, ChaiProvider> entry : replicaProviders.entrySet()) {
+                closeProvider(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private Map<String, ChaiConfiguration> replicaConfigs(final String profileID)
+                throws PwmUnrecoverableException
+        {
+            final String key = profileID == null ? "" : profileID;
+            Map<String, ChaiConfiguration> replicaConfigs = profileReplicaConfigs.get(key);
+            if (replicaConfigs == null) {
+                final ChaiProvider proxyProvider = pwmApplication.getProxyChaiProvider(profileID);
+                final Map<String, ChaiConfiguration> newConfigs = new LinkedHashMap<>();
+                for (final ChaiConfiguration replicaConfig : ChaiUtility.splitConfigurationPerReplica(
+                        proxyProvider.getChaiConfiguration(),
+                        Collections.singletonMap(ChaiSetting.FAILOVER_CONNECT_RETRIES, "1")
+                )) {
+                    newConfigs.put(replicaConfig.getSetting(ChaiSetting.BIND_URLS), replicaConfig);
+                }
+                replicaConfigs = Collections.unmodifiableMap(newConfigs);
+                profileReplicaConfigs.put(key, replicaConfigs);
+            }
+            return replicaConfigs;
+        }
+
+        private ChaiProvider replicaProvider(final String profileID, final String replicaUrl)
+                throws PwmUnrecoverableException, ChaiUnavailableException
+        {
+            final String key = profileID + "|" + replicaUrl;
+            final ChaiProvider existingProvider = replicaProviders.get(key);
+            if (existingProvider != null) {
+                return existingProvider;
+            }
+            final ChaiConfiguration replicaConfig = replicaConfigs(profileID).get(replicaUrl);
+            if (replicaConfig == null) {
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "unknown replica " + replicaUrl));
+            }
+            final ChaiProvider newProvider = ChaiProviderFactory.createProvider(replicaConfig);
+            final ChaiProvider racedProvider = replicaProviders.putIfAbsent(key, newProvider);
+            if (racedProvider != null) {
+                newProvider.close();
+                return racedProvider;
+            }
+            return newProvider;
+        }
+
+        private void closeProvider(final String key, final ChaiProvider provider) {
+            replicaProviders.remove(key, provider);
+            try {
+                provider.close();
+            } catch (Exception e) {
+                LOGGER.error("error closing replica connection " + key + " used for password sync check: " + e.getMessage());
+            }
+        }
+    }
+}
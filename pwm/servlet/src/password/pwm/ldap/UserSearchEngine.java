@@ -233,7 +233,7 @@ public class UserSearchEngine {
 
         final List<String> errors = new ArrayList<>();
 
-        final long profileRetryDelayMS = Long.valueOf(pwmApplication.getConfig().readAppProperty(AppProperty.LDAP_PROFILE_RETRY_DELAY));
+        final long profileRetryDelayMS = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.LDAP_PROFILE_RETRY_DELAY);
         for (final LdapProfile ldapProfile : ldapProfiles) {
             if (returnMap.size() < maxResults) {
                 boolean skipProfile = false;
@@ -336,7 +336,7 @@ public class UserSearchEngine {
 
         final long timeLimitMS = searchConfiguration.getSearchTimeout() != 0
                 ? searchConfiguration.getSearchTimeout()
-                : Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.LDAP_SEARCH_TIMEOUT));
+                : pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.LDAP_SEARCH_TIMEOUT);
 
 
         final ChaiProvider chaiProvider = searchConfiguration.getChaiProvider() == null ?
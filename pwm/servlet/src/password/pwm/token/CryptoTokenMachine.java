@@ -26,7 +26,9 @@ import password.pwm.bean.SessionLabel;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 
 class CryptoTokenMachine implements TokenMachine {
@@ -62,12 +64,23 @@ class CryptoTokenMachine implements TokenMachine {
         return tokenService.fromEncryptedString(tokenKey);
     }
 
+    public TokenPayload retrieveTokenByStorageKey(String storageKey) {
+        return null;
+    }
+
+    public Date retrieveIssueDateByStorageKey(String storageKey) {
+        return null;
+    }
+
     public void storeToken(String tokenKey, TokenPayload tokenPayload) throws PwmOperationalException, PwmUnrecoverableException {
     }
 
     public void removeToken(String tokenKey) throws PwmOperationalException, PwmUnrecoverableException {
     }
 
+    public void removeTokensByStorageKey(Collection<String> storageKeys) {
+    }
+
     public int size() throws PwmOperationalException, PwmUnrecoverableException {
         return 0;
     }
@@ -28,6 +28,9 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.db.DatabaseAccessorImpl;
 import password.pwm.util.db.DatabaseTable;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 
 class DBTokenMachine implements TokenMachine {
@@ -52,25 +55,41 @@ class DBTokenMachine implements TokenMachine {
             throws PwmOperationalException, PwmUnrecoverableException
     {
         final String md5sumToken = TokenService.makeTokenHash(tokenKey);
-        final String storedRawValue = databaseAccessor.get(DatabaseTable.TOKENS,md5sumToken);
+        return retrieveTokenByStorageKey(md5sumToken);
+    }
+
+    public TokenPayload retrieveTokenByStorageKey(String storageKey)
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final String storedRawValue = databaseAccessor.get(DatabaseTable.TOKENS,storageKey);
 
         if (storedRawValue != null && storedRawValue.length() > 0 ) {
-            return tokenService.fromEncryptedString(storedRawValue);
+            return tokenService.fromStorageValue(storedRawValue);
         }
 
         return null;
     }
 
+    public Date retrieveIssueDateByStorageKey(String storageKey)
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final String storedRawValue = databaseAccessor.get(DatabaseTable.TOKENS,storageKey);
+        return TokenService.readStorageIssueDate(storedRawValue);
+    }
+
     public void storeToken(String tokenKey, TokenPayload tokenPayload) throws PwmOperationalException, PwmUnrecoverableException {
-        final String rawValue = tokenService.toEncryptedString(tokenPayload);
+        final String rawValue = tokenService.toStorageValue(tokenPayload);
         final String md5sumToken = TokenService.makeTokenHash(tokenKey);
         databaseAccessor.put(DatabaseTable.TOKENS, md5sumToken, rawValue);
     }
 
     public void removeToken(String tokenKey) throws PwmOperationalException, PwmUnrecoverableException {
         final String md5sumToken = TokenService.makeTokenHash(tokenKey);
-        databaseAccessor.remove(DatabaseTable.TOKENS,tokenKey);
-        databaseAccessor.remove(DatabaseTable.TOKENS,md5sumToken);
+        databaseAccessor.removeAll(DatabaseTable.TOKENS, Arrays.asList(tokenKey, md5sumToken));
+    }
+
+    public void removeTokensByStorageKey(Collection<String> storageKeys) throws PwmOperationalException, PwmUnrecoverableException {
+        databaseAccessor.removeAll(DatabaseTable.TOKENS, storageKeys);
     }
 
     public int size() throws PwmOperationalException, PwmUnrecoverableException {
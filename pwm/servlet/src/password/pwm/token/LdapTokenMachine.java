@@ -37,7 +37,9 @@ import password.pwm.ldap.LdapUserDataReader;
 import password.pwm.ldap.UserDataReader;
 import password.pwm.ldap.UserSearchEngine;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -113,6 +115,14 @@ class LdapTokenMachine implements TokenMachine {
         return null;
     }
 
+    public TokenPayload retrieveTokenByStorageKey(String storageKey) {
+        return null;
+    }
+
+    public Date retrieveIssueDateByStorageKey(String storageKey) {
+        return null;
+    }
+
     public void storeToken(String tokenKey, TokenPayload tokenPayload)
             throws PwmOperationalException, PwmUnrecoverableException
     {
@@ -147,6 +157,9 @@ class LdapTokenMachine implements TokenMachine {
         }
     }
 
+    public void removeTokensByStorageKey(Collection<String> storageKeys) {
+    }
+
     public int size() throws PwmOperationalException {
         return -1;
     }
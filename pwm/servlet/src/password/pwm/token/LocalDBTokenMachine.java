@@ -27,6 +27,9 @@ import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.localdb.LocalDB;
 
+import java.util.Collection;
+import java.util.Date;
+
 class LocalDBTokenMachine implements TokenMachine {
     private LocalDB localDB;
     private TokenService tokenService;
@@ -52,17 +55,30 @@ class LocalDBTokenMachine implements TokenMachine {
             throws PwmOperationalException, PwmUnrecoverableException
     {
         final String md5sumToken = TokenService.makeTokenHash(tokenKey);
-        final String storedRawValue = localDB.get(LocalDB.DB.TOKENS, md5sumToken);
+        return retrieveTokenByStorageKey(md5sumToken);
+    }
+
+    public TokenPayload retrieveTokenByStorageKey(String storageKey)
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final String storedRawValue = localDB.get(LocalDB.DB.TOKENS, storageKey);
 
         if (storedRawValue != null && storedRawValue.length() > 0 ) {
-            return tokenService.fromEncryptedString(storedRawValue);
+            return tokenService.fromStorageValue(storedRawValue);
         }
 
         return null;
     }
 
+    public Date retrieveIssueDateByStorageKey(String storageKey)
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final String storedRawValue = localDB.get(LocalDB.DB.TOKENS, storageKey);
+        return TokenService.readStorageIssueDate(storedRawValue);
+    }
+
     public void storeToken(String tokenKey, TokenPayload tokenPayload) throws PwmOperationalException, PwmUnrecoverableException {
-        final String rawValue = tokenService.toEncryptedString(tokenPayload);
+        final String rawValue = tokenService.toStorageValue(tokenPayload);
         final String md5sumToken = TokenService.makeTokenHash(tokenKey);
         localDB.put(LocalDB.DB.TOKENS, md5sumToken, rawValue);
     }
@@ -75,6 +91,10 @@ class LocalDBTokenMachine implements TokenMachine {
         localDB.remove(LocalDB.DB.TOKENS, md5sumToken);
     }
 
+    public void removeTokensByStorageKey(Collection<String> storageKeys) throws PwmOperationalException, PwmUnrecoverableException {
+        localDB.removeAll(LocalDB.DB.TOKENS, storageKeys);
+    }
+
     public int size() throws PwmOperationalException {
         return localDB.size(LocalDB.DB.TOKENS);
     }
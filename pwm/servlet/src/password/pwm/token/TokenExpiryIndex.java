@@ -0,0 +1,98 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.token;
+
+import java.util.*;
+
+/**
+ * In-memory secondary index of stored token keys grouped by token issue time.  Keys are placed in fixed width
+ * time buckets, so finding the tokens issued before a cutoff only visits the buckets that lie entirely before it
+ * rather than reading and decrypting every stored token.
+ * <p/>
+ * Keys are the storage keys used by the {@link TokenMachine}, not the user visible token values.  Tokens without an
+ * issue date are indexed as issued at the epoch, so they are always found as outdated.
+ */
+class TokenExpiryIndex {
+    private final long bucketWidthMs;
+    private final TreeMap<Long,Set<String>> buckets = new TreeMap<>();
+    private final Map<String,Long> keyBuckets = new HashMap<>();
+
+    TokenExpiryIndex(final long bucketWidthMs) {
+        if (bucketWidthMs < 1) {
+            throw new IllegalArgumentException("bucketWidthMs must be greater than zero");
+        }
+        this.bucketWidthMs = bucketWidthMs;
+    }
+
+    synchronized void add(final String storageKey, final Date issueDate) {
+        remove(storageKey);
+        final long bucketStart = bucketStart(issueDate == null ? 0 : issueDate.getTime());
+        Set<String> bucketKeys = buckets.get(bucketStart);
+        if (bucketKeys == null) {
+            bucketKeys = new HashSet<>();
+            buckets.put(bucketStart, bucketKeys);
+        }
+        bucketKeys.add(storageKey);
+        keyBuckets.put(storageKey, bucketStart);
+    }
+
+    synchronized void remove(final String storageKey) {
+        final Long bucketStart = keyBuckets.remove(storageKey);
+        if (bucketStart != null) {
+            final Set<String> bucketKeys = buckets.get(bucketStart);
+            if (bucketKeys != null) {
+                bucketKeys.remove(storageKey);
+                if (bucketKeys.isEmpty()) {
+                    buckets.remove(bucketStart);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code maxCount} keys of tokens issued before {@code cutoffTime}.  Only whole buckets are
+     * returned, so a token may be returned up to one bucket width later than its exact cutoff, but never earlier.
+     * Returned keys stay in the index until they are {@link #remove(String)}d.
+     */
+    synchronized List<String> outdatedKeys(final long cutoffTime, final int maxCount) {
+        final List<String> returnList = new ArrayList<>();
+        final long lastCompleteBucket = bucketStart(cutoffTime) - bucketWidthMs;
+        for (final Set<String> bucketKeys : buckets.headMap(lastCompleteBucket, true).values()) {
+            for (final String storageKey : bucketKeys) {
+                if (returnList.size() >= maxCount) {
+                    return returnList;
+                }
+                returnList.add(storageKey);
+            }
+        }
+        return returnList;
+    }
+
+    synchronized int size() {
+        return keyBuckets.size();
+    }
+
+    private long bucketStart(final long timestamp) {
+        return timestamp - (timestamp % bucketWidthMs);
+    }
+}
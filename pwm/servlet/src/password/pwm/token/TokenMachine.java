@@ -26,6 +26,8 @@ import password.pwm.bean.SessionLabel;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 
 interface TokenMachine {
@@ -35,12 +37,33 @@ interface TokenMachine {
     TokenPayload retrieveToken(final String tokenKey)
             throws PwmOperationalException, PwmUnrecoverableException;
 
+    /**
+     * Read a token using the key it is stored under, as returned by {@link #keyIterator()}, rather than the
+     * token value given to the user.
+     */
+    TokenPayload retrieveTokenByStorageKey(final String storageKey)
+            throws PwmOperationalException, PwmUnrecoverableException;
+
+    /**
+     * Read the issue date stored alongside a token without decrypting the token.
+     *
+     * @return the issue date, or null if the token does not exist or was stored without a readable issue date
+     */
+    Date retrieveIssueDateByStorageKey(final String storageKey)
+            throws PwmOperationalException, PwmUnrecoverableException;
+
     void storeToken(final String tokenKey, final TokenPayload tokenPayload)
             throws PwmOperationalException, PwmUnrecoverableException;
 
     void removeToken(final String tokenKey)
             throws PwmOperationalException, PwmUnrecoverableException;
 
+    /**
+     * Remove tokens using the keys they are stored under, as returned by {@link #keyIterator()}.
+     */
+    void removeTokensByStorageKey(final Collection<String> storageKeys)
+            throws PwmOperationalException, PwmUnrecoverableException;
+
     int size()
             throws PwmOperationalException, PwmUnrecoverableException;
 
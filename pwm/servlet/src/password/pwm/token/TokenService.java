@@ -43,7 +43,6 @@ import password.pwm.http.PwmSession;
 import password.pwm.ldap.auth.SessionAuthenticator;
 import password.pwm.util.*;
 import password.pwm.util.intruder.RecordType;
-import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroMachine;
 import password.pwm.util.operations.PasswordUtility;
@@ -66,6 +65,7 @@ public class TokenService implements PwmService {
 
     private static final long MAX_CLEANER_INTERVAL_MS = 24 * 60 * 60 * 1000; // one day
     private static final long MIN_CLEANER_INTERVAL_MS = 5 * 60 * 1000; // 5 minutes
+    private static final char STORAGE_ISSUE_DATE_SEPARATOR = ':';
 
     private Timer timer;
 
@@ -77,6 +77,9 @@ public class TokenService implements PwmService {
     private TokenMachine tokenMachine;
     private SecretKey secretKey;
     private long counter;
+    private TokenExpiryIndex expiryIndex;
+    private long expiryIndexRebuildIntervalMS;
+    private volatile long lastExpiryIndexRebuild;
 
     private ServiceInfo serviceInfo = new ServiceInfo(Collections.<DataStorageMethod>emptyList());
     private STATUS status = STATUS.NEW;
@@ -119,7 +122,7 @@ public class TokenService implements PwmService {
         }
         try {
             maxTokenAgeMS = configuration.readSettingAsLong(PwmSetting.TOKEN_LIFETIME) * 1000;
-            maxTokenPurgeAgeMS = maxTokenAgeMS + Long.parseLong(configuration.readAppProperty(AppProperty.TOKEN_REMOVAL_DELAY_MS));
+            maxTokenPurgeAgeMS = maxTokenAgeMS + configuration.readAppPropertyAsLong(AppProperty.TOKEN_REMOVAL_DELAY_MS);
         } catch (Exception e) {
             final String errorMsg = "unable to parse max token age value: " + e.getMessage();
             errorInformation = new ErrorInformation(PwmError.ERROR_INVALID_CONFIG,errorMsg);
@@ -152,6 +155,10 @@ public class TokenService implements PwmService {
                     break;
             }
             serviceInfo = new ServiceInfo(Collections.singletonList(usedStorageMethod));
+
+            if (storageMethod == TokenStorageMethod.STORE_LOCALDB || storageMethod == TokenStorageMethod.STORE_DB) {
+                initExpiryIndex();
+            }
         } catch (PwmException e) {
             final String errorMsg = "unable to start token manager: " + e.getErrorInformation().getDetailedErrorMsg();
             final ErrorInformation newErrorInformation = new ErrorInformation(e.getError(), errorMsg);
@@ -180,6 +187,23 @@ public class TokenService implements PwmService {
         LOGGER.debug("open");
     }
 
+    void open(final Configuration configuration, final TokenMachine tokenMachine)
+            throws PwmUnrecoverableException
+    {
+        this.configuration = configuration;
+        this.tokenMachine = tokenMachine;
+        maxTokenAgeMS = configuration.readSettingAsLong(PwmSetting.TOKEN_LIFETIME) * 1000;
+        maxTokenPurgeAgeMS = maxTokenAgeMS + configuration.readAppPropertyAsLong(AppProperty.TOKEN_REMOVAL_DELAY_MS);
+        secretKey = configuration.getSecurityKey();
+        initExpiryIndex();
+        status = STATUS.OPEN;
+    }
+
+    private void initExpiryIndex() {
+        expiryIndex = new TokenExpiryIndex(configuration.readAppPropertyAsLong(AppProperty.TOKEN_EXPIRY_INDEX_BUCKET_MS));
+        expiryIndexRebuildIntervalMS = configuration.readAppPropertyAsLong(AppProperty.TOKEN_EXPIRY_INDEX_REBUILD_INTERVAL_MS);
+    }
+
     public boolean supportsName() {
         return tokenMachine.supportsName();
     }
@@ -193,6 +217,9 @@ public class TokenService implements PwmService {
         try {
             tokenKey = tokenMachine.generateToken(sessionLabel, tokenPayload);
             tokenMachine.storeToken(tokenKey, tokenPayload);
+            if (expiryIndex != null) {
+                expiryIndex.add(makeTokenHash(tokenKey), tokenPayload.getDate());
+            }
         } catch (PwmException e) {
             final String errorMsg = "unexpected error trying to store token in datastore: " + e.getMessage();
             final ErrorInformation errorInformation = new ErrorInformation(e.getError(),errorMsg);
@@ -248,6 +275,9 @@ public class TokenService implements PwmService {
 
                 if (testIfTokenIsPurgable(storedToken)) {
                     tokenMachine.removeToken(tokenKey);
+                    if (expiryIndex != null) {
+                        expiryIndex.remove(makeTokenHash(tokenKey));
+                    }
                 }
 
                 return storedToken;
@@ -325,50 +355,81 @@ public class TokenService implements PwmService {
     void purgeOutdatedTokens() throws
             PwmUnrecoverableException, PwmOperationalException
     {
+        if (expiryIndex == null) {
+            return;
+        }
+
+        if (System.currentTimeMillis() - lastExpiryIndexRebuild > expiryIndexRebuildIntervalMS) {
+            rebuildExpiryIndex();
+        }
+
         final long startTime = System.currentTimeMillis();
+        final long cutoffTime = startTime - maxTokenPurgeAgeMS;
+        final int purgeBatchSize = configuration.readAppPropertyAsInt(AppProperty.TOKEN_PURGE_BATCH_SIZE);
         int cleanedTokens = 0;
-        List<String> tempKeyList = new ArrayList<>();
-        final int purgeBatchSize = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.TOKEN_PURGE_BATCH_SIZE));
-        tempKeyList.addAll(discoverPurgeableTokenKeys(purgeBatchSize));
+        List<String> tempKeyList = expiryIndex.outdatedKeys(cutoffTime, purgeBatchSize);
         while (status() == STATUS.OPEN && !tempKeyList.isEmpty()) {
+            tokenMachine.removeTokensByStorageKey(tempKeyList);
             for (final String loopKey : tempKeyList) {
-                tokenMachine.removeToken(loopKey);
+                expiryIndex.remove(loopKey);
             }
             cleanedTokens = cleanedTokens + tempKeyList.size();
-            tempKeyList.clear();
+            tempKeyList = expiryIndex.outdatedKeys(cutoffTime, purgeBatchSize);
         }
         if (cleanedTokens > 0) {
             LOGGER.trace("cleaner thread removed " + cleanedTokens + " tokens in " + TimeDuration.fromCurrent(startTime).asCompactString());
         }
     }
 
-    private List<String> discoverPurgeableTokenKeys(final int maxCount)
-            throws PwmUnrecoverableException, PwmOperationalException
-    {
-        final List<String> returnList = new ArrayList<>();
+    /**
+     * Reads the issue date of every stored token once to (re)populate the expiry index.  This picks up tokens stored
+     * before startup or by other servers sharing the same database; between rebuilds the index is kept current as
+     * tokens are stored and removed.  Issue dates are stored in the clear next to each token, so only tokens stored
+     * before that format existed need to be decrypted here.
+     */
+    private void rebuildExpiryIndex() {
+        final long startTime = System.currentTimeMillis();
+        int indexedTokens = 0;
+        int unreadableTokens = 0;
         Iterator<String> keyIterator = null;
 
         try {
             keyIterator = tokenMachine.keyIterator();
 
-            while (status() == STATUS.OPEN && returnList.size() < maxCount && keyIterator.hasNext()) {
+            while (status() == STATUS.OPEN && keyIterator.hasNext()) {
                 final String loopKey = keyIterator.next();
-                final TokenPayload loopInfo = tokenMachine.retrieveToken(loopKey);
-                if (loopInfo != null) {
-                    if (testIfTokenIsPurgable(loopInfo)) {
-                        returnList.add(loopKey);
+                final Date storedIssueDate = tokenMachine.retrieveIssueDateByStorageKey(loopKey);
+                if (storedIssueDate != null) {
+                    expiryIndex.add(loopKey, storedIssueDate);
+                    indexedTokens++;
+                    continue;
+                }
+                try {
+                    final TokenPayload loopInfo = tokenMachine.retrieveTokenByStorageKey(loopKey);
+                    if (loopInfo != null) {
+                        expiryIndex.add(loopKey, loopInfo.getDate());
+                        indexedTokens++;
+                    }
+                } catch (PwmOperationalException e) {
+                    if (e.getError() != PwmError.ERROR_TOKEN_INCORRECT) {
+                        throw e;
                     }
+                    // a token that can no longer be decrypted can never be redeemed, so index it for removal
+                    expiryIndex.add(loopKey, null);
+                    unreadableTokens++;
                 }
             }
+            lastExpiryIndexRebuild = System.currentTimeMillis();
         } catch (Exception e) {
-            LOGGER.error("unexpected error while cleaning expired stored tokens: " + e.getMessage());
+            LOGGER.error("unexpected error while indexing stored tokens: " + e.getMessage());
         } finally {
-            if (keyIterator != null && storageMethod == TokenStorageMethod.STORE_LOCALDB) {
-                try {((LocalDB.LocalDBIterator)keyIterator).close(); } catch (Exception e) {LOGGER.error("unexpected error returning LocalDB token DB iterator: " + e.getMessage());}
+            if (keyIterator instanceof ClosableIterator) {
+                try {((ClosableIterator)keyIterator).close(); } catch (Exception e) {LOGGER.error("unexpected error returning token storage iterator: " + e.getMessage());}
             }
         }
 
-        return returnList;
+        LOGGER.debug("indexed " + indexedTokens + " stored tokens by issue date in " + TimeDuration.fromCurrent(startTime).asCompactString()
+                + (unreadableTokens > 0 ? ", " + unreadableTokens + " unreadable tokens marked for removal" : ""));
     }
 
 
@@ -415,7 +476,7 @@ public class TokenService implements PwmService {
     {
         String tokenKey = null;
         int attempts = 0;
-        final int maxUniqueCreateAttempts = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.TOKEN_MAX_UNIQUE_CREATE_ATTEMPTS));
+        final int maxUniqueCreateAttempts = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.TOKEN_MAX_UNIQUE_CREATE_ATTEMPTS);
         while (tokenKey == null && attempts < maxUniqueCreateAttempts) {
             tokenKey = makeRandomCode(configuration);
             LOGGER.trace(sessionLabel, "generated new token random code, checking for uniqueness");
@@ -470,6 +531,53 @@ public class TokenService implements PwmService {
         return SecureHelper.encryptToString(jsonPayload, secretKey, true);
     }
 
+    /**
+     * Format a token for storage as its issue date in milliseconds, a separator, and the encrypted payload.
+     * The issue date is kept in the clear so that the expiry index can be rebuilt without decrypting each token.
+     */
+    String toStorageValue(final TokenPayload tokenPayload)
+            throws PwmUnrecoverableException, PwmOperationalException
+    {
+        return toStorageValue(tokenPayload.getDate(), toEncryptedString(tokenPayload));
+    }
+
+    static String toStorageValue(final Date issueDate, final String encryptedPayload) {
+        return issueDate == null
+                ? encryptedPayload
+                : String.valueOf(issueDate.getTime()) + STORAGE_ISSUE_DATE_SEPARATOR + encryptedPayload;
+    }
+
+    TokenPayload fromStorageValue(final String storedValue)
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final int separatorIndex = issueDateSeparatorIndex(storedValue);
+        return fromEncryptedString(separatorIndex < 0 ? storedValue : storedValue.substring(separatorIndex + 1));
+    }
+
+    /**
+     * @return the issue date prefixed to a stored token, or null if the value has none (stored by an older version)
+     */
+    static Date readStorageIssueDate(final String storedValue) {
+        final int separatorIndex = issueDateSeparatorIndex(storedValue);
+        return separatorIndex < 0 ? null : new Date(Long.parseLong(storedValue.substring(0, separatorIndex)));
+    }
+
+    private static int issueDateSeparatorIndex(final String storedValue) {
+        if (storedValue == null) {
+            return -1;
+        }
+        final int separatorIndex = storedValue.indexOf(STORAGE_ISSUE_DATE_SEPARATOR);
+        if (separatorIndex < 1 || separatorIndex > 19) {
+            return -1;
+        }
+        for (int i = 0; i < separatorIndex; i++) {
+            if (!Character.isDigit(storedValue.charAt(i))) {
+                return -1;
+            }
+        }
+        return separatorIndex;
+    }
+
     TokenPayload fromEncryptedString(final String inputString)
             throws PwmOperationalException, PwmUnrecoverableException
     {
@@ -0,0 +1,98 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-thread cache of {@link MessageDigest}, {@link Mac} and {@link Cipher} instances keyed by algorithm name, which
+ * avoids a provider lookup on every hash, otp verification and encryption.
+ * <p/>
+ * Digests are returned reset.  Macs and ciphers must be initialized by the caller before each use.  An instance must
+ * not be held across another call for the same algorithm on the same thread, since that call would receive and reset
+ * the same instance.  Only JDK classes are held in the thread locals, so cached instances do not pin the web
+ * application class loader.
+ */
+public final class CryptoPrimitiveCache {
+
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = new ThreadLocal<>();
+    private static final ThreadLocal<Map<String, Mac>> MACS = new ThreadLocal<>();
+    private static final ThreadLocal<Map<String, Cipher>> CIPHERS = new ThreadLocal<>();
+
+    private CryptoPrimitiveCache() {
+    }
+
+    public static MessageDigest messageDigest(final String algorithm)
+            throws NoSuchAlgorithmException
+    {
+        final Map<String, MessageDigest> digests = threadMap(DIGESTS);
+        MessageDigest messageDigest = digests.get(algorithm);
+        if (messageDigest == null) {
+            messageDigest = MessageDigest.getInstance(algorithm);
+            digests.put(algorithm, messageDigest);
+        } else {
+            messageDigest.reset();
+        }
+        return messageDigest;
+    }
+
+    public static Mac mac(final String algorithm)
+            throws NoSuchAlgorithmException
+    {
+        final Map<String, Mac> macs = threadMap(MACS);
+        Mac mac = macs.get(algorithm);
+        if (mac == null) {
+            mac = Mac.getInstance(algorithm);
+            macs.put(algorithm, mac);
+        }
+        return mac;
+    }
+
+    public static Cipher cipher(final String transformation)
+            throws NoSuchAlgorithmException, NoSuchPaddingException
+    {
+        final Map<String, Cipher> ciphers = threadMap(CIPHERS);
+        Cipher cipher = ciphers.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    private static <T> Map<String, T> threadMap(final ThreadLocal<Map<String, T>> threadLocal) {
+        Map<String, T> map = threadLocal.get();
+        if (map == null) {
+            map = new HashMap<>();
+            threadLocal.set(map);
+        }
+        return map;
+    }
+}
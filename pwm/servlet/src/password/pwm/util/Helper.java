@@ -49,6 +49,8 @@ import java.net.URI;
 import java.net.UnknownHostException;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Pattern;
 
 /**
@@ -336,7 +338,7 @@ public class
         } catch (NoSuchMethodException e) {
             /* no error, pre java 1.6 doesn't have this method */
         } catch (Exception e) {
-            LOGGER.debug("error reading file space remaining for " + file.toString() + ",: " + e.getMessage());
+            LOGGER.debug("error reading file space remaining for " + file + ",: " + e.getMessage());
         }
         return -1;
     }
@@ -411,6 +413,23 @@ public class
         return PwmConstants.PWM_APP_NAME + "-" + instanceName + "-" + theClass.getSimpleName();
     }
 
+    public static ThreadFactory makePwmThreadFactory(final String namePrefix, final boolean daemon) {
+        return new ThreadFactory() {
+            private final ThreadFactory realThreadFactory = Executors.defaultThreadFactory();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = realThreadFactory.newThread(r);
+                t.setDaemon(daemon);
+                if (namePrefix != null) {
+                    final String newName = namePrefix + t.getName();
+                    t.setName(newName);
+                }
+                return t;
+            }
+        };
+    }
+
     public static void checkUrlAgainstWhitelist(
             final PwmApplication pwmApplication,
             final SessionLabel sessionLabel,
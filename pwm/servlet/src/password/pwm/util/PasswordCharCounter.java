@@ -22,17 +22,137 @@
 
 package password.pwm.util;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character statistics of a password.  All counts are computed in a single pass over the password when the counter
+ * is created; the methods returning the matching characters themselves build a new string on each call.
+ */
 public class PasswordCharCounter {
     private final String password;
     private final int passwordLength;
 
+    private int numericCharCount;
+    private int upperCharCount;
+    private int lowerCharCount;
+    private int alphaCharCount;
+    private int specialCharCount;
+    private int otherLetterCharCount;
+    private int repeatedChars;
+    private int sequentialRepeatedChars;
+    private int sequentialNumericChars;
+    private int sequentialAlphaChars;
+    private int uniqueChars;
+
     public PasswordCharCounter(final String password) {
         this.password = password;
         this.passwordLength = password.length();
+        countChars();
+    }
+
+    private void countChars() {
+        // repeat and unique counts are case insensitive, and (as always) use the lower case form of the password,
+        // limited to the length of the original.
+        final String passwordL = password.toLowerCase();
+        final int lowerLength = Math.min(passwordLength, passwordL.length());
+
+        // char frequencies, the ascii range is counted in an array and anything else in a small map.
+        final int[] asciiFrequency = new int[128];
+        Map<Character, int[]> otherFrequency = null;
+
+        int numericRun = 0;
+        int numericRunStart = 0;
+        int alphaRun = 0;
+        int alphaRunStart = 0;
+        int repeatRun = 0;
+
+        for (int i = 0; i < passwordLength; i++) {
+            final char c = password.charAt(i);
+
+            final boolean digit = Character.isDigit(c);
+            final boolean letter = Character.isLetter(c);
+            if (digit) {
+                numericCharCount++;
+            }
+            if (letter) {
+                alphaCharCount++;
+            }
+            if (Character.isUpperCase(c)) {
+                upperCharCount++;
+            }
+            if (Character.isLowerCase(c)) {
+                lowerCharCount++;
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                specialCharCount++;
+            }
+            if (Character.getType(c) == Character.OTHER_LETTER) {
+                otherLetterCharCount++;
+            }
+
+            // sequences are only counted when they start before the last character.
+            if (digit) {
+                if (numericRun == 0) {
+                    numericRunStart = i;
+                }
+                numericRun++;
+                if (numericRunStart < passwordLength - 1 && numericRun > sequentialNumericChars) {
+                    sequentialNumericChars = numericRun;
+                }
+            } else {
+                numericRun = 0;
+            }
+            if (letter) {
+                if (alphaRun == 0) {
+                    alphaRunStart = i;
+                }
+                alphaRun++;
+                if (alphaRunStart < passwordLength - 1 && alphaRun > sequentialAlphaChars) {
+                    sequentialAlphaChars = alphaRun;
+                }
+            } else {
+                alphaRun = 0;
+            }
+
+            if (i < lowerLength) {
+                final char lowerChar = passwordL.charAt(i);
+                repeatRun = (i > 0 && passwordL.charAt(i - 1) == lowerChar) ? repeatRun + 1 : 1;
+                if (repeatRun > sequentialRepeatedChars) {
+                    sequentialRepeatedChars = repeatRun;
+                }
+
+                final int frequency;
+                if (lowerChar < asciiFrequency.length) {
+                    frequency = ++asciiFrequency[lowerChar];
+                } else {
+                    if (otherFrequency == null) {
+                        otherFrequency = new HashMap<>();
+                    }
+                    int[] counter = otherFrequency.get(lowerChar);
+                    if (counter == null) {
+                        counter = new int[1];
+                        otherFrequency.put(lowerChar, counter);
+                    }
+                    frequency = ++counter[0];
+                }
+                if (frequency == 1) {
+                    uniqueChars++;
+                }
+                if (frequency > repeatedChars) {
+                    repeatedChars = frequency;
+                }
+            }
+        }
+
+        if (passwordLength < 2) {
+            repeatedChars = 0;
+            sequentialRepeatedChars = 0;
+        }
     }
 
     public int getNumericCharCount() {
-        return getNumericChars().length();
+        return numericCharCount;
     }
 
     public String getNumericChars() {
@@ -40,7 +160,7 @@ public class PasswordCharCounter {
     }
 
     public int getUpperCharCount() {
-        return getUpperChars().length();
+        return upperCharCount;
     }
 
     public String getUpperChars() {
@@ -48,7 +168,7 @@ public class PasswordCharCounter {
     }
 
     public int getAlphaCharCount() {
-        return getAlphaChars().length();
+        return alphaCharCount;
     }
 
     public String getAlphaChars() {
@@ -56,7 +176,7 @@ public class PasswordCharCounter {
     }
 
     public int getNonAlphaCharCount() {
-        return getNonAlphaChars().length();
+        return passwordLength - alphaCharCount;
     }
 
     public String getNonAlphaChars() {
@@ -64,7 +184,7 @@ public class PasswordCharCounter {
     }
 
     public int getLowerCharCount() {
-        return getLowerChars().length();
+        return lowerCharCount;
     }
 
     public String getLowerChars() {
@@ -72,7 +192,7 @@ public class PasswordCharCounter {
     }
 
     public int getSpecialCharsCount() {
-        return getSpecialChars().length();
+        return specialCharCount;
     }
 
     public String getSpecialChars() {
@@ -80,86 +200,27 @@ public class PasswordCharCounter {
     }
 
     public int getRepeatedChars() {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toString().toLowerCase();
-
-        for (int i = 0; i < passwordLength - 1; i++) {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt(i);
-            for (int j = i; j < passwordLength; j++)
-                if (loopChar == passwordL.charAt(j))
-                    loopRepeats++;
-
-            if (loopRepeats > numberOfRepeats)
-                numberOfRepeats = loopRepeats;
-        }
-        return numberOfRepeats;
+        return repeatedChars;
     }
 
     public int getSequentialRepeatedChars() {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toString().toLowerCase();
-
-        for (int i = 0; i < passwordLength - 1; i++) {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt(i);
-            for (int j = i; j < passwordLength; j++)
-                if (loopChar == passwordL.charAt(j))
-                    loopRepeats++;
-                else
-                    break;
-
-            if (loopRepeats > numberOfRepeats)
-                numberOfRepeats = loopRepeats;
-        }
-        return numberOfRepeats;
+        return sequentialRepeatedChars;
     }
 
     public int getSequentialNumericChars() {
-        int numberOfRepeats = 0;
-
-        for (int i = 0; i < passwordLength - 1; i++) {
-            int loopRepeats = 0;
-            for (int j = i; j < passwordLength; j++)
-                if (Character.isDigit(password.charAt(j)))
-                    loopRepeats++;
-                else
-                    break;
-            if (loopRepeats > numberOfRepeats)
-                numberOfRepeats = loopRepeats;
-        }
-        return numberOfRepeats;
+        return sequentialNumericChars;
     }
 
     public int getSequentialAlphaChars() {
-        int numberOfRepeats = 0;
-
-        for (int i = 0; i < passwordLength - 1; i++) {
-            int loopRepeats = 0;
-            for (int j = i; j < passwordLength; j++)
-                if (Character.isLetter(password.charAt(j)))
-                    loopRepeats++;
-                else
-                    break;
-            if (loopRepeats > numberOfRepeats)
-                numberOfRepeats = loopRepeats;
-        }
-        return numberOfRepeats;
+        return sequentialAlphaChars;
     }
 
     public int getUniqueChars() {
-        final StringBuilder sb = new StringBuilder();
-        final String passwordL = password.toString().toLowerCase();
-        for (int i = 0; i < passwordLength; i++) {
-            final char loopChar = passwordL.charAt(i);
-            if (sb.indexOf(String.valueOf(loopChar)) == -1)
-                sb.append(loopChar);
-        }
-        return sb.length();
+        return uniqueChars;
     }
 
     public int getOtherLetterCharCount() {
-        return getOtherLetterChars().length();
+        return otherLetterCharCount;
     }
 
     public String getOtherLetterChars() {
@@ -203,18 +203,12 @@ public class PwmPasswordRuleValidator {
             return errorList;
         }
 
+        final String lcasePwd = passwordString.toLowerCase();
+
         // check against disallowed values;
-        if (!ruleHelper.getDisallowedValues().isEmpty()) {
-            final String lcasePwd = passwordString.toLowerCase();
-            final Set<String> paramValues = new HashSet<>(ruleHelper.getDisallowedValues());
-
-            for (final String loopValue : paramValues) {
-                if (loopValue != null && loopValue.length() > 0) {
-                    final String loweredLoop = loopValue.toLowerCase();
-                    if (lcasePwd.contains(loweredLoop)) {
-                        errorList.add(new ErrorInformation(PwmError.PASSWORD_USING_DISALLOWED_VALUE));
-                    }
-                }
+        for (final String loweredLoop : ruleHelper.getLowerCaseDisallowedValues()) {
+            if (lcasePwd.contains(loweredLoop)) {
+                errorList.add(new ErrorInformation(PwmError.PASSWORD_USING_DISALLOWED_VALUE));
             }
         }
 
@@ -223,13 +217,11 @@ public class PwmPasswordRuleValidator {
         }
 
         // check disallowed attributes.
-        if (!policy.getRuleHelper().getDisallowedAttributes().isEmpty()) {
-            final List paramConfigs = policy.getRuleHelper().getDisallowedAttributes();
+        if (!ruleHelper.getDisallowedAttributes().isEmpty()) {
+            final List<String> paramConfigs = ruleHelper.getDisallowedAttributes();
             if (uiBean != null) {
                 final Map<String,String> userValues = uiBean.getCachedPasswordRuleAttributes();
-                final String lcasePwd = passwordString.toLowerCase();
-                for (final Object paramConfig : paramConfigs) {
-                    final String attr = (String) paramConfig;
+                for (final String attr : paramConfigs) {
                     final String userValue = userValues.get(attr) == null ? "" : userValues.get(attr).toLowerCase();
 
                     // if the password is greater then 1 char and the value is contained within it then disallow
@@ -515,7 +507,7 @@ public class PwmPasswordRuleValidator {
     {
         final List<ErrorInformation> returnedErrors = new ArrayList<>();
         final String restURL = config.readSettingAsString(PwmSetting.EXTERNAL_PWCHECK_REST_URLS);
-        final boolean haltOnError = Boolean.parseBoolean(config.readAppProperty(AppProperty.WS_REST_CLIENT_PWRULE_HALTONERROR));
+        final boolean haltOnError = config.readAppPropertyAsBoolean(AppProperty.WS_REST_CLIENT_PWRULE_HALTONERROR);
         final Map<String,Object> sendData = new LinkedHashMap<>();
 
         final PasswordCharCounter passwordCharCounter = new PasswordCharCounter(password.getStringValue());
@@ -25,10 +25,10 @@ package password.pwm.util;
 import com.novell.ldapchai.exception.ImpossiblePasswordPolicyException;
 import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
-import password.pwm.PwmService;
 import password.pwm.bean.SessionLabel;
 import password.pwm.config.Configuration;
 import password.pwm.config.PwmSetting;
+import password.pwm.config.option.ADPolicyComplexity;
 import password.pwm.config.profile.PwmPasswordPolicy;
 import password.pwm.config.profile.PwmPasswordRule;
 import password.pwm.error.ErrorInformation;
@@ -126,11 +126,49 @@ public class RandomPasswordGenerator {
 
         validateSettings(pwmApplication, randomGeneratorConfig);
 
+        PasswordData password = null;
+        final RandomPasswordPool randomPasswordPool = pwmApplication != null ? pwmApplication.getRandomPasswordPool() : null;
+        if (randomPasswordPool != null) {
+            password = randomPasswordPool.takePassword(randomGeneratorConfig);
+        }
+        final boolean pooled = password != null;
+        if (!pooled) {
+            password = generateRandomPassword(sessionLabel, randomGeneratorConfig, pwmApplication, false);
+        }
+
+        if (pwmApplication != null && pwmApplication.getStatisticsManager() != null) {
+            pwmApplication.getStatisticsManager().incrementValue(Statistic.GENERATED_PASSWORDS);
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append(pooled ? "pooled" : "real-time").append(" random password generator called");
+        sb.append(" (").append(TimeDuration.fromCurrent(startTimeMS).asCompactString());
+        sb.append(")");
+        LOGGER.trace(sessionLabel, sb.toString());
+
+        return password;
+    }
+
+    /**
+     * Generates a new password for the configuration, without consulting the {@link RandomPasswordPool}.
+     *
+     * @param validOnly if true, null is returned instead of a password that does not pass all the rules
+     */
+    static PasswordData generateRandomPassword(
+            final SessionLabel sessionLabel,
+            final RandomGeneratorConfig randomGeneratorConfig,
+            final PwmApplication pwmApplication,
+            final boolean validOnly
+    )
+            throws PwmUnrecoverableException
+    {
+        final long startTimeMS = System.currentTimeMillis();
+
         if (randomGeneratorConfig.getSeedlistPhrases() == null || randomGeneratorConfig.getSeedlistPhrases().isEmpty()) {
             Set<String> seeds = DEFAULT_SEED_PHRASES;
 
             final SeedlistManager seedlistManager = pwmApplication.getSeedlistManager();
-            if (seedlistManager != null && seedlistManager.status() == PwmService.STATUS.OPEN && seedlistManager.size() > 0) {
+            if (seedlistManager != null && seedlistManager.size() > 0) {
                 seeds = new HashSet<>();
                 int safetyCounter = 0;
                 while (seeds.size() < 10 && safetyCounter < 100) {
@@ -167,34 +205,68 @@ public class RandomPasswordGenerator {
             randomGenPolicy = PwmPasswordPolicy.createPwmPasswordPolicy(newPolicyMap);
         }
 
-        // initial creation
-        password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
-
         // read a rule validator
         final PwmPasswordRuleValidator pwmPasswordRuleValidator = new PwmPasswordRuleValidator(pwmApplication, randomGenPolicy);
 
-        // modify until it passes all the rules
-        final int MAX_TRY_COUNT = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.PASSWORD_RANDOMGEN_MAX_ATTEMPTS));
-        final int JITTER_COUNT = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.PASSWORD_RANDOMGEN_JITTER_COUNT));
+        final int MAX_TRY_COUNT = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.PASSWORD_RANDOMGEN_MAX_ATTEMPTS);
         boolean validPassword = false;
-        while (!validPassword && tryCount < MAX_TRY_COUNT) {
+
+        // build candidates directly from the policy, each candidate only needs a single validation pass.  seed lists
+        // holding words or phrases use the words as the letters of the password.
+        int desiredLength = randomGeneratorConfig.getMinimumLength();
+        String constructedPassword = constructCandidate(seedMachine, randomGenPolicy, desiredLength);
+        final boolean constructive = constructedPassword != null;
+        while (constructedPassword != null && !validPassword && tryCount < MAX_TRY_COUNT) {
             tryCount++;
-            validPassword = true;
+            password.delete(0, password.length());
+            password.append(constructedPassword);
 
-            if (tryCount % JITTER_COUNT == 0) {
-                password.delete(0,password.length());
-                password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
+            final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator(
+                    constructedPassword, null, null, true);
+            if ((errors == null || errors.isEmpty()) && !checkPasswordAgainstDisallowedHttpValues(pwmApplication.getConfig(), constructedPassword)) {
+                validPassword = true;
+            } else {
+                // strength and character group rules are met more easily by a longer password
+                String nextPassword = null;
+                if (errors != null) {
+                    for (final ErrorInformation errorInformation : errors) {
+                        if (errorInformation.getError() == PwmError.PASSWORD_TOO_WEAK || errorInformation.getError() == PwmError.PASSWORD_NOT_ENOUGH_GROUPS) {
+                            nextPassword = constructCandidate(seedMachine, randomGenPolicy, constructedPassword.length() + 1);
+                            if (nextPassword != null) {
+                                desiredLength = constructedPassword.length() + 1;
+                            }
+                            break;
+                        }
+                    }
+                }
+                constructedPassword = nextPassword != null ? nextPassword : constructCandidate(seedMachine, randomGenPolicy, desiredLength);
             }
+        }
 
-            final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator(
-                    password.toString(), null, null, true);
-            if (errors != null && !errors.isEmpty()) {
-                validPassword = false;
-                modifyPasswordBasedOnErrors(password, errors, seedMachine);
-            } else if (checkPasswordAgainstDisallowedHttpValues(pwmApplication.getConfig(), password.toString())) {
-                validPassword = false;
-                password.delete(0, password.length());
-                password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
+        // policies that can not be planned for fall back to modifying a seeded password until it passes all the rules
+        if (!constructive) {
+            password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
+
+            final int JITTER_COUNT = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.PASSWORD_RANDOMGEN_JITTER_COUNT);
+            while (!validPassword && tryCount < MAX_TRY_COUNT) {
+                tryCount++;
+                validPassword = true;
+
+                if (tryCount % JITTER_COUNT == 0) {
+                    password.delete(0,password.length());
+                    password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
+                }
+
+                final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator(
+                        password.toString(), null, null, true);
+                if (errors != null && !errors.isEmpty()) {
+                    validPassword = false;
+                    modifyPasswordBasedOnErrors(password, errors, seedMachine);
+                } else if (checkPasswordAgainstDisallowedHttpValues(pwmApplication.getConfig(), password.toString())) {
+                    validPassword = false;
+                    password.delete(0, password.length());
+                    password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
+                }
             }
         }
 
@@ -202,7 +274,7 @@ public class RandomPasswordGenerator {
         {
             final TimeDuration td = TimeDuration.fromCurrent(startTimeMS);
             if (validPassword) {
-                LOGGER.trace(sessionLabel, "finished random password generation in " + td.asCompactString() + " after " + tryCount + " tries.");
+                LOGGER.trace(sessionLabel, "finished " + (constructive ? "constructive" : "seeded") + " random password generation in " + td.asCompactString() + " after " + tryCount + " tries.");
             } else {
                 final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator(password.toString(), null, null, false);
                 final int judgeLevel = PasswordUtility.judgePasswordStrength(password.toString());
@@ -213,17 +285,407 @@ public class RandomPasswordGenerator {
             }
         }
 
-        if (pwmApplication != null && pwmApplication.getStatisticsManager() != null) {
-            pwmApplication.getStatisticsManager().incrementValue(Statistic.GENERATED_PASSWORDS);
+        if (!validPassword && validOnly) {
+            return null;
         }
+        return new PasswordData(password.toString());
+    }
 
-        final StringBuilder sb = new StringBuilder();
-        sb.append("real-time random password generator called");
-        sb.append(" (").append(TimeDuration.fromCurrent(startTimeMS).asCompactString());
-        sb.append(")");
-        LOGGER.trace(sessionLabel, sb.toString());
+    private static final int CLASS_LOWER = 0;
+    private static final int CLASS_UPPER = 1;
+    private static final int CLASS_NUMERIC = 2;
+    private static final int CLASS_SPECIAL = 3;
 
-        return new PasswordData(password.toString());
+    /** relative weight of each character class used when filling slots beyond the policy minimums. */
+    private static final int[] CLASS_FILL_WEIGHTS = new int[] {4, 2, 2, 1};
+
+    /** phrase passwords fill the slots beyond the policy minimums with the letters of the seed words. */
+    private static final int[] PHRASE_FILL_WEIGHTS = new int[] {8, 1, 0, 0};
+
+    private static String constructCandidate(
+            final SeedMachine seedMachine,
+            final PwmPasswordPolicy policy,
+            final int desiredLength
+    ) {
+        return seedMachine.hasOnlySingleCharacterSeeds()
+                ? constructPassword(seedMachine, policy, desiredLength)
+                : constructPhrasePassword(seedMachine, policy, desiredLength);
+    }
+
+    /**
+     * Builds a password directly from the character class quotas, length bounds, positional and repeat rules of the
+     * policy.  Rules that can not be planned for (wordlist, shared history, regular expressions, character groups and
+     * strength) are left to a single validation of the result.
+     *
+     * @return a candidate password, or null if the policy quotas can not be satisfied within its length bounds
+     */
+    static String constructPassword(
+            final SeedMachine seedMachine,
+            final PwmPasswordPolicy policy,
+            final int desiredLength
+    ) {
+        final PwmPasswordPolicy.RuleHelper ruleHelper = policy.getRuleHelper();
+        final int[] counts = planClassCounts(ruleHelper, desiredLength, CLASS_FILL_WEIGHTS);
+        if (counts == null) {
+            return null;
+        }
+        final int length = sum(counts);
+
+        // lay out the classes in random order, then move classes that are not allowed at either end
+        final int[] layout = new int[length];
+        {
+            int position = 0;
+            for (int i = 0; i < counts.length; i++) {
+                for (int j = 0; j < counts[i]; j++) {
+                    layout[position++] = i;
+                }
+            }
+            for (int i = layout.length - 1; i > 0; i--) {
+                swap(layout, i, RANDOM.nextInt(i + 1));
+            }
+        }
+        final boolean[] allowedFirst = readAllowedFirst(ruleHelper);
+        final boolean[] allowedLast = readAllowedLast(ruleHelper);
+        if (length > 1) {
+            if (!allowedFirst[layout[0]]) {
+                for (int i = 1; i < length; i++) {
+                    if (allowedFirst[layout[i]] && (i < length - 1 || allowedLast[layout[0]])) {
+                        swap(layout, 0, i);
+                        break;
+                    }
+                }
+            }
+            if (!allowedLast[layout[length - 1]]) {
+                for (int i = 1; i < length - 1; i++) {
+                    if (allowedLast[layout[i]]) {
+                        swap(layout, length - 1, i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        // pick a character for each slot that keeps within the repeat, unique and consecutive rules
+        final int maxSequentialRepeat = ruleHelper.readIntValue(PwmPasswordRule.MaximumSequentialRepeat);
+        final int maxRepeat = ruleHelper.readIntValue(PwmPasswordRule.MaximumRepeat);
+        final int minUnique = ruleHelper.readIntValue(PwmPasswordRule.MinimumUnique);
+        final int maxConsecutive = ruleHelper.readIntValue(PwmPasswordRule.MaximumConsecutive);
+        final String[] pools = classPools(seedMachine);
+
+        final StringBuilder password = new StringBuilder(length);
+        final Map<Character, Integer> usedChars = new HashMap<>();
+        int sequentialRun = 0;
+        for (int position = 0; position < length; position++) {
+            final String pool = pools[layout[position]];
+            final char previous = position > 0 ? Character.toLowerCase(password.charAt(position - 1)) : 0;
+            final boolean mustBeUnique = minUnique > 0 && usedChars.size() + (length - position) <= minUnique;
+
+            char selected = pool.charAt(RANDOM.nextInt(pool.length()));
+            final int offset = RANDOM.nextInt(pool.length());
+            for (int i = 0; i < pool.length(); i++) {
+                final char candidate = pool.charAt((offset + i) % pool.length());
+                final char lowered = Character.toLowerCase(candidate);
+                final Integer usedCount = usedChars.get(lowered);
+                if (usedCount != null && (mustBeUnique || (maxRepeat > 0 && usedCount + 1 > maxRepeat))) {
+                    continue;
+                }
+                if (maxSequentialRepeat > 0 && lowered == previous && sequentialRun + 1 > maxSequentialRepeat) {
+                    continue;
+                }
+                if (maxConsecutive > 0 && position > 0 && Math.abs(lowered - previous) == 1) {
+                    continue;
+                }
+                selected = candidate;
+                if (usedCount == null || i > pool.length() / 2) {
+                    break;
+                }
+            }
+
+            final char lowered = Character.toLowerCase(selected);
+            sequentialRun = lowered == previous ? sequentialRun + 1 : 1;
+            final Integer usedCount = usedChars.get(lowered);
+            usedChars.put(lowered, usedCount == null ? 1 : usedCount + 1);
+            password.append(selected);
+        }
+
+        return password.toString();
+    }
+
+    /**
+     * Builds a password from word or phrase seeds and the character class quotas of the policy.  The letters of
+     * randomly chosen seeds form the body of the password, the required number of upper case letters are made by
+     * capitalizing the start of words, and the required numeric and special characters are placed between words where
+     * the positional rules permit.  As with {@link #constructPassword}, the remaining rules are left to validation.
+     *
+     * @return a candidate password, or null if the policy quotas can not be satisfied within its length bounds or
+     *         the policy requires no letters
+     */
+    static String constructPhrasePassword(
+            final SeedMachine seedMachine,
+            final PwmPasswordPolicy policy,
+            final int desiredLength
+    ) {
+        final PwmPasswordPolicy.RuleHelper ruleHelper = policy.getRuleHelper();
+        final int[] counts = planClassCounts(ruleHelper, desiredLength, PHRASE_FILL_WEIGHTS);
+        if (counts == null) {
+            return null;
+        }
+        final int letterCount = counts[CLASS_LOWER] + counts[CLASS_UPPER];
+        if (letterCount == 0) {
+            return null;
+        }
+
+        // join the letters of random seeds, noting where each word starts
+        final StringBuilder password = new StringBuilder();
+        final List<Integer> wordStarts = new ArrayList<>();
+        int safetyCounter = 0;
+        while (password.length() < letterCount) {
+            if (safetyCounter++ > 100) {
+                return null;
+            }
+            final String word = lettersOf(seedMachine.getRandomSeed());
+            if (word.length() > 0) {
+                wordStarts.add(password.length());
+                password.append(word);
+            }
+        }
+        password.setLength(letterCount);
+
+        // capitalize word starts first, then random letters
+        final List<Integer> upperPositions = new ArrayList<>(wordStarts);
+        shuffle(upperPositions);
+        final List<Integer> otherPositions = new ArrayList<>();
+        for (int i = 0; i < letterCount; i++) {
+            if (!wordStarts.contains(i)) {
+                otherPositions.add(i);
+            }
+        }
+        shuffle(otherPositions);
+        upperPositions.addAll(otherPositions);
+        for (int i = 0; i < counts[CLASS_UPPER]; i++) {
+            final int position = upperPositions.get(i);
+            password.setCharAt(position, Character.toUpperCase(password.charAt(position)));
+        }
+
+        // place numeric and special characters between words, or anywhere the positional rules permit
+        final String[] pools = classPools(seedMachine);
+        final boolean[] allowedFirst = readAllowedFirst(ruleHelper);
+        final boolean[] allowedLast = readAllowedLast(ruleHelper);
+        final List<Integer> boundaries = new ArrayList<>(wordStarts.subList(1, wordStarts.size()));
+        boundaries.add(letterCount);
+        final List<Integer> insertClasses = new ArrayList<>();
+        for (final int charClass : new int[] {CLASS_NUMERIC, CLASS_SPECIAL}) {
+            for (int i = 0; i < counts[charClass]; i++) {
+                insertClasses.add(charClass);
+            }
+        }
+        shuffle(insertClasses);
+        for (final int charClass : insertClasses) {
+            final int lowest = allowedFirst[charClass] ? 0 : 1;
+            final int highest = allowedLast[charClass] ? password.length() : password.length() - 1;
+            final List<Integer> candidates = new ArrayList<>();
+            for (final int boundary : boundaries) {
+                if (boundary >= lowest && boundary <= highest) {
+                    candidates.add(boundary);
+                }
+            }
+            final int position;
+            if (!candidates.isEmpty()) {
+                position = candidates.get(RANDOM.nextInt(candidates.size()));
+            } else if (highest >= lowest) {
+                position = lowest + RANDOM.nextInt(highest - lowest + 1);
+            } else {
+                return null;
+            }
+            final String pool = pools[charClass];
+            password.insert(position, pool.charAt(RANDOM.nextInt(pool.length())));
+            for (int i = 0; i < boundaries.size(); i++) {
+                if (boundaries.get(i) > position) {
+                    boundaries.set(i, boundaries.get(i) + 1);
+                }
+            }
+        }
+
+        return password.toString();
+    }
+
+    /**
+     * Plans how many characters of each class a password will hold, meeting the class quotas and length bounds of the
+     * policy, with one of each permitted class where there is room and the remaining length filled using the given
+     * class weights.
+     *
+     * @return the character count of each class, or null if the policy quotas can not be satisfied within its length
+     *         bounds
+     */
+    private static int[] planClassCounts(
+            final PwmPasswordPolicy.RuleHelper ruleHelper,
+            final int desiredLength,
+            final int[] fillWeights
+    ) {
+        final boolean allowNumeric = ruleHelper.readBooleanValue(PwmPasswordRule.AllowNumeric);
+        final boolean allowSpecial = ruleHelper.readBooleanValue(PwmPasswordRule.AllowSpecial);
+        final ADPolicyComplexity adComplexity = ruleHelper.getADComplexityLevel();
+        final boolean adComplexityEnabled = adComplexity == ADPolicyComplexity.AD2003 || adComplexity == ADPolicyComplexity.AD2008;
+
+        final int[] minimums = new int[4];
+        final int[] maximums = new int[4];
+        minimums[CLASS_LOWER] = ruleHelper.readIntValue(PwmPasswordRule.MinimumLowerCase);
+        maximums[CLASS_LOWER] = readLimit(ruleHelper, PwmPasswordRule.MaximumLowerCase);
+        minimums[CLASS_UPPER] = ruleHelper.readIntValue(PwmPasswordRule.MinimumUpperCase);
+        maximums[CLASS_UPPER] = readLimit(ruleHelper, PwmPasswordRule.MaximumUpperCase);
+        minimums[CLASS_NUMERIC] = allowNumeric ? ruleHelper.readIntValue(PwmPasswordRule.MinimumNumeric) : 0;
+        maximums[CLASS_NUMERIC] = allowNumeric ? readLimit(ruleHelper, PwmPasswordRule.MaximumNumeric) : 0;
+        minimums[CLASS_SPECIAL] = allowSpecial ? ruleHelper.readIntValue(PwmPasswordRule.MinimumSpecial) : 0;
+        maximums[CLASS_SPECIAL] = allowSpecial ? readLimit(ruleHelper, PwmPasswordRule.MaximumSpecial) : 0;
+
+        final int minAlpha = ruleHelper.readIntValue(PwmPasswordRule.MinimumAlpha);
+        final int maxAlpha = readLimit(ruleHelper, PwmPasswordRule.MaximumAlpha);
+        final int minNonAlpha = ruleHelper.readIntValue(PwmPasswordRule.MinimumNonAlpha);
+        final int maxNonAlpha = readLimit(ruleHelper, PwmPasswordRule.MaximumNonAlpha);
+
+        int minLength = Math.max(desiredLength, ruleHelper.readIntValue(PwmPasswordRule.MinimumLength));
+        int maxLength = readLimit(ruleHelper, PwmPasswordRule.MaximumLength);
+        if (adComplexityEnabled) {
+            minLength = Math.max(minLength, 6);
+            maxLength = Math.min(maxLength, adComplexity == ADPolicyComplexity.AD2003 ? 128 : 512);
+        }
+
+        // plan how many characters of each class the password will hold
+        final int[] counts = minimums.clone();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > maximums[i]) {
+                return null;
+            }
+        }
+        while (counts[CLASS_LOWER] + counts[CLASS_UPPER] < minAlpha) {
+            if (!incrementClassCount(counts, maximums, CLASS_LOWER) && !incrementClassCount(counts, maximums, CLASS_UPPER)) {
+                return null;
+            }
+        }
+        while (counts[CLASS_NUMERIC] + counts[CLASS_SPECIAL] < minNonAlpha) {
+            if (!incrementClassCount(counts, maximums, CLASS_NUMERIC) && !incrementClassCount(counts, maximums, CLASS_SPECIAL)) {
+                return null;
+            }
+        }
+        if (counts[CLASS_LOWER] + counts[CLASS_UPPER] > maxAlpha
+                || counts[CLASS_NUMERIC] + counts[CLASS_SPECIAL] > maxNonAlpha
+                || sum(counts) > maxLength) {
+            return null;
+        }
+
+        final int length = Math.min(maxLength, Math.max(minLength, sum(counts)));
+
+        // one of each permitted class where there is room, for strength, complexity and character group rules
+        for (final int charClass : new int[] {CLASS_LOWER, CLASS_UPPER, CLASS_NUMERIC, CLASS_SPECIAL}) {
+            if (counts[charClass] == 0 && sum(counts) < length && canAddClass(counts, maximums, maxAlpha, maxNonAlpha, charClass)) {
+                counts[charClass]++;
+            }
+        }
+
+        // fill the remaining length with weighted random classes
+        while (sum(counts) < length) {
+            int totalWeight = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (canAddClass(counts, maximums, maxAlpha, maxNonAlpha, i)) {
+                    totalWeight += fillWeights[i];
+                }
+            }
+            if (totalWeight == 0) {
+                return null;
+            }
+            int selection = RANDOM.nextInt(totalWeight);
+            for (int i = 0; i < counts.length; i++) {
+                if (canAddClass(counts, maximums, maxAlpha, maxNonAlpha, i)) {
+                    selection -= fillWeights[i];
+                    if (selection < 0) {
+                        counts[i]++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    private static boolean[] readAllowedFirst(final PwmPasswordPolicy.RuleHelper ruleHelper) {
+        return new boolean[] {true, true,
+                ruleHelper.readBooleanValue(PwmPasswordRule.AllowFirstCharNumeric),
+                ruleHelper.readBooleanValue(PwmPasswordRule.AllowFirstCharSpecial)};
+    }
+
+    private static boolean[] readAllowedLast(final PwmPasswordPolicy.RuleHelper ruleHelper) {
+        return new boolean[] {true, true,
+                ruleHelper.readBooleanValue(PwmPasswordRule.AllowLastCharNumeric),
+                ruleHelper.readBooleanValue(PwmPasswordRule.AllowLastCharSpecial)};
+    }
+
+    private static String[] classPools(final SeedMachine seedMachine) {
+        return new String[] {
+                seedMachine.getLowerChars(),
+                seedMachine.getUpperChars(),
+                seedMachine.getNumChars(),
+                seedMachine.getSpecialChars()
+        };
+    }
+
+    private static String lettersOf(final String seed) {
+        final StringBuilder letters = new StringBuilder();
+        for (final char c : seed.toCharArray()) {
+            if (Character.isLetter(c)) {
+                letters.append(Character.toLowerCase(c));
+            }
+        }
+        return letters.toString();
+    }
+
+    private static int readLimit(final PwmPasswordPolicy.RuleHelper ruleHelper, final PwmPasswordRule rule) {
+        final int value = ruleHelper.readIntValue(rule);
+        return value > 0 ? value : Integer.MAX_VALUE;
+    }
+
+    private static boolean incrementClassCount(final int[] counts, final int[] maximums, final int charClass) {
+        if (counts[charClass] < maximums[charClass]) {
+            counts[charClass]++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean canAddClass(
+            final int[] counts,
+            final int[] maximums,
+            final int maxAlpha,
+            final int maxNonAlpha,
+            final int charClass
+    ) {
+        if (counts[charClass] >= maximums[charClass]) {
+            return false;
+        }
+        if (charClass == CLASS_LOWER || charClass == CLASS_UPPER) {
+            return counts[CLASS_LOWER] + counts[CLASS_UPPER] < maxAlpha;
+        }
+        return counts[CLASS_NUMERIC] + counts[CLASS_SPECIAL] < maxNonAlpha;
+    }
+
+    private static int sum(final int[] values) {
+        int total = 0;
+        for (final int value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static void swap(final int[] values, final int a, final int b) {
+        final int temp = values[a];
+        values[a] = values[b];
+        values[b] = temp;
+    }
+
+    private static void shuffle(final List<Integer> values) {
+        for (int i = values.size() - 1; i > 0; i--) {
+            Collections.swap(values, i, RANDOM.nextInt(i + 1));
+        }
     }
 
     private static void modifyPasswordBasedOnErrors(
@@ -411,10 +873,22 @@ public class RandomPasswordGenerator {
         private final String specialChars;
         private final String upperChars;
         private final String lowerChars;
+        private final boolean singleCharacterSeeds;
 
         public SeedMachine(final Collection<String> seeds) {
             this.seeds = seeds;
 
+            {
+                boolean allSingle = true;
+                for (final String s : seeds) {
+                    if (s.length() > 1) {
+                        allSingle = false;
+                        break;
+                    }
+                }
+                singleCharacterSeeds = allSingle;
+            }
+
             {
                 final StringBuilder sb = new StringBuilder();
                 for (final String s : seeds) {
@@ -476,6 +950,10 @@ public class RandomPasswordGenerator {
             return allChars;
         }
 
+        public boolean hasOnlySingleCharacterSeeds() {
+            return singleCharacterSeeds;
+        }
+
         public String getNumChars() {
             return numChars;
         }
@@ -597,13 +1075,22 @@ public class RandomPasswordGenerator {
         public void setPasswordPolicy(final PwmPasswordPolicy passwordPolicy) {
             this.passwordPolicy = passwordPolicy;
         }
+
+        RandomGeneratorConfig copy() {
+            final RandomGeneratorConfig copy = new RandomGeneratorConfig();
+            copy.seedlistPhrases = seedlistPhrases == null ? null : new ArrayList<>(seedlistPhrases);
+            copy.minimumLength = minimumLength;
+            copy.maximumLength = maximumLength;
+            copy.minimumStrength = minimumStrength;
+            copy.passwordPolicy = passwordPolicy;
+            return copy;
+        }
     }
 
     public static void validateSettings(final PwmApplication pwmApplication, final RandomGeneratorConfig randomGeneratorConfig)
             throws PwmUnrecoverableException
     {
-        final int maxLength = Integer.parseInt(
-                pwmApplication.getConfig().readAppProperty(AppProperty.PASSWORD_RANDOMGEN_MAX_LENGTH));
+        final int maxLength = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.PASSWORD_RANDOMGEN_MAX_LENGTH);
         if (randomGeneratorConfig.getMinimumLength() > maxLength) {
             throw new PwmUnrecoverableException(new ErrorInformation(
                     PwmError.ERROR_UNKNOWN,
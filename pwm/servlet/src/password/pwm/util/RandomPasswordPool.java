@@ -0,0 +1,296 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.PwmService;
+import password.pwm.config.Configuration;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.health.HealthRecord;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.Statistic;
+import password.pwm.util.stats.StatisticsManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pools of pre-generated random passwords, one per distinct generator configuration, so that repeated
+ * requests for the same policy (such as bulk provisioning through the random password rest service) do not each pay
+ * for seed list reads and policy validation.
+ * <p/>
+ * Pools are keyed by a fingerprint of the generator configuration, its password policy and the application
+ * configuration, so a changed policy or a configuration reload never serves passwords generated for the old rules.
+ * A pool is only filled once its configuration has been requested more than once.  Each pooled password is handed
+ * out at most once, and pools that are not requested for the idle timeout are discarded.  Passwords are held in
+ * memory only.
+ * <p/>
+ * The pool holds unused plaintext passwords, so it is disabled unless a pool size is configured.
+ */
+public class RandomPasswordPool implements PwmService {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(RandomPasswordPool.class);
+
+    private STATUS status = STATUS.NEW;
+    private PwmApplication pwmApplication;
+    private String configurationHash;
+    private int poolSize;
+    private long idleTimeoutMs;
+    private ConcurrentMap<String, PolicyPool> pools;
+    private ScheduledExecutorService executor;
+    private Generator generator;
+    private final AtomicBoolean refillPending = new AtomicBoolean(false);
+
+    @Override
+    public STATUS status() {
+        return status;
+    }
+
+    @Override
+    public void init(final PwmApplication pwmApplication)
+            throws PwmException
+    {
+        this.pwmApplication = pwmApplication;
+        open(
+                pwmApplication.getConfig(),
+                new Generator() {
+                    public PasswordData generate(final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig)
+                            throws PwmUnrecoverableException
+                    {
+                        return RandomPasswordGenerator.generateRandomPassword(null, randomGeneratorConfig, pwmApplication, true);
+                    }
+                },
+                Helper.makeThreadName(pwmApplication, RandomPasswordPool.class)
+        );
+    }
+
+    void open(final Configuration config, final Generator generator, final String threadName)
+            throws PwmUnrecoverableException
+    {
+        status = STATUS.OPENING;
+        this.generator = generator;
+
+        poolSize = config.readAppPropertyAsInt(AppProperty.PASSWORD_RANDOMGEN_POOL_SIZE);
+        if (poolSize <= 0) {
+            LOGGER.debug("random password pool is disabled");
+            status = STATUS.CLOSED;
+            return;
+        }
+        idleTimeoutMs = config.readAppPropertyAsLong(AppProperty.PASSWORD_RANDOMGEN_POOL_IDLE_TIMEOUT_MS);
+        configurationHash = config.configurationHash();
+        pools = new ConcurrentLinkedHashMap.Builder<String, PolicyPool>()
+                .maximumWeightedCapacity(Math.max(1, config.readAppPropertyAsInt(AppProperty.PASSWORD_RANDOMGEN_POOL_MAX_POLICIES)))
+                .build();
+
+        final ThreadFactory threadFactory = Helper.makePwmThreadFactory(threadName + "-", true);
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = threadFactory.newThread(r);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        if (idleTimeoutMs > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    removeIdlePools();
+                }
+            }, idleTimeoutMs, idleTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        status = STATUS.OPEN;
+        LOGGER.debug("opened random password pool, pool size " + poolSize);
+    }
+
+    @Override
+    public void close() {
+        status = STATUS.CLOSED;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (pools != null) {
+            pools.clear();
+        }
+    }
+
+    @Override
+    public List<HealthRecord> healthCheck() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ServiceInfo serviceInfo() {
+        return new ServiceInfo(Collections.<DataStorageMethod>emptyList());
+    }
+
+    /**
+     * Removes a pre-generated password for the configuration from its pool.
+     *
+     * @return a password that passes the configuration's policy, or null if the pool is empty and the caller should
+     * generate one inline
+     */
+    public PasswordData takePassword(final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig)
+            throws PwmUnrecoverableException
+    {
+        if (status != STATUS.OPEN) {
+            return null;
+        }
+
+        final String fingerprint = fingerprint(randomGeneratorConfig);
+        PolicyPool policyPool = pools.get(fingerprint);
+        if (policyPool == null) {
+            final PolicyPool newPool = new PolicyPool(randomGeneratorConfig.copy());
+            policyPool = pools.putIfAbsent(fingerprint, newPool);
+            if (policyPool == null) {
+                policyPool = newPool;
+            }
+        }
+        policyPool.lastRequestTime = System.currentTimeMillis();
+        policyPool.requestCount.incrementAndGet();
+
+        final PasswordData password = policyPool.passwords.poll();
+        scheduleRefill();
+
+        if (password != null) {
+            final StatisticsManager statisticsManager = statisticsManager();
+            if (statisticsManager != null) {
+                statisticsManager.incrementValue(Statistic.GENERATED_PASSWORDS_POOLED);
+                statisticsManager.updateAverageValue(Statistic.AVG_RANDOM_PASSWORD_POOL_DEPTH, policyPool.passwords.size());
+            }
+        }
+        return password;
+    }
+
+    public int size() {
+        if (status != STATUS.OPEN) {
+            return 0;
+        }
+        int size = 0;
+        for (final PolicyPool policyPool : pools.values()) {
+            size += policyPool.passwords.size();
+        }
+        return size;
+    }
+
+    private String fingerprint(final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig)
+            throws PwmUnrecoverableException
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(configurationHash);
+        sb.append('|').append(randomGeneratorConfig.getMinimumLength());
+        sb.append('|').append(randomGeneratorConfig.getMaximumLength());
+        sb.append('|').append(randomGeneratorConfig.getMinimumStrength());
+        sb.append('|').append(JsonUtil.serializeMap(new TreeMap<>(randomGeneratorConfig.getPasswordPolicy().getPolicyMap())));
+        if (randomGeneratorConfig.getSeedlistPhrases() != null) {
+            sb.append('|').append(JsonUtil.serializeCollection(new TreeSet<>(randomGeneratorConfig.getSeedlistPhrases())));
+        }
+        return SecureHelper.hash(sb.toString(), SecureHelper.HashAlgorithm.SHA1);
+    }
+
+    private void scheduleRefill() {
+        if (refillPending.compareAndSet(false, true)) {
+            try {
+                executor.execute(new RefillTask());
+            } catch (RejectedExecutionException e) {
+                refillPending.set(false);
+            }
+        }
+    }
+
+    private StatisticsManager statisticsManager() {
+        return pwmApplication == null ? null : pwmApplication.getStatisticsManager();
+    }
+
+    private void removeIdlePools() {
+        for (final Map.Entry<String, PolicyPool> entry : pools.entrySet()) {
+            if (System.currentTimeMillis() - entry.getValue().lastRequestTime > idleTimeoutMs) {
+                pools.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private class RefillTask implements Runnable {
+        public void run() {
+            refillPending.set(false);
+            final long startTime = System.currentTimeMillis();
+            int generatedCount = 0;
+
+            for (final Map.Entry<String, PolicyPool> entry : pools.entrySet()) {
+                final PolicyPool policyPool = entry.getValue();
+                if (policyPool.requestCount.get() < 2) {
+                    continue;
+                }
+                try {
+                    while (status == STATUS.OPEN && policyPool.passwords.size() < poolSize && pools.containsKey(entry.getKey())) {
+                        final PasswordData password = generator.generate(policyPool.randomGeneratorConfig.copy());
+                        if (password == null) {
+                            LOGGER.warn("unable to generate a valid password for random password pool, pool will be discarded");
+                            pools.remove(entry.getKey());
+                            break;
+                        }
+                        policyPool.passwords.offer(password);
+                        generatedCount++;
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("error refilling random password pool, pool will be discarded: " + e.getMessage());
+                    pools.remove(entry.getKey());
+                }
+            }
+
+            if (generatedCount > 0) {
+                final StatisticsManager statisticsManager = statisticsManager();
+                if (statisticsManager != null) {
+                    statisticsManager.updateEps(Statistic.EpsType.RANDOM_PASSWORD_POOL_REFILLS, generatedCount);
+                }
+                LOGGER.trace("added " + generatedCount + " passwords to random password pool in "
+                        + TimeDuration.fromCurrent(startTime).asCompactString());
+            }
+        }
+    }
+
+    /**
+     * Generates the passwords added to the pools, returning null when no password passing the policy could be made.
+     */
+    interface Generator {
+        PasswordData generate(RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig)
+                throws PwmUnrecoverableException;
+    }
+
+    private static class PolicyPool {
+        private final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig;
+        private final Queue<PasswordData> passwords = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private volatile long lastRequestTime = System.currentTimeMillis();
+
+        private PolicyPool(final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig) {
+            this.randomGeneratorConfig = randomGeneratorConfig;
+        }
+    }
+}
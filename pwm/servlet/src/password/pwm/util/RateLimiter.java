@@ -0,0 +1,63 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util;
+
+/**
+ * Spaces out operations shared across any number of threads so that no more than the configured
+ * number of permits are handed out per second.  A rate of zero or less disables limiting.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private long nextPermitNanos = System.nanoTime();
+
+    public RateLimiter(final double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0
+                ? (long)(1000L * 1000L * 1000L / permitsPerSecond)
+                : 0;
+    }
+
+    /**
+     * Block until a permit is available.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void acquire()
+            throws InterruptedException
+    {
+        if (intervalNanos <= 0) {
+            return;
+        }
+
+        final long waitNanos = reserve();
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / (1000 * 1000), (int)(waitNanos % (1000 * 1000)));
+        }
+    }
+
+    private synchronized long reserve() {
+        final long now = System.nanoTime();
+        final long permitTime = Math.max(now, nextPermitNanos);
+        nextPermitNanos = permitTime + intervalNanos;
+        return permitTime - now;
+    }
+}
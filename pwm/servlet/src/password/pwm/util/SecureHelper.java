@@ -32,6 +32,7 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -133,7 +134,7 @@ public class SecureHelper {
                 return null;
             }
 
-            final Cipher cipher = Cipher.getInstance(blockAlgorithm.getAlgName());
+            final Cipher cipher = CryptoPrimitiveCache.cipher(blockAlgorithm.getAlgName());
             cipher.init(Cipher.ENCRYPT_MODE, key, cipher.getParameters());
             return cipher.doFinal(value.getBytes(PwmConstants.DEFAULT_CHARSET));
         } catch (Exception e) {
@@ -197,7 +198,7 @@ public class SecureHelper {
                 return null;
             }
 
-            final Cipher cipher = Cipher.getInstance(blockAlgorithm.getAlgName());
+            final Cipher cipher = CryptoPrimitiveCache.cipher(blockAlgorithm.getAlgName());
             cipher.init(Cipher.DECRYPT_MODE, key);
             final byte[] decrypted = cipher.doFinal(value);
             return new String(decrypted,PwmConstants.DEFAULT_CHARSET);
@@ -224,7 +225,7 @@ public class SecureHelper {
     public static SecretKey makeKey(final byte[] inputBytes)
             throws PwmUnrecoverableException {
         try {
-            final MessageDigest md = MessageDigest.getInstance("SHA1");
+            final MessageDigest md = CryptoPrimitiveCache.messageDigest("SHA1");
             md.update(inputBytes, 0, inputBytes.length);
             final byte[] key = new byte[16];
             System.arraycopy(md.digest(), 0, key, 0, 16);
@@ -261,7 +262,7 @@ public class SecureHelper {
         if (input == null || input.length < 1) {
             return null;
         }
-        return hash(new ByteArrayInputStream(input), algorithm);
+        return Helper.byteArrayToHexString(loadMessageDigest(algorithm).digest(input));
     }
 
     public static String hash(
@@ -272,7 +273,7 @@ public class SecureHelper {
         if (input == null || input.length() < 1) {
             return null;
         }
-        return hash(new ByteArrayInputStream(input.getBytes(PwmConstants.DEFAULT_CHARSET)), DEFAULT_HASH_ALGORITHM);
+        return hash(input.getBytes(PwmConstants.DEFAULT_CHARSET), DEFAULT_HASH_ALGORITHM);
     }
 
     public static String hash(
@@ -284,7 +285,7 @@ public class SecureHelper {
         if (input == null || input.length() < 1) {
             return null;
         }
-        return hash(new ByteArrayInputStream(input.getBytes(PwmConstants.DEFAULT_CHARSET)), algorithm);
+        return hash(input.getBytes(PwmConstants.DEFAULT_CHARSET), algorithm);
     }
 
     public static String hash(
@@ -296,14 +297,7 @@ public class SecureHelper {
 
         final InputStream bis = is instanceof BufferedInputStream ? is : new BufferedInputStream(is);
 
-        final MessageDigest messageDigest;
-        try {
-            messageDigest = MessageDigest.getInstance(algorithm.getAlgName());
-        } catch (NoSuchAlgorithmException e) {
-            final String errorMsg = "missing hash algorithm: " + e.getMessage();
-            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_CRYPT_ERROR, errorMsg);
-            throw new PwmUnrecoverableException(errorInformation);
-        }
+        final MessageDigest messageDigest = loadMessageDigest(algorithm);
 
         try
         {
@@ -327,4 +321,45 @@ public class SecureHelper {
             throw new PwmUnrecoverableException(errorInformation);
         }
     }
+
+    /**
+     * Digests the input {@code iterations} times, feeding each digest into the next without allocating
+     * intermediate arrays.
+     *
+     * @return the final digest, or the input itself if {@code iterations} is zero
+     */
+    public static byte[] iteratedDigest(
+            final byte[] input,
+            final String algorithm,
+            final int iterations
+    )
+            throws NoSuchAlgorithmException
+    {
+        if (iterations < 1) {
+            return input;
+        }
+        final MessageDigest messageDigest = CryptoPrimitiveCache.messageDigest(algorithm);
+        final byte[] hashedBytes = messageDigest.digest(input);
+        try {
+            for (int i = 1; i < iterations; i++) {
+                messageDigest.update(hashedBytes);
+                messageDigest.digest(hashedBytes, 0, hashedBytes.length);
+            }
+        } catch (DigestException e) {
+            throw new IllegalStateException("unexpected error during iterated " + algorithm + " digest: " + e.getMessage());
+        }
+        return hashedBytes;
+    }
+
+    private static MessageDigest loadMessageDigest(final HashAlgorithm algorithm)
+            throws PwmUnrecoverableException
+    {
+        try {
+            return CryptoPrimitiveCache.messageDigest(algorithm.getAlgName());
+        } catch (NoSuchAlgorithmException e) {
+            final String errorMsg = "missing hash algorithm: " + e.getMessage();
+            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_CRYPT_ERROR, errorMsg);
+            throw new PwmUnrecoverableException(errorInformation);
+        }
+    }
 }
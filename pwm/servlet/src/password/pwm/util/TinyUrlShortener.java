@@ -49,7 +49,7 @@ public class TinyUrlShortener extends BasicUrlShortener {
 			LOGGER.debug("Trying to shorten url: "+input);
 			final String encodedUrl = StringUtil.urlEncode(input);
 			final String callUrl = apiUrl + encodedUrl;
-        	final HttpClient httpClient = PwmHttpClient.getHttpClient(context.getConfig());
+        	final HttpClient httpClient = PwmHttpClient.getHttpClient(context);
 	        final HttpGet httpRequest = new HttpGet(callUrl);
     	    final HttpResponse httpResponse = httpClient.execute(httpRequest);
     	    final int httpResponseCode = httpResponse.getStatusLine().getStatusCode();
@@ -58,6 +58,7 @@ public class TinyUrlShortener extends BasicUrlShortener {
 				LOGGER.debug("Result: "+responseBody);
 				return responseBody;
     	    } else {
+    	    	EntityUtils.consume(httpResponse.getEntity());
     	    	LOGGER.error("Failed to get shorter URL: "+httpResponse.getStatusLine().getReasonPhrase());
     	    }
 		} catch (java.io.IOException e) {
@@ -42,6 +42,7 @@ public class CacheService implements PwmService {
 
     private MemoryCacheStore memoryCacheStore;
     private LocalDBCacheStore localDBCacheStore;
+    private MemoryBinaryCacheStore memoryBinaryCacheStore;
 
     private STATUS status = STATUS.OPENING;
 
@@ -53,7 +54,7 @@ public class CacheService implements PwmService {
     @Override
     public void init(PwmApplication pwmApplication)
             throws PwmException {
-        final boolean enabled = Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.CACHE_ENABLE));
+        final boolean enabled = pwmApplication.getConfig().readAppPropertyAsBoolean(AppProperty.CACHE_ENABLE);
         if (!enabled) {
             LOGGER.debug("skipping cache service init due to app property setting");
             status = STATUS.CLOSED;
@@ -62,11 +63,15 @@ public class CacheService implements PwmService {
 
 
         status = STATUS.OPENING;
-        final int maxMemItems = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.CACHE_MEMORY_MAX_ITEMS));
+        final int maxMemItems = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.CACHE_MEMORY_MAX_ITEMS);
         if (pwmApplication.getLocalDB() != null && pwmApplication.getLocalDB().status() == LocalDB.Status.OPEN) {
             localDBCacheStore = new LocalDBCacheStore(pwmApplication);
         }
         memoryCacheStore = new MemoryCacheStore(maxMemItems);
+        final long maxBinaryBytes = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.CACHE_MEMORY_MAX_BINARY_BYTES);
+        if (maxBinaryBytes > 0) {
+            memoryBinaryCacheStore = new MemoryBinaryCacheStore(maxBinaryBytes);
+        }
         status = STATUS.OPEN;
     }
 
@@ -141,4 +146,40 @@ public class CacheService implements PwmService {
         LOGGER.trace(traceOutput);
         return payload;
     }
+
+    /**
+     * Binary values are kept in memory only, in a store bounded by {@link AppProperty#CACHE_MEMORY_MAX_BINARY_BYTES}.
+     */
+    public void putBinary(final CacheKey cacheKey, final CachePolicy cachePolicy, final CachedBinary payload)
+            throws PwmUnrecoverableException {
+        if (status != STATUS.OPEN || memoryBinaryCacheStore == null) {
+            return;
+        }
+        if (cacheKey == null) {
+            throw new NullPointerException("cacheKey can not be null");
+        }
+        if (cachePolicy == null) {
+            throw new NullPointerException("cachePolicy can not be null");
+        }
+        if (payload == null) {
+            throw new NullPointerException("payload can not be null");
+        }
+        memoryBinaryCacheStore.store(cacheKey, cachePolicy.getExpiration(), payload);
+    }
+
+    public CachedBinary getBinary(final CacheKey cacheKey)
+            throws PwmUnrecoverableException {
+        if (cacheKey == null || status != STATUS.OPEN || memoryBinaryCacheStore == null) {
+            return null;
+        }
+
+        final CachedBinary payload = memoryBinaryCacheStore.read(cacheKey);
+        LOGGER.trace("binary cache " + (payload == null ? "MISS" : "HIT") + ", binaryMemCache="
+                + JsonUtil.serialize(memoryBinaryCacheStore.getCacheStoreInfo()));
+        return payload;
+    }
+
+    public CacheStoreInfo getBinaryCacheStoreInfo() {
+        return memoryBinaryCacheStore == null ? new CacheStoreInfo() : memoryBinaryCacheStore.getCacheStoreInfo();
+    }
 }
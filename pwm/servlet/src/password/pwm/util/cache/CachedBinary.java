@@ -0,0 +1,69 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.cache;
+
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.SecureHelper;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Binary value held by the {@link CacheService} binary cache, along with the validators used to answer conditional
+ * http requests for it.
+ */
+public class CachedBinary implements Serializable {
+    private final byte[] content;
+    private final String contentType;
+    private final String eTag;
+    private final Date lastModified;
+
+    public CachedBinary(final byte[] content, final String contentType)
+            throws PwmUnrecoverableException
+    {
+        if (content == null) {
+            throw new NullPointerException("content can not be null");
+        }
+        this.content = content;
+        this.contentType = contentType;
+        this.eTag = '"' + SecureHelper.hash(content, SecureHelper.HashAlgorithm.SHA1) + '"';
+        this.lastModified = new Date();
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+}
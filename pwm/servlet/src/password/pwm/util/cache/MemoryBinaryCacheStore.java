@@ -0,0 +1,106 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.cache;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.googlecode.concurrentlinkedhashmap.Weigher;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory store for {@link CachedBinary} values, bounded by the total size of the stored content rather than by
+ * item count.
+ */
+class MemoryBinaryCacheStore {
+    private final ConcurrentMap<String,ValueWrapper> memoryStore;
+    private final long maxBytes;
+    private final AtomicInteger readCount = new AtomicInteger();
+    private final AtomicInteger storeCount = new AtomicInteger();
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    MemoryBinaryCacheStore(final long maxBytes) {
+        this.maxBytes = maxBytes;
+        memoryStore = new ConcurrentLinkedHashMap.Builder<String, ValueWrapper>()
+                .maximumWeightedCapacity(maxBytes)
+                .weigher(new Weigher<ValueWrapper>() {
+                    public int weightOf(final ValueWrapper value) {
+                        return Math.max(1, value.payload.getContent().length);
+                    }
+                })
+                .build();
+    }
+
+    void store(final CacheKey cacheKey, final Date expirationDate, final CachedBinary data)
+            throws PwmUnrecoverableException
+    {
+        if (data.getContent().length > maxBytes) {
+            return;
+        }
+        storeCount.incrementAndGet();
+        memoryStore.put(cacheKey.getHash(), new ValueWrapper(cacheKey, expirationDate, data));
+    }
+
+    CachedBinary read(final CacheKey cacheKey)
+            throws PwmUnrecoverableException
+    {
+        readCount.incrementAndGet();
+        final String hash = cacheKey.getHash();
+        final ValueWrapper valueWrapper = memoryStore.get(hash);
+        if (valueWrapper != null && cacheKey.equals(valueWrapper.cacheKey)) {
+            if (valueWrapper.expirationDate.after(new Date())) {
+                hitCount.incrementAndGet();
+                return valueWrapper.payload;
+            }
+            memoryStore.remove(hash, valueWrapper);
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    CacheStoreInfo getCacheStoreInfo() {
+        final CacheStoreInfo cacheStoreInfo = new CacheStoreInfo();
+        cacheStoreInfo.setReadCount(readCount.get());
+        cacheStoreInfo.setStoreCount(storeCount.get());
+        cacheStoreInfo.setHitCount(hitCount.get());
+        cacheStoreInfo.setMissCount(missCount.get());
+        cacheStoreInfo.setItemCount(memoryStore.size());
+        return cacheStoreInfo;
+    }
+
+    private static class ValueWrapper {
+        final CacheKey cacheKey;
+        final Date expirationDate;
+        final CachedBinary payload;
+
+        private ValueWrapper(final CacheKey cacheKey, final Date expirationDate, final CachedBinary payload) {
+            this.cacheKey = cacheKey;
+            this.expirationDate = expirationDate;
+            this.payload = payload;
+        }
+    }
+}
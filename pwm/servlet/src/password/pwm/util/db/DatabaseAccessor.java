@@ -26,6 +26,8 @@ import password.pwm.util.ClosableIterator;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.Collection;
+import java.util.Map;
 
 public interface DatabaseAccessor {
     /**
@@ -54,6 +56,17 @@ public interface DatabaseAccessor {
     )
             throws DatabaseException;
 
+    /**
+     * Writes all of the values in a single transaction, using batched statements where the database allows.
+     */
+    @DbOperation
+    @DbModifyOperation
+    void putAll(
+            DatabaseTable table,
+            Map<String,String> keyValueMap
+    )
+            throws DatabaseException;
+
     @DbOperation
     boolean contains(
             DatabaseTable table,
@@ -79,6 +92,17 @@ public interface DatabaseAccessor {
     )
             throws DatabaseException;
 
+    /**
+     * Removes all of the keys in a single transaction, using batched statements where the database allows.
+     */
+    @DbOperation
+    @DbModifyOperation
+    void removeAll(
+            DatabaseTable table,
+            Collection<String> keys
+    )
+            throws DatabaseException;
+
     @DbOperation
     int size(DatabaseTable table) throws
             DatabaseException;
@@ -22,6 +22,7 @@
 
 package password.pwm.util.db;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.PwmService;
@@ -45,7 +46,6 @@ import password.pwm.util.stats.Statistic;
 import password.pwm.util.stats.StatisticsManager;
 
 import java.io.*;
-import java.lang.reflect.Method;
 import java.sql.*;
 import java.util.*;
 import java.util.jar.JarEntry;
@@ -58,19 +58,25 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
 // ------------------------------ FIELDS ------------------------------
 
     private static final PwmLogger LOGGER = PwmLogger.forClass(DatabaseAccessorImpl.class, true);
-    private static final String KEY_COLUMN = "id";
-    private static final String VALUE_COLUMN = "value";
+    static final String KEY_COLUMN = "id";
+    static final String VALUE_COLUMN = "value";
 
     private static final int KEY_COLUMN_LENGTH = PwmConstants.DATABASE_ACCESSOR_KEY_LENGTH;
 
     private static final String KEY_TEST = "write-test-key";
     private static final String KEY_ENGINE_START_PREFIX = "engine-start-";
+    private static final int MAX_BATCH_SIZE = 500;
 
     private DBConfiguration dbConfiguration;
     private Driver driver;
     private String instanceID;
     private boolean traceLogging;
-    private volatile Connection connection;
+    private volatile DatabaseConnectionPool connectionPool;
+    private volatile DatabaseDialect dialect = DatabaseDialect.GENERIC;
+    private int maxConnections;
+    private long connectionTimeoutMs;
+    private long connectionValidateIntervalMs;
+    private int statementCacheSize;
     private volatile PwmService.STATUS status = PwmService.STATUS.NEW;
     private ErrorInformation lastError;
     private PwmApplication pwmApplication;
@@ -120,6 +126,10 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
 
         this.instanceID = pwmApplication == null ? null : pwmApplication.getInstanceID();
         this.traceLogging = config.readSettingAsBoolean(PwmSetting.DATABASE_DEBUG_TRACE);
+        this.maxConnections = config.readAppPropertyAsInt(AppProperty.DB_CONNECTIONS_MAX);
+        this.connectionTimeoutMs = config.readAppPropertyAsLong(AppProperty.DB_CONNECTIONS_TIMEOUT_MS);
+        this.connectionValidateIntervalMs = config.readAppPropertyAsLong(AppProperty.DB_CONNECTIONS_VALIDATE_INTERVAL_MS);
+        this.statementCacheSize = config.readAppPropertyAsInt(AppProperty.DB_STATEMENT_CACHE_SIZE);
 
         if (this.dbConfiguration.isEmpty()) {
             status = PwmService.STATUS.CLOSED;
@@ -130,9 +140,9 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     public void close()
     {
         status = PwmService.STATUS.CLOSED;
-        if (connection != null) {
+        if (connectionPool != null) {
             try {
-                connection.close();
+                connectionPool.close();
             } catch (Exception e) {
                 LOGGER.debug("error while closing DB: " + e.getMessage());
             }
@@ -144,7 +154,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.debug("error while de-registering driver: " + e.getMessage());
         }
 
-        connection = null;
+        connectionPool = null;
     }
 
     public List<HealthRecord> healthCheck() {
@@ -192,12 +202,38 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     private synchronized void init()
             throws DatabaseException
     {
+        if (status == PwmService.STATUS.OPEN) {
+            return;
+        }
+
         status = PwmService.STATUS.OPENING;
         LOGGER.debug("opening connection to database " + this.dbConfiguration.getConnectionString());
 
-        connection = openDB(dbConfiguration);
-        for (final DatabaseTable table : DatabaseTable.values()) {
-            initTable(connection, table, dbConfiguration);
+        loadDriver(dbConfiguration);
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+        connectionPool = new DatabaseConnectionPool(
+                driver,
+                dbConfiguration,
+                maxConnections,
+                connectionTimeoutMs,
+                connectionValidateIntervalMs,
+                statementCacheSize
+        );
+
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        try {
+            for (final DatabaseTable table : DatabaseTable.values()) {
+                initTable(pooledConnection.getConnection(), table, dbConfiguration);
+            }
+            dialect = DatabaseDialect.forConnection(pooledConnection.getConnection());
+            LOGGER.debug("using " + dialect + " sql dialect for database writes");
+        } catch (SQLException e) {
+            final String errorMsg = "error reading database metadata: " + e.getMessage();
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,errorMsg));
+        } finally {
+            pooledConnection.release(false);
         }
 
         status = PwmService.STATUS.OPEN;
@@ -210,8 +246,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
     }
 
-    private Connection openDB(final DBConfiguration dbConfiguration) throws DatabaseException {
-        final String connectionURL = dbConfiguration.getConnectionString();
+    private void loadDriver(final DBConfiguration dbConfiguration) throws DatabaseException {
         final String jdbcClassName = dbConfiguration.getDriverClassname();
 
         try {
@@ -239,25 +274,6 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
                 throw new DatabaseException(errorInformation);
             }
         }
-
-        try {
-            LOGGER.debug("opening connection to database " + connectionURL);
-            final Properties connectionProperties = new Properties();
-            if (dbConfiguration.getUsername() != null && !dbConfiguration.getUsername().isEmpty()) {
-                connectionProperties.setProperty("user", dbConfiguration.getUsername());
-            }
-            if (dbConfiguration.getPassword() != null) {
-                connectionProperties.setProperty("password", dbConfiguration.getPassword().getStringValue());
-            }
-            final Connection connection = driver.connect(connectionURL, connectionProperties);
-            LOGGER.debug("successfully opened connection to database " + connectionURL);
-            connection.setAutoCommit(true);
-            return connection;
-        } catch (PwmUnrecoverableException | SQLException e) {
-            final String errorMsg = "error connecting to database: " + e.getMessage();
-            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,errorMsg);
-            throw new DatabaseException(errorInformation);
-        }
     }
 
     private static void initTable(final Connection connection, final DatabaseTable table, final DBConfiguration dbConfiguration) throws DatabaseException {
@@ -337,39 +353,19 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         if (traceLogging) {
             LOGGER.trace("attempting put operation for table=" + table + ", key=" + key);
         }
-        if (!contains(table, key)) {
-            final String sqlText = "INSERT INTO " + table.toString() + "(" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES(?,?)";
-            PreparedStatement statement = null;
-
-            try {
-                statement = connection.prepareStatement(sqlText);
-                statement.setString(1, key);
-                statement.setString(2, value);
-                statement.executeUpdate();
-            } catch (SQLException e) {
-                final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"put operation failed: " + e.getMessage());
-                lastError = errorInformation;
-                throw new DatabaseException(errorInformation);
-            } finally {
-                close(statement);
-            }
-            return false;
-        }
-
-        final String sqlText = "UPDATE " + table.toString() + " SET " + VALUE_COLUMN + "=? WHERE " + KEY_COLUMN + "=?";
-        PreparedStatement statement = null;
 
+        final boolean replaced;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        boolean discardConnection = false;
         try {
-            statement = connection.prepareStatement(sqlText);
-            statement.setString(1, value);
-            statement.setString(2, key);
-            statement.executeUpdate();
+            replaced = executePut(pooledConnection, table, key, value);
         } catch (SQLException e) {
+            discardConnection = true;
             final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"put operation failed: " + e.getMessage());
             lastError = errorInformation;
             throw new DatabaseException(errorInformation);
         } finally {
-            close(statement);
+            pooledConnection.release(discardConnection);
         }
 
         if (traceLogging) {
@@ -380,65 +376,148 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.trace("put operation result: " + JsonUtil.serializeMap(debugOutput, JsonUtil.Flag.PrettyPrint));
         }
 
-        updateStats(false,true);
-        return true;
+        updateStats(false,true,1);
+        return replaced;
     }
 
-    private synchronized void preOperationCheck() throws DatabaseException {
-        if (status == PwmService.STATUS.CLOSED) {
-            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"database connection is not open"));
+    /**
+     * Writes a single value using the dialect's native upsert when there is one, otherwise as an update followed by an
+     * insert when no row was updated.  Returns true if an existing value may have been replaced; native upserts do not
+     * report this, so they always return true.
+     */
+    private boolean executePut(
+            final DatabaseConnectionPool.PooledConnection pooledConnection,
+            final DatabaseTable table,
+            final String key,
+            final String value
+    )
+            throws SQLException
+    {
+        final String upsertSql = dialect.upsertSql(table);
+        if (upsertSql != null) {
+            final PreparedStatement statement = pooledConnection.prepareStatement(upsertSql);
+            statement.setString(1, key);
+            statement.setString(2, value);
+            statement.executeUpdate();
+            return true;
         }
 
-        if (status == PwmService.STATUS.NEW) {
-            init();
+        if (executeUpdate(pooledConnection, table, key, value) > 0) {
+            return true;
         }
 
-        if (!isValid(connection)) {
-            init();
+        try {
+            final PreparedStatement statement = pooledConnection.prepareStatement(insertSql(table));
+            statement.setString(1, key);
+            statement.setString(2, value);
+            statement.executeUpdate();
+            return false;
+        } catch (SQLException e) {
+            // another writer may have inserted the key since the update; if so, the update now succeeds
+            if (!pooledConnection.getConnection().getAutoCommit() || executeUpdate(pooledConnection, table, key, value) < 1) {
+                throw e;
+            }
+            return true;
         }
     }
 
-    private boolean isValid(final Connection connection) {
-        if (connection == null) {
-            return false;
-        }
+    private static int executeUpdate(
+            final DatabaseConnectionPool.PooledConnection pooledConnection,
+            final DatabaseTable table,
+            final String key,
+            final String value
+    )
+            throws SQLException
+    {
+        final String sqlText = "UPDATE " + table.toString() + " SET " + VALUE_COLUMN + "=? WHERE " + KEY_COLUMN + "=?";
+        final PreparedStatement statement = pooledConnection.prepareStatement(sqlText);
+        statement.setString(1, value);
+        statement.setString(2, key);
+        return statement.executeUpdate();
+    }
 
-        if (status != PwmService.STATUS.OPEN) {
-            return false;
+    private static String insertSql(final DatabaseTable table) {
+        return "INSERT INTO " + table.toString() + "(" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES(?,?)";
+    }
+
+    @Override
+    public void putAll(
+            final DatabaseTable table,
+            final Map<String,String> keyValueMap
+    )
+            throws DatabaseException
+    {
+        if (keyValueMap == null || keyValueMap.isEmpty()) {
+            return;
         }
 
-        try {
-            final Method getFreeSpaceMethod = File.class.getMethod("isValid");
-            final Object rawResult = getFreeSpaceMethod.invoke(connection,10);
-            return (Boolean) rawResult;
-        } catch (NoSuchMethodException e) {
-            /* no error, pre java 1.6 doesn't have this method */
-        } catch (Exception e) {
-            LOGGER.debug("error checking for isValid for " + connection.toString() + ",: " + e.getMessage());
+        preOperationCheck();
+        if (traceLogging) {
+            LOGGER.trace("attempting putAll operation for table=" + table + ", size=" + keyValueMap.size());
         }
 
-        final StringBuilder sb = new StringBuilder();
-        sb.append("SELECT * FROM ").append(DatabaseTable.PWM_META.toString()).append(" WHERE " + KEY_COLUMN + " = ?");
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        boolean discardConnection = false;
         try {
-            statement = connection.prepareStatement(sb.toString());
-            statement.setString(1, KEY_ENGINE_START_PREFIX + instanceID);
-            statement.setMaxRows(1);
-            resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                resultSet.getString(VALUE_COLUMN);
+            final Connection connection = pooledConnection.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                final String upsertSql = dialect.upsertSql(table);
+                if (upsertSql != null) {
+                    final PreparedStatement statement = pooledConnection.prepareStatement(upsertSql);
+                    int batchSize = 0;
+                    for (final Map.Entry<String,String> entry : keyValueMap.entrySet()) {
+                        statement.setString(1, entry.getKey());
+                        statement.setString(2, entry.getValue());
+                        statement.addBatch();
+                        if (++batchSize >= MAX_BATCH_SIZE) {
+                            statement.executeBatch();
+                            batchSize = 0;
+                        }
+                    }
+                    if (batchSize > 0) {
+                        statement.executeBatch();
+                    }
+                } else {
+                    for (final Map.Entry<String,String> entry : keyValueMap.entrySet()) {
+                        executePut(pooledConnection, table, entry.getKey(), entry.getValue());
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                rollback(connection);
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"isValid operation failed: " + e.getMessage());
+            discardConnection = true;
+            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"putAll operation failed: " + e.getMessage());
             lastError = errorInformation;
-            LOGGER.error(errorInformation.toDebugStr());
-            return false;
+            throw new DatabaseException(errorInformation);
         } finally {
-            close(statement);
-            close(resultSet);
+            pooledConnection.release(discardConnection);
+        }
+
+        updateStats(false,true,keyValueMap.size());
+    }
+
+    private static void rollback(final Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOGGER.error("unexpected error during transaction rollback " + e.getMessage(), e);
+        }
+    }
+
+    private void preOperationCheck() throws DatabaseException {
+        if (status == PwmService.STATUS.CLOSED) {
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"database connection is not open"));
+        }
+
+        if (status != PwmService.STATUS.OPEN) {
+            init();
         }
-        return true;
     }
 
     private static void close(final Statement statement) {
@@ -468,7 +547,28 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     )
             throws DatabaseException
     {
-        final boolean result = get(table, key) != null;
+        preOperationCheck();
+        final String sqlText = "SELECT " + KEY_COLUMN + " FROM " + table.toString() + " WHERE " + KEY_COLUMN + " = ?";
+
+        boolean result = false;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        boolean discardConnection = false;
+        ResultSet resultSet = null;
+        try {
+            final PreparedStatement statement = pooledConnection.prepareStatement(sqlText);
+            statement.setString(1, key);
+            resultSet = statement.executeQuery();
+            result = resultSet.next();
+        } catch (SQLException e) {
+            discardConnection = true;
+            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"contains operation failed: " + e.getMessage());
+            lastError = errorInformation;
+            throw new DatabaseException(errorInformation);
+        } finally {
+            close(resultSet);
+            pooledConnection.release(discardConnection);
+        }
+
         if (traceLogging) {
             final Map<String,Object> debugOutput = new LinkedHashMap<>();
             debugOutput.put("table",table);
@@ -476,7 +576,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             debugOutput.put("result",result);
             LOGGER.trace("contains operation result: " + JsonUtil.serializeMap(debugOutput, JsonUtil.Flag.PrettyPrint));
         }
-        updateStats(true,false);
+        updateStats(true,false,1);
         return result;
     }
 
@@ -491,28 +591,28 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.trace("attempting get operation for table=" + table + ", key=" + key);
         }
         preOperationCheck();
-        final StringBuilder sb = new StringBuilder();
-        sb.append("SELECT * FROM ").append(table.toString()).append(" WHERE " + KEY_COLUMN + " = ?");
+        final String sqlText = "SELECT " + VALUE_COLUMN + " FROM " + table.toString() + " WHERE " + KEY_COLUMN + " = ?";
 
-        PreparedStatement statement = null;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        boolean discardConnection = false;
         ResultSet resultSet = null;
         String returnValue = null;
         try {
-            statement = connection.prepareStatement(sb.toString());
+            final PreparedStatement statement = pooledConnection.prepareStatement(sqlText);
             statement.setString(1, key);
-            statement.setMaxRows(1);
             resultSet = statement.executeQuery();
 
             if (resultSet.next()) {
-                returnValue = resultSet.getString(VALUE_COLUMN);
+                returnValue = resultSet.getString(1);
             }
         } catch (SQLException e) {
+            discardConnection = true;
             final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"get operation failed: " + e.getMessage());
             lastError = errorInformation;
             throw new DatabaseException(errorInformation);
         } finally {
-            close(statement);
             close(resultSet);
+            pooledConnection.release(discardConnection);
         }
 
         if (traceLogging) {
@@ -523,7 +623,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.trace("get operation result: " + JsonUtil.serializeMap(debugOutput, JsonUtil.Flag.PrettyPrint));
         }
 
-        updateStats(true,false);
+        updateStats(true,false,1);
         return returnValue;
     }
 
@@ -545,25 +645,22 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         if (traceLogging) {
             LOGGER.trace("attempting remove operation for table=" + table + ", key=" + key);
         }
+        preOperationCheck();
 
-        boolean result = contains(table, key);
-        if (result) {
-            final StringBuilder sqlText = new StringBuilder();
-            sqlText.append("DELETE FROM ").append(table.toString()).append(" WHERE " + KEY_COLUMN + "=?");
-
-            PreparedStatement statement = null;
-            try {
-                statement = connection.prepareStatement(sqlText.toString());
-                statement.setString(1, key);
-                statement.executeUpdate();
-                LOGGER.trace("remove operation succeeded for table=" + table + ", key=" + key);
-            } catch (SQLException e) {
-                final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"remove operation failed: " + e.getMessage());
-                lastError = errorInformation;
-                throw new DatabaseException(errorInformation);
-            } finally {
-                close(statement);
-            }
+        final boolean result;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        boolean discardConnection = false;
+        try {
+            final PreparedStatement statement = pooledConnection.prepareStatement(deleteSql(table));
+            statement.setString(1, key);
+            result = statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            discardConnection = true;
+            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"remove operation failed: " + e.getMessage());
+            lastError = errorInformation;
+            throw new DatabaseException(errorInformation);
+        } finally {
+            pooledConnection.release(discardConnection);
         }
 
         if (traceLogging) {
@@ -574,65 +671,134 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.trace("remove operation result: " + JsonUtil.serializeMap(debugOutput, JsonUtil.Flag.PrettyPrint));
         }
 
-        updateStats(true, false);
+        updateStats(false,true,1);
         return result;
     }
 
+    private static String deleteSql(final DatabaseTable table) {
+        return "DELETE FROM " + table.toString() + " WHERE " + KEY_COLUMN + "=?";
+    }
+
+    @Override
+    public void removeAll(
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
+            throws DatabaseException
+    {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+
+        preOperationCheck();
+        if (traceLogging) {
+            LOGGER.trace("attempting removeAll operation for table=" + table + ", size=" + keys.size());
+        }
+
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        boolean discardConnection = false;
+        try {
+            final Connection connection = pooledConnection.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                final PreparedStatement statement = pooledConnection.prepareStatement(deleteSql(table));
+                int batchSize = 0;
+                for (final String key : keys) {
+                    statement.setString(1, key);
+                    statement.addBatch();
+                    if (++batchSize >= MAX_BATCH_SIZE) {
+                        statement.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+                if (batchSize > 0) {
+                    statement.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                rollback(connection);
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discardConnection = true;
+            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"removeAll operation failed: " + e.getMessage());
+            lastError = errorInformation;
+            throw new DatabaseException(errorInformation);
+        } finally {
+            pooledConnection.release(discardConnection);
+        }
+
+        updateStats(false,true,keys.size());
+    }
+
     @Override
     public int size(final DatabaseTable table) throws
             DatabaseException {
         preOperationCheck();
 
-        final StringBuilder sb = new StringBuilder();
-        sb.append("SELECT COUNT(" + KEY_COLUMN + ") FROM ").append(table.toString());
+        final String sqlText = "SELECT COUNT(" + KEY_COLUMN + ") FROM " + table.toString();
 
-        PreparedStatement statement = null;
+        int result = 0;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = connectionPool.borrow();
+        boolean discardConnection = false;
         ResultSet resultSet = null;
         try {
-            statement = connection.prepareStatement(sb.toString());
+            final PreparedStatement statement = pooledConnection.prepareStatement(sqlText);
             resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                return resultSet.getInt(1);
+                result = resultSet.getInt(1);
             }
         } catch (SQLException e) {
+            discardConnection = true;
             final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"size operation failed: " + e.getMessage());
             lastError = errorInformation;
             throw new DatabaseException(errorInformation);
         } finally {
-            close(statement);
             close(resultSet);
+            pooledConnection.release(discardConnection);
         }
 
-        updateStats(true,false);
-        return 0;
+        updateStats(true,false,1);
+        return result;
     }
 
 // -------------------------- ENUMERATIONS --------------------------
 
     // -------------------------- INNER CLASSES --------------------------
 
+    /**
+     * Iterates the keys of a table.  The iterator holds its own pooled connection until it is closed or exhausted, so
+     * callers must always close it.
+     */
     public class DBIterator implements ClosableIterator<String> {
         private final DatabaseTable table;
-        private final ResultSet resultSet;
+        private final DatabaseConnectionPool.PooledConnection pooledConnection;
+        private PreparedStatement statement;
+        private ResultSet resultSet;
         private java.lang.String nextValue;
         private boolean finished;
+        private boolean discardConnection;
 
         public DBIterator(final DatabaseTable table)
                 throws DatabaseException
         {
             this.table = table;
-            this.resultSet = init();
+            this.pooledConnection = connectionPool.borrow();
+            init();
             getNextItem();
         }
 
-        private ResultSet init() throws DatabaseException {
-            final StringBuilder sb = new StringBuilder();
-            sb.append("SELECT " + KEY_COLUMN + " FROM ").append(table.toString());
+        private void init() throws DatabaseException {
+            final String sqlText = "SELECT " + KEY_COLUMN + " FROM " + table.toString();
 
             try {
-                final PreparedStatement statement = connection.prepareStatement(sb.toString());
-                return statement.executeQuery();
+                statement = pooledConnection.getConnection().prepareStatement(sqlText);
+                resultSet = statement.executeQuery();
             } catch (SQLException e) {
+                discardConnection = true;
+                close();
                 final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"get iterator failed: " + e.getMessage());
                 lastError = errorInformation;
                 throw new DatabaseException(errorInformation);
@@ -659,26 +825,28 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         private void getNextItem() {
             try {
                 if (resultSet.next()) {
-                    nextValue = resultSet.getString(KEY_COLUMN);
+                    nextValue = resultSet.getString(1);
                 } else {
                     close();
                 }
             } catch (SQLException e) {
-                finished = true;
+                discardConnection = true;
+                close();
                 LOGGER.warn("unexpected error during result set iteration: " + e.getMessage());
             }
-            updateStats(true,false);
+            updateStats(true,false,1);
         }
 
-        public void close() {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    LOGGER.error("error closing inner resultset in iterator: " + e.getMessage());
-                }
+        public synchronized void close() {
+            if (finished && resultSet == null) {
+                return;
             }
             finished = true;
+            DatabaseAccessorImpl.close(resultSet);
+            DatabaseAccessorImpl.close(statement);
+            resultSet = null;
+            statement = null;
+            pooledConnection.release(discardConnection);
         }
     }
 
@@ -762,15 +930,15 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
     }
 
-    private void updateStats(boolean readOperation, boolean writeOperation) {
+    private void updateStats(final boolean readOperation, final boolean writeOperation, final int operationCount) {
         if (pwmApplication != null && pwmApplication.getApplicationMode() == PwmApplication.MODE.RUNNING) {
             final StatisticsManager statisticsManager = pwmApplication.getStatisticsManager();
             if (statisticsManager != null && statisticsManager.status() == STATUS.OPEN) {
                 if (readOperation) {
-                    statisticsManager.updateEps(Statistic.EpsType.DB_READS,1);
+                    statisticsManager.updateEps(Statistic.EpsType.DB_READS,operationCount);
                 }
                 if (writeOperation) {
-                    statisticsManager.updateEps(Statistic.EpsType.DB_WRITES,1);
+                    statisticsManager.updateEps(Statistic.EpsType.DB_WRITES,operationCount);
                 }
             }
         }
@@ -0,0 +1,268 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.db;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of JDBC connections for {@link DatabaseAccessorImpl}.  Each pooled connection keeps a cache of the
+ * prepared statements used on it, so the fixed set of key/value statements is only prepared once per connection.
+ * <p/>
+ * Idle connections are only validated once they have been idle longer than the configured validation interval,
+ * and a connection that produced an error is discarded by its borrower rather than returned to the pool.
+ */
+class DatabaseConnectionPool {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(DatabaseConnectionPool.class, true);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final Driver driver;
+    private final DatabaseAccessorImpl.DBConfiguration dbConfiguration;
+    private final long borrowTimeoutMs;
+    private final long validateIntervalMs;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> openConnections = Collections.newSetFromMap(new ConcurrentHashMap<PooledConnection, Boolean>());
+    private volatile boolean closed;
+
+    DatabaseConnectionPool(
+            final Driver driver,
+            final DatabaseAccessorImpl.DBConfiguration dbConfiguration,
+            final int maxConnections,
+            final long borrowTimeoutMs,
+            final long validateIntervalMs,
+            final int statementCacheSize
+    ) {
+        this.driver = driver;
+        this.dbConfiguration = dbConfiguration;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.validateIntervalMs = validateIntervalMs;
+        this.statementCacheSize = statementCacheSize;
+
+        // iterators hold a connection while reading, so at least one more is needed for the reads they trigger
+        this.permits = new Semaphore(Math.max(2, maxConnections), true);
+    }
+
+    PooledConnection borrow() throws DatabaseException {
+        if (closed) {
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE, "database connection pool is closed"));
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                final String errorMsg = "timed out after " + TimeDuration.asCompactString(borrowTimeoutMs) + " waiting for an available database connection";
+                throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE, errorMsg));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE, "interrupted while waiting for an available database connection"));
+        }
+
+        try {
+            PooledConnection pooledConnection;
+            while ((pooledConnection = idleConnections.pollFirst()) != null) {
+                if (pooledConnection.isUsable()) {
+                    return pooledConnection;
+                }
+                LOGGER.debug("discarding database connection that failed validation");
+                discard(pooledConnection);
+            }
+
+            pooledConnection = new PooledConnection(openConnection());
+            openConnections.add(pooledConnection);
+            return pooledConnection;
+        } catch (DatabaseException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the idle connections.  Connections still borrowed are closed by their borrower when released.
+     */
+    void close() {
+        closed = true;
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            discard(pooledConnection);
+        }
+    }
+
+    int size() {
+        return openConnections.size();
+    }
+
+    private void release(final PooledConnection pooledConnection, final boolean discard) {
+        try {
+            if (discard || closed) {
+                discard(pooledConnection);
+            } else {
+                pooledConnection.lastUsed = System.currentTimeMillis();
+                idleConnections.offerFirst(pooledConnection);
+                if (closed && idleConnections.remove(pooledConnection)) {
+                    // close() ran while this connection was being returned
+                    discard(pooledConnection);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(final PooledConnection pooledConnection) {
+        openConnections.remove(pooledConnection);
+        pooledConnection.closeConnection();
+    }
+
+    private Connection openConnection() throws DatabaseException {
+        final String connectionURL = dbConfiguration.getConnectionString();
+        try {
+            LOGGER.debug("opening connection to database " + connectionURL);
+            final Properties connectionProperties = new Properties();
+            if (dbConfiguration.getUsername() != null && !dbConfiguration.getUsername().isEmpty()) {
+                connectionProperties.setProperty("user", dbConfiguration.getUsername());
+            }
+            if (dbConfiguration.getPassword() != null) {
+                connectionProperties.setProperty("password", dbConfiguration.getPassword().getStringValue());
+            }
+            final Connection connection = driver.connect(connectionURL, connectionProperties);
+            if (connection == null) {
+                throw new SQLException("driver " + driver.getClass().getName() + " does not accept url " + connectionURL);
+            }
+            LOGGER.debug("successfully opened connection to database " + connectionURL);
+            connection.setAutoCommit(true);
+            return connection;
+        } catch (PwmUnrecoverableException | SQLException e) {
+            final String errorMsg = "error connecting to database: " + e.getMessage();
+            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,errorMsg);
+            throw new DatabaseException(errorInformation);
+        }
+    }
+
+    /**
+     * A connection checked out of the pool.  Instances are only ever used by the thread that borrowed them, and
+     * must be handed back with {@link #release(boolean)}.
+     */
+    class PooledConnection {
+        private final Connection connection;
+        private final Map<String,PreparedStatement> statementCache;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(final Connection connection) {
+            this.connection = connection;
+            this.statementCache = new LinkedHashMap<String,PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > statementCacheSize) {
+                        closeStatement(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns a cached prepared statement for the sql text.  Callers must not close the returned statement.
+         */
+        PreparedStatement prepareStatement(final String sqlText) throws SQLException {
+            PreparedStatement statement = statementCache.get(sqlText);
+            if (statement == null) {
+                statement = connection.prepareStatement(sqlText);
+                statementCache.put(sqlText, statement);
+            }
+            return statement;
+        }
+
+        void release(final boolean discard) {
+            DatabaseConnectionPool.this.release(this, discard);
+        }
+
+        private boolean isUsable() {
+            if (System.currentTimeMillis() - lastUsed < validateIntervalMs) {
+                return true;
+            }
+
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (AbstractMethodError | SQLFeatureNotSupportedException e) {
+                /* pre JDBC 4 driver, fall through to a test query */
+            } catch (SQLException e) {
+                return false;
+            }
+
+            final String sqlText = "SELECT " + DatabaseAccessorImpl.KEY_COLUMN + " FROM " + DatabaseTable.PWM_META.toString()
+                    + " WHERE " + DatabaseAccessorImpl.KEY_COLUMN + " = ?";
+            ResultSet resultSet = null;
+            try {
+                final PreparedStatement statement = prepareStatement(sqlText);
+                statement.setString(1, "0");
+                resultSet = statement.executeQuery();
+                return true;
+            } catch (SQLException e) {
+                LOGGER.debug("database connection validation failed: " + e.getMessage());
+                return false;
+            } finally {
+                if (resultSet != null) {
+                    try { resultSet.close(); } catch (SQLException e) { /* noop */ }
+                }
+            }
+        }
+
+        private void closeConnection() {
+            for (final PreparedStatement statement : statementCache.values()) {
+                closeStatement(statement);
+            }
+            statementCache.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.debug("error while closing database connection: " + e.getMessage());
+            }
+        }
+
+        private void closeStatement(final PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                LOGGER.debug("error while closing cached database statement: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import static password.pwm.util.db.DatabaseAccessorImpl.KEY_COLUMN;
+import static password.pwm.util.db.DatabaseAccessorImpl.VALUE_COLUMN;
+
+/**
+ * Database specific sql used by {@link DatabaseAccessorImpl}.  Dialects with a native single statement upsert
+ * return it from {@link #upsertSql(DatabaseTable)}, with the key bound to the first parameter and the value to the
+ * second.  {@link #GENERIC} has no upsert, and writes are performed as an update followed by an insert when no row
+ * was updated.
+ */
+enum DatabaseDialect {
+    H2 {
+        String upsertSql(final DatabaseTable table) {
+            return "MERGE INTO " + table.toString() + " (" + KEY_COLUMN + ", " + VALUE_COLUMN + ") KEY (" + KEY_COLUMN + ") VALUES (?, ?)";
+        }
+    },
+
+    POSTGRESQL {
+        String upsertSql(final DatabaseTable table) {
+            return "INSERT INTO " + table.toString() + " (" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES (?, ?)"
+                    + " ON CONFLICT (" + KEY_COLUMN + ") DO UPDATE SET " + VALUE_COLUMN + " = EXCLUDED." + VALUE_COLUMN;
+        }
+    },
+
+    MYSQL {
+        String upsertSql(final DatabaseTable table) {
+            return "INSERT INTO " + table.toString() + " (" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES (?, ?)"
+                    + " ON DUPLICATE KEY UPDATE " + VALUE_COLUMN + " = VALUES(" + VALUE_COLUMN + ")";
+        }
+    },
+
+    // the value is bound as a clob, a plain bind variable selected from dual is limited to varchar2 length
+    ORACLE {
+        String upsertSql(final DatabaseTable table) {
+            return "MERGE INTO " + table.toString() + " t"
+                    + " USING (SELECT ? AS " + KEY_COLUMN + ", TO_CLOB(?) AS " + VALUE_COLUMN + " FROM dual) s"
+                    + " ON (t." + KEY_COLUMN + " = s." + KEY_COLUMN + ")"
+                    + " WHEN MATCHED THEN UPDATE SET t." + VALUE_COLUMN + " = s." + VALUE_COLUMN
+                    + " WHEN NOT MATCHED THEN INSERT (" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES (s." + KEY_COLUMN + ", s." + VALUE_COLUMN + ")";
+        }
+    },
+
+    // without holdlock, concurrent merges of the same new key can both take the insert branch
+    MSSQL {
+        String upsertSql(final DatabaseTable table) {
+            return "MERGE INTO " + table.toString() + " WITH (HOLDLOCK) AS t"
+                    + " USING (VALUES (?, ?)) AS s (" + KEY_COLUMN + ", " + VALUE_COLUMN + ")"
+                    + " ON t." + KEY_COLUMN + " = s." + KEY_COLUMN
+                    + " WHEN MATCHED THEN UPDATE SET " + VALUE_COLUMN + " = s." + VALUE_COLUMN
+                    + " WHEN NOT MATCHED THEN INSERT (" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES (s." + KEY_COLUMN + ", s." + VALUE_COLUMN + ");";
+        }
+    },
+
+    GENERIC {
+        String upsertSql(final DatabaseTable table) {
+            return null;
+        }
+    },
+
+    ;
+
+    abstract String upsertSql(final DatabaseTable table);
+
+    static DatabaseDialect forConnection(final Connection connection) throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final String productName = metaData.getDatabaseProductName() == null ? "" : metaData.getDatabaseProductName().toLowerCase();
+        final int majorVersion = metaData.getDatabaseMajorVersion();
+        final int minorVersion = metaData.getDatabaseMinorVersion();
+
+        if (productName.startsWith("h2")) {
+            return H2;
+        }
+        if (productName.startsWith("postgresql") && (majorVersion > 9 || (majorVersion == 9 && minorVersion >= 5))) {
+            return POSTGRESQL;
+        }
+        if (productName.startsWith("mysql") || productName.startsWith("mariadb")) {
+            return MYSQL;
+        }
+        if (productName.startsWith("oracle")) {
+            return ORACLE;
+        }
+        if (productName.startsWith("microsoft sql server") && majorVersion >= 10) {
+            return MSSQL;
+        }
+        return GENERIC;
+    }
+}
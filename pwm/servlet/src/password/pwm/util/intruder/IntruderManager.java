@@ -145,8 +145,8 @@ public class IntruderManager implements Serializable, PwmService {
             recordStore = new DataStoreRecordStore(dataStore, this);
             final String threadName = Helper.makeThreadName(pwmApplication, this.getClass()) + " timer";
             timer = new Timer(threadName, true);
-            final long maxRecordAge = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_RETENTION_TIME_MS));
-            final long cleanerRunFrequency = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_CLEANUP_FREQUENCY_MS));
+            final long maxRecordAge = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.INTRUDER_RETENTION_TIME_MS);
+            final long cleanerRunFrequency = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.INTRUDER_CLEANUP_FREQUENCY_MS);
             timer.schedule(new TimerTask() {
                 @Override
                 public void run() {
@@ -357,10 +357,10 @@ public class IntruderManager implements Serializable, PwmService {
         int points = 0;
         if (intruderRecord != null) {
             points += intruderRecord.getAttemptCount();
-            long delayPenalty = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_MIN_DELAY_PENALTY_MS)); // minimum
-            delayPenalty += points * Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_DELAY_PER_COUNT_MS));
-            delayPenalty += PwmRandom.getInstance().nextInt((int)Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_DELAY_MAX_JITTER_MS))); // add some randomness;
-            delayPenalty = delayPenalty > Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_MAX_DELAY_PENALTY_MS)) ? Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_MAX_DELAY_PENALTY_MS)) : delayPenalty;
+            long delayPenalty = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.INTRUDER_MIN_DELAY_PENALTY_MS); // minimum
+            delayPenalty += points * pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.INTRUDER_DELAY_PER_COUNT_MS);
+            delayPenalty += PwmRandom.getInstance().nextInt((int)pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.INTRUDER_DELAY_MAX_JITTER_MS)); // add some randomness;
+            delayPenalty = delayPenalty > pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.INTRUDER_MAX_DELAY_PENALTY_MS) ? pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.INTRUDER_MAX_DELAY_PENALTY_MS) : delayPenalty;
             LOGGER.trace(sessionLabel, "delaying response " + delayPenalty + "ms due to intruder record: " + JsonUtil.serialize(intruderRecord));
             Helper.pause(delayPenalty);
         }
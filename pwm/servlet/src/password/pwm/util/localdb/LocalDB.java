@@ -116,6 +116,7 @@ public interface LocalDB {
         PWM_META,
         SHAREDHISTORY_META,
         SHAREDHISTORY_WORDS,
+        SHAREDHISTORY_BUCKETS,
         WORDLIST_META,
         WORDLIST_WORDS,
         SEEDLIST_META,
@@ -132,6 +133,11 @@ public interface LocalDB {
         USER_CACHE,
         TEMP,
         SYSLOG_QUEUE,
+        AUDIT_QUEUE,
+        EMAIL_QUEUE_RETRY,
+        EMAIL_QUEUE_DEAD_LETTER,
+        SMS_QUEUE_RETRY,
+        SMS_QUEUE_DEAD_LETTER,
         CACHE,
     }
 
@@ -143,9 +143,9 @@ public class LocalDBFactory {
             return LocalDBCompressor.createLocalDBCompressor(localDB, 1024, false);
         }
 
-        final boolean enableCompression = Boolean.parseBoolean(config.readAppProperty(AppProperty.LOCALDB_COMPRESSION_ENABLED));
-        final boolean enableDecompression = Boolean.parseBoolean(config.readAppProperty(AppProperty.LOCALDB_DECOMPRESSION_ENABLED));
-        final int compressionMinSize = Integer.parseInt(config.readAppProperty(AppProperty.LOCALDB_COMPRESSION_MINSIZE));
+        final boolean enableCompression = config.readAppPropertyAsBoolean(AppProperty.LOCALDB_COMPRESSION_ENABLED);
+        final boolean enableDecompression = config.readAppPropertyAsBoolean(AppProperty.LOCALDB_DECOMPRESSION_ENABLED);
+        final int compressionMinSize = config.readAppPropertyAsInt(AppProperty.LOCALDB_COMPRESSION_MINSIZE);
 
         if (enableCompression || enableDecompression) {
             return LocalDBCompressor.createLocalDBCompressor(localDB, compressionMinSize, enableCompression);
@@ -98,6 +98,33 @@ public class
         }
     }
 
+    public void removeFirst(final int removalCount) {
+        try {
+            internalQueue.removeFirst(removalCount);
+        } catch (LocalDBException e) {
+            throw new IllegalStateException("unexpected localDB error while modifying queue: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns up to {@code getCount} values from the head of the queue, in queue order, without removing them.
+     */
+    public List<String> getFirst(final int getCount) {
+        return get(0, getCount);
+    }
+
+    /**
+     * Returns up to {@code getCount} values starting {@code offset} values from the head of the queue, in queue order,
+     * without removing them.
+     */
+    public List<String> get(final int offset, final int getCount) {
+        try {
+            return internalQueue.get(offset, getCount);
+        } catch (LocalDBException e) {
+            throw new IllegalStateException("unexpected localDB error while reading queue: " + e.getMessage(), e);
+        }
+    }
+
 // ------------------------ INTERFACE METHODS ------------------------
 
 
@@ -208,6 +235,14 @@ public class
         }
     }
 
+    public void addLast(final Collection<String> values) {
+        try {
+            internalQueue.addLast(values);
+        } catch (LocalDBException e) {
+            throw new IllegalStateException("unexpected LocalDB error while modifying queue: " + e.getMessage(), e);
+        }
+    }
+
     public boolean offerFirst(final String s) {
         try {
             internalQueue.addFirst(Collections.singletonList(s));
@@ -284,7 +319,7 @@ public class
 
     public String peekFirst() {
         try {
-            final List<String> values = internalQueue.getFirst(1);
+            final List<String> values = internalQueue.get(0, 1);
             if (values == null || values.isEmpty()) {
                 return null;
             }
@@ -456,6 +491,14 @@ public class
             return new Position(previous);
         }
 
+        public Position previous(final int count) {
+            BigInteger previous = bigInt.subtract(BigInteger.valueOf(count));
+            if (previous.compareTo(MINIMUM_POSITION) < 0) {
+                previous = previous.add(MAXIMUM_POSITION).add(BigInteger.ONE);
+            }
+            return new Position(previous);
+        }
+
         public BigInteger distanceToHead(final Position head) {
             final int compareToValue = head.bigInt.compareTo(this.bigInt);
             if (compareToValue == 0) {
@@ -745,29 +788,30 @@ public class
             }
         }
 
-        public List<String> getFirst(int getCount)
+        public List<String> get(final int offset, int getCount)
                 throws LocalDBException {
             try {
                 LOCK.readLock().lock();
-                debugOutput("pre getFirst()");
+                debugOutput("pre get()");
 
-                if (getCount < 1) {
+                final int size = internalSize();
+                if (getCount < 1 || offset < 0 || offset >= size) {
                     return Collections.emptyList();
                 }
 
-                if (getCount > internalSize()) {
-                    getCount = internalSize();
+                if (getCount > size - offset) {
+                    getCount = size - offset;
                 }
 
                 final List<String> returnList = new ArrayList<>();
 
-                Position nextHead = headPosition;
+                Position nextHead = headPosition.previous(offset);
                 while (returnList.size() < getCount) {
                     returnList.add(localDB.get(DB, nextHead.toString()));
                     nextHead = nextHead.previous();
                 }
 
-                debugOutput("post getFirst()");
+                debugOutput("post get()");
 
                 return returnList;
             } finally {
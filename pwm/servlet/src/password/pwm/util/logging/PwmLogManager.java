@@ -127,7 +127,7 @@ public class PwmLogManager {
                 final RollingFileAppender fileAppender = new RollingFileAppender(patternLayout,fileName,true);
                 final Level level = Level.toLevel(fileLogLevel);
                 fileAppender.setThreshold(level);
-                fileAppender.setMaxBackupIndex(Integer.parseInt(config.readAppProperty(AppProperty.LOGGING_FILE_MAX_ROLLOVER)));
+                fileAppender.setMaxBackupIndex(config.readAppPropertyAsInt(AppProperty.LOGGING_FILE_MAX_ROLLOVER));
                 fileAppender.setMaxFileSize(config.readAppProperty(AppProperty.LOGGING_FILE_MAX_SIZE));
 
                 PwmLogger.setFileAppender(fileAppender);
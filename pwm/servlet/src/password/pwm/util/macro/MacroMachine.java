@@ -22,6 +22,7 @@
 
 package password.pwm.util.macro;
 
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.bean.SessionLabel;
@@ -38,18 +39,25 @@ import password.pwm.util.StringUtil;
 import password.pwm.util.logging.PwmLogger;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class MacroMachine {
     private static final PwmLogger LOGGER = PwmLogger.forClass(MacroMachine.class);
 
+    private static final int TEMPLATE_CACHE_SIZE = 1000;
+    private static final int LIBRARY_CACHE_SIZE = 5;
+
+    // macro implementations and compiled templates, keyed by the configured external macro urls; only the most
+    // recently used configurations are kept so libraries of replaced configurations are released
+    private static final Map<List<String>,MacroLibrary> MACRO_LIBRARIES = new ConcurrentLinkedHashMap.Builder<List<String>,MacroLibrary>()
+            .maximumWeightedCapacity(LIBRARY_CACHE_SIZE)
+            .build();
+
     private final PwmApplication pwmApplication;
     private final SessionLabel sessionLabel;
     private final UserInfoBean userInfoBean;
     private final LoginInfoBean loginInfoBean;
     private final UserDataReader userDataReader;
-    private final Map<Pattern,MacroImplementation> macroImplementations;
+    private final MacroLibrary macroLibrary;
 
     public MacroMachine(
             final PwmApplication pwmApplication,
@@ -64,40 +72,41 @@ public class MacroMachine {
         this.userInfoBean = userInfoBean;
         this.loginInfoBean = loginInfoBean;
         this.userDataReader = userDataReader;
-        this.macroImplementations = makeImplementations();
+        this.macroLibrary = macroLibraryFor(pwmApplication);
     }
 
-    private Map<Pattern,MacroImplementation> makeImplementations() {
-        final Set<Class<? extends MacroImplementation>> implementations = new HashSet<>();
+    private static MacroLibrary macroLibraryFor(final PwmApplication pwmApplication) {
+        final List<String> externalMethods = pwmApplication.getConfig().readSettingAsStringArray(PwmSetting.EXTERNAL_MACROS_REST_URLS);
+        MacroLibrary macroLibrary = MACRO_LIBRARIES.get(externalMethods);
+        if (macroLibrary == null) {
+            macroLibrary = new MacroLibrary(makeImplementations(externalMethods));
+            MACRO_LIBRARIES.put(new ArrayList<>(externalMethods), macroLibrary);
+        }
+        return macroLibrary;
+    }
+
+    private static List<MacroImplementation> makeImplementations(final List<String> externalMethods) {
+        final Set<Class<? extends MacroImplementation>> implementations = new LinkedHashSet<>();
         implementations.addAll(StandardMacros.STANDARD_MACROS);
         implementations.addAll(InternalMacros.INTERNAL_MACROS);
-        final LinkedHashMap<Pattern,MacroImplementation> map = new LinkedHashMap<>();
+        final List<MacroImplementation> list = new ArrayList<>();
 
         for (Class macroClass : implementations) {
             try {
-                final MacroImplementation macroImplementation = (MacroImplementation)macroClass.newInstance();
-                final Pattern pattern = macroImplementation.getRegExPattern();
-                map.put(pattern,macroImplementation);
+                list.add((MacroImplementation)macroClass.newInstance());
             } catch (Exception e) {
-                LOGGER.error(sessionLabel, "unable to load macro class " + macroClass.getName() + ", error: " + e.getMessage());
+                LOGGER.error("unable to load macro class " + macroClass.getName() + ", error: " + e.getMessage());
             }
         }
 
-        final List<String> externalMethods = pwmApplication.getConfig().readSettingAsStringArray(PwmSetting.EXTERNAL_MACROS_REST_URLS);
-
         int iteration = 0;
         for (final String url : externalMethods) {
             iteration++;
-            final MacroImplementation macroImplementation = new ExternalRestMacro(iteration,url);
-            final Pattern pattern = macroImplementation.getRegExPattern();
-            map.put(pattern,macroImplementation);
+            list.add(new ExternalRestMacro(iteration,url));
         }
-        return map;
+        return Collections.unmodifiableList(list);
     }
 
-
-
-
     public String expandMacros(
             final String input
     ) {
@@ -113,7 +122,12 @@ public class MacroMachine {
             return null;
         }
 
-        if (input.length() < 1) {
+        if (!MacroTemplate.mayContainMacros(input)) {
+            return input;
+        }
+
+        final MacroTemplate macroTemplate = macroLibrary.getTemplate(input);
+        if (!macroTemplate.hasMacros()) {
             return input;
         }
 
@@ -144,34 +158,19 @@ public class MacroMachine {
         };
 
 
-        String workingString = input;
-
-        for (final Pattern pattern : macroImplementations.keySet()) {
-            final MacroImplementation pwmMacro = macroImplementations.get(pattern);
-            boolean matched = true;
-            while (matched) {
-                final Matcher matcher = pattern.matcher(workingString);
-                if (matcher.find()) {
-                    workingString = doReplace(workingString, pwmMacro, matcher, stringReplacer, macroRequestInfo);
-                } else {
-                    matched = false;
-                }
+        return macroTemplate.expand(new MacroTemplate.MacroReplacer() {
+            public String replace(final String matchedMacro, final MacroImplementation macroImplementation) {
+                return doReplace(matchedMacro, macroImplementation, stringReplacer, macroRequestInfo);
             }
-        }
-
-        return workingString;
+        });
     }
 
     private String doReplace(
-            final String input,
+            final String matchedStr,
             final MacroImplementation macroImplementation,
-            final Matcher matcher,
             final StringReplacer stringReplacer,
             final MacroImplementation.MacroRequestInfo macroRequestInfo
     ) {
-        final String matchedStr = matcher.group();
-        final int startPos = matcher.start();
-        final int endPos = matcher.end();
         String replaceStr = "";
         try {
             replaceStr = macroImplementation.replaceValue(matchedStr, macroRequestInfo);
@@ -183,7 +182,7 @@ public class MacroMachine {
         }
 
         if (replaceStr == null) {
-            return input;
+            return null;
         }
 
         if (stringReplacer != null) {
@@ -198,7 +197,27 @@ public class MacroMachine {
             LOGGER.trace(sessionLabel, "replaced macro " + matchedStr + " with value: "
                     + (macroImplementation.isSensitive() ? PwmConstants.LOG_REMOVED_VALUE_REPLACEMENT : replaceStr));
         }
-        return new StringBuilder(input).replace(startPos, endPos, replaceStr).toString();
+        return replaceStr;
+    }
+
+    private static class MacroLibrary {
+        private final List<MacroImplementation> implementations;
+        private final Map<String,MacroTemplate> templates = new ConcurrentLinkedHashMap.Builder<String, MacroTemplate>()
+                .maximumWeightedCapacity(TEMPLATE_CACHE_SIZE)
+                .build();
+
+        private MacroLibrary(final List<MacroImplementation> implementations) {
+            this.implementations = implementations;
+        }
+
+        private MacroTemplate getTemplate(final String input) {
+            MacroTemplate macroTemplate = templates.get(input);
+            if (macroTemplate == null) {
+                macroTemplate = MacroTemplate.compile(input, implementations);
+                templates.put(input, macroTemplate);
+            }
+            return macroTemplate;
+        }
     }
 
     public static interface StringReplacer {
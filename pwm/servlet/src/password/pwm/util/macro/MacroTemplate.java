@@ -0,0 +1,136 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.macro;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A string split once into literal text and macro segments, so it can be expanded repeatedly in a single pass
+ * without applying each macro {@link java.util.regex.Pattern} to the whole string.  A macro segment is a run
+ * of text between two {@code @} characters (an {@code @} preceded by {@code /} does not end a macro) that
+ * fully matches one of the macro implementations.  Everything else is kept as literal text.
+ */
+class MacroTemplate {
+    private final String source;
+    private final String[] segmentText;
+    private final MacroImplementation[] segmentMacro;
+    private final boolean hasMacros;
+
+    private MacroTemplate(final String source, final List<String> segmentText, final List<MacroImplementation> segmentMacro) {
+        this.source = source;
+        this.segmentText = segmentText.toArray(new String[segmentText.size()]);
+        this.segmentMacro = segmentMacro.toArray(new MacroImplementation[segmentMacro.size()]);
+        boolean hasMacros = false;
+        for (final MacroImplementation implementation : segmentMacro) {
+            hasMacros = hasMacros || implementation != null;
+        }
+        this.hasMacros = hasMacros;
+    }
+
+    static boolean mayContainMacros(final String input) {
+        return input != null && input.indexOf('@') >= 0;
+    }
+
+    static MacroTemplate compile(final String input, final List<MacroImplementation> implementations) {
+        final List<String> segmentText = new ArrayList<>();
+        final List<MacroImplementation> segmentMacro = new ArrayList<>();
+
+        int literalStart = 0;
+        int position = input.indexOf('@');
+        while (position >= 0) {
+            final int end = findMacroEnd(input, position);
+            if (end < 0) {
+                break;
+            }
+            final String candidate = input.substring(position, end + 1);
+            final MacroImplementation implementation = findImplementation(candidate, implementations);
+            if (implementation != null) {
+                if (position > literalStart) {
+                    segmentText.add(input.substring(literalStart, position));
+                    segmentMacro.add(null);
+                }
+                segmentText.add(candidate);
+                segmentMacro.add(implementation);
+                literalStart = end + 1;
+                position = input.indexOf('@', literalStart);
+            } else {
+                // not a macro, but the closing '@' may open the next one (as in "user@example.com @User:ID@")
+                position = end;
+            }
+        }
+
+        if (literalStart < input.length()) {
+            segmentText.add(input.substring(literalStart));
+            segmentMacro.add(null);
+        }
+        return new MacroTemplate(input, segmentText, segmentMacro);
+    }
+
+    boolean hasMacros() {
+        return hasMacros;
+    }
+
+    String expand(final MacroReplacer macroReplacer) {
+        if (!hasMacros) {
+            return source;
+        }
+
+        final StringBuilder output = new StringBuilder(source.length() + 64);
+        for (int i = 0; i < segmentText.length; i++) {
+            if (segmentMacro[i] == null) {
+                output.append(segmentText[i]);
+            } else {
+                final String replacement = macroReplacer.replace(segmentText[i], segmentMacro[i]);
+                output.append(replacement == null ? segmentText[i] : replacement);
+            }
+        }
+        return output.toString();
+    }
+
+    private static int findMacroEnd(final String input, final int start) {
+        for (int i = start + 1; i < input.length(); i++) {
+            if (input.charAt(i) == '@' && input.charAt(i - 1) != '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static MacroImplementation findImplementation(final String candidate, final List<MacroImplementation> implementations) {
+        for (final MacroImplementation implementation : implementations) {
+            if (implementation.getRegExPattern().matcher(candidate).matches()) {
+                return implementation;
+            }
+        }
+        return null;
+    }
+
+    interface MacroReplacer {
+        /**
+         * @return the replacement value, or null to leave the macro text in place
+         */
+        String replace(String matchedMacro, MacroImplementation macroImplementation);
+    }
+}
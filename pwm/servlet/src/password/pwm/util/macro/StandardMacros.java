@@ -128,7 +128,7 @@ public abstract class StandardMacros {
                     throw new MacroParseException("error parsing length parameter: " + e.getMessage());
                 }
 
-                int maxLengthPermitted = Integer.parseInt(macroRequestInfo.getPwmApplication().getConfig().readAppProperty(AppProperty.MACRO_LDAP_ATTR_CHAR_MAX_LENGTH));
+                int maxLengthPermitted = macroRequestInfo.getPwmApplication().getConfig().readAppPropertyAsInt(AppProperty.MACRO_LDAP_ATTR_CHAR_MAX_LENGTH);
                 if (length > maxLengthPermitted) {
                     throw new MacroParseException("maximum permitted length of LDAP attribute (" + maxLengthPermitted + ") exceeded");
                 } else if (length <= 0) {
@@ -483,7 +483,7 @@ public abstract class StandardMacros {
             final List<String> parameters = splitMacroParameters(matchValue,"RandomChar");
             int length = 1;
             if (parameters.size() > 0 && !parameters.get(0).isEmpty()) {
-                int maxLengthPermitted = Integer.parseInt(macroRequestInfo.getPwmApplication().getConfig().readAppProperty(AppProperty.MACRO_RANDOM_CHAR_MAX_LENGTH));
+                int maxLengthPermitted = macroRequestInfo.getPwmApplication().getConfig().readAppPropertyAsInt(AppProperty.MACRO_RANDOM_CHAR_MAX_LENGTH);
                 try {
                     length = Integer.parseInt(parameters.get(0));
                     if (length > maxLengthPermitted) {
@@ -38,7 +38,9 @@ import password.pwm.error.*;
 import password.pwm.health.HealthRecord;
 import password.pwm.http.PwmSession;
 import password.pwm.ldap.LdapOperationsHelper;
+import password.pwm.util.CryptoPrimitiveCache;
 import password.pwm.util.PwmRandom;
+import password.pwm.util.SecureHelper;
 import password.pwm.util.StringUtil;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
@@ -54,7 +56,6 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.io.Serializable;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
@@ -94,7 +95,7 @@ public class OtpService implements PwmService {
         try {
             final Base32 base32 = new Base32();
             final byte[] rawSecret = base32.decode(otpUserRecord.getSecret());
-            final Mac mac = Mac.getInstance("HMACSHA1");
+            final Mac mac = CryptoPrimitiveCache.mac("HMACSHA1");
             mac.init(new SecretKeySpec(rawSecret, ""));
             final PasscodeGenerator generator = new PasscodeGenerator(mac, settings.getOtpTokenLength(), settings.getTotpIntervalSeconds());
             switch (otpUserRecord.getType()) {
@@ -111,21 +112,26 @@ public class OtpService implements PwmService {
         if (!otpCorrect && allowRecoveryCodes && otpUserRecord.getRecoveryCodes() != null && otpUserRecord.getRecoveryInfo() != null) {
             final OTPUserRecord.RecoveryInfo recoveryInfo = otpUserRecord.getRecoveryInfo();
             final String userHashedInput = doRecoveryHash(userInput, recoveryInfo);
+            final Map<String, OTPUserRecord.RecoveryCode> codesByHash = new HashMap<>();
             for (final OTPUserRecord.RecoveryCode code : otpUserRecord.getRecoveryCodes()) {
-                if (code.getHashCode().equals(userInput) || code.getHashCode().equals(userHashedInput)) {
-                    if (code.isUsed()) {
-                        throw new PwmOperationalException(PwmError.ERROR_OTP_RECOVERY_USED,
-                                "recovery code has been previously used");
-                    }
+                codesByHash.put(code.getHashCode(), code);
+            }
+            final OTPUserRecord.RecoveryCode code = codesByHash.containsKey(userInput)
+                    ? codesByHash.get(userInput)
+                    : codesByHash.get(userHashedInput);
+            if (code != null) {
+                if (code.isUsed()) {
+                    throw new PwmOperationalException(PwmError.ERROR_OTP_RECOVERY_USED,
+                            "recovery code has been previously used");
+                }
 
-                    code.setUsed(true);
-                    try {
-                        pwmApplication.getOtpService().writeOTPUserConfiguration(null, userIdentity, otpUserRecord);
-                    } catch (ChaiUnavailableException e) {
-                        throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_WRITING_OTP_SECRET,e.getMessage()));
-                    }
-                    otpCorrect = true;
+                code.setUsed(true);
+                try {
+                    pwmApplication.getOtpService().writeOTPUserConfiguration(null, userIdentity, otpUserRecord);
+                } catch (ChaiUnavailableException e) {
+                    throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_WRITING_OTP_SECRET,e.getMessage()));
                 }
+                otpCorrect = true;
             }
         }
 
@@ -215,23 +221,16 @@ public class OtpService implements PwmService {
             throws IllegalStateException
     {
         final String algorithm = settings.getRecoveryHashMethod();
-        final MessageDigest md;
-        try {
-            md = MessageDigest.getInstance(algorithm);
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("unable to load " + algorithm + " message digest algorithm: " + e.getMessage());
-        }
-
         final String raw = recoveryInfo.getSalt() == null
                 ? input.trim()
                 : recoveryInfo.getSalt().trim() + input.trim();
 
-        final int hashCount = recoveryInfo.getHashCount();
-        byte[] hashedBytes = raw.getBytes();
-        for (int i = 0; i < hashCount; i++) {
-            hashedBytes = md.digest(hashedBytes);
+        try {
+            final byte[] hashedBytes = SecureHelper.iteratedDigest(raw.getBytes(), algorithm, recoveryInfo.getHashCount());
+            return Base64Util.encodeBytes(hashedBytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("unable to load " + algorithm + " message digest algorithm: " + e.getMessage());
         }
-        return Base64Util.encodeBytes(hashedBytes);
     }
 
     @Override
@@ -466,12 +465,12 @@ public class OtpService implements PwmService {
             
             otpSettings.otpStorageFormat = config.readSettingAsEnum(PwmSetting.OTP_SECRET_STORAGEFORMAT,OTPStorageFormat.class);
             otpSettings.recoveryCodesCount = (int)config.readSettingAsLong(PwmSetting.OTP_RECOVERY_CODES);
-            otpSettings.totpPastIntervals = Integer.parseInt(config.readAppProperty(AppProperty.TOTP_PAST_INTERVALS));
-            otpSettings.totpFutureIntervals = Integer.parseInt(config.readAppProperty(AppProperty.TOTP_FUTURE_INTERVALS));
-            otpSettings.totpIntervalSeconds = Integer.parseInt(config.readAppProperty(AppProperty.TOTP_INTERVAL));
-            otpSettings.otpTokenLength = Integer.parseInt(config.readAppProperty(AppProperty.OTP_TOKEN_LENGTH));
+            otpSettings.totpPastIntervals = config.readAppPropertyAsInt(AppProperty.TOTP_PAST_INTERVALS);
+            otpSettings.totpFutureIntervals = config.readAppPropertyAsInt(AppProperty.TOTP_FUTURE_INTERVALS);
+            otpSettings.totpIntervalSeconds = config.readAppPropertyAsInt(AppProperty.TOTP_INTERVAL);
+            otpSettings.otpTokenLength = config.readAppPropertyAsInt(AppProperty.OTP_TOKEN_LENGTH);
             otpSettings.recoveryTokenMacro = config.readAppProperty(AppProperty.OTP_RECOVERY_TOKEN_MACRO);
-            otpSettings.recoveryHashIterations = Integer.parseInt(config.readAppProperty(AppProperty.OTP_RECOVERY_HASH_COUNT));
+            otpSettings.recoveryHashIterations = config.readAppPropertyAsInt(AppProperty.OTP_RECOVERY_HASH_COUNT);
             otpSettings.recoveryHashMethod = config.readAppProperty(AppProperty.OTP_RECOVERY_HASH_METHOD);
             return otpSettings;
         }
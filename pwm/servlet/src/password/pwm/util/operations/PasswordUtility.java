@@ -28,9 +28,7 @@ import com.novell.ldapchai.ChaiUser;
 import com.novell.ldapchai.exception.ChaiOperationException;
 import com.novell.ldapchai.exception.ChaiPasswordPolicyException;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
-import com.novell.ldapchai.provider.ChaiConfiguration;
 import com.novell.ldapchai.provider.ChaiProvider;
-import com.novell.ldapchai.provider.ChaiProviderFactory;
 import com.novell.ldapchai.provider.ChaiSetting;
 import com.novell.ldapchai.util.ChaiUtility;
 import password.pwm.AppProperty;
@@ -507,45 +505,6 @@ public class PasswordUtility {
         }
     }
 
-    public static Map<String,Date> readIndividualReplicaLastPasswordTimes(
-            final PwmApplication pwmApplication,
-            final SessionLabel sessionLabel,
-            final UserIdentity userIdentity
-    )
-            throws PwmUnrecoverableException
-    {
-        final Map<String,Date> returnValue = new LinkedHashMap<>();
-        final ChaiProvider chaiProvider = pwmApplication.getProxyChaiProvider(userIdentity.getLdapProfileID());
-        final Collection<ChaiConfiguration> perReplicaConfigs = ChaiUtility.splitConfigurationPerReplica(
-                chaiProvider.getChaiConfiguration(),
-                Collections.singletonMap(ChaiSetting.FAILOVER_CONNECT_RETRIES,"1")
-        );
-        for (final ChaiConfiguration loopConfiguration : perReplicaConfigs) {
-            final String loopReplicaUrl = loopConfiguration.getSetting(ChaiSetting.BIND_DN);
-            ChaiProvider loopProvider = null;
-            try {
-                loopProvider = ChaiProviderFactory.createProvider(loopConfiguration);
-                final ChaiUser loopUser = ChaiFactory.createChaiUser(userIdentity.getUserDN(), loopProvider);
-                final Date lastModifiedDate = determinePwdLastModified(pwmApplication, sessionLabel, userIdentity);
-                returnValue.put(loopReplicaUrl, lastModifiedDate);
-            } catch (ChaiUnavailableException e) {
-                LOGGER.error(sessionLabel, "unreachable server during replica password sync check");
-                e.printStackTrace();
-            } finally {
-                if (loopProvider != null) {
-                    try {
-                        loopProvider.close();
-                    } catch (Exception e) {
-                        final String errorMsg = "error closing loopProvider to " + loopReplicaUrl + " while checking individual password sync status";
-                        LOGGER.error(sessionLabel, errorMsg);
-                    }
-                }
-            }
-        }
-        return returnValue;
-    }
-
-
     private static void invokePostChangePasswordActions(final PwmSession pwmSession, final String newPassword)
             throws PwmUnrecoverableException
     {
@@ -806,7 +765,7 @@ public class PasswordUtility {
         final boolean passwordIsCaseSensitive = userInfoBean.getPasswordPolicy() == null || userInfoBean.getPasswordPolicy().getRuleHelper().readBooleanValue(PwmPasswordRule.CaseSensitive);
         final CachePolicy cachePolicy;
         {
-            final long cacheLifetimeMS = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.CACHE_PWRULECHECK_LIFETIME_MS));
+            final long cacheLifetimeMS = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.CACHE_PWRULECHECK_LIFETIME_MS);
             cachePolicy = CachePolicy.makePolicy(cacheLifetimeMS);
         }
 
@@ -970,7 +929,7 @@ public class PasswordUtility {
         return determinePwdLastModified(pwmApplication, sessionLabel, theUser, userIdentity);
     }
 
-    private static Date determinePwdLastModified(
+    public static Date determinePwdLastModified(
             final PwmApplication pwmApplication,
             final SessionLabel sessionLabel,
             final ChaiUser theUser,
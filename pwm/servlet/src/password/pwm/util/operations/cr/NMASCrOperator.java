@@ -37,7 +37,6 @@ import com.novell.security.nmas.lcm.*;
 import com.novell.security.nmas.lcm.registry.GenLCMRegistry;
 import com.novell.security.nmas.lcm.registry.LCMRegistry;
 import com.novell.security.nmas.lcm.registry.LCMRegistryException;
-import com.novell.security.nmas.ui.GenLcmUI;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
@@ -56,8 +55,6 @@ import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.ldap.LdapOperationsHelper;
-import password.pwm.util.Helper;
-import password.pwm.util.JsonUtil;
 import password.pwm.util.PasswordData;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
@@ -72,18 +69,16 @@ import java.io.Serializable;
 import java.io.StringReader;
 import java.security.Security;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class NMASCrOperator implements CrOperator {
     private static final PwmLogger LOGGER = PwmLogger.forClass(NMASCrOperator.class);
 
-    private int threadCounter = 0;
-    private final List<NMASSessionThread> sessionMonitorThreads = Collections.synchronizedList(new ArrayList<NMASSessionThread>());
     private final PwmApplication pwmApplication;
     private final TimeDuration maxThreadIdleTime;
-    private final int maxThreadCount;
-
-
-    private volatile Timer timer;
+    private final TimeDuration maxQueueWaitTime;
+    private final NMASSessionManager sessionManager;
 
     private static final Map<String,Object> CR_OPTIONS_MAP;
     static {
@@ -98,9 +93,11 @@ public class NMASCrOperator implements CrOperator {
 
     public NMASCrOperator(PwmApplication pwmApplication) {
         this.pwmApplication = pwmApplication;
-        maxThreadCount = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.NMAS_THREADS_MAX_COUNT));
-        final int MAX_SECONDS = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.NMAS_THREADS_MAX_SECONDS));
-        final int MIN_SECONDS = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.NMAS_THREADS_MIN_SECONDS));
+        final int maxThreadCount = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.NMAS_THREADS_MAX_COUNT);
+        final int maxQueuedCount = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.NMAS_THREADS_MAX_QUEUED);
+        maxQueueWaitTime = new TimeDuration(pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.NMAS_THREADS_MAX_QUEUE_WAIT_SECONDS) * 1000);
+        final int MAX_SECONDS = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.NMAS_THREADS_MAX_SECONDS);
+        final int MIN_SECONDS = pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.NMAS_THREADS_MIN_SECONDS);
 
         int maxNmasIdleSeconds = (int)pwmApplication.getConfig().readSettingAsLong(PwmSetting.IDLE_TIMEOUT_SECONDS);
         if (maxNmasIdleSeconds > MAX_SECONDS) {
@@ -109,34 +106,11 @@ public class NMASCrOperator implements CrOperator {
             maxNmasIdleSeconds = MIN_SECONDS;
         }
         maxThreadIdleTime = new TimeDuration(maxNmasIdleSeconds * 1000);
-    }
-
-    private void controlWatchdogThread() {
-        synchronized (sessionMonitorThreads) {
-            if (sessionMonitorThreads.isEmpty()) {
-                final Timer localTimer = timer;
-                if (localTimer != null) {
-                    LOGGER.debug("discontinuing NMASCrOperator watchdog timer, no active threads");
-                    localTimer.cancel();
-                    timer = null;
-                }
-            } else {
-                if (timer == null) {
-                    LOGGER.debug("starting NMASCrOperator watchdog timer, maxIdleThreadTime=" + maxThreadIdleTime.asCompactString());
-                    timer = new Timer(PwmConstants.PWM_APP_NAME + "-NMASCrOperator watchdog timer",true);
-                    final long frequency = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.NMAS_THREADS_WATCHDOG_FREQUENCY));
-                    timer.schedule(new ThreadWatchdogTask(),frequency,frequency);
-                }
-            }
-        }
+        sessionManager = new NMASSessionManager(pwmApplication, maxThreadCount, maxQueuedCount, maxThreadIdleTime);
     }
 
     public void close() {
-        final List<NMASSessionThread> threads = new ArrayList(sessionMonitorThreads);
-        for (final NMASSessionThread thread : threads) {
-            LOGGER.debug("killing thread due to NMASCrOperator service closing: " + thread.toDebugString());
-            thread.abort();
-        }
+        sessionManager.close();
     }
 
     public ResponseSet readResponseSet(
@@ -309,7 +283,14 @@ public class NMASCrOperator implements CrOperator {
             }
             final LDAPConnection ldapConnection = makeLdapConnection();
             ldapChallengeSession = new NMASResponseSession(userIdentity.getUserDN(),ldapConnection);
-            final List<String> questions = ldapChallengeSession.getQuestions();
+            final List<String> questions;
+            try {
+                questions = ldapChallengeSession.getQuestions();
+            } catch (PwmUnrecoverableException e) {
+                ldapChallengeSession.close();
+                ldapChallengeSession = null;
+                throw e;
+            }
             challengeSet = questionsToChallengeSet(questions);
         }
 
@@ -443,23 +424,20 @@ public class NMASCrOperator implements CrOperator {
     private class NMASResponseSession {
 
         private LDAPConnection ldapConnection;
-        final private GenLcmUI lcmEnv;
-        private NMASSessionThread nmasSessionThread;
+        private final NMASLoginSession loginSession;
 
         public NMASResponseSession(String userDN, LDAPConnection ldapConnection) throws LCMRegistryException, PwmUnrecoverableException {
             this.ldapConnection = ldapConnection;
-            lcmEnv = new GenLcmUI();
             final GenLCMRegistry lcmRegistry = new GenLCMRegistry();
             lcmRegistry.registerLcm("com.novell.security.nmas.lcm.chalresp.XmlChalRespLCM");
 
-            nmasSessionThread = new NMASSessionThread(this);
-            final ChalRespCallbackHandler cbh = new ChalRespCallbackHandler(lcmEnv, lcmRegistry);
-            nmasSessionThread.startLogin(userDN, ldapConnection, cbh);
+            loginSession = new NMASLoginSession(userDN, ldapConnection, lcmRegistry);
+            sessionManager.start(loginSession);
         }
 
-        public List<String> getQuestions() throws XPathExpressionException {
+        public List<String> getQuestions() throws XPathExpressionException, PwmUnrecoverableException {
 
-            final LCMUserPrompt prompt = lcmEnv.getNextUserPrompt();
+            final LCMUserPrompt prompt = loginSession.awaitFirstPrompt(maxQueueWaitTime);
             if (prompt == null) {
                 return null;
             }
@@ -470,13 +448,13 @@ public class NMASCrOperator implements CrOperator {
         public boolean testAnswers(List<String> answers)
                 throws SAXException, IOException, ParserConfigurationException, PwmUnrecoverableException
         {
-            if (nmasSessionThread.getLoginState() == NMASThreadState.ABORTED) {
+            if (loginSession.isAborted()) {
                 throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_DIRECTORY_UNAVAILABLE,"nmas ldap connection has been disconnected or timed out"));
             }
 
             final Document doc = answersToDocument(answers);
-            lcmEnv.setUserResponse(new LCMUserResponse(doc));
-            final NMASLoginResult loginResult = nmasSessionThread.getLoginResult();
+            loginSession.getEnvironment().setUserResponse(new LCMUserResponse(doc));
+            final NMASLoginResult loginResult = loginSession.awaitResult(maxThreadIdleTime);
             final boolean result = loginResult.getNmasRetCode() == 0;
             if (result) {
                 ldapConnection = loginResult.getLdapConnection();
@@ -494,164 +472,85 @@ public class NMASCrOperator implements CrOperator {
                 this.ldapConnection = null;
             }
         }
-
-        private class ChalRespCallbackHandler extends NMASCallbackHandler
-        {
-            public ChalRespCallbackHandler(LCMEnvironment lcmenvironment, LCMRegistry lcmregistry)
-            {
-                super(lcmenvironment, lcmregistry);
-            }
-
-            public void handle(final Callback callbacks[]) throws UnsupportedCallbackException
-            {
-                for (final Callback callback : callbacks) {
-                    if (callback instanceof NMASCompletionCallback) {
-                        LOGGER.trace("received NMASCompletionCallback, ignoring");
-                    } else if (callback instanceof NMASCallback) {
-                        try {
-                            handleNMASCallback((NMASCallback) callback);
-                        } catch (InvalidNMASCallbackException e) {
-                            LOGGER.error("error processing NMASCallback: " + e.getMessage(),e);
-                        }
-                    } else if (callback instanceof LCMUserPromptCallback) {
-                        try {
-                            handleLCMUserPromptCallback((LCMUserPromptCallback) callback);
-                        } catch (LCMUserPromptException e) {
-                            LOGGER.error("error processing LCMUserPromptCallback: " + e.getMessage(),e);
-                        }
-                    } else {
-                        throw new UnsupportedCallbackException(callback);
-                    }
-                }
-            }
-
-            public int awaitRetCode() {
-                final Date startTime = new Date();
-                boolean done = this.isNmasDone();
-                Date lastLogTime = new Date();
-                while (!done && TimeDuration.fromCurrent(startTime).isShorterThan(maxThreadIdleTime)) {
-                    LOGGER.trace("attempt to read return code, but isNmasDone=false, will await completion");
-                    Helper.pause(10);
-                    done = this.isNmasDone();
-                    if (TimeDuration.SECOND.isLongerThan(TimeDuration.fromCurrent(lastLogTime))) {
-                        LOGGER.trace("waiting for return code: " + TimeDuration.fromCurrent(startTime).asCompactString());
-                        lastLogTime = new Date();
-                    }
-                }
-                LOGGER.debug("read return code in " + TimeDuration.fromCurrent(startTime).asCompactString());
-                return this.getNmasRetCode();
-            }
-        }
     }
 
-    private enum NMASThreadState { NEW, BIND, COMPLETED, ABORTED, }
-
-    private class NMASSessionThread extends Thread {
-        private volatile Date lastActivityTimestamp = new Date();
-        private volatile NMASThreadState loginState = NMASThreadState.NEW;
-        private volatile boolean loginResultReady = false;
-        private volatile NMASLoginResult loginResult = null;
-        private volatile NMASResponseSession.ChalRespCallbackHandler callbackHandler = null;
-        private volatile LDAPConnection ldapConn = null;
-        private volatile String loginDN = null;
-        private final NMASResponseSession nmasResponseSession;
-
-        private final int threadID;
-
-        public NMASSessionThread(final NMASResponseSession nmasResponseSession)
-        {
-            this.nmasResponseSession = nmasResponseSession;
-            this.threadID = threadCounter++;
-            setLoginState(NMASThreadState.NEW);
-        }
+    private class ChalRespCallbackHandler extends NMASCallbackHandler
+    {
+        private final CountDownLatch completionLatch = new CountDownLatch(1);
 
-        private void setLoginState(NMASThreadState paramInt)
+        public ChalRespCallbackHandler(LCMEnvironment lcmenvironment, LCMRegistry lcmregistry)
         {
-            this.loginState = paramInt;
+            super(lcmenvironment, lcmregistry);
         }
 
-        public NMASThreadState getLoginState()
+        public void handle(final Callback callbacks[]) throws UnsupportedCallbackException
         {
-            return this.loginState;
-        }
-
-        public Date getLastActivityTimestamp() {
-            return lastActivityTimestamp;
+            for (final Callback callback : callbacks) {
+                if (callback instanceof NMASCompletionCallback) {
+                    LOGGER.trace("received NMASCompletionCallback, ignoring");
+                } else if (callback instanceof NMASCallback) {
+                    try {
+                        handleNMASCallback((NMASCallback) callback);
+                    } catch (InvalidNMASCallbackException e) {
+                        LOGGER.error("error processing NMASCallback: " + e.getMessage(),e);
+                    }
+                } else if (callback instanceof LCMUserPromptCallback) {
+                    try {
+                        handleLCMUserPromptCallback((LCMUserPromptCallback) callback);
+                    } catch (LCMUserPromptException e) {
+                        LOGGER.error("error processing LCMUserPromptCallback: " + e.getMessage(),e);
+                    }
+                } else {
+                    throw new UnsupportedCallbackException(callback);
+                }
+            }
         }
 
-        private synchronized void setLoginResult(NMASLoginResult paramNMASLoginResult)
+        @Override
+        public synchronized void setNmasRetCode(final int retCode)
         {
-            this.loginResult = paramNMASLoginResult;
-            this.loginResultReady = true;
-            this.lastActivityTimestamp = new Date();
+            super.setNmasRetCode(retCode);
+            completionLatch.countDown();
         }
 
-        public final synchronized NMASLoginResult getLoginResult()
-        {
-            while (!this.loginResultReady) {
+        public int awaitRetCode() {
+            final Date startTime = new Date();
+            if (!this.isNmasDone()) {
+                LOGGER.trace("attempt to read return code, but isNmasDone=false, will await completion");
                 try {
-                    wait();
-                } catch (Exception localException) {
-                    /* noop */
+                    completionLatch.await(maxThreadIdleTime.getTotalMilliseconds(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
             }
-
-            lastActivityTimestamp = new Date();
-            return this.loginResult;
+            LOGGER.debug("read return code in " + TimeDuration.fromCurrent(startTime).asCompactString());
+            return this.getNmasRetCode();
         }
+    }
+
+    private class NMASLoginSession extends NMASSessionManager.Session {
+        private final String loginDN;
+        private final LDAPConnection ldapConn;
+        private final ChalRespCallbackHandler callbackHandler;
 
-        public void startLogin(
-                String userDN,
-                LDAPConnection ldapConnection,
-                NMASResponseSession.ChalRespCallbackHandler  paramCallbackHandler
+        private NMASLoginSession(
+                final String loginDN,
+                final LDAPConnection ldapConnection,
+                final LCMRegistry lcmRegistry
         )
-                throws PwmUnrecoverableException
         {
-            if (sessionMonitorThreads.size() > maxThreadCount) {
-                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_TOO_MANY_THREADS,"NMASSessionMonitor maximum thread count (" + maxThreadCount + ") exceeded"));
-            }
-            this.loginDN = userDN;
+            super(loginDN);
+            this.loginDN = loginDN;
             this.ldapConn = ldapConnection;
-            this.callbackHandler = paramCallbackHandler;
-            this.loginResultReady = false;
-            setLoginState(NMASThreadState.NEW);
-            setDaemon(true);
-            setName(PwmConstants.PWM_APP_NAME + "-NMASSessionThread thread id=" + threadID);
-            lastActivityTimestamp = new Date();
-            start();
-        }
-
-        public void run()
-        {
-            try {
-                LOGGER.trace("starting NMASSessionThread, activeCount=" + sessionMonitorThreads.size() + ", " + this.toDebugString());
-                sessionMonitorThreads.add(this);
-                controlWatchdogThread();
-                doLoginSequence();
-            } finally {
-                sessionMonitorThreads.remove(this);
-                controlWatchdogThread();
-                LOGGER.trace("exiting NMASSessionThread, activeCount=" + sessionMonitorThreads.size() + ", " + this.toDebugString());
-            }
+            this.callbackHandler = new ChalRespCallbackHandler(getEnvironment(), lcmRegistry);
         }
 
-        private void doLoginSequence() {
-            if (loginState == NMASThreadState.ABORTED || loginState == NMASThreadState.COMPLETED) {
-                return;
-            }
-            lastActivityTimestamp = new Date();
-            if (this.ldapConn == null)
-            {
-                setLoginState(NMASThreadState.COMPLETED);
-                setLoginResult(new NMASLoginResult(-1681));
-                lastActivityTimestamp = new Date();
-                return;
+        protected NMASLoginResult doLogin(final LCMEnvironment environment) {
+            if (this.ldapConn == null) {
+                return new NMASLoginResult(NMASSessionManager.ABORTED_RETURN_CODE);
             }
 
-            try
-            {
-                setLoginState(NMASThreadState.BIND);
-                lastActivityTimestamp = new Date();
+            try {
                 try {
                     this.ldapConn.bind(
                             this.loginDN,
@@ -661,25 +560,19 @@ public class NMASCrOperator implements CrOperator {
                             this.callbackHandler
                     );
                 } catch (NullPointerException e) {
-                    LOGGER.error("NullPointer error during CallBackHandler-NMASCR-bind; this is usually the result of an ldap disconnection, thread=" + this.toDebugString());
-                    this.setLoginState(NMASThreadState.ABORTED);
-                    return;
-
+                    LOGGER.error("NullPointer error during CallBackHandler-NMASCR-bind; this is usually the result of an ldap disconnection, session=" + this.toDebugString());
+                    this.abort();
+                    return new NMASLoginResult(NMASSessionManager.ABORTED_RETURN_CODE);
                 }
 
-                if (loginState == NMASThreadState.ABORTED) {
-                    return;
+                if (isAborted()) {
+                    return new NMASLoginResult(NMASSessionManager.ABORTED_RETURN_CODE);
                 }
 
-                setLoginState(NMASThreadState.COMPLETED);
-                lastActivityTimestamp = new Date();
-                setLoginResult(new NMASLoginResult(this.callbackHandler.awaitRetCode(), this.ldapConn));
-                lastActivityTimestamp = new Date();
-            }
-            catch (LDAPException e)
-            {
-                if (loginState == NMASThreadState.ABORTED) {
-                    return;
+                return new NMASLoginResult(this.callbackHandler.awaitRetCode(), this.ldapConn);
+            } catch (LDAPException e) {
+                if (isAborted()) {
+                    return new NMASLoginResult(NMASSessionManager.ABORTED_RETURN_CODE);
                 }
                 final String ldapErrorMessage = e.getLDAPErrorMessage();
                 if (ldapErrorMessage != null) {
@@ -687,69 +580,8 @@ public class NMASCrOperator implements CrOperator {
                 } else {
                     LOGGER.error("NMASLoginMonitor: LDAPException " + e.toString());
                 }
-                setLoginState(NMASThreadState.COMPLETED);
-                final NMASLoginResult localNMASLoginResult = new NMASLoginResult(this.callbackHandler.awaitRetCode(), e);
-                setLoginResult(localNMASLoginResult);
+                return new NMASLoginResult(this.callbackHandler.awaitRetCode(), e);
             }
-            lastActivityTimestamp = new Date();
-        }
-
-        public void abort() {
-            setLoginState(NMASThreadState.ABORTED);
-            setLoginResult(new NMASLoginResult(-1681));
-
-            try {
-                this.notify();
-            } catch (Exception e) {
-                /* ignore */
-            }
-
-            try {
-                this.nmasResponseSession.lcmEnv.setUserResponse(null);
-            } catch (Exception e) {
-                LOGGER.trace("error during NMASResponseSession abort: " + e.getMessage(),e);
-            }
-        }
-
-        public String toDebugString() {
-            final TreeMap<String,String> debugInfo = new TreeMap<>();
-            debugInfo.put("loginDN", this.loginDN);
-            debugInfo.put("id",Integer.toString(threadID));
-            debugInfo.put("loginState", this.getLoginState().toString());
-            debugInfo.put("loginResultReady",Boolean.toString(this.loginResultReady));
-            debugInfo.put("idleTime", TimeDuration.fromCurrent(this.getLastActivityTimestamp()).asCompactString());
-
-            return "NMASSessionThread: " + JsonUtil.serialize(debugInfo);
         }
     }
-
-    private class ThreadWatchdogTask extends TimerTask {
-        @Override
-        public void run() {
-            //logThreadInfo();
-            final List<NMASSessionThread> threads = new ArrayList(sessionMonitorThreads);
-            for (final NMASSessionThread thread : threads) {
-                final TimeDuration idleTime = TimeDuration.fromCurrent(thread.getLastActivityTimestamp());
-                if (idleTime.isLongerThan(maxThreadIdleTime)) {
-                    LOGGER.debug("killing thread due to inactivity " + thread.toDebugString());
-                    thread.abort();
-                }
-            }
-        }
-
-        /*
-        private void logThreadInfo() {
-            final List<NMASSessionThread> threads = new ArrayList(sessionMonitorThreads);
-            final StringBuilder threadDebugInfo = new StringBuilder();
-            threadDebugInfo.append("NMASCrOperator watchdog timer, activeCount=").append(threads.size());
-            threadDebugInfo.append(", maxIdleThreadTime=").append(maxThreadIdleTime.asCompactString());
-            for (final NMASSessionThread thread : threads) {
-                threadDebugInfo.append("\n ").append(thread.toDebugString());
-            }
-            LOGGER.trace(threadDebugInfo.toString());
-        }
-        */
-    }
-
-
 }
@@ -0,0 +1,430 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.operations.cr;
+
+import com.novell.security.nmas.client.NMASLoginResult;
+import com.novell.security.nmas.lcm.LCMEnvironment;
+import com.novell.security.nmas.lcm.LCMUserInterfaceException;
+import com.novell.security.nmas.lcm.LCMUserPrompt;
+import com.novell.security.nmas.lcm.LCMUserResponse;
+import password.pwm.PwmApplication;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.Helper;
+import password.pwm.util.JsonUtil;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.Statistic;
+import password.pwm.util.stats.StatisticsManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs NMAS challenge/response login sessions on a bounded thread pool.  The NMAS client performs a login as a
+ * single blocking LDAP bind that converses with the user through an {@link LCMEnvironment}, so an active session
+ * still occupies a pool thread, but threads are reused and the number of active and queued sessions is bounded.
+ * All waiting is done with condition signaling, and sessions that are idle longer than the maximum idle time are
+ * aborted by a single deadline scheduler.
+ */
+class NMASSessionManager {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(NMASSessionManager.class);
+
+    static final int ABORTED_RETURN_CODE = -1681;
+
+    private final PwmApplication pwmApplication;
+    private final TimeDuration maxIdleTime;
+    private final ThreadPoolExecutor sessionExecutor;
+    private final ScheduledExecutorService deadlineScheduler;
+    private final Set<Session> sessions = Collections.newSetFromMap(new ConcurrentHashMap<Session, Boolean>());
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private volatile boolean closed;
+
+    NMASSessionManager(
+            final PwmApplication pwmApplication,
+            final int maxActiveSessions,
+            final int maxQueuedSessions,
+            final TimeDuration maxIdleTime
+    )
+    {
+        this.pwmApplication = pwmApplication;
+        this.maxIdleTime = maxIdleTime;
+
+        final String threadName = Helper.makeThreadName(pwmApplication, NMASSessionManager.class);
+        final BlockingQueue<Runnable> queue = maxQueuedSessions > 0
+                ? new LinkedBlockingQueue<Runnable>(maxQueuedSessions)
+                : new SynchronousQueue<Runnable>();
+        sessionExecutor = new ThreadPoolExecutor(
+                maxActiveSessions,
+                maxActiveSessions,
+                1, TimeUnit.MINUTES,
+                queue,
+                Helper.makePwmThreadFactory(threadName + " session-", true)
+        );
+        sessionExecutor.allowCoreThreadTimeOut(true);
+        deadlineScheduler = Executors.newSingleThreadScheduledExecutor(Helper.makePwmThreadFactory(threadName + " deadline-", true));
+    }
+
+    void start(final Session session)
+            throws PwmUnrecoverableException
+    {
+        if (closed) {
+            throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_CLOSING, "NMAS session manager is closed"));
+        }
+
+        session.manager = this;
+        session.sessionID = sessionCounter.incrementAndGet();
+        session.touch();
+        sessions.add(session);
+        try {
+            sessionExecutor.execute(session.loginTask);
+        } catch (RejectedExecutionException e) {
+            sessions.remove(session);
+            incrementStatistic(Statistic.NMAS_SESSIONS_REJECTED);
+            throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_TOO_MANY_THREADS,
+                    "NMAS session limit exceeded, " + debugCounts()));
+        }
+        scheduleDeadline(session, maxIdleTime.getTotalMilliseconds());
+
+        final StatisticsManager statisticsManager = pwmApplication == null ? null : pwmApplication.getStatisticsManager();
+        if (statisticsManager != null) {
+            statisticsManager.updateAverageValue(Statistic.AVG_NMAS_ACTIVE_SESSIONS, activeCount());
+            statisticsManager.updateAverageValue(Statistic.AVG_NMAS_QUEUED_SESSIONS, queuedCount());
+        }
+        LOGGER.trace("started " + session.toDebugString() + ", " + debugCounts());
+    }
+
+    void close() {
+        closed = true;
+        for (final Session session : new ArrayList<>(sessions)) {
+            LOGGER.debug("aborting session due to NMASCrOperator service closing: " + session.toDebugString());
+            session.abort();
+        }
+        sessionExecutor.shutdownNow();
+        deadlineScheduler.shutdownNow();
+    }
+
+    int activeCount() {
+        return sessionExecutor.getActiveCount();
+    }
+
+    int queuedCount() {
+        return sessionExecutor.getQueue().size();
+    }
+
+    long timedOutCount() {
+        return timedOutCount.get();
+    }
+
+    String debugCounts() {
+        return "active=" + activeCount() + ", queued=" + queuedCount() + ", timedOut=" + timedOutCount();
+    }
+
+    private void scheduleDeadline(final Session session, final long delayMs) {
+        try {
+            session.deadline = deadlineScheduler.schedule(new Runnable() {
+                public void run() {
+                    checkDeadline(session);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.trace("unable to schedule session deadline, scheduler is closed");
+        }
+    }
+
+    private void checkDeadline(final Session session) {
+        if (session.loginTask.isDone()) {
+            return;
+        }
+
+        final long remainingMs = session.lastActivity + maxIdleTime.getTotalMilliseconds() - System.currentTimeMillis();
+        if (remainingMs > 0) {
+            scheduleDeadline(session, remainingMs);
+            return;
+        }
+
+        timedOutCount.incrementAndGet();
+        incrementStatistic(Statistic.NMAS_SESSIONS_TIMED_OUT);
+        LOGGER.debug("aborting session due to inactivity " + session.toDebugString());
+        session.abort();
+    }
+
+    private void sessionComplete(final Session session) {
+        sessions.remove(session);
+        // an aborted session that never started would otherwise keep its queue slot until a thread reaches it
+        sessionExecutor.remove(session.loginTask);
+        final Future<?> deadline = session.deadline;
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+        LOGGER.trace("completed " + session.toDebugString() + ", " + debugCounts());
+    }
+
+    private void incrementStatistic(final Statistic statistic) {
+        final StatisticsManager statisticsManager = pwmApplication == null ? null : pwmApplication.getStatisticsManager();
+        if (statisticsManager != null) {
+            statisticsManager.incrementValue(statistic);
+        }
+    }
+
+    /**
+     * A single login sequence.  {@link #doLogin(LCMEnvironment)} runs on a pool thread and talks to the user side
+     * of the session through the environment returned by {@link #getEnvironment()}.
+     */
+    abstract static class Session {
+        private final String debugLabel;
+        private final SessionEnvironment environment = new SessionEnvironment(this);
+        private final FutureTask<NMASLoginResult> loginTask;
+        private final CountDownLatch startLatch = new CountDownLatch(1);
+
+        private volatile NMASSessionManager manager;
+        private volatile int sessionID;
+        private volatile long lastActivity = System.currentTimeMillis();
+        private volatile Future<?> deadline;
+
+        Session(final String debugLabel) {
+            this.debugLabel = debugLabel;
+            this.loginTask = new FutureTask<NMASLoginResult>(new Callable<NMASLoginResult>() {
+                public NMASLoginResult call() throws Exception {
+                    startLatch.countDown();
+                    touch();
+                    try {
+                        return doLogin(environment);
+                    } finally {
+                        touch();
+                    }
+                }
+            }) {
+                protected void done() {
+                    startLatch.countDown();
+                    final NMASSessionManager localManager = manager;
+                    if (localManager != null) {
+                        localManager.sessionComplete(Session.this);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Performs the blocking login sequence.
+         */
+        protected abstract NMASLoginResult doLogin(final LCMEnvironment environment) throws Exception;
+
+        LCMEnvironment getEnvironment() {
+            return environment;
+        }
+
+        /**
+         * Waits for a pool thread to pick up the session and then for its first prompt.  A session still queued
+         * after {@code maxQueueWait} is aborted rather than holding the request thread until the idle deadline.
+         *
+         * @return the first prompt, or null if the login has completed or the session was aborted
+         * @throws PwmUnrecoverableException with {@link PwmError#ERROR_TOO_MANY_THREADS} if no thread became available
+         */
+        LCMUserPrompt awaitFirstPrompt(final TimeDuration maxQueueWait)
+                throws PwmUnrecoverableException
+        {
+            boolean started;
+            try {
+                started = startLatch.await(maxQueueWait.getTotalMilliseconds(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                started = false;
+            }
+            if (!started) {
+                abort();
+                final NMASSessionManager localManager = manager;
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_TOO_MANY_THREADS,
+                        "no NMAS session thread available within " + maxQueueWait.asCompactString()
+                                + (localManager == null ? "" : ", " + localManager.debugCounts())));
+            }
+            return environment.getNextUserPrompt();
+        }
+
+        /**
+         * @return the login result, or a result with {@link #ABORTED_RETURN_CODE} if the session was aborted or
+         * did not complete within {@code maxWait}
+         */
+        NMASLoginResult awaitResult(final TimeDuration maxWait) {
+            try {
+                return loginTask.get(maxWait.getTotalMilliseconds(), TimeUnit.MILLISECONDS);
+            } catch (CancellationException | TimeoutException e) {
+                abort();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort();
+            } catch (ExecutionException e) {
+                LOGGER.error("error during nmas login sequence " + toDebugString() + ": " + e.getCause().getMessage());
+            }
+            return new NMASLoginResult(ABORTED_RETURN_CODE);
+        }
+
+        boolean isAborted() {
+            return environment.aborted;
+        }
+
+        void abort() {
+            environment.abort();
+            loginTask.cancel(false);
+        }
+
+        void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+
+        String toDebugString() {
+            final TreeMap<String,String> debugInfo = new TreeMap<>();
+            debugInfo.put("id", Integer.toString(sessionID));
+            debugInfo.put("label", debugLabel);
+            debugInfo.put("done", Boolean.toString(loginTask.isDone()));
+            debugInfo.put("aborted", Boolean.toString(isAborted()));
+            debugInfo.put("idleTime", TimeDuration.fromCurrent(lastActivity).asCompactString());
+            return "NMASSession: " + JsonUtil.serialize(debugInfo);
+        }
+    }
+
+    /**
+     * Hands prompts from the NMAS client to the user side of the session and responses back, in the same way as
+     * the NMAS {@code GenLcmUI}, but waiting on conditions that are also signaled when the session is aborted.
+     */
+    private static class SessionEnvironment implements LCMEnvironment {
+        private final Session session;
+        private final Lock lock = new ReentrantLock();
+        private final Condition promptCondition = lock.newCondition();
+        private final Condition responseCondition = lock.newCondition();
+
+        private LCMUserPrompt userPrompt;
+        private boolean promptReady;
+        private LCMUserResponse userResponse;
+        private boolean responseReady;
+        private volatile boolean aborted;
+
+        private SessionEnvironment(final Session session) {
+            this.session = session;
+        }
+
+        public void sendPromptToUser(final LCMUserPrompt lcmUserPrompt) throws LCMUserInterfaceException {
+            if (lcmUserPrompt == null || lcmUserPrompt.getLcmXslDocPath() == null || lcmUserPrompt.getLcmXslDocName() == null) {
+                throw new LCMUserInterfaceException();
+            }
+            lock.lock();
+            try {
+                userPrompt = lcmUserPrompt;
+                responseReady = false;
+                promptReady = true;
+                promptCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            session.touch();
+        }
+
+        public void setUserResponse(final LCMUserResponse lcmUserResponse) {
+            lock.lock();
+            try {
+                userResponse = lcmUserResponse;
+                promptReady = false;
+                responseReady = true;
+                responseCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            session.touch();
+        }
+
+        /**
+         * @return the next prompt, or null if the login has completed or the session was aborted
+         */
+        public LCMUserPrompt getNextUserPrompt() {
+            lock.lock();
+            try {
+                while (!promptReady && !aborted) {
+                    if (!await(promptCondition)) {
+                        return null;
+                    }
+                }
+                return aborted ? null : userPrompt;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return the user's response, or null if the session was aborted
+         */
+        public LCMUserResponse getUserResponse() {
+            lock.lock();
+            try {
+                while (!responseReady && !aborted) {
+                    if (!await(responseCondition)) {
+                        return null;
+                    }
+                }
+                return aborted ? null : userResponse;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void signalNMASLoginComplete(final int retCode) {
+            lock.lock();
+            try {
+                userPrompt = null;
+                responseReady = false;
+                promptReady = true;
+                promptCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void abort() {
+            lock.lock();
+            try {
+                aborted = true;
+                promptCondition.signalAll();
+                responseCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static boolean await(final Condition condition) {
+            try {
+                condition.await();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -25,25 +25,47 @@ package password.pwm.util.queue;
 import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmService;
+import password.pwm.config.Configuration;
 import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.*;
 import password.pwm.health.HealthMessage;
 import password.pwm.health.HealthRecord;
 import password.pwm.util.Helper;
 import password.pwm.util.JsonUtil;
+import password.pwm.util.PwmRandom;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the LocalDB backed outbound message queues.
+ * <p/>
+ * New items are appended to the pending queue and sent by a pool of worker threads.  Before an item is handed to a
+ * worker it is moved from the pending queue to the retry store, and is only removed from the retry store once sent, so
+ * items being sent at shutdown are sent again after the next start.  An item that fails with a
+ * {@link PwmOperationalException} stays in the retry store and is retried after an exponentially increasing,
+ * jittered delay while the items behind it continue to be sent.  Items that fail with a
+ * {@link PwmUnrecoverableException} or exceed the maximum item age while awaiting retry are moved to the dead letter
+ * store, which keeps the most recent failures up to a maximum count.
+ * <p/>
+ * Item ids come from an in-memory counter; a block of ids is reserved in LocalDB at a time so ids are not reused
+ * after a restart.
+ */
 public abstract class AbstractQueueManager implements PwmService {
     protected PwmLogger LOGGER = PwmLogger.forClass(AbstractQueueManager.class);
 
     private static final long QUEUE_POLL_INTERVAL = 30 * 1003;
+    private static final int ITEM_ID_BLOCK_SIZE = 100;
 
     protected PwmApplication pwmApplication;
     protected STATUS status = PwmService.STATUS.NEW;
@@ -52,11 +74,26 @@ public abstract class AbstractQueueManager implements PwmService {
 
     protected Date lastSendTime = new Date();
     private LocalDBStoredQueue sendQueue;
-    protected int itemIDCounter;
+    private LocalDB localDB;
+    private LocalDB.DB retryDB;
+    private LocalDB.DB deadLetterDB;
+    private ExecutorService workerPool;
     protected PwmApplication.AppAttribute itemCountAppAttribute;
     protected String serviceName = AbstractQueueManager.class.getSimpleName();
 
-    protected FailureInfo lastFailure;
+    protected volatile FailureInfo lastFailure;
+
+    private int itemIDCounter;
+    private int itemIDReserved;
+
+    private final PriorityQueue<RetryEntry> retrySchedule = new PriorityQueue<>();
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long pauseUntil;
+    private long nextWakeTime;
+    private long retryMaxWaitMs;
+    private int deadLetterMaxCount;
+    private long maxCloseWaitMs;
 
     static class FailureInfo {
         private Date time = new Date();
@@ -91,9 +128,28 @@ public abstract class AbstractQueueManager implements PwmService {
             return 0;
         }
 
-        return this.sendQueue.size();
+        return this.sendQueue.size() + retryCount();
     }
-    
+
+    public int deadLetterCount() {
+        if (localDB == null || status != STATUS.OPEN) {
+            return 0;
+        }
+
+        try {
+            return localDB.size(deadLetterDB);
+        } catch (LocalDBException e) {
+            LOGGER.error("error reading dead letter count: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private int retryCount() {
+        synchronized (retrySchedule) {
+            return retrySchedule.size() + inFlightCount.get();
+        }
+    }
+
     public Date eldestItem() {
         final String jsonEvent = sendQueue.peekFirst();
         if (jsonEvent != null) {
@@ -116,7 +172,7 @@ public abstract class AbstractQueueManager implements PwmService {
             throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_CLOSING));
         }
 
-        if (sendQueue.size() >= settings.getMaxQueueItemCount()) {
+        if (queueSize() >= settings.getMaxQueueItemCount()) {
             LOGGER.warn("queue full, discarding item send request: " + event.getItem());
             return;
         }
@@ -125,13 +181,15 @@ public abstract class AbstractQueueManager implements PwmService {
         sendQueue.addLast(jsonEvent);
         LOGGER.trace("submitted item to queue: " + queueItemToDebugString(event) + ", queue size: " + sendQueue.size());
 
-        timerThread.schedule(new QueueProcessorTask(), 1);
+        scheduleProcessing(1);
     }
 
     protected static class QueueEvent implements Serializable {
         private String item;
         private Date timestamp;
         private int itemID;
+        private int attempts;
+        private long nextAttemptTime;
 
         protected QueueEvent(
                 final String item,
@@ -155,6 +213,25 @@ public abstract class AbstractQueueManager implements PwmService {
         {
             return itemID;
         }
+
+        public int getAttempts()
+        {
+            return attempts;
+        }
+    }
+
+    private static class RetryEntry implements Comparable<RetryEntry> {
+        private final String key;
+        private final long nextAttemptTime;
+
+        private RetryEntry(final String key, final long nextAttemptTime) {
+            this.key = key;
+            this.nextAttemptTime = nextAttemptTime;
+        }
+
+        public int compareTo(final RetryEntry o) {
+            return nextAttemptTime < o.nextAttemptTime ? -1 : nextAttemptTime > o.nextAttemptTime ? 1 : 0;
+        }
     }
 
     boolean sendIsRetryable(final Exception e) {
@@ -171,6 +248,8 @@ public abstract class AbstractQueueManager implements PwmService {
     public void init(
             final PwmApplication pwmApplication,
             final LocalDB.DB DB,
+            final LocalDB.DB retryDB,
+            final LocalDB.DB deadLetterDB,
             final Settings settings,
             final PwmApplication.AppAttribute itemCountAppAttribute,
             final String serviceName
@@ -194,15 +273,63 @@ public abstract class AbstractQueueManager implements PwmService {
             return;
         }
 
+        open(localDB, DB, retryDB, deadLetterDB, settings, pwmApplication.getConfig(), Helper.makeThreadName(pwmApplication, this.getClass()));
+    }
+
+    void open(
+            final LocalDB localDB,
+            final LocalDB.DB DB,
+            final LocalDB.DB retryDB,
+            final LocalDB.DB deadLetterDB,
+            final Settings settings,
+            final Configuration config,
+            final String threadName
+    )
+            throws LocalDBException
+    {
+        this.localDB = localDB;
+        this.settings = settings;
+        this.retryDB = retryDB;
+        this.deadLetterDB = deadLetterDB;
+        this.retryMaxWaitMs = Math.max(settings.getErrorRetryWaitTime().getTotalMilliseconds(),
+                config.readAppPropertyAsLong(AppProperty.QUEUE_RETRY_MAX_TIMEOUT_MS));
+        this.deadLetterMaxCount = config.readAppPropertyAsInt(AppProperty.QUEUE_DEAD_LETTER_MAX_COUNT);
+        this.maxCloseWaitMs = config.readAppPropertyAsLong(AppProperty.QUEUE_MAX_CLOSE_TIMEOUT_MS);
+
         itemIDCounter = readItemIDCounter();
-        sendQueue = LocalDBStoredQueue.createLocalDBStoredQueue(pwmApplication, localDB, DB);
-        final String threadName = Helper.makeThreadName(pwmApplication, this.getClass()) + " timer thread";
-        timerThread = new Timer(threadName,true);
+        itemIDReserved = itemIDCounter;
+        sendQueue = LocalDBStoredQueue.createLocalDBStoredQueue(localDB, DB, config.isDevDebugMode());
+        loadRetrySchedule();
+        workerPool = Executors.newFixedThreadPool(settings.getWorkerCount(), Helper.makePwmThreadFactory(threadName + " worker-", true));
+        timerThread = new Timer(threadName + " timer thread",true);
         status = PwmService.STATUS.OPEN;
-        LOGGER.debug(settings.getDebugName() + " is now open, " + sendQueue.size() + " items in queue");
+        LOGGER.debug(settings.getDebugName() + " is now open, " + sendQueue.size() + " items in queue, "
+                + retryCount() + " items awaiting retry, " + settings.getWorkerCount() + " workers");
         timerThread.schedule(new QueueProcessorTask(),1,QUEUE_POLL_INTERVAL);
     }
 
+    /**
+     * Items left in the retry store by the previous run, including items that were being sent at shutdown, are
+     * scheduled to be retried.
+     */
+    private void loadRetrySchedule() throws LocalDBException {
+        LocalDB.LocalDBIterator<String> iterator = null;
+        try {
+            iterator = localDB.iterator(retryDB);
+            while (iterator.hasNext()) {
+                final String key = iterator.next();
+                final QueueEvent event = readRetryEvent(key);
+                if (event != null) {
+                    retrySchedule.add(new RetryEntry(key, event.nextAttemptTime));
+                }
+            }
+        } finally {
+            if (iterator != null) {
+                iterator.close();
+            }
+        }
+    }
+
     protected int readItemIDCounter() {
         final String itemCountStr = pwmApplication.readAppAttribute(itemCountAppAttribute);
         if (itemCountStr != null) {
@@ -215,9 +342,9 @@ public abstract class AbstractQueueManager implements PwmService {
         return 0;
     }
 
-    protected void storeItemCounter() {
+    protected void storeItemCounter(final int value) {
         try {
-            pwmApplication.writeAppAttribute(itemCountAppAttribute, String.valueOf(itemIDCounter));
+            pwmApplication.writeAppAttribute(itemCountAppAttribute, String.valueOf(value));
         } catch (Exception e) {
             LOGGER.error("error writing stored item counter app attribute: " + e.getMessage());
         }
@@ -227,21 +354,24 @@ public abstract class AbstractQueueManager implements PwmService {
         itemIDCounter++;
         if (itemIDCounter < 0) {
             itemIDCounter = 0;
+            itemIDReserved = 0;
+        }
+        if (itemIDCounter > itemIDReserved) {
+            itemIDReserved = itemIDCounter + ITEM_ID_BLOCK_SIZE;
+            storeItemCounter(itemIDReserved);
         }
-        storeItemCounter();
         return itemIDCounter;
     }
 
     public synchronized void close() {
         status = PwmService.STATUS.CLOSED;
         final Date startTime = new Date();
-        final int maxCloseWaitMs = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_MAX_CLOSE_TIMEOUT_MS));
 
-        if (sendQueue != null && !sendQueue.isEmpty()) {
+        if (sendQueue != null && (!sendQueue.isEmpty() || inFlightCount.get() > 0)) {
             if (timerThread != null) {
                 timerThread.schedule(new QueueProcessorTask(),1);
-                LOGGER.warn("waiting up to 5 seconds for " + sendQueue.size() + " items in the queue to process");
-                while (!sendQueue.isEmpty() && TimeDuration.fromCurrent(startTime).isShorterThan(maxCloseWaitMs)) {
+                LOGGER.warn("waiting up to " + TimeDuration.asCompactString(maxCloseWaitMs) + " for " + sendQueue.size() + " items in the queue to process");
+                while ((!sendQueue.isEmpty() || inFlightCount.get() > 0) && TimeDuration.fromCurrent(startTime).isShorterThan(maxCloseWaitMs)) {
                     Helper.pause(100);
                 }
             }
@@ -254,6 +384,11 @@ public abstract class AbstractQueueManager implements PwmService {
             timerThread.cancel();
         }
         timerThread = null;
+
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+        workerPool = null;
     }
 
     public List<HealthRecord> healthCheck() {
@@ -265,60 +400,254 @@ public abstract class AbstractQueueManager implements PwmService {
             return Collections.singletonList(HealthRecord.forMessage(HealthMessage.ServiceClosed_AppReadOnly,serviceName));
         }
 
-        if (lastFailure != null) {
-            return this.failureToHealthRecord(lastFailure);
+        final FailureInfo failureInfo = lastFailure;
+        if (failureInfo != null) {
+            return this.failureToHealthRecord(failureInfo);
         }
 
         return Collections.emptyList();
     }
 
-    private void processQueue() {
-        if (lastFailure != null) {
-            final TimeDuration timeSinceFailure = TimeDuration.fromCurrent(lastSendTime);
-            if (timeSinceFailure.isShorterThan(settings.getErrorRetryWaitTime())) {
-                return;
+    private void scheduleProcessing(final long delayMs) {
+        final Timer timer = timerThread;
+        if (timer == null) {
+            return;
+        }
+        if (delayMs > 1) {
+            // only one delayed wake up is kept pending, otherwise every send completion would add another
+            final long wakeTime = System.currentTimeMillis() + delayMs;
+            synchronized (retrySchedule) {
+                if (nextWakeTime > System.currentTimeMillis() && nextWakeTime <= wakeTime) {
+                    return;
+                }
+                nextWakeTime = wakeTime;
             }
         }
+        try {
+            timer.schedule(new QueueProcessorTask(), Math.max(1, delayMs));
+        } catch (IllegalStateException e) {
+            // timer cancelled during close
+        }
+    }
 
+    /**
+     * Hands due retries and then pending items to idle workers.  Only called from the timer thread.
+     */
+    private void processQueue() {
         lastSendTime = new Date();
 
-        boolean sendFailure = false;
-        while (sendQueue.peekFirst() != null && !sendFailure) {
+        while (workerPool != null && inFlightCount.get() < settings.getWorkerCount()) {
+            final QueueEvent retryEvent = takeDueRetry();
+            if (retryEvent != null) {
+                if (TimeDuration.fromCurrent(retryEvent.getTimestamp()).isLongerThan(settings.getMaxQueueItemAge())) {
+                    LOGGER.debug("discarding event due to maximum retry age: " + queueItemToDebugString(retryEvent));
+                    noteDiscardedItem(retryEvent);
+                    moveToDeadLetter(retryKey(retryEvent), retryEvent, new ErrorInformation(PwmError.ERROR_UNKNOWN,
+                            "maximum item age exceeded while awaiting retry"));
+                    inFlightCount.decrementAndGet();
+                } else {
+                    dispatch(retryEvent);
+                }
+                continue;
+            }
+
+            if (System.currentTimeMillis() < pauseUntil) {
+                scheduleProcessing(pauseUntil - System.currentTimeMillis());
+                return;
+            }
+
             final String jsonEvent = sendQueue.peekFirst();
+            if (jsonEvent == null) {
+                return;
+            }
+
+            final QueueEvent event = JsonUtil.deserialize(jsonEvent, QueueEvent.class);
+            if (event == null || event.getTimestamp() == null) {
+                sendQueue.pollFirst();
+            } else if (TimeDuration.fromCurrent(event.getTimestamp()).isLongerThan(settings.getMaxQueueItemAge())) {
+                LOGGER.debug("discarding event due to maximum retry age: " + queueItemToDebugString(event));
+                sendQueue.pollFirst();
+                noteDiscardedItem(event);
+            } else {
+                // move the item to the retry store before removing it from the queue so it survives a restart
+                try {
+                    localDB.put(retryDB, retryKey(event), JsonUtil.serialize(event));
+                } catch (LocalDBException e) {
+                    LOGGER.error("unable to move queued item to retry store, will retry: " + e.getMessage());
+                    scheduleProcessing(settings.getErrorRetryWaitTime().getTotalMilliseconds());
+                    return;
+                }
+                // counted as in flight before leaving the queue so queueSize() and close() never miss it
+                inFlightCount.incrementAndGet();
+                sendQueue.pollFirst();
+                dispatch(event);
+            }
+        }
+    }
+
+    private QueueEvent takeDueRetry() {
+        while (true) {
+            final RetryEntry retryEntry;
+            synchronized (retrySchedule) {
+                final RetryEntry nextEntry = retrySchedule.peek();
+                if (nextEntry == null) {
+                    return null;
+                }
+                final long waitMs = nextEntry.nextAttemptTime - System.currentTimeMillis();
+                if (waitMs > 0) {
+                    scheduleProcessing(waitMs);
+                    return null;
+                }
+                retryEntry = retrySchedule.poll();
+                inFlightCount.incrementAndGet();
+            }
+            final QueueEvent event = readRetryEvent(retryEntry.key);
+            if (event != null) {
+                // remains counted as in flight, the caller dispatches or discards it
+                return event;
+            }
+            inFlightCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Hands an item to a worker.  The caller has already counted the item in {@code inFlightCount}.
+     */
+    private void dispatch(final QueueEvent event) {
+        LOGGER.trace("preparing to send item in queue: " + queueItemToDebugString(event) + ", attempt " + (event.getAttempts() + 1)
+                + ", queue size: " + sendQueue.size());
+        try {
+            workerPool.execute(new SendTask(event));
+        } catch (RuntimeException e) {
+            // worker pool shut down during close, item remains in retry store
+            inFlightCount.decrementAndGet();
+        }
+    }
+
+    private void sendEvent(final QueueEvent event) {
+        final String key = retryKey(event);
+        try {
+            sendItem(event.getItem());
+            removeRetryEvent(key);
+            consecutiveFailures.set(0);
+            pauseUntil = 0;
+            lastFailure = null;
+            LOGGER.trace("queued item processed and removed from queue: " + queueItemToDebugString(event) + ", queue size: " + queueSize());
+        } catch (PwmOperationalException e) {
+            lastFailure = new FailureInfo(e.getErrorInformation(),event);
+            event.attempts++;
+            if (TimeDuration.fromCurrent(event.getTimestamp()).isLongerThan(settings.getMaxQueueItemAge())) {
+                LOGGER.debug("discarding event due to maximum retry age: " + queueItemToDebugString(event));
+                noteDiscardedItem(event);
+                moveToDeadLetter(key, event, e.getErrorInformation());
+                return;
+            }
+
+            final long retryDelay = retryDelay(event.getAttempts());
+            event.nextAttemptTime = System.currentTimeMillis() + retryDelay;
+            try {
+                localDB.put(retryDB, key, JsonUtil.serialize(event));
+            } catch (LocalDBException e2) {
+                LOGGER.error("unable to update retry store: " + e2.getMessage());
+            }
+            synchronized (retrySchedule) {
+                retrySchedule.add(new RetryEntry(key, event.nextAttemptTime));
+            }
+
+            // when every worker is failing, the destination is likely down, so hold new items for a while
+            if (consecutiveFailures.incrementAndGet() >= settings.getWorkerCount()) {
+                pauseUntil = System.currentTimeMillis() + settings.getErrorRetryWaitTime().getTotalMilliseconds();
+            }
+            LOGGER.debug("queued item was not successfully processed, will retry in " + TimeDuration.asCompactString(retryDelay)
+                    + ": " + queueItemToDebugString(event) + ", queue size: " + queueSize());
+        } catch (PwmUnrecoverableException e) {
+            LOGGER.error("queued item permanently failed, moving to dead letter store: " + queueItemToDebugString(event)
+                    + ", error: " + e.getErrorInformation().toDebugStr());
+            moveToDeadLetter(key, event, e.getErrorInformation());
+        }
+    }
+
+    /**
+     * Exponential backoff from the error retry wait time up to the maximum retry wait, with the actual delay chosen
+     * randomly from the upper half of the range so items failing together do not retry together.
+     */
+    private long retryDelay(final int attempts) {
+        final long baseDelay = settings.getErrorRetryWaitTime().getTotalMilliseconds();
+        final long delay = Math.min(retryMaxWaitMs, baseDelay << Math.min(Math.max(attempts - 1, 0), 20));
+        final long halfDelay = delay / 2;
+        return halfDelay + (halfDelay > 0 ? PwmRandom.getInstance().nextInt((int) Math.min(Integer.MAX_VALUE, halfDelay + 1)) : 0);
+    }
+
+    private void moveToDeadLetter(final String key, final QueueEvent event, final ErrorInformation errorInformation) {
+        try {
+            final Map<String,String> deadLetter = new LinkedHashMap<>();
+            deadLetter.put("event", JsonUtil.serialize(event));
+            deadLetter.put("error", errorInformation == null ? null : errorInformation.toDebugStr());
+            localDB.put(deadLetterDB, deadLetterKey(event), JsonUtil.serializeMap(deadLetter));
+            trimDeadLetters();
+        } catch (LocalDBException e) {
+            LOGGER.error("unable to write dead letter item: " + e.getMessage());
+        }
+        removeRetryEvent(key);
+    }
+
+    private void trimDeadLetters() throws LocalDBException {
+        final int excess = localDB.size(deadLetterDB) - deadLetterMaxCount;
+        if (excess <= 0) {
+            return;
+        }
+
+        // keys start with the failure time, but not every LocalDB iterates in key order, so the keys are sorted
+        final List<String> keys = new ArrayList<>();
+        LocalDB.LocalDBIterator<String> iterator = null;
+        try {
+            iterator = localDB.iterator(deadLetterDB);
+            while (iterator.hasNext()) {
+                keys.add(iterator.next());
+            }
+        } finally {
+            if (iterator != null) {
+                iterator.close();
+            }
+        }
+        Collections.sort(keys);
+        localDB.removeAll(deadLetterDB, keys.subList(0, Math.min(excess, keys.size())));
+    }
+
+    private QueueEvent readRetryEvent(final String key) {
+        try {
+            final String jsonEvent = localDB.get(retryDB, key);
             if (jsonEvent != null) {
                 final QueueEvent event = JsonUtil.deserialize(jsonEvent, QueueEvent.class);
-
-                if (event == null || event.getTimestamp() == null) {
-                    sendQueue.pollFirst();
-                } else if (TimeDuration.fromCurrent(event.getTimestamp()).isLongerThan(
-                        settings.getMaxQueueItemAge())) {
-                    LOGGER.debug("discarding event due to maximum retry age: " + queueItemToDebugString(event));
-                    sendQueue.pollFirst();
-                    noteDiscardedItem(event);
-                } else {
-                    final String item = event.getItem();
-
-                    LOGGER.trace("preparing to send item in queue: " + queueItemToDebugString(
-                            event) + ", queue size: " + sendQueue.size());
-
-                    // execute operation
-                    try {
-                        sendItem(item);
-                        sendQueue.pollFirst();
-                        LOGGER.trace("queued item processed and removed from queue: " + queueItemToDebugString(event) + ", queue size: " + sendQueue.size());
-                        lastFailure = null;
-                    } catch (PwmOperationalException e) {
-                        sendFailure = true;
-                        lastFailure = new FailureInfo(e.getErrorInformation(),event);
-                        LOGGER.debug("queued item was not successfully processed, will retry: " + queueItemToDebugString(event) + ", queue size: " + sendQueue.size());
-                    }
+                if (event != null && event.getTimestamp() != null) {
+                    return event;
                 }
+                localDB.remove(retryDB, key);
             }
+        } catch (Exception e) {
+            LOGGER.error("unable to read item from retry store: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void removeRetryEvent(final String key) {
+        try {
+            localDB.remove(retryDB, key);
+        } catch (LocalDBException e) {
+            LOGGER.error("unable to remove item from retry store: " + e.getMessage());
         }
     }
 
+    private static String retryKey(final QueueEvent event) {
+        return String.format("%010d", event.getItemID());
+    }
+
+    private static String deadLetterKey(final QueueEvent event) {
+        return String.format("%015d-%010d", System.currentTimeMillis(), event.getItemID());
+    }
+
 
-    abstract void sendItem(String item) throws PwmOperationalException;
+    abstract void sendItem(String item) throws PwmOperationalException, PwmUnrecoverableException;
 
     abstract List<HealthRecord> failureToHealthRecord(FailureInfo failureInfo);
 
@@ -335,16 +664,37 @@ public abstract class AbstractQueueManager implements PwmService {
         }
     }
 
+    private class SendTask implements Runnable {
+        private final QueueEvent event;
+
+        private SendTask(final QueueEvent event) {
+            this.event = event;
+        }
+
+        public void run() {
+            try {
+                sendEvent(event);
+            } catch (Exception e) {
+                LOGGER.error("unexpected exception while sending " + settings.getDebugName() + " item: " + e.getMessage(), e);
+            } finally {
+                inFlightCount.decrementAndGet();
+                scheduleProcessing(1);
+            }
+        }
+    }
+
     protected static class Settings {
         private TimeDuration maxQueueItemAge;
         private TimeDuration errorRetryWaitTime;
         private int maxQueueItemCount;
+        private int workerCount;
         private String debugName;
 
-        public Settings(TimeDuration maxQueueItemAge, TimeDuration errorRetryWaitTime, int maxQueueItemCount, String debugName) {
+        public Settings(TimeDuration maxQueueItemAge, TimeDuration errorRetryWaitTime, int maxQueueItemCount, int workerCount, String debugName) {
             this.maxQueueItemAge = maxQueueItemAge;
             this.errorRetryWaitTime = errorRetryWaitTime;
             this.maxQueueItemCount = maxQueueItemCount;
+            this.workerCount = Math.max(1, workerCount);
             this.debugName = debugName;
         }
 
@@ -360,6 +710,10 @@ public abstract class AbstractQueueManager implements PwmService {
             return maxQueueItemCount;
         }
 
+        public int getWorkerCount() {
+            return workerCount;
+        }
+
         public String getDebugName() {
             return debugName;
         }
@@ -29,6 +29,7 @@ import password.pwm.bean.EmailItemBean;
 import password.pwm.bean.UserInfoBean;
 import password.pwm.config.Configuration;
 import password.pwm.config.PwmSetting;
+import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmOperationalException;
@@ -47,7 +48,6 @@ import password.pwm.util.stats.StatisticsManager;
 
 import javax.mail.Message;
 import javax.mail.MessagingException;
-import javax.mail.Transport;
 import javax.mail.internet.*;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
@@ -60,6 +60,7 @@ public class
 // ------------------------------ FIELDS ------------------------------
 
     private Properties javaMailProps = new Properties();
+    private SmtpTransportPool transportPool;
 
 // --------------------------- CONSTRUCTORS ---------------------------
 
@@ -76,19 +77,70 @@ public class
     {
         LOGGER = PwmLogger.forClass(EmailQueueManager.class);
         javaMailProps = makeJavaMailProps(pwmApplication.getConfig());
+        transportPool = makeTransportPool(pwmApplication.getConfig(), javaMailProps);
         final Settings settings = new Settings(
-                new TimeDuration(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_MAX_AGE_MS))),
-                new TimeDuration(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_RETRY_TIMEOUT_MS))),
-                Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_MAX_COUNT)),
+                new TimeDuration(pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_EMAIL_MAX_AGE_MS)),
+                new TimeDuration(pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_EMAIL_RETRY_TIMEOUT_MS)),
+                pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.QUEUE_EMAIL_MAX_COUNT),
+                pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.QUEUE_EMAIL_WORKERS),
                 EmailQueueManager.class.getSimpleName()
         );
         super.init(
                 pwmApplication,
                 LocalDB.DB.EMAIL_QUEUE,
+                LocalDB.DB.EMAIL_QUEUE_RETRY,
+                LocalDB.DB.EMAIL_QUEUE_DEAD_LETTER,
                 settings,
                 PwmApplication.AppAttribute.EMAIL_ITEM_COUNTER,
                 EmailQueueManager.class.getSimpleName()
         );
+
+        if (timerThread != null) {
+            final long idleTimeoutMs = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_EMAIL_CONNECTION_IDLE_TIMEOUT_MS);
+            if (idleTimeoutMs > 0) {
+                timerThread.schedule(new TimerTask() {
+                    public void run() {
+                        transportPool.closeIdleTransports();
+                    }
+                }, idleTimeoutMs, idleTimeoutMs);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        if (transportPool != null) {
+            transportPool.close();
+        }
+    }
+
+    private SmtpTransportPool makeTransportPool(final Configuration config, final Properties javaMailProps)
+            throws PwmUnrecoverableException
+    {
+        final String mailuser = config.readSettingAsString(PwmSetting.EMAIL_USERNAME);
+        final PasswordData mailpassword = config.readSettingAsPassword(PwmSetting.EMAIL_PASSWORD);
+        final boolean authenticated = mailuser != null && mailuser.length() > 0 && mailpassword != null;
+        String passwordValue = null;
+        if (authenticated) {
+            try {
+                passwordValue = mailpassword.getStringValue();
+            } catch (PwmUnrecoverableException e) {
+                final String errorMsg = "unable to read smtp password: " + e.getMessage();
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_INVALID_CONFIG, errorMsg));
+            }
+        }
+
+        return new SmtpTransportPool(
+                javaMailProps,
+                config.readSettingAsString(PwmSetting.EMAIL_SERVER_ADDRESS),
+                (int)config.readSettingAsLong(PwmSetting.EMAIL_SERVER_PORT),
+                passwordValue == null ? null : mailuser,
+                passwordValue,
+                config.readAppPropertyAsInt(AppProperty.QUEUE_EMAIL_MAX_CONNECTIONS),
+                config.readAppPropertyAsInt(AppProperty.QUEUE_EMAIL_MAX_MESSAGES_PER_CONNECTION),
+                config.readAppPropertyAsLong(AppProperty.QUEUE_EMAIL_CONNECTION_IDLE_TIMEOUT_MS)
+        );
     }
 
 // -------------------------- OTHER METHODS --------------------------
@@ -160,35 +212,14 @@ public class
         }
     }
 
-    void sendItem(final String item) throws PwmOperationalException {
+    void sendItem(final String item) throws PwmOperationalException, PwmUnrecoverableException {
         final EmailItemBean emailItemBean = JsonUtil.deserialize(item, EmailItemBean.class);
 
-        // create a new MimeMessage object (using the Session created above)
+        // create a new MimeMessage object (using the pooled session)
         try {
             final Message message = convertEmailItemToMessage(emailItemBean, this.pwmApplication.getConfig());
-            final String mailuser = this.pwmApplication.getConfig().readSettingAsString(PwmSetting.EMAIL_USERNAME);
-            final PasswordData mailpassword = this.pwmApplication.getConfig().readSettingAsPassword(PwmSetting.EMAIL_PASSWORD);
-
-            // Login to SMTP server first if both username and password is given
-            final String logText;
-            if (mailuser == null || mailuser.length() < 1 || mailpassword == null) {
-
-                logText = "plaintext";
-                Transport.send(message);
-            } else {
-                // create a new Session object for the message
-                final javax.mail.Session session = javax.mail.Session.getInstance(javaMailProps, null);
-
-                final String mailhost = this.pwmApplication.getConfig().readSettingAsString(PwmSetting.EMAIL_SERVER_ADDRESS);
-                final int mailport = (int)this.pwmApplication.getConfig().readSettingAsLong(PwmSetting.EMAIL_SERVER_PORT);
-
-                final Transport tr = session.getTransport("smtp");
-                tr.connect(mailhost, mailport, mailuser, mailpassword.getStringValue());
-                message.saveChanges();
-                tr.sendMessage(message, message.getAllRecipients());
-                tr.close();
-                logText = "authenticated ";
-            }
+            transportPool.send(message);
+            final String logText = transportPool.isAuthenticated() ? "authenticated " : "";
 
             LOGGER.debug("successfully sent " + logText + "email: " + emailItemBean.toString());
             StatisticsManager.incrementStat(pwmApplication, Statistic.EMAIL_SEND_SUCCESSES);
@@ -204,6 +235,7 @@ public class
                 LOGGER.error(
                         "error sending email (" + e.getMessage() + ") " + emailItemBean.toString() + ", permanent failure, discarding message");
                 StatisticsManager.incrementStat(pwmApplication, Statistic.EMAIL_SEND_DISCARDS);
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN,e.getMessage()));
             }
         }
     }
@@ -219,10 +251,7 @@ public class
         final boolean hasHtml = emailItemBean.getBodyHtml() != null && emailItemBean.getBodyHtml().length() > 0;
 
 
-        // create a new Session object for the message
-        final javax.mail.Session session = javax.mail.Session.getInstance(javaMailProps, null);
-
-        final Message message = new MimeMessage(session);
+        final Message message = new MimeMessage(transportPool.getSession());
         message.setFrom();
         message.setFrom(makeInternetAddress(emailItemBean.getFrom()));
         message.setRecipients(Message.RecipientType.TO, new InternetAddress[]{makeInternetAddress(emailItemBean.getTo())});
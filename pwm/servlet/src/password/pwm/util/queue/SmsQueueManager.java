@@ -75,7 +75,6 @@ public class SmsQueueManager extends AbstractQueueManager {
         SQL
     }
 
-    private SmsSendEngine smsSendEngine;
 // --------------------------- CONSTRUCTORS ---------------------------
 
     public SmsQueueManager() {
@@ -91,19 +90,21 @@ public class SmsQueueManager extends AbstractQueueManager {
     {
         super.LOGGER = PwmLogger.forClass(SmsQueueManager.class);
         final Settings settings = new Settings(
-                new TimeDuration(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_SMS_MAX_AGE_MS))),
-                new TimeDuration(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_SMS_RETRY_TIMEOUT_MS))),
-                Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_SMS_MAX_COUNT)),
-                EmailQueueManager.class.getSimpleName()
+                new TimeDuration(pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_SMS_MAX_AGE_MS)),
+                new TimeDuration(pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.QUEUE_SMS_RETRY_TIMEOUT_MS)),
+                pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.QUEUE_SMS_MAX_COUNT),
+                pwmApplication.getConfig().readAppPropertyAsInt(AppProperty.QUEUE_SMS_WORKERS),
+                SmsQueueManager.class.getSimpleName()
         );
         super.init(
                 pwmApplication,
                 LocalDB.DB.SMS_QUEUE,
+                LocalDB.DB.SMS_QUEUE_RETRY,
+                LocalDB.DB.SMS_QUEUE_DEAD_LETTER,
                 settings,
                 PwmApplication.AppAttribute.SMS_ITEM_COUNTER,
                 SmsQueueManager.class.getSimpleName()
         );
-        smsSendEngine = new SmsSendEngine(pwmApplication.getConfig());
     }
 
 
@@ -168,8 +169,15 @@ public class SmsQueueManager extends AbstractQueueManager {
         return true;
     }
 
-    void sendItem(final String item) throws PwmOperationalException {
+    void sendItem(final String item) throws PwmOperationalException, PwmUnrecoverableException {
         final SmsItemBean smsItemBean = JsonUtil.deserialize(item, SmsItemBean.class);
+        // send engines hold per-request state, so each worker uses its own
+        final SmsSendEngine smsSendEngine;
+        try {
+            smsSendEngine = new SmsSendEngine(pwmApplication.getConfig(), PwmHttpClient.getHttpClient(pwmApplication));
+        } catch (IOException e) {
+            throw new PwmOperationalException(new ErrorInformation(PwmError.ERROR_SERVICE_NOT_AVAILABLE, e.getMessage()));
+        }
         try {
             for (final String msgPart : splitMessage(smsItemBean.getMessage())) {
                 smsSendEngine.sendSms(smsItemBean.getTo(), msgPart);
@@ -178,6 +186,7 @@ public class SmsQueueManager extends AbstractQueueManager {
         } catch (PwmUnrecoverableException e) {
             StatisticsManager.incrementStat(pwmApplication, Statistic.SMS_SEND_FAILURES);
             LOGGER.error("discarding sms message due to permanent failure: " + e.getErrorInformation().toDebugStr());
+            throw e;
         }
     }
 
@@ -354,11 +363,13 @@ public class SmsQueueManager extends AbstractQueueManager {
     private static class SmsSendEngine {
         private static final PwmLogger LOGGER = PwmLogger.forClass(SmsSendEngine.class);
         private final Configuration config;
+        private final HttpClient httpClient;
         private String lastResponseBody;
 
-        private SmsSendEngine(Configuration configuration)
+        private SmsSendEngine(Configuration configuration, HttpClient httpClient)
         {
             this.config = configuration;
+            this.httpClient = httpClient;
         }
 
 
@@ -449,7 +460,6 @@ public class SmsQueueManager extends AbstractQueueManager {
                     httpRequest.addHeader(PwmConstants.HttpHeader.Authorization.getHttpName(), ba.toAuthHeader());
                 }
 
-                final HttpClient httpClient = PwmHttpClient.getHttpClient(config);
                 final HttpResponse httpResponse = httpClient.execute(httpRequest);
                 final String responseBody = EntityUtils.toString(httpResponse.getEntity());
                 final int resultCode = httpResponse.getStatusLine().getStatusCode();
@@ -486,8 +496,13 @@ public class SmsQueueManager extends AbstractQueueManager {
     )
             throws PwmUnrecoverableException, PwmOperationalException
     {
-        final SmsSendEngine smsSendEngine = new SmsSendEngine(configuration);
-        smsSendEngine.sendSms(smsItemBean.getTo(), smsItemBean.getMessage());
-        return smsSendEngine.getLastResponseBody();
+        final HttpClient httpClient = PwmHttpClient.getHttpClient(configuration);
+        try {
+            final SmsSendEngine smsSendEngine = new SmsSendEngine(configuration, httpClient);
+            smsSendEngine.sendSms(smsItemBean.getTo(), smsItemBean.getMessage());
+            return smsSendEngine.getLastResponseBody();
+        } finally {
+            httpClient.getConnectionManager().shutdown();
+        }
     }
 }
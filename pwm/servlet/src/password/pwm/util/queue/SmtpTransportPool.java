@@ -0,0 +1,252 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.queue;
+
+import password.pwm.util.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of connected SMTP {@link Transport}s shared by the senders of the {@link EmailQueueManager}.
+ * <p/>
+ * Connections are kept open between messages, so consecutive messages only pay for the connect, TLS and
+ * authentication handshake once per connection.  A connection is closed after sending the maximum number of messages
+ * or after being idle for longer than the idle timeout, so connections are not held past the server's own timeouts.
+ * A reused connection that fails while sending is discarded and the message is retried once on a new connection.  At
+ * most the maximum number of connections are open at once; additional senders wait for a connection to be returned.
+ */
+class SmtpTransportPool {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(SmtpTransportPool.class);
+
+    private static final long BORROW_TIMEOUT_MS = 60 * 1000;
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutMs;
+
+    private final Semaphore permits;
+    private final Deque<PooledTransport> idleTransports = new ArrayDeque<>();
+    private final AtomicLong connectCount = new AtomicLong();
+    private final AtomicLong sendCount = new AtomicLong();
+    private volatile boolean closed;
+
+    SmtpTransportPool(
+            final Properties javaMailProps,
+            final String host,
+            final int port,
+            final String username,
+            final String password,
+            final int maxConnections,
+            final int maxMessagesPerConnection,
+            final long idleTimeoutMs
+    ) {
+        this.session = Session.getInstance(javaMailProps, null);
+        this.host = host;
+        this.port = port;
+        this.username = username == null || username.length() < 1 ? null : username;
+        this.password = this.username == null ? null : password;
+        this.permits = new Semaphore(Math.max(1, maxConnections), true);
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * @return the mail session used by the pooled connections, for building messages
+     */
+    Session getSession() {
+        return session;
+    }
+
+    boolean isAuthenticated() {
+        return username != null;
+    }
+
+    void send(final Message message) throws MessagingException {
+        if (closed) {
+            throw new MessagingException("smtp connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("timeout waiting for available smtp connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("interrupted waiting for available smtp connection");
+        }
+
+        try {
+            message.saveChanges();
+            final PooledTransport idleTransport = takeIdleTransport();
+            if (idleTransport == null) {
+                send(connect(), message);
+                return;
+            }
+
+            try {
+                send(idleTransport, message);
+            } catch (MessagingException | IllegalStateException e) {
+                if (!idleTransport.failed) {
+                    throw e;
+                }
+                LOGGER.debug("pooled smtp connection failed (" + e.getMessage() + "), retrying on new connection");
+                send(connect(), message);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void send(final PooledTransport pooledTransport, final Message message) throws MessagingException {
+        try {
+            pooledTransport.transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException | IllegalStateException e) {
+            if (e instanceof SendFailedException && pooledTransport.transport.isConnected()) {
+                // rejected recipients leave the connection usable
+                returnTransport(pooledTransport);
+            } else {
+                pooledTransport.failed = true;
+                pooledTransport.close();
+            }
+            throw e;
+        }
+        pooledTransport.messageCount++;
+        sendCount.incrementAndGet();
+        returnTransport(pooledTransport);
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        final Transport transport = session.getTransport("smtp");
+        transport.connect(host, port, username, password);
+        connectCount.incrementAndGet();
+        LOGGER.trace("opened smtp connection to " + host + ":" + port);
+        return new PooledTransport(transport);
+    }
+
+    private PooledTransport takeIdleTransport() {
+        final List<PooledTransport> expiredTransports = new ArrayList<>();
+        PooledTransport pooledTransport = null;
+        synchronized (idleTransports) {
+            while (pooledTransport == null && !idleTransports.isEmpty()) {
+                final PooledTransport candidate = idleTransports.pollFirst();
+                if (candidate.isExpired()) {
+                    expiredTransports.add(candidate);
+                } else {
+                    pooledTransport = candidate;
+                }
+            }
+        }
+        for (final PooledTransport expiredTransport : expiredTransports) {
+            expiredTransport.close();
+        }
+        return pooledTransport;
+    }
+
+    private void returnTransport(final PooledTransport pooledTransport) {
+        if (closed || pooledTransport.messageCount >= maxMessagesPerConnection) {
+            pooledTransport.close();
+            return;
+        }
+        pooledTransport.lastUsed = System.currentTimeMillis();
+        synchronized (idleTransports) {
+            idleTransports.addFirst(pooledTransport);
+        }
+    }
+
+    /**
+     * Closes connections that have been idle for longer than the idle timeout.
+     */
+    void closeIdleTransports() {
+        final List<PooledTransport> expiredTransports = new ArrayList<>();
+        synchronized (idleTransports) {
+            for (final Iterator<PooledTransport> iterator = idleTransports.iterator(); iterator.hasNext(); ) {
+                final PooledTransport pooledTransport = iterator.next();
+                if (closed || pooledTransport.isExpired()) {
+                    iterator.remove();
+                    expiredTransports.add(pooledTransport);
+                }
+            }
+        }
+        for (final PooledTransport expiredTransport : expiredTransports) {
+            expiredTransport.close();
+        }
+    }
+
+    void close() {
+        closed = true;
+        closeIdleTransports();
+        LOGGER.trace("closed smtp connection pool, " + sendCount.get() + " messages sent using " + connectCount.get() + " connections");
+    }
+
+    long getConnectCount() {
+        return connectCount.get();
+    }
+
+    long getSendCount() {
+        return sendCount.get();
+    }
+
+    int idleCount() {
+        synchronized (idleTransports) {
+            return idleTransports.size();
+        }
+    }
+
+    private class PooledTransport {
+        private final Transport transport;
+        private long lastUsed = System.currentTimeMillis();
+        private int messageCount;
+        private boolean failed;
+
+        private PooledTransport(final Transport transport) {
+            this.transport = transport;
+        }
+
+        private boolean isExpired() {
+            return idleTimeoutMs > 0 && System.currentTimeMillis() - lastUsed > idleTimeoutMs;
+        }
+
+        private void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                LOGGER.trace("error closing smtp connection: " + e.getMessage());
+            }
+            LOGGER.trace("closed smtp connection after " + messageCount + " messages, idle " + TimeDuration.asCompactString(System.currentTimeMillis() - lastUsed));
+        }
+    }
+}
@@ -24,6 +24,7 @@ package password.pwm.util.report;
 
 import com.novell.ldapchai.exception.ChaiOperationException;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
+import com.novell.ldapchai.impl.edir.entry.EdirEntries;
 import com.novell.ldapchai.provider.ChaiProvider;
 import org.apache.commons.csv.CSVPrinter;
 import password.pwm.AppProperty;
@@ -34,6 +35,7 @@ import password.pwm.bean.UserIdentity;
 import password.pwm.bean.UserInfoBean;
 import password.pwm.config.Configuration;
 import password.pwm.config.PwmSetting;
+import password.pwm.config.profile.LdapProfile;
 import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.*;
 import password.pwm.health.HealthRecord;
@@ -44,6 +46,7 @@ import password.pwm.ldap.UserStatusReader;
 import password.pwm.util.ClosableIterator;
 import password.pwm.util.Helper;
 import password.pwm.util.JsonUtil;
+import password.pwm.util.RateLimiter;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
@@ -51,25 +54,25 @@ import password.pwm.util.logging.PwmLogger;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.MathContext;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class ReportService implements PwmService {
     private static final PwmLogger LOGGER = PwmLogger.forClass(ReportService.class);
 
-    private final AvgTracker avgTracker = new AvgTracker(100);
-
     private PwmApplication pwmApplication;
-    private STATUS status = STATUS.NEW;
-    private boolean cancelFlag = false;
-    private ReportStatusInfo reportStatus = new ReportStatusInfo("");
-    private ReportSummaryData summaryData = ReportSummaryData.newSummaryData(null);
+    private volatile STATUS status = STATUS.NEW;
+    private volatile boolean cancelFlag = false;
+    private volatile ReportStatusInfo reportStatus = new ReportStatusInfo("");
+    private volatile ReportSummaryData summaryData = ReportSummaryData.newSummaryData(null);
     private Timer timer;
 
     private UserCacheService userCacheService;
     private ReportSettings settings = new ReportSettings();
+    private UserReader userReader;
 
     public ReportService() {
     }
@@ -150,6 +153,14 @@ public class ReportService implements PwmService {
         timer.schedule(new RolloverTask(), 1);
         timer.scheduleAtFixedRate(new RolloverTask(),new Date(nextZuluZeroTime), TimeDuration.DAY.getTotalMilliseconds());
 
+        userReader = new LdapUserReader();
+        status = STATUS.OPEN;
+    }
+
+    void open(final ReportSettings settings, final UserReader userReader, final ReportStatusInfo reportStatus) {
+        this.settings = settings;
+        this.userReader = userReader;
+        this.reportStatus = reportStatus;
         status = STATUS.OPEN;
     }
 
@@ -224,7 +235,7 @@ public class ReportService implements PwmService {
         cancelFlag = true;
     }
 
-    private void updateCacheFromLdap()
+    void updateCacheFromLdap()
             throws ChaiUnavailableException, ChaiOperationException, PwmOperationalException, PwmUnrecoverableException
     {
         LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning process to updating user cache records from ldap");
@@ -232,40 +243,68 @@ public class ReportService implements PwmService {
             return;
         }
         cancelFlag = false;
+        final ReportStatusInfo previousStatus = reportStatus;
+        final boolean incremental = isIncrementalPassAllowed(previousStatus);
+        final Date passStartDate = new Date();
         reportStatus = new ReportStatusInfo(settings.getSettingsHash());
+        if (previousStatus != null) {
+            reportStatus.setLastCompletedPassDate(previousStatus.getLastCompletedPassDate());
+            reportStatus.setLastFullPassDate(previousStatus.getLastFullPassDate());
+        }
+        reportStatus.setIncremental(incremental);
         reportStatus.setInProgress(true);
-        reportStatus.setStartDate(new Date());
+        reportStatus.setStartDate(passStartDate);
         try {
-            final Queue<UserIdentity> allUsers = new LinkedList<>(generateListOfUsers());
+            final List<UserIdentity> userList;
+            if (incremental) {
+                final Date changedSince = new Date(previousStatus.getLastCompletedPassDate().getTime() - settings.getChangeTrackingOverlap().getTotalMilliseconds());
+                userList = userReader.searchUsers(changedSince, settings.getMaxSearchSize());
+            } else {
+                userList = userReader.searchUsers(null, settings.getMaxSearchSize());
+            }
+            final boolean searchTruncated = userList.size() >= settings.getMaxSearchSize();
+            final Queue<UserIdentity> allUsers = new ConcurrentLinkedQueue<>(userList);
             reportStatus.setTotal(allUsers.size());
-            while (status == STATUS.OPEN && !allUsers.isEmpty() && !cancelFlag) {
-                final long startUpdateTime = System.currentTimeMillis();
-                final UserIdentity userIdentity = allUsers.poll();
-                try {
-                    if (updateCache(userIdentity)) {
-                        reportStatus.setUpdated(reportStatus.getUpdated() + 1);
+
+            final int workerThreads = Math.min(settings.getWorkerThreads(), Math.max(1, allUsers.size()));
+            final RateLimiter rateLimiter = new RateLimiter(settings.getMaxOperationsPerSecond());
+            LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"starting " + workerThreads + " report worker threads, maximum ldap rate is "
+                    + (settings.getMaxOperationsPerSecond() > 0 ? settings.getMaxOperationsPerSecond() + " users/second" : "unlimited"));
+
+            final String threadNamePrefix = Helper.makeThreadName(pwmApplication, this.getClass()) + " worker-";
+            final ExecutorService executorService = Executors.newFixedThreadPool(workerThreads,
+                    Helper.makePwmThreadFactory(threadNamePrefix, true));
+            for (int i = 0; i < workerThreads; i++) {
+                executorService.submit(new UpdateWorker(allUsers, rateLimiter, incremental));
+            }
+            executorService.shutdown();
+
+            try {
+                while (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+                    if (status != STATUS.OPEN || cancelFlag) {
+                        executorService.shutdownNow();
                     }
-                } catch (Exception e) {
-                    String errorMsg = "error while updating report cache for " + userIdentity.toString() + ", cause: ";
-                    errorMsg += e instanceof PwmException ? ((PwmException) e).getErrorInformation().toDebugStr() : e.getMessage();
-                    final ErrorInformation errorInformation;
-                    errorInformation = new ErrorInformation(PwmError.ERROR_REPORTING_ERROR,errorMsg);
-                    LOGGER.error(PwmConstants.REPORTING_SESSION_LABEL,errorInformation.toDebugStr());
-                    reportStatus.setLastError(errorInformation);
-                    reportStatus.setErrors(reportStatus.getErrors() + 1);
-                }
-                reportStatus.setCount(reportStatus.getCount() + 1);
-                reportStatus.getEventRateMeter().markEvents(1);
-                final long totalUpdateTime = System.currentTimeMillis() - startUpdateTime;
-                if (settings.isAutoCalcRest()) {
-                    avgTracker.addSample(totalUpdateTime);
-                    Helper.pause(avgTracker.avgAsLong());
-                } else {
-                    Helper.pause(settings.getRestTime().getTotalMilliseconds());
                 }
+            } catch (InterruptedException e) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
             }
+
             if (cancelFlag) {
                 reportStatus.setLastError(new ErrorInformation(PwmError.ERROR_SERVICE_NOT_AVAILABLE,"report cancelled by operator"));
+            } else if (status == STATUS.OPEN && allUsers.isEmpty()) {
+                if (reportStatus.getErrors() > 0) {
+                    LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"report pass had " + reportStatus.getErrors()
+                            + " user errors, last completed pass date will not be advanced");
+                } else if (searchTruncated) {
+                    LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"user search reached maximum size of " + settings.getMaxSearchSize()
+                            + ", last completed pass date will not be advanced");
+                } else {
+                    reportStatus.setLastCompletedPassDate(passStartDate);
+                    if (!incremental) {
+                        reportStatus.setLastFullPassDate(passStartDate);
+                    }
+                }
             }
         } finally {
             reportStatus.setFinishDate(new Date());
@@ -274,6 +313,46 @@ public class ReportService implements PwmService {
         LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"update user cache process completed: " + JsonUtil.serialize(reportStatus));
     }
 
+    private class UpdateWorker implements Runnable {
+        private final Queue<UserIdentity> workQueue;
+        private final RateLimiter rateLimiter;
+        private final boolean forceUpdate;
+
+        private UpdateWorker(final Queue<UserIdentity> workQueue, final RateLimiter rateLimiter, final boolean forceUpdate) {
+            this.workQueue = workQueue;
+            this.rateLimiter = rateLimiter;
+            this.forceUpdate = forceUpdate;
+        }
+
+        @Override
+        public void run() {
+            while (status == STATUS.OPEN && !cancelFlag) {
+                final UserIdentity userIdentity = workQueue.poll();
+                if (userIdentity == null) {
+                    return;
+                }
+
+                try {
+                    rateLimiter.acquire();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                boolean updated = false;
+                ErrorInformation errorInformation = null;
+                try {
+                    updated = userReader.updateUser(userIdentity, forceUpdate);
+                } catch (Exception e) {
+                    String errorMsg = "error while updating report cache for " + userIdentity.toString() + ", cause: ";
+                    errorMsg += e instanceof PwmException ? ((PwmException) e).getErrorInformation().toDebugStr() : e.getMessage();
+                    errorInformation = new ErrorInformation(PwmError.ERROR_REPORTING_ERROR,errorMsg);
+                    LOGGER.error(PwmConstants.REPORTING_SESSION_LABEL,errorInformation.toDebugStr());
+                }
+                reportStatus.markUserProcessed(updated, errorInformation);
+            }
+        }
+    }
+
     private void updateRestingCacheData() {
         final long startTime = System.currentTimeMillis();
         LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning cache review process");
@@ -302,10 +381,10 @@ public class ReportService implements PwmService {
         }
 
         final UserCacheService.StorageKey storageKey = UserCacheService.StorageKey.fromUserInfoBean(uiBean);
-        return updateCache(uiBean.getUserIdentity(), uiBean, storageKey);
+        return updateCache(uiBean.getUserIdentity(), uiBean, storageKey, true);
     }
 
-    private boolean updateCache(final UserIdentity userIdentity)
+    private boolean updateCache(final UserIdentity userIdentity, final boolean forceUpdate)
             throws ChaiUnavailableException, PwmUnrecoverableException, LocalDBException
     {
         if (status != STATUS.OPEN) {
@@ -314,13 +393,14 @@ public class ReportService implements PwmService {
 
         final UserCacheService.StorageKey storageKey = UserCacheService.StorageKey.fromUserIdentity(pwmApplication,
                 userIdentity);
-        return updateCache(userIdentity, null, storageKey);
+        return updateCache(userIdentity, null, storageKey, forceUpdate);
     }
 
     private boolean updateCache(
             final UserIdentity userIdentity,
             final UserInfoBean userInfoBean,
-            final UserCacheService.StorageKey storageKey
+            final UserCacheService.StorageKey storageKey,
+            final boolean forceUpdate
     )
             throws ChaiUnavailableException, PwmUnrecoverableException, LocalDBException
     {
@@ -331,7 +411,7 @@ public class ReportService implements PwmService {
         }
 
         boolean updateCache = false;
-        if (userInfoBean != null) {
+        if (userInfoBean != null || forceUpdate) {
             updateCache = true;
         } else {
             if (cacheAge == null) {
@@ -385,28 +465,94 @@ public class ReportService implements PwmService {
         return reportStatus;
     }
 
-    private List<UserIdentity> generateListOfUsers()
+    private boolean isIncrementalPassAllowed(final ReportStatusInfo previousStatus) {
+        if (!settings.isIncrementalEnabled()) {
+            return false;
+        }
+        if (previousStatus == null || previousStatus.getLastCompletedPassDate() == null || previousStatus.getLastFullPassDate() == null) {
+            LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"no previously completed report pass, will perform full update");
+            return false;
+        }
+        if (TimeDuration.fromCurrent(previousStatus.getLastFullPassDate()).isLongerThan(settings.getFullRefreshInterval())) {
+            LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"last full report pass is older than " + settings.getFullRefreshInterval().asCompactString() + ", will perform full update");
+            return false;
+        }
+        return true;
+    }
+
+    private List<UserIdentity> generateListOfUsers(final Date changedSince, final int maxResults)
             throws ChaiUnavailableException, ChaiOperationException, PwmUnrecoverableException, PwmOperationalException
     {
         final UserSearchEngine userSearchEngine = new UserSearchEngine(pwmApplication,null);
-        final UserSearchEngine.SearchConfiguration searchConfiguration = new UserSearchEngine.SearchConfiguration();
-        searchConfiguration.setEnableValueEscaping(false);
-        searchConfiguration.setSearchTimeout(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.REPORTING_LDAP_SEARCH_TIMEOUT)));
-        if (settings.getSearchFilter() == null) {
-            searchConfiguration.setUsername("*");
+        final long searchTimeout = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.REPORTING_LDAP_SEARCH_TIMEOUT);
+        final Map<UserIdentity,Map<String,String>> searchResults = new LinkedHashMap<>();
+
+        if (changedSince == null) {
+            final UserSearchEngine.SearchConfiguration searchConfiguration = new UserSearchEngine.SearchConfiguration();
+            searchConfiguration.setEnableValueEscaping(false);
+            searchConfiguration.setSearchTimeout(searchTimeout);
+            if (settings.getSearchFilter() == null) {
+                searchConfiguration.setUsername("*");
+            } else {
+                searchConfiguration.setFilter(settings.getSearchFilter());
+            }
+
+            LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning UserReportService user search using parameters: " + (JsonUtil.serialize(searchConfiguration)));
+            searchResults.putAll(userSearchEngine.performMultiUserSearch(searchConfiguration, maxResults, Collections.<String>emptyList()));
         } else {
-            searchConfiguration.setFilter(settings.getSearchFilter());
+            final String changeTimestamp = EdirEntries.convertDateToZulu(changedSince);
+            for (final LdapProfile ldapProfile : pwmApplication.getConfig().getLdapProfiles().values()) {
+                final String baseFilter = settings.getSearchFilter() != null
+                        ? settings.getSearchFilter()
+                        : ldapProfile.readSettingAsString(PwmSetting.LDAP_USERNAME_SEARCH_FILTER).replace(PwmConstants.VALUE_REPLACEMENT_USERNAME, "*");
+                final String changeFilter = "(&" + baseFilter + "(" + settings.getChangeTrackingAttribute() + ">=" + changeTimestamp + "))";
+
+                final UserSearchEngine.SearchConfiguration searchConfiguration = new UserSearchEngine.SearchConfiguration();
+                searchConfiguration.setEnableValueEscaping(false);
+                searchConfiguration.setSearchTimeout(searchTimeout);
+                searchConfiguration.setLdapProfile(ldapProfile.getIdentifier());
+                searchConfiguration.setFilter(changeFilter);
+
+                LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning UserReportService incremental user search using parameters: " + (JsonUtil.serialize(searchConfiguration)));
+                final int remainingResults = maxResults - searchResults.size();
+                if (remainingResults > 0) {
+                    searchResults.putAll(userSearchEngine.performMultiUserSearch(searchConfiguration, remainingResults, Collections.<String>emptyList()));
+                }
+            }
         }
 
-        LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning UserReportService user search using parameters: " + (JsonUtil.serialize(searchConfiguration)));
-
-        final Map<UserIdentity,Map<String,String>> searchResults = userSearchEngine.performMultiUserSearch(searchConfiguration, settings.getMaxSearchSize(), Collections.<String>emptyList());
-        LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"user search found " + searchResults.size() + " users for reporting");
+        LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"user search found " + searchResults.size() + " users for "
+                + (changedSince == null ? "" : "incremental ") + "reporting");
         final List<UserIdentity> returnList = new ArrayList<>(searchResults.keySet());
         Collections.shuffle(returnList);
         return returnList;
     }
 
+    /**
+     * Source of the users examined by a report pass and of the per-user cache updates.
+     */
+    interface UserReader {
+        List<UserIdentity> searchUsers(Date changedSince, int maxResults)
+                throws ChaiUnavailableException, ChaiOperationException, PwmUnrecoverableException, PwmOperationalException;
+
+        boolean updateUser(UserIdentity userIdentity, boolean forceUpdate)
+                throws ChaiUnavailableException, PwmUnrecoverableException, LocalDBException;
+    }
+
+    private class LdapUserReader implements UserReader {
+        public List<UserIdentity> searchUsers(final Date changedSince, final int maxResults)
+                throws ChaiUnavailableException, ChaiOperationException, PwmUnrecoverableException, PwmOperationalException
+        {
+            return generateListOfUsers(changedSince, maxResults);
+        }
+
+        public boolean updateUser(final UserIdentity userIdentity, final boolean forceUpdate)
+                throws ChaiUnavailableException, PwmUnrecoverableException, LocalDBException
+        {
+            return updateCache(userIdentity, forceUpdate);
+        }
+    }
+
     public ClosableIterator<UserCacheRecord> iterator() {
         return new RecordIterator(userCacheService.iterator());
     }
@@ -587,40 +733,6 @@ public class ReportService implements PwmService {
         }
     }
 
-    public static class AvgTracker {
-        private final int maxSamples;
-        private final Queue<BigInteger> samples = new LinkedList<>();
-
-        public AvgTracker(int maxSamples)
-        {
-            this.maxSamples = maxSamples;
-        }
-
-        public void addSample(final long input) {
-            samples.add(new BigInteger(Long.toString(input)));
-            while (samples.size() > maxSamples) {
-                samples.remove();
-            }
-        }
-
-        public BigDecimal avg() {
-            if (samples.isEmpty()) {
-                throw new IllegalStateException("unable to compute avg without samples");
-            }
-
-            BigInteger total = BigInteger.ZERO;
-            for (final BigInteger sample : samples) {
-                total = total.add(sample);
-            }
-            final BigDecimal maxAsBD = new BigDecimal(Integer.toString(maxSamples));
-            return new BigDecimal(total).divide(maxAsBD, MathContext.DECIMAL32);
-        }
-
-        public long avgAsLong() {
-            return avg().longValue();
-        }
-    }
-
     private class RolloverTask extends TimerTask {
         public void run()
         {
@@ -22,6 +22,7 @@
 
 package password.pwm.util.report;
 
+import password.pwm.AppProperty;
 import password.pwm.config.Configuration;
 import password.pwm.config.PwmSetting;
 import password.pwm.error.PwmUnrecoverableException;
@@ -47,6 +48,14 @@ class ReportSettings implements Serializable {
     private int maxSearchSize = 100 * 1000;
     private List<Integer> trackDays = new ArrayList<>();
 
+    // tuning values, transient so they are excluded from the settings hash and changing them does not clear the cache.
+    private transient int workerThreads = 1;
+    private transient double maxOperationsPerSecond = 0;
+    private transient boolean incrementalEnabled = false;
+    private transient String changeTrackingAttribute = "modifyTimestamp";
+    private transient TimeDuration fullRefreshInterval = new TimeDuration(TimeDuration.DAY.getTotalMilliseconds() * 7);
+    private transient TimeDuration changeTrackingOverlap = new TimeDuration(TimeDuration.MINUTE.getTotalMilliseconds() * 15);
+
     public static ReportSettings readSettingsFromConfig(final Configuration config) {
         ReportSettings settings = new ReportSettings();
         settings.minCacheAge = new TimeDuration(config.readSettingAsLong(PwmSetting.REPORTING_MIN_CACHE_AGE) * 1000);
@@ -71,6 +80,23 @@ class ReportSettings implements Serializable {
 
         settings.trackDays = parseDayIntervalStr(config);
 
+        settings.workerThreads = Math.max(1, config.readAppPropertyAsInt(AppProperty.REPORTING_LDAP_WORKER_THREADS));
+        settings.maxOperationsPerSecond = Double.parseDouble(config.readAppProperty(AppProperty.REPORTING_LDAP_MAX_OPERATIONS_PER_SECOND));
+        if (!settings.autoCalcRest && settings.restTime.getTotalMilliseconds() > 0) {
+            final double restTimeRate = 1000d / settings.restTime.getTotalMilliseconds();
+            settings.maxOperationsPerSecond = settings.maxOperationsPerSecond > 0
+                    ? Math.min(settings.maxOperationsPerSecond, restTimeRate)
+                    : restTimeRate;
+        }
+
+        settings.incrementalEnabled = config.readAppPropertyAsBoolean(AppProperty.REPORTING_INCREMENTAL_ENABLE);
+        settings.changeTrackingAttribute = config.readAppProperty(AppProperty.REPORTING_INCREMENTAL_CHANGE_ATTRIBUTE);
+        settings.fullRefreshInterval = new TimeDuration(config.readAppPropertyAsLong(AppProperty.REPORTING_INCREMENTAL_FULL_INTERVAL_MS));
+        settings.changeTrackingOverlap = new TimeDuration(config.readAppPropertyAsLong(AppProperty.REPORTING_INCREMENTAL_OVERLAP_MS));
+        if (settings.changeTrackingAttribute == null || settings.changeTrackingAttribute.isEmpty()) {
+            settings.incrementalEnabled = false;
+        }
+
         return settings;
     }
 
@@ -126,6 +152,30 @@ class ReportSettings implements Serializable {
     public List<Integer> getTrackDays() {
         return trackDays;
     }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public double getMaxOperationsPerSecond() {
+        return maxOperationsPerSecond;
+    }
+
+    public boolean isIncrementalEnabled() {
+        return incrementalEnabled;
+    }
+
+    public String getChangeTrackingAttribute() {
+        return changeTrackingAttribute;
+    }
+
+    public TimeDuration getFullRefreshInterval() {
+        return fullRefreshInterval;
+    }
+
+    public TimeDuration getChangeTrackingOverlap() {
+        return changeTrackingOverlap;
+    }
     
     public String getSettingsHash() 
             throws PwmUnrecoverableException 
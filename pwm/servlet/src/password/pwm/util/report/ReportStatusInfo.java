@@ -32,7 +32,7 @@ import java.util.Date;
 public class ReportStatusInfo implements Serializable {
     private Date startDate;
     private Date finishDate;
-    private boolean inProgress;
+    private volatile boolean inProgress;
     private int count;
     private int updated;
     private int total;
@@ -40,6 +40,9 @@ public class ReportStatusInfo implements Serializable {
     private int errors;
     private ErrorInformation lastError;
     private String settingsHash;
+    private boolean incremental;
+    private Date lastCompletedPassDate;
+    private Date lastFullPassDate;
 
     public ReportStatusInfo(String settingsHash) {
         this.settingsHash = settingsHash;
@@ -73,19 +76,49 @@ public class ReportStatusInfo implements Serializable {
         this.inProgress = inProgress;
     }
 
-    public int getCount() {
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * @return start time of the most recent pass that ran to completion, used as the change tracking watermark
+     */
+    public Date getLastCompletedPassDate() {
+        return lastCompletedPassDate;
+    }
+
+    public void setLastCompletedPassDate(Date lastCompletedPassDate) {
+        this.lastCompletedPassDate = lastCompletedPassDate;
+    }
+
+    /**
+     * @return start time of the most recent full (non-incremental) pass that ran to completion
+     */
+    public Date getLastFullPassDate() {
+        return lastFullPassDate;
+    }
+
+    public void setLastFullPassDate(Date lastFullPassDate) {
+        this.lastFullPassDate = lastFullPassDate;
+    }
+
+    public synchronized int getCount() {
         return count;
     }
 
-    public void setCount(int count) {
+    public synchronized void setCount(int count) {
         this.count = count;
     }
 
-    public int getUpdated() {
+    public synchronized int getUpdated() {
         return updated;
     }
 
-    public void setUpdated(int updated) {
+    public synchronized void setUpdated(int updated) {
         this.updated = updated;
     }
 
@@ -105,19 +138,38 @@ public class ReportStatusInfo implements Serializable {
         this.eventRateMeter = eventRateMeter;
     }
 
-    public int getErrors() {
+    public synchronized int getErrors() {
         return errors;
     }
 
-    public void setErrors(int errors) {
+    public synchronized void setErrors(int errors) {
         this.errors = errors;
     }
 
-    public ErrorInformation getLastError() {
+    public synchronized ErrorInformation getLastError() {
         return lastError;
     }
 
-    public void setLastError(ErrorInformation lastError) {
+    public synchronized void setLastError(ErrorInformation lastError) {
         this.lastError = lastError;
     }
+
+    /**
+     * Record the outcome of a single processed user.  Called concurrently by the report worker threads, so the
+     * count, updated and error totals are always modified together.
+     *
+     * @param wasUpdated true if the cached record for the user was refreshed
+     * @param errorInformation the error encountered while processing the user, or null
+     */
+    synchronized void markUserProcessed(final boolean wasUpdated, final ErrorInformation errorInformation) {
+        count++;
+        if (wasUpdated) {
+            updated++;
+        }
+        if (errorInformation != null) {
+            errors++;
+            lastError = errorInformation;
+        }
+        eventRateMeter.markEvents(1);
+    }
 }
@@ -92,32 +92,32 @@ public class ReportSummaryData {
         return reportSummaryData;
     }
 
-    public int getTotalUsers()
+    public synchronized int getTotalUsers()
     {
         return totalUsers;
     }
 
-    public int getHasResponses()
+    public synchronized int getHasResponses()
     {
         return hasResponses;
     }
 
-    public int getHasPasswordExpirationTime()
+    public synchronized int getHasPasswordExpirationTime()
     {
         return hasPasswordExpirationTime;
     }
 
-    public Map<DataStorageMethod, Integer> getResponseStorage()
+    public synchronized Map<DataStorageMethod, Integer> getResponseStorage()
     {
-        return Collections.unmodifiableMap(responseStorage);
+        return Collections.unmodifiableMap(new HashMap<>(responseStorage));
     }
 
-    public Map<Answer.FormatType, Integer> getResponseFormatType()
+    public synchronized Map<Answer.FormatType, Integer> getResponseFormatType()
     {
-        return responseFormatType;
+        return Collections.unmodifiableMap(new HashMap<>(responseFormatType));
     }
 
-    public Date getMeanCacheTime()
+    public synchronized Date getMeanCacheTime()
     {
         return meanCacheTime;
     }
@@ -294,7 +294,7 @@ public class ReportSummaryData {
     }
 
 
-    public List<PresentationRow> asPresentableCollection(final Configuration config, final Locale locale) {
+    public synchronized List<PresentationRow> asPresentableCollection(final Configuration config, final Locale locale) {
         final ArrayList<PresentationRow> returnCollection = new ArrayList<>();
         final PresentationRowBuilder builder = new PresentationRowBuilder(config,this.totalUsers,locale);
 
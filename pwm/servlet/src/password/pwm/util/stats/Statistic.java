@@ -71,6 +71,7 @@ public enum Statistic {
     UPDATE_ATTRIBUTES                   (Type.INCREMENTOR, "UpdateAttributes", new ConfigSettingDetail(PwmSetting.UPDATE_PROFILE_ENABLE)),
     SHORTCUTS_SELECTED                  (Type.INCREMENTOR, "ShortcutsSelected", new ConfigSettingDetail(PwmSetting.SHORTCUT_ENABLE)),
     GENERATED_PASSWORDS                 (Type.INCREMENTOR, "GeneratedPasswords", null),
+    GENERATED_PASSWORDS_POOLED          (Type.INCREMENTOR, "GeneratedPasswordsPooled", null),
     RECOVERY_SUCCESSES                  (Type.INCREMENTOR, "RecoverySuccesses", null),
     RECOVERY_FAILURES                   (Type.INCREMENTOR, "RecoveryFailures", null),
     TOKENS_SENT                         (Type.INCREMENTOR, "TokensSent",null),
@@ -95,11 +96,16 @@ public enum Statistic {
     REST_STATISTICS                     (Type.INCREMENTOR, "RestStatistics", null),
     REST_VERIFYCHALLENGES               (Type.INCREMENTOR, "RestVerifyChallenges", null),
     INTRUDER_ATTEMPTS                   (Type.INCREMENTOR, "IntruderAttempts", null),
+    NMAS_SESSIONS_TIMED_OUT             (Type.INCREMENTOR, "NmasSessionsTimedOut", null),
+    NMAS_SESSIONS_REJECTED              (Type.INCREMENTOR, "NmasSessionsRejected", null),
 
     AVG_PASSWORD_SYNC_TIME              (Type.AVERAGE, "AvgPasswordSyncTime", null),
     AVG_AUTHENTICATION_TIME             (Type.AVERAGE, "AvgAuthenticationTime", null),
     AVG_PASSWORD_STRENGTH               (Type.AVERAGE, "AvgPasswordStrength", null),
     AVG_LDAP_SEARCH_TIME                (Type.AVERAGE, "AvgLdapSearchTime", null),
+    AVG_RANDOM_PASSWORD_POOL_DEPTH      (Type.AVERAGE, "AvgRandomPasswordPoolDepth", null),
+    AVG_NMAS_ACTIVE_SESSIONS            (Type.AVERAGE, "AvgNmasActiveSessions", null),
+    AVG_NMAS_QUEUED_SESSIONS            (Type.AVERAGE, "AvgNmasQueuedSessions", null),
 
     ;
 
@@ -172,6 +178,7 @@ public enum Statistic {
         PWMDB_READS(null),
         DB_WRITES(null),
         DB_READS(null),
+        RANDOM_PASSWORD_POOL_REFILLS(null),
         ;
 
         private Statistic relatedStatistic;
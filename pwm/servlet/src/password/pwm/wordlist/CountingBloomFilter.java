@@ -0,0 +1,177 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.wordlist;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory counting bloom filter with 4-bit counters packed sixteen to a {@code long}.  A negative answer from
+ * {@link #mightContain(String)} is definitive, so callers can skip the backing store for most misses.  Counters that
+ * reach their maximum stay saturated and are never decremented, which can only cause false positives.
+ * <p>
+ * Keys are expected to be well distributed (such as a hex encoded digest) and are hashed using double hashing.
+ * All operations are thread safe.
+ */
+class CountingBloomFilter {
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicLongArray counters;
+    private final long counterCount;
+    private final int hashCount;
+    private final AtomicLong entryCount = new AtomicLong();
+
+    CountingBloomFilter(final long counterCount, final int hashCount) {
+        if (counterCount < 1 || hashCount < 1) {
+            throw new IllegalArgumentException("counterCount and hashCount must be positive");
+        }
+        final long wordCount = (counterCount + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("counterCount is too large");
+        }
+        this.counters = new AtomicLongArray((int)wordCount);
+        this.counterCount = counterCount;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Create a filter sized for the expected number of entries at the desired false positive rate, limited
+     * to {@code maxBytes} of counter storage.  If the limit applies the false positive rate will be higher.
+     */
+    static CountingBloomFilter forExpectedEntries(final long expectedEntries, final double falsePositiveRate, final long maxBytes) {
+        final long entries = Math.max(1, expectedEntries);
+        final double rate = Math.min(0.5, Math.max(0.000001, falsePositiveRate));
+        long counterCount = (long)Math.ceil(-entries * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        final long maxCounters = Math.min(Math.max(1, maxBytes), (long)Integer.MAX_VALUE * 8) * 2;
+        counterCount = Math.max(COUNTERS_PER_WORD, Math.min(counterCount, maxCounters));
+        final int hashCount = (int)Math.max(1, Math.min(16, Math.round((double)counterCount / entries * Math.log(2))));
+        return new CountingBloomFilter(counterCount, hashCount);
+    }
+
+    void add(final String key) {
+        final long hash1 = hash(key);
+        final long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            increment(index(hash1, hash2, i));
+        }
+        entryCount.incrementAndGet();
+    }
+
+    /**
+     * Remove a key previously passed to {@link #add(String)}.  Removing a key that was never added corrupts the
+     * filter and may cause false negatives.
+     */
+    void remove(final String key) {
+        final long hash1 = hash(key);
+        final long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            decrement(index(hash1, hash2, i));
+        }
+        entryCount.decrementAndGet();
+    }
+
+    boolean mightContain(final String key) {
+        final long hash1 = hash(key);
+        final long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            if (count(index(hash1, hash2, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long entryCount() {
+        return entryCount.get();
+    }
+
+    long byteCount() {
+        return (long)counters.length() * 8;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    private long index(final long hash1, final long hash2, final int i) {
+        return ((hash1 + i * hash2) & Long.MAX_VALUE) % counterCount;
+    }
+
+    private int count(final long index) {
+        final long word = counters.get((int)(index / COUNTERS_PER_WORD));
+        return (int)((word >>> shift(index)) & MAX_COUNT);
+    }
+
+    private void increment(final long index) {
+        final int wordIndex = (int)(index / COUNTERS_PER_WORD);
+        final int shift = shift(index);
+        while (true) {
+            final long word = counters.get(wordIndex);
+            if (((word >>> shift) & MAX_COUNT) == MAX_COUNT) {
+                return;
+            }
+            if (counters.compareAndSet(wordIndex, word, word + (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private void decrement(final long index) {
+        final int wordIndex = (int)(index / COUNTERS_PER_WORD);
+        final int shift = shift(index);
+        while (true) {
+            final long word = counters.get(wordIndex);
+            final long count = (word >>> shift) & MAX_COUNT;
+            if (count == 0 || count == MAX_COUNT) {
+                return;
+            }
+            if (counters.compareAndSet(wordIndex, word, word - (1L << shift))) {
+                return;
+            }
+        }
+    }
+
+    private static int shift(final long index) {
+        return (int)(index % COUNTERS_PER_WORD) * 4;
+    }
+
+    private static long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -50,11 +50,11 @@ class Populator {
     private static final PwmLogger LOGGER = PwmLogger.forClass(Populator.class);
 
 
-    private static final int MAX_LINE_LENGTH = 64; // words truncated to this length, prevents massive words if the input
+    static final int MAX_LINE_LENGTH = 64; // words truncated to this length, prevents massive words if the input
 
     private static final long DEBUG_OUTPUT_FREQUENCY = 3 * 60 * 1000;  // 3 minutes
 
-    private static final String COMMENT_PREFIX = "!#comment:"; // words tarting with this prefix are ignored.
+    static final String COMMENT_PREFIX = "!#comment:"; // words tarting with this prefix are ignored.
     private static final NumberFormat PERCENT_FORMAT = DecimalFormat.getPercentInstance();
 
     private final ZipReader zipFileReader;
@@ -0,0 +1,156 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.wordlist;
+
+import password.pwm.util.PwmRandom;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact in-memory copy of a seedlist.  Seeds are stored back to back in a single char array with an offset array
+ * marking where each one starts, so a random seed costs one array lookup and a single {@code String} allocation.
+ * <p/>
+ * Seedlists that do not fit within the memory limit are reservoir sampled while they are read, so the index holds
+ * an evenly distributed subset of the seeds.
+ */
+class SeedIndex {
+    private static final int BYTES_PER_CHAR = 2;
+    private static final int BYTES_PER_OFFSET = 4;
+
+    private final char[] chars;
+    private final int[] offsets;
+    private final int sourceCount;
+
+    private SeedIndex(final List<String> seeds, final int sourceCount) {
+        int charCount = 0;
+        for (final String seed : seeds) {
+            charCount += seed.length();
+        }
+        this.chars = new char[charCount];
+        this.offsets = new int[seeds.size() + 1];
+        int position = 0;
+        for (int i = 0; i < seeds.size(); i++) {
+            final String seed = seeds.get(i);
+            seed.getChars(0, seed.length(), chars, position);
+            offsets[i] = position;
+            position += seed.length();
+        }
+        offsets[seeds.size()] = position;
+        this.sourceCount = sourceCount;
+    }
+
+    static SeedIndex readZipFile(final File zipFile, final long maxBytes)
+            throws Exception
+    {
+        final PwmRandom random = PwmRandom.getInstance();
+        final List<String> seeds = new ArrayList<>();
+        long indexBytes = BYTES_PER_OFFSET;
+        int sourceCount = 0;
+        boolean sampling = false;
+
+        final ZipReader zipReader = new ZipReader(zipFile);
+        try {
+            String line;
+            while ((line = zipReader.nextLine()) != null) {
+                final String seed = normalizeSeed(line);
+                if (seed == null) {
+                    continue;
+                }
+                sourceCount++;
+                final long seedBytes = seed.length() * BYTES_PER_CHAR + BYTES_PER_OFFSET;
+
+                if (!sampling) {
+                    if (indexBytes + seedBytes <= maxBytes) {
+                        seeds.add(seed);
+                        indexBytes += seedBytes;
+                        continue;
+                    }
+                    sampling = true;
+                }
+
+                final int slot = random.nextInt(sourceCount);
+                if (slot < seeds.size()) {
+                    indexBytes += seedBytes - (seeds.get(slot).length() * BYTES_PER_CHAR + BYTES_PER_OFFSET);
+                    seeds.set(slot, seed);
+                }
+            }
+        } finally {
+            zipReader.close();
+        }
+
+        // sampled seeds may be longer than the ones they replaced, drop random seeds until back within the limit
+        while (indexBytes > maxBytes && !seeds.isEmpty()) {
+            final int slot = random.nextInt(seeds.size());
+            final String removed = seeds.get(slot);
+            seeds.set(slot, seeds.get(seeds.size() - 1));
+            seeds.remove(seeds.size() - 1);
+            indexBytes -= removed.length() * BYTES_PER_CHAR + BYTES_PER_OFFSET;
+        }
+
+        return new SeedIndex(seeds, sourceCount);
+    }
+
+    private static String normalizeSeed(final String line) {
+        if (line == null) {
+            return null;
+        }
+        String seed = line.trim();
+        if (seed.length() < 1 || seed.startsWith(Populator.COMMENT_PREFIX)) {
+            return null;
+        }
+        if (seed.length() > Populator.MAX_LINE_LENGTH) {
+            seed = seed.substring(0, Populator.MAX_LINE_LENGTH);
+        }
+        return seed;
+    }
+
+    String randomSeed() {
+        final int size = size();
+        if (size < 1) {
+            return null;
+        }
+        final int index = PwmRandom.getInstance().nextInt(size);
+        return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    /**
+     * @return number of seeds held in the index
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return number of seeds read from the seedlist, which is larger than {@link #size()} if the seedlist was sampled
+     */
+    int getSourceCount() {
+        return sourceCount;
+    }
+
+    long byteCount() {
+        return (long)chars.length * BYTES_PER_CHAR + (long)offsets.length * BYTES_PER_OFFSET;
+    }
+}
@@ -22,6 +22,7 @@
 
 package password.pwm.wordlist;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.config.PwmSetting;
@@ -41,11 +42,17 @@ public class SeedlistManager extends AbstractWordlist implements Wordlist {
     private static final PwmLogger LOGGER = PwmLogger.forClass(SeedlistManager.class);
 
     private int initialPopulationCounter = 0;
+    private volatile SeedIndex seedIndex;
 
     public SeedlistManager() {
     }
 
     public String randomSeed() {
+        final SeedIndex index = seedIndex;
+        if (index != null) {
+            return index.getSourceCount() > 1000 ? index.randomSeed() : null;
+        }
+
         if (wlStatus != STATUS.OPEN) {
             return null;
         }
@@ -70,6 +77,21 @@ public class SeedlistManager extends AbstractWordlist implements Wordlist {
         return returnValue;
     }
 
+    /**
+     * @return number of seeds available to {@link #randomSeed()}, including while the LocalDB copy is still being populated
+     */
+    @Override
+    public int size() {
+        final SeedIndex index = seedIndex;
+        return index != null ? index.getSourceCount() : super.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        seedIndex = null;
+        super.close();
+    }
+
     protected Map<String, String> getWriteTxnForValue(final String value) {
         final Map<String, String> txItem = Collections.singletonMap(String.valueOf(initialPopulationCounter), value);
         initialPopulationCounter++;
@@ -98,6 +120,18 @@ public class SeedlistManager extends AbstractWordlist implements Wordlist {
         this.META_DB = LocalDB.DB.SEEDLIST_META;
         this.WORD_DB = LocalDB.DB.SEEDLIST_WORDS;
 
+        if (seedlistFile != null && seedlistFile.exists()) {
+            final long startTime = System.currentTimeMillis();
+            try {
+                final long maxBytes = pwmApplication.getConfig().readAppPropertyAsLong(AppProperty.SEEDLIST_INDEX_MAX_BYTES);
+                seedIndex = SeedIndex.readZipFile(seedlistFile, maxBytes);
+                LOGGER.debug(DEBUG_LABEL + " loaded " + seedIndex.size() + " of " + seedIndex.getSourceCount() + " seeds into memory ("
+                        + seedIndex.byteCount() + " bytes) in " + TimeDuration.fromCurrent(startTime).asCompactString());
+            } catch (Exception e) {
+                LOGGER.warn(DEBUG_LABEL + " unable to load seeds into memory, seeds will be read from LocalDB: " + e.getMessage());
+            }
+        }
+
         final Thread t = new Thread(new Runnable() {
             public void run() {
                 LOGGER.debug(DEBUG_LABEL + " starting up in background thread");
@@ -26,6 +26,7 @@ import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.PwmService;
+import password.pwm.config.Configuration;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.PwmException;
@@ -38,7 +39,6 @@ import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.ByteArrayInputStream;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
@@ -50,12 +50,19 @@ public class SharedHistoryManager implements Wordlist {
 
     private static final String KEY_OLDEST_ENTRY = "oldest_entry";
     private static final String KEY_VERSION = "version";
+    private static final String KEY_BUCKET_INDEX = "bucket_index";
+    private static final String KEY_BUCKET_WIDTH = "bucket_width";
 
     private static final int MIN_CLEANER_FREQUENCY = 1000 * 60 * 60; // 1 hour
     private static final int MAX_CLEANER_FREQUENCY = 1000 * 60 * 60 * 24; // 1 day
 
+    private static final int EXPIRY_BUCKET_COUNT = 48;
+    private static final int MIN_FILTER_ENTRIES = 100 * 1000;
+    private static final int BATCH_SIZE = 1000;
+
     private static final LocalDB.DB META_DB = LocalDB.DB.SHAREDHISTORY_META;
     private static final LocalDB.DB WORDS_DB = LocalDB.DB.SHAREDHISTORY_WORDS;
+    private static final LocalDB.DB BUCKETS_DB = LocalDB.DB.SHAREDHISTORY_BUCKETS;
 
     private volatile PwmService.STATUS status = STATUS.NEW;
 
@@ -65,6 +72,15 @@ public class SharedHistoryManager implements Wordlist {
     private String salt;
     private long oldestEntry;
 
+    // words are recorded in time buckets (bucket id -> record count) so aging can drop whole buckets
+    private final SortedMap<Long,Integer> bucketCounts = new TreeMap<>();
+
+    // words added while the cleaner reads a batch outside the lock; those words must not be removed by that batch
+    private Set<String> wordsAddedDuringClean = null;
+
+    private volatile CountingBloomFilter wordFilter;
+    private volatile boolean wordFilterReady;
+
     private final Settings settings = new Settings();
 
 
@@ -82,6 +98,8 @@ public class SharedHistoryManager implements Wordlist {
             cleanerTimer.cancel();
         }
         localDB = null;
+        wordFilter = null;
+        wordFilterReady = false;
     }
 
     public boolean containsWord(final String word) {
@@ -100,9 +118,13 @@ public class SharedHistoryManager implements Wordlist {
 
         try {
             final String hashedWord = hashWord(testWord);
-            final boolean inDB = localDB.contains(WORDS_DB, hashedWord);
-            if (inDB) {
-                final long timeStamp = Long.parseLong(localDB.get(WORDS_DB, hashedWord));
+            final CountingBloomFilter filter = wordFilter;
+            if (wordFilterReady && filter != null && !filter.mightContain(hashedWord)) {
+                return false;
+            }
+            final String value = localDB.get(WORDS_DB, hashedWord);
+            if (value != null) {
+                final long timeStamp = Long.parseLong(value);
                 final long entryAge = System.currentTimeMillis() - timeStamp;
                 if (entryAge < settings.maxAgeMs) {
                     result = true;
@@ -152,8 +174,10 @@ public class SharedHistoryManager implements Wordlist {
         if (!result) {
             LOGGER.info("existing db version does not match current db version db=(" + versionInDB + ")  current=(" + currentVersion + "), clearing db");
             localDB.truncate(WORDS_DB);
+            localDB.truncate(BUCKETS_DB);
             localDB.put(META_DB, KEY_VERSION, currentVersion);
             localDB.remove(META_DB, KEY_OLDEST_ENTRY);
+            localDB.remove(META_DB, KEY_BUCKET_INDEX);
         } else {
             LOGGER.trace("existing db version matches current db version db=(" + versionInDB + ")  current=(" + currentVersion + ")");
         }
@@ -189,23 +213,58 @@ public class SharedHistoryManager implements Wordlist {
             return;
         }
 
+        final CountingBloomFilter filter;
+        final boolean bucketIndexLoaded;
         try {
             final int size = localDB.size(WORDS_DB);
+            final long expectedEntries = Math.max(MIN_FILTER_ENTRIES, size + size / 2);
+            filter = CountingBloomFilter.forExpectedEntries(expectedEntries, settings.filterFalsePositiveRate, settings.filterMaxBytes);
+            wordFilter = filter;
+
+            bucketIndexLoaded = loadBucketIndex();
+            if (!bucketIndexLoaded) {
+                rebuildBucketIndex(filter);
+            }
+
             final StringBuilder sb = new StringBuilder();
             sb.append("open with ").append(size).append(" words (");
             sb.append(new TimeDuration(System.currentTimeMillis(), startTime).asCompactString()).append(")");
             sb.append(", maxAgeMs=").append(new TimeDuration(maxAgeMs).asCompactString());
             sb.append(", oldestEntry=").append(new TimeDuration(System.currentTimeMillis(), oldestEntry).asCompactString());
+            sb.append(", expiryBuckets=").append(bucketCounts.size());
             LOGGER.info(sb.toString());
-        } catch (LocalDBException e) {
-            LOGGER.error("unexpected error examining size of DB, will remain closed: " + e.getMessage(), e);
+        } catch (Exception e) {
+            LOGGER.error("unexpected error examining DB, will remain closed: " + e.getMessage(), e);
             status = STATUS.CLOSED;
             return;
         }
 
+        if (status != STATUS.OPENING) {
+            return;
+        }
         status = STATUS.OPEN;
         //populateFromWordlist();  //only used for debugging!!!
 
+        // words added while the filter is populated are added to it by addWord(), so it is complete once the iteration finishes
+        if (bucketIndexLoaded) {
+            try {
+                populateFilter(filter);
+            } catch (Exception e) {
+                LOGGER.error("error populating word filter, lookups will not use the filter: " + e.getMessage(), e);
+                wordFilter = null;
+            }
+        }
+        if (wordFilter != null && status == STATUS.OPEN) {
+            wordFilterReady = true;
+            LOGGER.debug("word filter populated with " + filter.entryCount() + " words using "
+                    + filter.byteCount() + " bytes and " + filter.hashCount() + " hashes ("
+                    + TimeDuration.fromCurrent(startTime).asCompactString() + ")");
+        }
+
+        if (pwmApplication == null) {
+            return;
+        }
+
         if (pwmApplication.getApplicationMode() == PwmApplication.MODE.RUNNING || pwmApplication.getApplicationMode() == PwmApplication.MODE.CONFIGURATION) {
             long frequencyMs = maxAgeMs > MAX_CLEANER_FREQUENCY ? MAX_CLEANER_FREQUENCY : maxAgeMs;
             frequencyMs = frequencyMs < MIN_CLEANER_FREQUENCY ? MIN_CLEANER_FREQUENCY : frequencyMs;
@@ -217,6 +276,142 @@ public class SharedHistoryManager implements Wordlist {
         }
     }
 
+    /**
+     * Opens the history on the calling thread against the given LocalDB without scheduling the cleaner.
+     */
+    void open(final Configuration config, final LocalDB localDB, final String salt, final long maxAgeMs, final long bucketWidthMs) {
+        readSettings(config);
+        settings.maxAgeMs = maxAgeMs;
+        settings.bucketWidthMs = bucketWidthMs;
+        this.localDB = localDB;
+        this.salt = salt;
+        init(null, maxAgeMs);
+    }
+
+    /**
+     * Runs the cleaner on the calling thread.
+     */
+    void clean()
+            throws LocalDBException
+    {
+        new CleanerTask().reduceWordDB();
+    }
+
+    private boolean loadBucketIndex()
+            throws LocalDBException
+    {
+        final String storedWidth = localDB.get(META_DB, KEY_BUCKET_WIDTH);
+        final String storedIndex = localDB.get(META_DB, KEY_BUCKET_INDEX);
+        if (storedIndex == null || !Long.toString(settings.bucketWidthMs).equals(storedWidth)) {
+            LOGGER.debug("expiry bucket index is missing or uses a different bucket width, will rebuild");
+            return false;
+        }
+
+        bucketCounts.clear();
+        for (final Map.Entry<String,String> entry : JsonUtil.deserializeStringMap(storedIndex).entrySet()) {
+            bucketCounts.put(Long.parseLong(entry.getKey()), Integer.parseInt(entry.getValue()));
+        }
+        for (final Map.Entry<Long,Integer> entry : bucketCounts.entrySet()) {
+            int count = entry.getValue();
+            while (localDB.contains(BUCKETS_DB, makeBucketKey(entry.getKey(), count))) {
+                count++;
+            }
+            entry.setValue(count);
+        }
+        LOGGER.trace("loaded expiry bucket index with " + bucketCounts.size() + " buckets");
+        return true;
+    }
+
+    private void storeBucketIndex()
+            throws LocalDBException
+    {
+        final Map<String,String> storedIndex = new LinkedHashMap<>();
+        for (final Map.Entry<Long,Integer> entry : bucketCounts.entrySet()) {
+            storedIndex.put(entry.getKey().toString(), entry.getValue().toString());
+        }
+        localDB.put(META_DB, KEY_BUCKET_INDEX, JsonUtil.serializeMap(storedIndex));
+    }
+
+    /**
+     * Reads every stored word once to build the expiry bucket index, used when upgrading an existing history
+     * or when the configured max age changes the bucket width.
+     */
+    private void rebuildBucketIndex(final CountingBloomFilter filter)
+            throws LocalDBException
+    {
+        final long startTime = System.currentTimeMillis();
+        LOGGER.info("rebuilding expiry bucket index for " + localDB.size(WORDS_DB) + " words");
+
+        localDB.truncate(BUCKETS_DB);
+        localDB.remove(META_DB, KEY_BUCKET_INDEX);
+        localDB.put(META_DB, KEY_BUCKET_WIDTH, Long.toString(settings.bucketWidthMs));
+        bucketCounts.clear();
+
+        long localOldestEntry = System.currentTimeMillis();
+        final Map<String,String> bucketRecords = new HashMap<>();
+        LocalDB.LocalDBIterator<String> keyIterator = null;
+        try {
+            keyIterator = localDB.iterator(WORDS_DB);
+            while (status == STATUS.OPENING && keyIterator.hasNext()) {
+                final String hashedWord = keyIterator.next();
+                final String value = localDB.get(WORDS_DB, hashedWord);
+                if (value != null) {
+                    final long timeStamp = Long.parseLong(value);
+                    final long bucketId = timeStamp / settings.bucketWidthMs;
+                    final Integer bucketCount = bucketCounts.get(bucketId);
+                    final int sequence = bucketCount == null ? 0 : bucketCount;
+                    bucketCounts.put(bucketId, sequence + 1);
+                    bucketRecords.put(makeBucketKey(bucketId, sequence), hashedWord);
+                    filter.add(hashedWord);
+                    localOldestEntry = timeStamp < localOldestEntry ? timeStamp : localOldestEntry;
+                }
+                if (bucketRecords.size() >= BATCH_SIZE) {
+                    localDB.putAll(BUCKETS_DB, bucketRecords);
+                    bucketRecords.clear();
+                }
+            }
+        } finally {
+            closeIterator(keyIterator);
+        }
+        if (status != STATUS.OPENING) {
+            return;
+        }
+        localDB.putAll(BUCKETS_DB, bucketRecords);
+        storeBucketIndex();
+
+        oldestEntry = localOldestEntry;
+        localDB.put(META_DB, KEY_OLDEST_ENTRY, Long.toString(oldestEntry));
+        LOGGER.info("rebuilt expiry bucket index with " + bucketCounts.size() + " buckets in " + TimeDuration.fromCurrent(startTime).asCompactString());
+    }
+
+    private void populateFilter(final CountingBloomFilter filter)
+            throws LocalDBException
+    {
+        LocalDB.LocalDBIterator<String> keyIterator = null;
+        try {
+            keyIterator = localDB.iterator(WORDS_DB);
+            while (status == STATUS.OPEN && keyIterator.hasNext()) {
+                filter.add(keyIterator.next());
+            }
+        } finally {
+            closeIterator(keyIterator);
+        }
+    }
+
+    private static String makeBucketKey(final long bucketId, final int sequence) {
+        return bucketId + "_" + sequence;
+    }
+
+    private static void closeIterator(final LocalDB.LocalDBIterator<String> keyIterator) {
+        try {
+            if (keyIterator != null) {
+                keyIterator.close();
+            }
+        } catch (Exception e) {
+            LOGGER.warn("error returning LocalDB iterator: " + e.getMessage());
+        }
+    }
+
     private String normalizeWord(final String input) {
         if (input == null) {
             return null;
@@ -247,8 +442,28 @@ public class SharedHistoryManager implements Wordlist {
         try {
             final String hashedWord = hashWord(addWord);
 
+            final long timeStamp = System.currentTimeMillis();
             final boolean preExisting = localDB.contains(WORDS_DB, hashedWord);
-            localDB.put(WORDS_DB, hashedWord, Long.toString(System.currentTimeMillis()));
+
+            // the bucket record is written before the word so that every stored word is reachable by the cleaner
+            final long bucketId = timeStamp / settings.bucketWidthMs;
+            final Integer bucketCount = bucketCounts.get(bucketId);
+            final int sequence = bucketCount == null ? 0 : bucketCount;
+            bucketCounts.put(bucketId, sequence + 1);
+            if (bucketCount == null) {
+                // the stored index only needs to list every bucket; record counts are recovered when the index is loaded
+                storeBucketIndex();
+            }
+            localDB.put(BUCKETS_DB, makeBucketKey(bucketId, sequence), hashedWord);
+            localDB.put(WORDS_DB, hashedWord, Long.toString(timeStamp));
+            if (wordsAddedDuringClean != null) {
+                wordsAddedDuringClean.add(hashedWord);
+            }
+
+            final CountingBloomFilter filter = wordFilter;
+            if (!preExisting && filter != null) {
+                filter.add(hashedWord);
+            }
 
             {
                 final StringBuilder logOutput = new StringBuilder();
@@ -263,15 +478,8 @@ public class SharedHistoryManager implements Wordlist {
     }
 
     private String hashWord(final String word) throws NoSuchAlgorithmException {
-        final MessageDigest md = MessageDigest.getInstance(settings.hashName);
         final String wordWithSalt = salt + word;
-        final int hashLoopCount = settings.hashIterations;
-        byte[] hashedAnswer = md.digest((wordWithSalt).getBytes());
-
-        for (int i = 0; i < hashLoopCount; i++) {
-            hashedAnswer = md.digest(hashedAnswer);
-        }
-
+        final byte[] hashedAnswer = SecureHelper.iteratedDigest(wordWithSalt.getBytes(), settings.hashName, settings.hashIterations + 1);
         return Helper.binaryArrayToHex(hashedAnswer);
     }
 
@@ -309,46 +517,27 @@ public class SharedHistoryManager implements Wordlist {
             }
 
             final long startTime = System.currentTimeMillis();
-            final int initialSize = size();
-            int removeCount = 0;
-            long localOldestEntry = System.currentTimeMillis();
-
-            LOGGER.debug("beginning wordDB reduce operation, examining " + initialSize + " words for entries older than " + TimeDuration.asCompactString(settings.maxAgeMs));
-
-            LocalDB.LocalDBIterator<String> keyIterator = null;
-            try {
-                keyIterator = localDB.iterator(WORDS_DB);
-                while (status == STATUS.OPEN && keyIterator.hasNext()) {
-                    final String key = keyIterator.next();
-                    final String value = localDB.get(WORDS_DB, key);
-                    final long timeStamp = Long.parseLong(value);
-                    final long entryAge = System.currentTimeMillis() - timeStamp;
+            final long expiredBucketLimit = (System.currentTimeMillis() - settings.maxAgeMs) / settings.bucketWidthMs;
+            final SortedMap<Long,Integer> expiredBuckets;
+            synchronized (SharedHistoryManager.this) {
+                expiredBuckets = new TreeMap<>(bucketCounts.headMap(expiredBucketLimit));
+            }
 
-                    if (entryAge > settings.maxAgeMs) {
-                        localDB.remove(WORDS_DB, key);
-                        removeCount++;
+            LOGGER.debug("beginning wordDB reduce operation, examining " + expiredBuckets.size() + " expired buckets for entries older than " + TimeDuration.asCompactString(settings.maxAgeMs));
 
-                        if (removeCount % 1000 == 0) {
-                            LOGGER.trace("wordDB reduce operation in progress, removed=" + removeCount + ", total=" + (initialSize - removeCount));
-                        }
-                    } else {
-                        localOldestEntry = timeStamp < localOldestEntry ? timeStamp : localOldestEntry;
-                    }
-                    sleeper.sleep();
-                }
-            } finally {
-                try {
-                    if (keyIterator != null) {
-                        keyIterator.close();
-                    }
-                } catch (Exception e) {
-                    LOGGER.warn("error returning LocalDB iterator: " + e.getMessage());
+            int removeCount = 0;
+            for (final Map.Entry<Long,Integer> entry : expiredBuckets.entrySet()) {
+                if (status != STATUS.OPEN) {
+                    return;
                 }
+                removeCount += removeBucket(entry.getKey(), entry.getValue());
             }
 
             //update the oldest entry
             if (status == STATUS.OPEN) {
-                oldestEntry = localOldestEntry;
+                synchronized (SharedHistoryManager.this) {
+                    oldestEntry = bucketCounts.isEmpty() ? System.currentTimeMillis() : bucketCounts.firstKey() * settings.bucketWidthMs;
+                }
                 localDB.put(META_DB, KEY_OLDEST_ENTRY, Long.toString(oldestEntry));
             }
 
@@ -360,6 +549,67 @@ public class SharedHistoryManager implements Wordlist {
             sb.append(" in ").append(TimeDuration.asCompactString(System.currentTimeMillis() - startTime));
             LOGGER.debug(sb.toString());
         }
+
+        /**
+         * Removes the words recorded in an expired bucket.  Words that have been added again since are
+         * recorded in a newer bucket as well, so they are only removed if their stored timestamp is expired.
+         */
+        private int removeBucket(final long bucketId, final int bucketCount)
+                throws LocalDBException
+        {
+            int removeCount = 0;
+            for (int batchStart = 0; batchStart < bucketCount; batchStart += BATCH_SIZE) {
+                if (status != STATUS.OPEN) {
+                    return removeCount;
+                }
+                // the batch is read without holding the lock so password changes are not blocked by the cleaner;
+                // words added in the meantime have a fresh timestamp and are left in place
+                final Set<String> addedWords = new HashSet<>();
+                synchronized (SharedHistoryManager.this) {
+                    wordsAddedDuringClean = addedWords;
+                }
+                try {
+                    final List<String> bucketKeys = new ArrayList<>();
+                    final Set<String> expiredWords = new LinkedHashSet<>();
+                    for (int sequence = batchStart; sequence < Math.min(bucketCount, batchStart + BATCH_SIZE); sequence++) {
+                        final String bucketKey = makeBucketKey(bucketId, sequence);
+                        final String hashedWord = localDB.get(BUCKETS_DB, bucketKey);
+                        if (hashedWord != null) {
+                            final String value = localDB.get(WORDS_DB, hashedWord);
+                            if (value != null && System.currentTimeMillis() - Long.parseLong(value) > settings.maxAgeMs) {
+                                expiredWords.add(hashedWord);
+                            }
+                            bucketKeys.add(bucketKey);
+                        }
+                    }
+                    synchronized (SharedHistoryManager.this) {
+                        expiredWords.removeAll(addedWords);
+                        localDB.removeAll(WORDS_DB, expiredWords);
+                        localDB.removeAll(BUCKETS_DB, bucketKeys);
+                        final CountingBloomFilter filter = wordFilter;
+                        if (filter != null) {
+                            for (final String hashedWord : expiredWords) {
+                                filter.remove(hashedWord);
+                            }
+                        }
+                        removeCount += expiredWords.size();
+                    }
+                } finally {
+                    synchronized (SharedHistoryManager.this) {
+                        wordsAddedDuringClean = null;
+                    }
+                }
+                sleeper.sleep();
+            }
+
+            if (status == STATUS.OPEN) {
+                synchronized (SharedHistoryManager.this) {
+                    bucketCounts.remove(bucketId);
+                    storeBucketIndex();
+                }
+            }
+            return removeCount;
+        }
     }
 
     public List<HealthRecord> healthCheck() {
@@ -369,11 +619,7 @@ public class SharedHistoryManager implements Wordlist {
     public void init(final PwmApplication pwmApplication)
             throws PwmException
     {
-        settings.maxAgeMs = 1000 *  pwmApplication.getConfig().readSettingAsLong(PwmSetting.PASSWORD_SHAREDHISTORY_MAX_AGE); // convert to MS;
-        settings.caseInsensitive = Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.SECURITY_SHAREDHISTORY_CASE_INSENSITIVE));
-        settings.hashName = pwmApplication.getConfig().readAppProperty(AppProperty.SECURITY_SHAREDHISTORY_HASH_NAME);
-        settings.hashIterations = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.SECURITY_SHAREDHISTORY_HASH_ITERATIONS));
-        settings.version = "2" + "_" + settings.hashName + "_" + settings.hashIterations + "_" + settings.caseInsensitive;
+        readSettings(pwmApplication.getConfig());
 
         this.localDB = pwmApplication.getLocalDB();
 
@@ -389,6 +635,8 @@ public class SharedHistoryManager implements Wordlist {
             LOGGER.trace("clearing wordlist");
             try {
                 localDB.truncate(WORDS_DB);
+                localDB.truncate(BUCKETS_DB);
+                localDB.remove(META_DB, KEY_BUCKET_INDEX);
             } catch (Exception e) {
                 LOGGER.error("error during wordlist truncate", e);
             }
@@ -421,12 +669,26 @@ public class SharedHistoryManager implements Wordlist {
         }, Helper.makeThreadName(pwmApplication, this.getClass()) + " initializer").start();
     }
 
+    private void readSettings(final Configuration config) {
+        settings.maxAgeMs = 1000 *  config.readSettingAsLong(PwmSetting.PASSWORD_SHAREDHISTORY_MAX_AGE); // convert to MS;
+        settings.caseInsensitive = config.readAppPropertyAsBoolean(AppProperty.SECURITY_SHAREDHISTORY_CASE_INSENSITIVE);
+        settings.hashName = config.readAppProperty(AppProperty.SECURITY_SHAREDHISTORY_HASH_NAME);
+        settings.hashIterations = config.readAppPropertyAsInt(AppProperty.SECURITY_SHAREDHISTORY_HASH_ITERATIONS);
+        settings.bucketWidthMs = Math.max(MIN_CLEANER_FREQUENCY, settings.maxAgeMs / EXPIRY_BUCKET_COUNT);
+        settings.filterFalsePositiveRate = Double.parseDouble(config.readAppProperty(AppProperty.SECURITY_SHAREDHISTORY_FILTER_FALSE_POSITIVE_RATE));
+        settings.filterMaxBytes = config.readAppPropertyAsLong(AppProperty.SECURITY_SHAREDHISTORY_FILTER_MAX_BYTES);
+        settings.version = "2" + "_" + settings.hashName + "_" + settings.hashIterations + "_" + settings.caseInsensitive;
+    }
+
     private static class Settings {
         private String version;
         private String hashName;
         private int hashIterations;
         private long maxAgeMs;
         private boolean caseInsensitive;
+        private long bucketWidthMs;
+        private double filterFalsePositiveRate;
+        private long filterMaxBytes;
     }
 
     public ServiceInfo serviceInfo()
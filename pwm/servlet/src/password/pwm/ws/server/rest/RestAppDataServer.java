@@ -349,10 +349,10 @@ public class RestAppDataServer extends AbstractRestServer {
     {
         final Configuration config = pwmApplication.getConfig();
         final TreeMap<String,Object> settingMap = new TreeMap<>();
-        settingMap.put("client.ajaxTypingTimeout", Integer.parseInt(config.readAppProperty(AppProperty.CLIENT_AJAX_TYPING_TIMEOUT)));
-        settingMap.put("client.ajaxTypingWait", Integer.parseInt(config.readAppProperty(AppProperty.CLIENT_AJAX_TYPING_WAIT)));
-        settingMap.put("client.activityMaxEpsRate", Integer.parseInt(config.readAppProperty(AppProperty.CLIENT_ACTIVITY_MAX_EPS_RATE)));
-        settingMap.put("client.pwShowRevertTimeout", Integer.parseInt(config.readAppProperty(AppProperty.CLIENT_PW_SHOW_REVERT_TIMEOUT)));
+        settingMap.put("client.ajaxTypingTimeout", config.readAppPropertyAsInt(AppProperty.CLIENT_AJAX_TYPING_TIMEOUT));
+        settingMap.put("client.ajaxTypingWait", config.readAppPropertyAsInt(AppProperty.CLIENT_AJAX_TYPING_WAIT));
+        settingMap.put("client.activityMaxEpsRate", config.readAppPropertyAsInt(AppProperty.CLIENT_ACTIVITY_MAX_EPS_RATE));
+        settingMap.put("client.pwShowRevertTimeout", config.readAppPropertyAsInt(AppProperty.CLIENT_PW_SHOW_REVERT_TIMEOUT));
         settingMap.put("enableIdleTimeout", config.readSettingAsBoolean(PwmSetting.DISPLAY_IDLE_TIMEOUT));
         settingMap.put("pageLeaveNotice", config.readSettingAsLong(PwmSetting.SECURITY_PAGE_LEAVE_NOTICE_TIMEOUT));
         settingMap.put("setting-showHidePasswordFields",pwmApplication.getConfig().readSettingAsBoolean(password.pwm.config.PwmSetting.DISPLAY_SHOW_HIDE_PASSWORD_FIELDS));
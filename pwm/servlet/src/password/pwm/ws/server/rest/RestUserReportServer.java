@@ -175,6 +175,9 @@ public class RestUserReportServer extends AbstractRestServer {
         final LinkedHashMap<String,Object> presentableMap = new LinkedHashMap<>();
         final NumberFormat numberFormat = NumberFormat.getInstance();
         presentableMap.put("Job Engine",reportInfo.isInProgress() ? "Running" : "Not Running");
+        if (reportInfo.getStartDate() != null) {
+            presentableMap.put("Update Type",reportInfo.isIncremental() ? "Incremental" : "Full");
+        }
         presentableMap.put("Users Processed",(reportInfo.isInProgress() && reportInfo.getTotal() == 0)
                 ? "Counting..."
                 : numberFormat.format(reportInfo.getCount()) + " of " + numberFormat.format(
@@ -207,6 +210,9 @@ public class RestUserReportServer extends AbstractRestServer {
                 presentableMap.put("Estimated Time Remaining",remainingDuration.asLongString(locale));
             }
         }
+        if (reportInfo.getLastFullPassDate() != null) {
+            presentableMap.put("Last Full Update",reportInfo.getLastFullPassDate());
+        }
         if (reportInfo.getLastError() != null) {
             presentableMap.put("Last Error", reportInfo.getLastError().toDebugStr());
         }
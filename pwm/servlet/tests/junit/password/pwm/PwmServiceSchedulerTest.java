@@ -0,0 +1,320 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.health.HealthRecord;
+import password.pwm.util.TimeDuration;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PwmServiceSchedulerTest {
+
+    private static final TimeDuration TIMEOUT = new TimeDuration(10 * 1000);
+
+    @Test
+    public void testDependencyOrder() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(10);
+
+        // A, B and E each wait until all three are running, so they can only complete if run together
+        final CountDownLatch independentLatch = new CountDownLatch(3);
+        action.latches.put(ServiceA.class, independentLatch);
+        action.latches.put(ServiceB.class, independentLatch);
+        action.latches.put(ServiceE.class, independentLatch);
+
+        final PwmServiceScheduler.Report report = scheduler.runInDependencyOrder(action, 8, TIMEOUT, "test");
+
+        Assert.assertEquals(5, report.getResults(PwmServiceScheduler.Outcome.COMPLETED).size());
+        Assert.assertTrue(action.peakRunning >= 3);
+        assertBefore(action, ServiceA.class, ServiceC.class);
+        assertBefore(action, ServiceB.class, ServiceC.class);
+        assertBefore(action, ServiceC.class, ServiceD.class);
+        Assert.assertTrue(report.toDebugString().contains("ServiceD="));
+    }
+
+    @Test
+    public void testReverseDependencyOrder() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(10);
+
+        scheduler.runInReverseDependencyOrder(action, 8, TIMEOUT, "test");
+
+        Assert.assertEquals(5, action.finishTimes.size());
+        assertBefore(action, ServiceD.class, ServiceC.class);
+        assertBefore(action, ServiceC.class, ServiceA.class);
+        assertBefore(action, ServiceC.class, ServiceB.class);
+    }
+
+    @Test
+    public void testThreadLimit() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(50);
+
+        final PwmServiceScheduler.Report report = scheduler.runInDependencyOrder(action, 1, TIMEOUT, "test");
+
+        Assert.assertEquals(5, report.getResults(PwmServiceScheduler.Outcome.COMPLETED).size());
+        Assert.assertEquals(1, action.peakRunning);
+        Assert.assertEquals(Arrays.asList(ServiceA.class, ServiceB.class, ServiceC.class, ServiceD.class, ServiceE.class), action.startOrder);
+    }
+
+    @Test
+    public void testTimeoutDefersDependents() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(10);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        action.blockers.put(ServiceA.class, releaseLatch);
+
+        final PwmServiceScheduler.Report report = scheduler.runInDependencyOrder(action, 8, new TimeDuration(200), "test");
+
+        // the run returned while A is still blocked, without starting the services that depend on it
+        Assert.assertFalse(action.finishTimes.containsKey(ServiceA.class));
+        Assert.assertEquals(PwmServiceScheduler.Outcome.TIMED_OUT, report.getResult(ServiceA.class).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.DEFERRED, report.getResult(ServiceC.class).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.DEFERRED, report.getResult(ServiceD.class).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.COMPLETED, report.getResult(ServiceB.class).getOutcome());
+        Assert.assertFalse(action.startOrder.contains(ServiceC.class));
+        Assert.assertTrue(report.getLateResults().isEmpty());
+
+        // once A finishes, the deferred services are started in dependency order
+        releaseLatch.countDown();
+        awaitLateResults(report, 3);
+        Assert.assertEquals(ServiceA.class, report.getLateResults().get(0).getServiceClass());
+        for (final PwmServiceScheduler.ServiceResult lateResult : report.getLateResults()) {
+            Assert.assertEquals(PwmServiceScheduler.Outcome.COMPLETED, lateResult.getOutcome());
+        }
+        assertBefore(action, ServiceA.class, ServiceC.class);
+        assertBefore(action, ServiceC.class, ServiceD.class);
+    }
+
+    @Test
+    public void testLateFailureSkipsDeferred() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(10);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        action.blockers.put(ServiceA.class, releaseLatch);
+        action.failing.add(ServiceA.class);
+
+        final PwmServiceScheduler.Report report = scheduler.runInDependencyOrder(action, 8, new TimeDuration(200), "test");
+        Assert.assertEquals(PwmServiceScheduler.Outcome.DEFERRED, report.getResult(ServiceC.class).getOutcome());
+
+        releaseLatch.countDown();
+        awaitLateResults(report, 3);
+        Assert.assertEquals(PwmServiceScheduler.Outcome.FAILED, report.getLateResults().get(0).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.SKIPPED, report.getLateResults().get(1).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.SKIPPED, report.getLateResults().get(2).getOutcome());
+        Assert.assertFalse(action.startOrder.contains(ServiceC.class));
+        Assert.assertFalse(action.startOrder.contains(ServiceD.class));
+    }
+
+    @Test
+    public void testLateFailureRecorded() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(10);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        action.blockers.put(ServiceE.class, releaseLatch);
+        action.failing.add(ServiceE.class);
+
+        final PwmServiceScheduler.Report report = scheduler.runInDependencyOrder(action, 8, new TimeDuration(200), "test");
+        Assert.assertEquals(PwmServiceScheduler.Outcome.TIMED_OUT, report.getResult(ServiceE.class).getOutcome());
+
+        releaseLatch.countDown();
+        awaitLateResults(report, 1);
+        final PwmServiceScheduler.ServiceResult lateResult = report.getLateResults().get(0);
+        Assert.assertEquals(ServiceE.class, lateResult.getServiceClass());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.FAILED, lateResult.getOutcome());
+        Assert.assertTrue(lateResult.getError() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testTimedOutActionKeepsThread() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(10);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        action.blockers.put(ServiceA.class, releaseLatch);
+
+        // with one thread, nothing else may start until the timed out action finishes
+        final Thread releaseThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                releaseLatch.countDown();
+            }
+        });
+        releaseThread.start();
+        final PwmServiceScheduler.Report report = scheduler.runInDependencyOrder(action, 1, new TimeDuration(100), "test");
+        releaseThread.join();
+
+        Assert.assertEquals(1, action.peakRunning);
+        Assert.assertEquals(PwmServiceScheduler.Outcome.TIMED_OUT, report.getResult(ServiceA.class).getOutcome());
+        Assert.assertEquals(4, report.getResults(PwmServiceScheduler.Outcome.COMPLETED).size());
+        Assert.assertEquals(1, report.getLateResults().size());
+        Assert.assertTrue(action.finishTimes.get(ServiceA.class) <= action.startTimes.get(ServiceB.class));
+    }
+
+    @Test
+    public void testFailureSkipsDependents() throws Exception {
+        final PwmServiceScheduler scheduler = new PwmServiceScheduler(makeDependencies());
+        final TestAction action = new TestAction(10);
+        action.failing.add(ServiceB.class);
+
+        final PwmServiceScheduler.Report report = scheduler.runInDependencyOrder(action, 8, TIMEOUT, "test");
+
+        Assert.assertEquals(PwmServiceScheduler.Outcome.FAILED, report.getResult(ServiceB.class).getOutcome());
+        Assert.assertTrue(report.getResult(ServiceB.class).getError() instanceof IllegalStateException);
+        Assert.assertEquals(PwmServiceScheduler.Outcome.SKIPPED, report.getResult(ServiceC.class).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.SKIPPED, report.getResult(ServiceD.class).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.COMPLETED, report.getResult(ServiceA.class).getOutcome());
+        Assert.assertEquals(PwmServiceScheduler.Outcome.COMPLETED, report.getResult(ServiceE.class).getOutcome());
+        Assert.assertFalse(action.startOrder.contains(ServiceC.class));
+    }
+
+    @Test
+    public void testCircularDependency() throws Exception {
+        final Map<Class<? extends PwmService>, List<Class<? extends PwmService>>> dependencies = makeDependencies();
+        dependencies.put(ServiceA.class, Collections.<Class<? extends PwmService>>singletonList(ServiceD.class));
+        try {
+            new PwmServiceScheduler(dependencies);
+            Assert.fail("circular dependency should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static Map<Class<? extends PwmService>, List<Class<? extends PwmService>>> makeDependencies() {
+        final Map<Class<? extends PwmService>, List<Class<? extends PwmService>>> dependencies = new LinkedHashMap<>();
+        dependencies.put(ServiceA.class, Collections.<Class<? extends PwmService>>emptyList());
+        dependencies.put(ServiceB.class, Collections.<Class<? extends PwmService>>emptyList());
+        dependencies.put(ServiceC.class, Arrays.<Class<? extends PwmService>>asList(ServiceA.class, ServiceB.class));
+        dependencies.put(ServiceD.class, Collections.<Class<? extends PwmService>>singletonList(ServiceC.class));
+        dependencies.put(ServiceE.class, Collections.<Class<? extends PwmService>>emptyList());
+        return dependencies;
+    }
+
+    private static void awaitLateResults(final PwmServiceScheduler.Report report, final int expectedCount) throws InterruptedException {
+        for (int i = 0; i < 500 && report.getLateResults().size() < expectedCount; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expectedCount, report.getLateResults().size());
+    }
+
+    private static void assertBefore(
+            final TestAction action,
+            final Class<? extends PwmService> first,
+            final Class<? extends PwmService> second
+    )
+    {
+        final int secondStart = action.startOrder.indexOf(second);
+        Assert.assertTrue(first.getSimpleName() + " runs before " + second.getSimpleName(),
+                action.finishTimes.get(first) <= action.startTimes.get(second) && secondStart > action.startOrder.indexOf(first));
+    }
+
+    private static class TestAction implements PwmServiceScheduler.ServiceAction {
+        private final long defaultDelayMs;
+        private final Map<Class<? extends PwmService>, CountDownLatch> latches = new ConcurrentHashMap<>();
+        private final Map<Class<? extends PwmService>, CountDownLatch> blockers = new ConcurrentHashMap<>();
+        private final Set<Class<? extends PwmService>> failing = Collections.newSetFromMap(new ConcurrentHashMap<Class<? extends PwmService>, Boolean>());
+        private final List<Class<? extends PwmService>> startOrder = new CopyOnWriteArrayList<>();
+        private final Map<Class<? extends PwmService>, Long> startTimes = new ConcurrentHashMap<>();
+        private final Map<Class<? extends PwmService>, Long> finishTimes = new ConcurrentHashMap<>();
+        private int running;
+        private volatile int peakRunning;
+
+        private TestAction(final long defaultDelayMs) {
+            this.defaultDelayMs = defaultDelayMs;
+        }
+
+        public void execute(final Class<? extends PwmService> serviceClass) throws Exception {
+            synchronized (this) {
+                running++;
+                peakRunning = Math.max(peakRunning, running);
+            }
+            startTimes.put(serviceClass, System.nanoTime());
+            startOrder.add(serviceClass);
+            try {
+                Thread.sleep(defaultDelayMs);
+                if (latches.containsKey(serviceClass)) {
+                    latches.get(serviceClass).countDown();
+                    if (!latches.get(serviceClass).await(10, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("independent services did not run together");
+                    }
+                }
+                if (blockers.containsKey(serviceClass)) {
+                    blockers.get(serviceClass).await();
+                }
+                if (failing.contains(serviceClass)) {
+                    throw new IllegalStateException("service failed");
+                }
+            } finally {
+                finishTimes.put(serviceClass, System.nanoTime());
+                synchronized (this) {
+                    running--;
+                }
+            }
+        }
+    }
+
+    private abstract static class TestService implements PwmService {
+        public STATUS status() {
+            return STATUS.OPEN;
+        }
+
+        public void init(final PwmApplication pwmApplication) {
+        }
+
+        public void close() {
+        }
+
+        public List<HealthRecord> healthCheck() {
+            return Collections.emptyList();
+        }
+
+        public ServiceInfo serviceInfo() {
+            return null;
+        }
+    }
+
+    private static class ServiceA extends TestService {
+    }
+
+    private static class ServiceB extends TestService {
+    }
+
+    private static class ServiceC extends TestService {
+    }
+
+    private static class ServiceD extends TestService {
+    }
+
+    private static class ServiceE extends TestService {
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.config;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.config.value.NumericValue;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.i18n.PwmLocaleBundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks that the element index of {@link StoredConfiguration} stays in sync with the document: every read is
+ * compared against a configuration freshly parsed from the serialized xml, which builds its index from scratch.
+ */
+public class StoredConfigurationTest {
+
+    private static final String LDAP_PROFILE = "default";
+    private static final String BUNDLE_NAME = PwmLocaleBundle.DISPLAY.getTheClass().getName();
+    private static final String BUNDLE_KEY = "Button_Cancel";
+
+    private StoredConfiguration storedConfiguration;
+
+    @Before
+    public void setUp() throws Exception {
+        storedConfiguration = StoredConfiguration.newStoredConfiguration();
+    }
+
+    @Test
+    public void testWriteAndResetSetting() throws Exception {
+        final Object defaultValue = storedConfiguration.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject();
+
+        storedConfiguration.writeSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE, new NumericValue(123), null);
+        Assert.assertEquals(123L, storedConfiguration.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject());
+        Assert.assertFalse(storedConfiguration.isDefaultValue(PwmSetting.REPORTING_MAX_QUERY_SIZE));
+        assertMatchesReparsed(storedConfiguration);
+
+        storedConfiguration.resetSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE, null);
+        Assert.assertEquals(defaultValue, storedConfiguration.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject());
+        Assert.assertTrue(storedConfiguration.isDefaultValue(PwmSetting.REPORTING_MAX_QUERY_SIZE));
+        assertMatchesReparsed(storedConfiguration);
+
+        storedConfiguration.writeSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE, new NumericValue(456), null);
+        Assert.assertEquals(456L, storedConfiguration.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject());
+        assertMatchesReparsed(storedConfiguration);
+    }
+
+    @Test
+    public void testWriteProfiledSetting() throws Exception {
+        storedConfiguration.writeSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE,
+                new StringArrayValue(Collections.singletonList("ldaps://one.example.com:636")), null);
+        storedConfiguration.writeSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE,
+                new StringArrayValue(Collections.singletonList("ldaps://two.example.com:636")), null);
+
+        Assert.assertEquals(Collections.singletonList("ldaps://two.example.com:636"),
+                storedConfiguration.readSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE).toNativeObject());
+        assertMatchesReparsed(storedConfiguration);
+    }
+
+    @Test
+    public void testTemplateChangeRefreshesDefaults() throws Exception {
+        storedConfiguration.setTemplate(PwmSetting.Template.NOVL);
+        final Object novlValue = storedConfiguration.readSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE).toNativeObject();
+
+        storedConfiguration.setTemplate(PwmSetting.Template.AD);
+        final Object adValue = storedConfiguration.readSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE).toNativeObject();
+
+        Assert.assertFalse(novlValue.equals(adValue));
+        Assert.assertEquals(PwmSetting.Template.AD.toString(), storedConfiguration.readConfigProperty(StoredConfiguration.ConfigProperty.PROPERTY_KEY_TEMPLATE));
+        assertMatchesReparsed(storedConfiguration);
+    }
+
+    @Test
+    public void testConfigPropertyOverwrite() throws Exception {
+        storedConfiguration.writeConfigProperty(StoredConfiguration.ConfigProperty.PROPERTY_KEY_NOTES, "first");
+        storedConfiguration.writeConfigProperty(StoredConfiguration.ConfigProperty.PROPERTY_KEY_NOTES, "second");
+
+        Assert.assertEquals("second", storedConfiguration.readConfigProperty(StoredConfiguration.ConfigProperty.PROPERTY_KEY_NOTES));
+        assertMatchesReparsed(storedConfiguration);
+    }
+
+    @Test
+    public void testLocaleBundleWriteAndReset() throws Exception {
+        final Map<String,String> localeMap = new LinkedHashMap<>();
+        localeMap.put("", "Abort");
+        localeMap.put("de", "Abbrechen");
+        storedConfiguration.writeLocaleBundleMap(BUNDLE_NAME, BUNDLE_KEY, localeMap);
+
+        Assert.assertEquals(localeMap, storedConfiguration.readLocaleBundleMap(BUNDLE_NAME, BUNDLE_KEY));
+        assertMatchesReparsed(storedConfiguration);
+
+        storedConfiguration.resetLocaleBundleMap(BUNDLE_NAME, BUNDLE_KEY);
+        Assert.assertTrue(storedConfiguration.readLocaleBundleMap(BUNDLE_NAME, BUNDLE_KEY).isEmpty());
+        assertMatchesReparsed(storedConfiguration);
+    }
+
+    @Test
+    public void testCopyHasIndependentIndex() throws Exception {
+        storedConfiguration.writeSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE, new NumericValue(123), null);
+        storedConfiguration.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE);
+
+        final StoredConfiguration copy = StoredConfiguration.copy(storedConfiguration);
+        copy.writeSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE, new NumericValue(456), null);
+
+        Assert.assertEquals(123L, storedConfiguration.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject());
+        Assert.assertEquals(456L, copy.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject());
+        assertMatchesReparsed(storedConfiguration);
+        assertMatchesReparsed(copy);
+    }
+
+    private static void assertMatchesReparsed(final StoredConfiguration storedConfiguration) throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        storedConfiguration.toXml(outputStream);
+        final StoredConfiguration reparsed = StoredConfiguration.fromXml(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        Assert.assertEquals(
+                reparsed.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject(),
+                storedConfiguration.readSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE).toNativeObject());
+        Assert.assertEquals(
+                reparsed.isDefaultValue(PwmSetting.REPORTING_MAX_QUERY_SIZE),
+                storedConfiguration.isDefaultValue(PwmSetting.REPORTING_MAX_QUERY_SIZE));
+        Assert.assertEquals(
+                reparsed.readSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE).toNativeObject(),
+                storedConfiguration.readSetting(PwmSetting.LDAP_SERVER_URLS, LDAP_PROFILE).toNativeObject());
+        for (final StoredConfiguration.ConfigProperty configProperty : StoredConfiguration.ConfigProperty.values()) {
+            Assert.assertEquals(reparsed.readConfigProperty(configProperty), storedConfiguration.readConfigProperty(configProperty));
+        }
+        Assert.assertEquals(
+                reparsed.readLocaleBundleMap(BUNDLE_NAME, BUNDLE_KEY),
+                storedConfiguration.readLocaleBundleMap(BUNDLE_NAME, BUNDLE_KEY));
+    }
+}
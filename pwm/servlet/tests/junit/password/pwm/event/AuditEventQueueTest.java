@@ -0,0 +1,214 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.event;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmOperationalException;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.LocalDBStoredQueue;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class AuditEventQueueTest {
+
+    private static final int EVENT_COUNT = 250;
+
+    private File localDBDirectory;
+    private LocalDB localDB;
+
+    @Before
+    public void setUp() throws Exception {
+        localDBDirectory = File.createTempFile("pwm-audit-queue", "");
+        localDBDirectory.delete();
+        localDB = LocalDBFactory.getInstance(localDBDirectory, false, null, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (localDB != null) {
+            localDB.close();
+        }
+        FileUtils.deleteDirectory(localDBDirectory);
+    }
+
+    @Test
+    public void testEventsSurviveRestart() throws Exception {
+        final AuditEventQueue.Settings settings = new AuditEventQueue.Settings(50, 10, 50, 0, 0);
+        final TestSink deliveredSink = new TestSink("delivered", false);
+        final TestSink failingSink = new TestSink("failing", true);
+
+        final AuditEventQueue firstQueue = new AuditEventQueue(openQueue(), Arrays.<AuditEventQueue.Sink>asList(deliveredSink, failingSink), settings, "test");
+        final List<String> submittedGuids = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            final SystemAuditRecord record = SystemAuditRecord.create(AuditEvent.STARTUP, "event " + i, "test");
+            submittedGuids.add(record.getGuid());
+            firstQueue.submit(record);
+        }
+        final long startTime = System.currentTimeMillis();
+        while (deliveredSink.guids.size() < EVENT_COUNT && System.currentTimeMillis() - startTime < 10 * 1000) {
+            Thread.sleep(20);
+        }
+        firstQueue.close();
+
+        // the working sink is not held back by the failing sink, and the failing sink holds every event in the
+        // durable queue
+        Assert.assertEquals(submittedGuids, deliveredSink.guids);
+        Assert.assertEquals(EVENT_COUNT, firstQueue.size());
+
+        localDB.close();
+        localDB = LocalDBFactory.getInstance(localDBDirectory, false, null, null);
+
+        final TestSink restartedDeliveredSink = new TestSink("delivered", false);
+        final TestSink recoveredSink = new TestSink("failing", false);
+        final AuditEventQueue secondQueue = new AuditEventQueue(openQueue(), Arrays.<AuditEventQueue.Sink>asList(restartedDeliveredSink, recoveredSink), settings, "test");
+        waitForEmpty(secondQueue);
+        secondQueue.close();
+
+        Assert.assertEquals(0, secondQueue.size());
+        Assert.assertTrue("delivered events are not delivered again after restart", restartedDeliveredSink.guids.isEmpty());
+        Assert.assertEquals("events are delivered in submit order", submittedGuids, recoveredSink.guids);
+    }
+
+    @Test
+    public void testPartialFailureNotResent() throws Exception {
+        final AuditEventQueue.Settings settings = new AuditEventQueue.Settings(50, 10, 50, 0, 0);
+        final TestSink flakySink = new TestSink("flaky", false, 0, 1);
+
+        final AuditEventQueue queue = new AuditEventQueue(openQueue(), Collections.<AuditEventQueue.Sink>singletonList(flakySink), settings, "test");
+        final List<String> submittedGuids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final SystemAuditRecord record = SystemAuditRecord.create(AuditEvent.STARTUP, "event " + i, "test");
+            submittedGuids.add(record.getGuid());
+            if (i == 3) {
+                flakySink.failOnceGuid = record.getGuid();
+            }
+            queue.submit(record);
+        }
+        waitForEmpty(queue);
+        queue.close();
+
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals("each event is delivered once", submittedGuids, flakySink.guids);
+        Assert.assertNull(flakySink.failOnceGuid);
+    }
+
+    @Test
+    public void testDelayedSinkCoalescesBurst() throws Exception {
+        final AuditEventQueue.Settings settings = new AuditEventQueue.Settings(50, 10, 50, 0, 0);
+        final TestSink immediateSink = new TestSink("immediate", false);
+        final TestSink delayedSink = new TestSink("delayed", false, 2000);
+
+        final AuditEventQueue queue = new AuditEventQueue(openQueue(), Arrays.<AuditEventQueue.Sink>asList(immediateSink, delayedSink), settings, "test");
+        final List<String> submittedGuids = new ArrayList<>();
+        final long burstStartTime = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            final SystemAuditRecord record = SystemAuditRecord.create(AuditEvent.STARTUP, "event " + i, "test");
+            submittedGuids.add(record.getGuid());
+            queue.submit(record);
+        }
+        waitForEmpty(queue);
+        queue.close();
+
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(submittedGuids, immediateSink.guids);
+        Assert.assertTrue("immediate sink is not held back by the delayed sink", immediateSink.firstDeliveryTime < delayedSink.firstDeliveryTime);
+        Assert.assertTrue("delayed sink waits for its delay", delayedSink.firstDeliveryTime - burstStartTime >= delayedSink.delayMs);
+        Assert.assertEquals(submittedGuids, delayedSink.guids);
+        Assert.assertEquals("burst is delivered to the delayed sink at once", 1, delayedSink.deliveries);
+    }
+
+    private static void waitForEmpty(final AuditEventQueue queue) throws InterruptedException {
+        final long startTime = System.currentTimeMillis();
+        while (queue.size() > 0 && System.currentTimeMillis() - startTime < 10 * 1000) {
+            Thread.sleep(20);
+        }
+    }
+
+    private LocalDBStoredQueue openQueue() throws Exception {
+        return LocalDBStoredQueue.createLocalDBStoredQueue(localDB, LocalDB.DB.AUDIT_QUEUE, false);
+    }
+
+    private static class TestSink implements AuditEventQueue.Sink {
+        private final String name;
+        private final boolean failing;
+        private final long delayMs;
+        private final int maxBatchSize;
+        private volatile String failOnceGuid;
+        private final List<String> guids = new CopyOnWriteArrayList<>();
+        private volatile int deliveries;
+        private volatile long firstDeliveryTime;
+
+        private TestSink(final String name, final boolean failing) {
+            this(name, failing, 0, 0);
+        }
+
+        private TestSink(final String name, final boolean failing, final long delayMs) {
+            this(name, failing, delayMs, 0);
+        }
+
+        private TestSink(final String name, final boolean failing, final long delayMs, final int maxBatchSize) {
+            this.name = name;
+            this.failing = failing;
+            this.delayMs = delayMs;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDelayMs() {
+            return delayMs;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void deliver(final List<AuditRecord> records) throws PwmException {
+            if (failing) {
+                throw new PwmOperationalException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "sink unavailable"));
+            }
+            if (deliveries++ == 0) {
+                firstDeliveryTime = System.currentTimeMillis();
+            }
+            for (final AuditRecord record : records) {
+                if (record.getGuid().equals(failOnceGuid)) {
+                    failOnceGuid = null;
+                    throw new PwmOperationalException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "record rejected"));
+                }
+                guids.add(record.getGuid());
+            }
+        }
+    }
+}
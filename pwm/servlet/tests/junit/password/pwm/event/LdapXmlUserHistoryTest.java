@@ -0,0 +1,196 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.event;
+
+import com.novell.ldapchai.ChaiUser;
+import com.novell.ldapchai.util.ConfigObjectRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+public class LdapXmlUserHistoryTest {
+
+    private static final String ATTRIBUTE = "pwmEventLog";
+    private static final String COR_RECORD_ID = "0001";
+
+    @Test
+    public void testBurstIsSingleWrite() throws Exception {
+        final long now = System.currentTimeMillis();
+        final List<UserAuditRecord> burst = Arrays.asList(
+                makeRecord(AuditEvent.AUTHENTICATE, "cn=user1", now),
+                makeRecord(AuditEvent.CHANGE_PASSWORD, "cn=user1", now),
+                makeRecord(AuditEvent.AUTHENTICATE, "cn=user1", now + 1)
+        );
+
+        final MemoryEntry perEventEntry = new MemoryEntry();
+        for (final UserAuditRecord record : burst) {
+            LdapXmlUserHistory.writeUserHistory(perEventEntry.asChaiUser(), ATTRIBUTE, Collections.singletonList(record), 20, 0, false);
+        }
+
+        final MemoryEntry batchedEntry = new MemoryEntry();
+        LdapXmlUserHistory.writeUserHistory(batchedEntry.asChaiUser(), ATTRIBUTE, burst, 20, 0, false);
+
+        Assert.assertEquals(burst.size(), perEventEntry.writes);
+        Assert.assertEquals(1, batchedEntry.writes);
+        Assert.assertTrue(batchedEntry.reads < perEventEntry.reads);
+
+        final LdapXmlUserHistory.StoredHistory storedHistory = readHistory(batchedEntry);
+        Assert.assertEquals(burst.size(), storedHistory.size());
+        Assert.assertEquals(readHistory(perEventEntry).toPayload(false), storedHistory.toPayload(false));
+    }
+
+    @Test
+    public void testXmlWrittenByDefault() throws Exception {
+        final MemoryEntry entry = new MemoryEntry();
+        LdapXmlUserHistory.writeUserHistory(entry.asChaiUser(), ATTRIBUTE,
+                Collections.singletonList(makeRecord(AuditEvent.AUTHENTICATE, "cn=user1", System.currentTimeMillis())), 20, 0, true);
+        Assert.assertTrue(readPayload(entry).startsWith("["));
+        Assert.assertTrue(readPayload(entry).contains("\"t\":"));
+
+        // a server without the json format enabled reads the json history and writes it back as xml
+        LdapXmlUserHistory.writeUserHistory(entry.asChaiUser(), ATTRIBUTE,
+                Collections.singletonList(makeRecord(AuditEvent.CHANGE_PASSWORD, "cn=user1", System.currentTimeMillis())), 20, 0, false);
+        Assert.assertTrue(readPayload(entry).startsWith("<"));
+
+        final List<LdapXmlUserHistory.StoredEvent> events = readHistory(entry).getEvents();
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals(AuditEvent.AUTHENTICATE, events.get(0).getAuditEvent());
+        Assert.assertEquals("message", events.get(0).getMessage());
+        Assert.assertEquals("10.0.0.1", events.get(0).getSourceAddress());
+        Assert.assertEquals("client.example.com", events.get(0).getSourceHost());
+        Assert.assertEquals(AuditEvent.CHANGE_PASSWORD, events.get(1).getAuditEvent());
+    }
+
+    @Test
+    public void testLegacyHistoryIsCompactedAndTrimmed() throws Exception {
+        final long now = System.currentTimeMillis();
+        final StringBuilder legacyXml = new StringBuilder("<history>");
+        for (int i = 0; i < 30; i++) {
+            final long timestamp = now - (30 - i) * 60 * 60 * 1000L;
+            legacyXml.append("<record timestamp=\"").append(timestamp).append("\" eventCode=\"").append(AuditEvent.AUTHENTICATE.getMessage().getKey())
+                    .append("\" srcIP=\"10.0.0.").append(i).append("\" srcHost=\"host").append(i).append("\"><![CDATA[legacy ").append(i).append("]]></record>");
+        }
+        legacyXml.append("</history>");
+
+        final MemoryEntry entry = new MemoryEntry();
+        ConfigObjectRecord.createNew(entry.asChaiUser(), ATTRIBUTE, COR_RECORD_ID, null, null).updatePayload(legacyXml.toString());
+        final int legacyLength = legacyXml.length();
+
+        final LdapXmlUserHistory.StoredHistory legacyHistory = readHistory(entry);
+        Assert.assertEquals(30, legacyHistory.size());
+
+        // keep at most 20 events, none older than 12 hours
+        final int compactLength = LdapXmlUserHistory.writeUserHistory(entry.asChaiUser(), ATTRIBUTE,
+                Collections.singletonList(makeRecord(AuditEvent.CHANGE_PASSWORD, "cn=user1", now)), 20, 12 * 60 * 60 * 1000L, true);
+
+        final LdapXmlUserHistory.StoredHistory compactHistory = readHistory(entry);
+        Assert.assertEquals(12, compactHistory.size());
+        final List<LdapXmlUserHistory.StoredEvent> events = compactHistory.getEvents();
+        Assert.assertEquals("legacy 19", events.get(0).getMessage());
+        Assert.assertEquals("10.0.0.19", events.get(0).getSourceAddress());
+        Assert.assertEquals("host19", events.get(0).getSourceHost());
+        Assert.assertEquals(AuditEvent.CHANGE_PASSWORD, events.get(events.size() - 1).getAuditEvent());
+        Assert.assertTrue(compactLength < legacyLength);
+    }
+
+    @Test
+    public void testRedeliveredBatchIsNotDuplicated() throws Exception {
+        final long now = System.currentTimeMillis();
+        final List<UserAuditRecord> batch = Arrays.asList(
+                makeRecord(AuditEvent.AUTHENTICATE, "cn=user1", now),
+                makeRecord(AuditEvent.CHANGE_PASSWORD, "cn=user1", now)
+        );
+
+        final MemoryEntry entry = new MemoryEntry();
+        LdapXmlUserHistory.writeUserHistory(entry.asChaiUser(), ATTRIBUTE, batch, 20, 0, true);
+
+        // the same batch delivered again after a later user in it failed, plus one new event
+        final List<UserAuditRecord> redelivered = new ArrayList<>(batch);
+        redelivered.add(makeRecord(AuditEvent.AUTHENTICATE, "cn=user1", now + 1));
+        LdapXmlUserHistory.writeUserHistory(entry.asChaiUser(), ATTRIBUTE, redelivered, 20, 0, true);
+
+        final List<LdapXmlUserHistory.StoredEvent> events = readHistory(entry).getEvents();
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals(AuditEvent.AUTHENTICATE, events.get(0).getAuditEvent());
+        Assert.assertEquals(AuditEvent.CHANGE_PASSWORD, events.get(1).getAuditEvent());
+        Assert.assertEquals(now + 1, events.get(2).getTimestamp());
+    }
+
+    private static LdapXmlUserHistory.StoredHistory readHistory(final MemoryEntry entry) throws Exception {
+        return LdapXmlUserHistory.StoredHistory.fromPayload(readPayload(entry));
+    }
+
+    private static String readPayload(final MemoryEntry entry) throws Exception {
+        final List corList = ConfigObjectRecord.readRecordFromLDAP(entry.asChaiUser(), ATTRIBUTE, COR_RECORD_ID, null, null);
+        Assert.assertEquals(1, corList.size());
+        return ((ConfigObjectRecord) corList.get(0)).getPayload();
+    }
+
+    private static UserAuditRecord makeRecord(final AuditEvent auditEvent, final String userDN, final long timestamp) {
+        return UserAuditRecord.create(new Date(timestamp), auditEvent, "user1", userDN, "default", "message", "10.0.0.1", "client.example.com");
+    }
+
+    /**
+     * Stands in for a directory entry, storing the values of a single attribute and counting the operations
+     * performed on it.
+     */
+    private static class MemoryEntry implements InvocationHandler {
+        private final Set<String> values = new LinkedHashSet<>();
+        private int reads;
+        private int writes;
+
+        private ChaiUser asChaiUser() {
+            return (ChaiUser) Proxy.newProxyInstance(ChaiUser.class.getClassLoader(), new Class[]{ChaiUser.class}, this);
+        }
+
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            switch (method.getName()) {
+                case "readMultiStringAttribute":
+                    reads++;
+                    return new LinkedHashSet<>(values);
+
+                case "addAttribute":
+                    writes++;
+                    values.add((String) args[1]);
+                    return null;
+
+                case "replaceAttribute":
+                    writes++;
+                    values.remove((String) args[1]);
+                    values.add((String) args[2]);
+                    return null;
+
+                case "getEntryDN":
+                    return "cn=user1";
+
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    }
+}
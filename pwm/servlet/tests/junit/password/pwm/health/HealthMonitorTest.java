@@ -0,0 +1,117 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.health;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.PwmApplication;
+import password.pwm.util.TimeDuration;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HealthMonitorTest {
+
+    private static final TimeDuration LONG_INTERVAL = new TimeDuration(60 * 60 * 1000);
+
+    private HealthMonitor healthMonitor;
+    private final CountDownLatch releaseLatch = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        healthMonitor = new HealthMonitor();
+        healthMonitor.open(new TimeDuration(60 * 1000), "HealthMonitorTest");
+    }
+
+    @After
+    public void tearDown() {
+        releaseLatch.countDown();
+        healthMonitor.close();
+    }
+
+    @Test
+    public void testPendingCheckerIsReported() throws Exception {
+        healthMonitor.registerHealthCheck(new FixedChecker(), LONG_INTERVAL, new TimeDuration(60 * 1000));
+        healthMonitor.registerHealthCheck(new BlockingChecker(), LONG_INTERVAL, new TimeDuration(60 * 1000));
+
+        healthMonitor.getHealthRecords();
+        final Set<HealthRecord> records = waitForRecord(HealthStatus.GOOD);
+
+        Assert.assertTrue(records.contains(HealthRecord.forMessage(HealthMessage.HealthCheck_Pending, "BlockingChecker")));
+        Assert.assertEquals(HealthStatus.CAUTION, healthMonitor.getMostSevereHealthStatus());
+
+        releaseLatch.countDown();
+        waitForRecord(HealthStatus.WARN);
+        Assert.assertFalse(healthMonitor.getHealthRecords().contains(HealthRecord.forMessage(HealthMessage.HealthCheck_Pending, "BlockingChecker")));
+    }
+
+    @Test
+    public void testTimedOutCheckerIsReported() throws Exception {
+        final TimeDuration timeout = new TimeDuration(100);
+        healthMonitor.registerHealthCheck(new BlockingChecker(), LONG_INTERVAL, timeout);
+
+        healthMonitor.getHealthRecords(true);
+        final Set<HealthRecord> records = waitForRecord(HealthMessage.HealthCheck_Timeout.getStatus());
+
+        Assert.assertTrue(records.contains(HealthRecord.forMessage(HealthMessage.HealthCheck_Timeout, "BlockingChecker", timeout.asCompactString())));
+        Assert.assertEquals(HealthStatus.WARN, healthMonitor.getMostSevereHealthStatus());
+    }
+
+    private Set<HealthRecord> waitForRecord(final HealthStatus healthStatus) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10 * 1000;
+        while (System.currentTimeMillis() < deadline) {
+            final Set<HealthRecord> records = healthMonitor.getHealthRecords();
+            for (final HealthRecord record : records) {
+                if (record.getStatus() == healthStatus) {
+                    return records;
+                }
+            }
+            Thread.sleep(10);
+        }
+        Assert.fail("no " + healthStatus + " health record was reported");
+        return null;
+    }
+
+    private static class FixedChecker implements HealthChecker {
+        public List<HealthRecord> doHealthCheck(final PwmApplication pwmApplication) {
+            return Collections.singletonList(new HealthRecord(HealthStatus.GOOD, HealthTopic.Application, "fixed checker"));
+        }
+    }
+
+    private class BlockingChecker implements HealthChecker {
+        public List<HealthRecord> doHealthCheck(final PwmApplication pwmApplication) {
+            try {
+                releaseLatch.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(new HealthRecord(HealthStatus.WARN, HealthTopic.Application, "blocking checker"));
+        }
+    }
+}
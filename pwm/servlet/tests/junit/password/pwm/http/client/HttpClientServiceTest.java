@@ -0,0 +1,138 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.http.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.config.Configuration;
+import password.pwm.config.StoredConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HttpClientServiceTest {
+
+    private static final int THREAD_COUNT = 4;
+    private static final int MESSAGES_PER_THREAD = 250;
+
+    private HttpServer smsGateway;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Set<InetSocketAddress> clientConnections = Collections.newSetFromMap(new ConcurrentHashMap<InetSocketAddress, Boolean>());
+
+    @Before
+    public void setUp() throws Exception {
+        // the jdk http server otherwise delays small responses on kept alive connections
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        smsGateway = HttpServer.create(new InetSocketAddress("localhost", 0), 50);
+        smsGateway.createContext("/sms", new HttpHandler() {
+            public void handle(final HttpExchange exchange) throws IOException {
+                final InputStream inputStream = exchange.getRequestBody();
+                while (inputStream.read() != -1) {
+                    // discard request body
+                }
+                requestCount.incrementAndGet();
+                clientConnections.add(exchange.getRemoteAddress());
+                final byte[] response = "OK".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, response.length);
+                final OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(response);
+                outputStream.close();
+            }
+        });
+        smsGateway.setExecutor(Executors.newFixedThreadPool(THREAD_COUNT * 2));
+        smsGateway.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        smsGateway.stop(0);
+    }
+
+    @Test
+    public void testPooledClientReusesConnections() throws Exception {
+        final Configuration configuration = new Configuration(StoredConfiguration.newStoredConfiguration());
+        final int messageCount = THREAD_COUNT * MESSAGES_PER_THREAD;
+
+        final PoolingClientConnectionManager connectionManager = HttpClientService.makeConnectionManager(50, 10);
+        final HttpClient sharedClient = PwmHttpClient.makeHttpClient(configuration, connectionManager);
+        try {
+            sendConcurrently(sharedClient);
+            Assert.assertEquals(messageCount, requestCount.get());
+            Assert.assertTrue("connections are kept alive and reused", clientConnections.size() <= THREAD_COUNT);
+            Assert.assertEquals("all connections returned to pool", 0, connectionManager.getTotalStats().getLeased());
+            Assert.assertTrue(connectionManager.getTotalStats().getAvailable() <= THREAD_COUNT);
+        } finally {
+            connectionManager.shutdown();
+        }
+    }
+
+    private void sendConcurrently(final HttpClient httpClient) throws Exception {
+        final String gatewayUrl = "http://localhost:" + smsGateway.getAddress().getPort() + "/sms";
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int threadNumber = t;
+            final Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                            final HttpPost httpPost = new HttpPost(gatewayUrl);
+                            httpPost.setEntity(new StringEntity("to=5551234&message=test+" + threadNumber + "+" + i));
+                            final HttpResponse httpResponse = httpClient.execute(httpPost);
+                            Assert.assertEquals("OK", EntityUtils.toString(httpResponse.getEntity()));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("sms send failed: " + failure.get());
+        }
+    }
+}
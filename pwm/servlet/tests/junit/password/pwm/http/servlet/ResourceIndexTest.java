@@ -0,0 +1,191 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.http.servlet;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+public class ResourceIndexTest {
+
+    private static final String STYLE_PATH = "/public/resources/themes/style.css";
+    private static final String LOGO_PATH = "/public/resources/themes/logo.png";
+
+    private ServletContext servletContext;
+    private byte[] css;
+
+    @Before
+    public void setUp() throws Exception {
+        final StringBuilder cssText = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            cssText.append(".rule").append(i).append(" { color: #00000").append(i % 10).append("; }\n");
+        }
+        css = cssText.toString().getBytes("UTF-8");
+
+        servletContext = (ServletContext) Proxy.newProxyInstance(
+                ServletContext.class.getClassLoader(),
+                new Class<?>[]{ServletContext.class},
+                new InvocationHandler() {
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if (method.getName().equals("getMimeType")) {
+                            final String name = (String) args[0];
+                            return name.endsWith(".css") ? "text/css" : name.endsWith(".png") ? "image/png" : null;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testIndexedResources() throws Exception {
+        final ResourceIndex resourceIndex = new ResourceIndex(servletContext, 100 * 1024, 10 * 1024 * 1024);
+        Assert.assertNull("resources are only indexed when requested", resourceIndex.get(STYLE_PATH));
+
+        final TestFileResource styleFile = new TestFileResource(css);
+        final ResourceIndex.IndexedResource style = resourceIndex.index(STYLE_PATH, styleFile);
+        Assert.assertSame(style, resourceIndex.get(STYLE_PATH));
+        Assert.assertSame(style, resourceIndex.index(STYLE_PATH, styleFile));
+        Assert.assertEquals(1, styleFile.reads);
+        Assert.assertEquals("text/css;charset=UTF-8", style.getContentType());
+        Assert.assertTrue(style.hasEncodedContent());
+
+        final ResourceIndex.ContentEncoding gzip = style.selectEncoding("gzip, deflate");
+        Assert.assertEquals(ResourceIndex.ContentEncoding.GZIP, gzip);
+        Assert.assertNull(style.selectEncoding("gzip;q=0, identity"));
+        Assert.assertNull(style.selectEncoding("*, gzip;q=0"));
+        Assert.assertNull(style.selectEncoding(null));
+        Assert.assertTrue(style.getContent(gzip).length < style.getContent(null).length);
+        Assert.assertTrue(Arrays.equals(style.getContent(null), gunzip(style.getContent(gzip))));
+        Assert.assertFalse(style.getETag(null).equals(style.getETag(gzip)));
+        Assert.assertEquals((long) (css.length + style.getContent(gzip).length), resourceIndex.byteCount());
+
+        final ResourceIndex.IndexedResource logo = resourceIndex.index(LOGO_PATH, new TestFileResource(new byte[]{1, 2, 3, 4}));
+        Assert.assertFalse(logo.hasEncodedContent());
+        Assert.assertNull(logo.selectEncoding("gzip"));
+        Assert.assertEquals(2, resourceIndex.size());
+    }
+
+    @Test
+    public void testSizeLimits() throws Exception {
+        final ResourceIndex perFileLimited = new ResourceIndex(servletContext, 100, 10 * 1024 * 1024);
+        final TestFileResource styleFile = new TestFileResource(css);
+        Assert.assertNull("file over per-file limit is not indexed", perFileLimited.index(STYLE_PATH, styleFile));
+        Assert.assertEquals("file over per-file limit is not read", 0, styleFile.reads);
+        Assert.assertNotNull(perFileLimited.index(LOGO_PATH, new TestFileResource(new byte[]{1, 2, 3, 4})));
+
+        final int gzipLength = new ResourceIndex(servletContext, 100 * 1024, 10 * 1024 * 1024)
+                .index(STYLE_PATH, new TestFileResource(css)).getContent(ResourceIndex.ContentEncoding.GZIP).length;
+
+        final ResourceIndex totalLimited = new ResourceIndex(servletContext, 100 * 1024, css.length + gzipLength - 1);
+        Assert.assertNull("compressed copies count toward the total limit", totalLimited.index(STYLE_PATH, new TestFileResource(css)));
+        Assert.assertEquals(0L, totalLimited.byteCount());
+
+        final ResourceIndex exactLimit = new ResourceIndex(servletContext, 100 * 1024, css.length + gzipLength);
+        Assert.assertNotNull(exactLimit.index(STYLE_PATH, new TestFileResource(css)));
+    }
+
+    @Test
+    public void testModifiedResourceIsIndexedAgain() throws Exception {
+        final ResourceIndex resourceIndex = new ResourceIndex(servletContext, 100 * 1024, 10 * 1024 * 1024);
+        final TestFileResource styleFile = new TestFileResource(css);
+        styleFile.lastModified = 1000;
+        final ResourceIndex.IndexedResource original = resourceIndex.index(STYLE_PATH, styleFile);
+        Assert.assertSame(original, resourceIndex.get(STYLE_PATH));
+
+        final byte[] modifiedCss = Arrays.copyOf(css, css.length / 2);
+        styleFile.content = modifiedCss;
+        styleFile.lastModified = 2000;
+        Assert.assertNull("modified resource is dropped from the index", resourceIndex.get(STYLE_PATH));
+        Assert.assertEquals(0L, resourceIndex.byteCount());
+
+        final ResourceIndex.IndexedResource modified = resourceIndex.index(STYLE_PATH, styleFile);
+        Assert.assertEquals(2, styleFile.reads);
+        Assert.assertTrue(Arrays.equals(modifiedCss, modified.getContent(null)));
+        Assert.assertFalse(original.getETag(null).equals(modified.getETag(null)));
+        Assert.assertEquals(2000L, modified.getLastModified());
+        Assert.assertSame(modified, resourceIndex.get(STYLE_PATH));
+        Assert.assertEquals(1, resourceIndex.size());
+    }
+
+    @Test
+    public void testETagMatching() {
+        final String eTag = "\"abc\"";
+        Assert.assertTrue(ResourceIndex.matchesETag("\"abc\"", eTag));
+        Assert.assertTrue(ResourceIndex.matchesETag("\"xyz\", W/\"abc\"", eTag));
+        Assert.assertTrue(ResourceIndex.matchesETag("*", eTag));
+        Assert.assertFalse(ResourceIndex.matchesETag("\"abc-gzip\"", eTag));
+        Assert.assertFalse(ResourceIndex.matchesETag(null, eTag));
+    }
+
+    private static byte[] gunzip(final byte[] input) throws IOException {
+        final GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(input));
+        try {
+            return IOUtils.toByteArray(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static class TestFileResource implements ResourceFileServlet.FileResource {
+        private byte[] content;
+        private long lastModified;
+        private int reads;
+
+        private TestFileResource(final byte[] content) {
+            this.content = content;
+        }
+
+        public InputStream getInputStream() {
+            reads++;
+            return new ByteArrayInputStream(content);
+        }
+
+        public long length() {
+            return content.length;
+        }
+
+        public long lastModified() {
+            return lastModified;
+        }
+
+        public boolean exists() {
+            return true;
+        }
+
+        public String getName() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.i18n;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.PwmConstants;
+import password.pwm.config.Configuration;
+import password.pwm.config.StoredConfiguration;
+
+import java.util.*;
+
+public class LocalizedMessageTableTest {
+
+    @Test
+    public void testMatchesResourceBundles() throws Exception {
+        final Configuration configuration = new Configuration(StoredConfiguration.newStoredConfiguration());
+        for (final Locale locale : Arrays.asList(PwmConstants.DEFAULT_LOCALE, new Locale("de"), new Locale("pt", "BR"))) {
+            final LocalizedMessageTable table = configuration.readLocalizedMessageTable(locale);
+            Assert.assertSame(table, configuration.readLocalizedMessageTable(locale));
+            for (final PwmLocaleBundle pwmLocaleBundle : PwmLocaleBundle.values()) {
+                final ResourceBundle bundle = ResourceBundle.getBundle(pwmLocaleBundle.getTheClass().getName(), locale);
+                for (final String key : bundle.keySet()) {
+                    Assert.assertEquals(bundle.getString(key), table.getMessage(pwmLocaleBundle.getTheClass(), key).format(null));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCustomText() throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        final Map<String,String> customText = new HashMap<>();
+        customText.put("", "Welcome %1%");
+        customText.put("de", "Willkommen %1%");
+        storedConfiguration.writeLocaleBundleMap(Display.class.getName(), Display.Title_Application.getKey(), customText);
+        final Configuration configuration = new Configuration(storedConfiguration);
+
+        Assert.assertEquals("Willkommen user", LocaleHelper.getLocalizedMessage(new Locale("de"), Display.Title_Application.getKey(), configuration, Display.class, new String[]{"user"}));
+        Assert.assertEquals("Welcome user", LocaleHelper.getLocalizedMessage(new Locale("fr"), Display.Title_Application.getKey(), configuration, Display.class, new String[]{"user"}));
+
+        // a reloaded configuration does not see the custom text of the previous one
+        final Configuration reloadedConfiguration = new Configuration(StoredConfiguration.newStoredConfiguration());
+        Assert.assertEquals(
+                ResourceBundle.getBundle(Display.class.getName(), new Locale("de")).getString(Display.Title_Application.getKey()),
+                LocaleHelper.getLocalizedMessage(new Locale("de"), Display.Title_Application, reloadedConfiguration));
+    }
+
+    @Test
+    public void testParameters() throws Exception {
+        final LocalizedMessageTable.MessageTemplate template = new LocalizedMessageTable.MessageTemplate("%1% of 100% %done% %2%, %1%, %3%");
+        Assert.assertEquals("a of 100% %done% b, a, %3%", template.format(new String[]{"a", "b"}));
+        Assert.assertEquals("%1% of 100% %done% b, %1%, %3%", template.format(new String[]{null, "b"}));
+        Assert.assertEquals("%1% of 100% %done% %2%, %1%, %3%", template.format(null));
+        Assert.assertEquals("%01%", new LocalizedMessageTable.MessageTemplate("%01%").format(new String[]{"x"}));
+    }
+
+    @Test
+    public void testMatchesPerCallResolution() throws Exception {
+        final Configuration configuration = new Configuration(StoredConfiguration.newStoredConfiguration());
+        final Locale locale = new Locale("de");
+        final String key = Message.Success_PasswordChange.getKey();
+        final String[] values = new String[]{"value1", "value2"};
+
+        String value = null;
+        final Map<Locale,String> configuredBundle = configuration.readLocalizedBundle(Message.class.getName(), key);
+        if (configuredBundle != null) {
+            value = configuredBundle.get(LocaleHelper.localeResolver(locale, configuredBundle.keySet()));
+        }
+        if (value == null) {
+            value = ResourceBundle.getBundle(Message.class.getName(), locale).getString(key);
+        }
+        for (int v = 0; v < values.length; v++) {
+            value = value.replace("%" + (v + 1) + "%", values[v]);
+        }
+
+        Assert.assertEquals(value, LocaleHelper.getLocalizedMessage(locale, key, configuration, Message.class, values));
+        Assert.assertEquals(value, LocaleHelper.getLocalizedMessage(locale, key, configuration, Message.class, values));
+    }
+}
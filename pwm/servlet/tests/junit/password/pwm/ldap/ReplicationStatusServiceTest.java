@@ -0,0 +1,234 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.ldap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ReplicationStatusServiceTest {
+
+    private static final UserIdentity USER = new UserIdentity("cn=user1,ou=users,o=test", "default");
+
+    private ReplicationStatusService service;
+    private TestReplicaReader replicaReader;
+
+    @Before
+    public void setUp() {
+        replicaReader = new TestReplicaReader();
+        service = new ReplicationStatusService();
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void testReplicasReadConcurrently() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            replicaReader.addReplica("ldap://replica" + i, 0, new Date(1000));
+        }
+        // each read waits until all five reads are running, so the check only succeeds if they run together
+        replicaReader.readLatch = new CountDownLatch(5);
+        service.open(replicaReader, 10, 10 * 1000, 0, "test");
+
+        final Map<String,Date> results = service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER);
+
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(new Date(1000), results.get("ldap://replica3"));
+        Assert.assertEquals(5, replicaReader.peakRunning);
+    }
+
+    @Test
+    public void testSlowReplicaTimesOut() throws Exception {
+        replicaReader.addReplica("ldap://fast1", 10, new Date(2000));
+        replicaReader.addReplica("ldap://slow", 0, new Date(1000));
+        replicaReader.addReplica("ldap://fast2", 50, new Date(2000));
+        final CountDownLatch slowLatch = new CountDownLatch(1);
+        replicaReader.blockers.put("ldap://slow", slowLatch);
+        service.open(replicaReader, 10, 300, 0, "test");
+
+        try {
+            final Map<String,Date> results = service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER);
+            Assert.assertEquals(Arrays.asList("ldap://fast1", "ldap://fast2"), new ArrayList<>(results.keySet()));
+        } finally {
+            slowLatch.countDown();
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsCoalesced() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            replicaReader.addReplica("ldap://replica" + i, 300, new Date(1000 + i));
+        }
+        service.open(replicaReader, 10, 5000, 60 * 1000, "test");
+
+        final int threadCount = 20;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Map<String,Date>> results = Collections.synchronizedList(new ArrayList<Map<String,Date>>());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                        results.add(service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER));
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        startLatch.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("replica check failed: " + failure.get());
+        }
+        Assert.assertEquals(threadCount, results.size());
+        for (final Map<String,Date> result : results) {
+            Assert.assertEquals(results.get(0), result);
+        }
+        Assert.assertEquals("each replica read once", 3, replicaReader.readCount.get());
+
+        // completed result is reused for later polls
+        service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER);
+        Assert.assertEquals(3, replicaReader.readCount.get());
+
+        // other users are checked separately
+        service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, new UserIdentity("cn=user2,ou=users,o=test", "default"));
+        Assert.assertEquals(6, replicaReader.readCount.get());
+        Assert.assertEquals(2, service.cachedCheckCount());
+    }
+
+    @Test
+    public void testResultExpires() throws Exception {
+        replicaReader.addReplica("ldap://replica1", 0, new Date(1000));
+        service.open(replicaReader, 10, 5000, 100, "test");
+
+        Assert.assertEquals(new Date(1000), service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER).get("ldap://replica1"));
+        replicaReader.addReplica("ldap://replica1", 0, new Date(2000));
+        Assert.assertEquals(new Date(1000), service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER).get("ldap://replica1"));
+
+        Thread.sleep(150);
+        Assert.assertEquals(new Date(2000), service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER).get("ldap://replica1"));
+        Assert.assertEquals(2, replicaReader.readCount.get());
+    }
+
+    @Test
+    public void testFailedCheckNotReused() throws Exception {
+        replicaReader.addReplica("ldap://replica1", 0, new Date(1000));
+        replicaReader.unavailable = true;
+        service.open(replicaReader, 10, 5000, 60 * 1000, "test");
+
+        try {
+            service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER);
+            Assert.fail("check should fail while ldap is unavailable");
+        } catch (PwmUnrecoverableException e) {
+            Assert.assertEquals(PwmError.ERROR_DIRECTORY_UNAVAILABLE, e.getError());
+        }
+
+        replicaReader.unavailable = false;
+        Assert.assertEquals(1, service.readReplicaPasswordTimes(SessionLabel.SYSTEM_LABEL, USER).size());
+    }
+
+    /**
+     * In-memory replicas, each answering after a fixed delay.
+     */
+    private static class TestReplicaReader implements ReplicationStatusService.ReplicaReader {
+        private final Map<String,Date> replicaDates = new ConcurrentHashMap<>();
+        private final Map<String,Long> replicaDelays = new ConcurrentHashMap<>();
+        private final List<String> replicaUrls = new ArrayList<>();
+        private final Map<String,CountDownLatch> blockers = new ConcurrentHashMap<>();
+        private final AtomicInteger readCount = new AtomicInteger();
+        private volatile CountDownLatch readLatch;
+        private volatile boolean unavailable;
+        private int running;
+        private volatile int peakRunning;
+
+        private void addReplica(final String url, final long delayMs, final Date passwordModificationDate) {
+            if (!replicaUrls.contains(url)) {
+                replicaUrls.add(url);
+            }
+            replicaDelays.put(url, delayMs);
+            replicaDates.put(url, passwordModificationDate);
+        }
+
+        public List<String> replicaUrls(final UserIdentity userIdentity) throws PwmUnrecoverableException {
+            if (unavailable) {
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_DIRECTORY_UNAVAILABLE, "ldap unavailable"));
+            }
+            return new ArrayList<>(replicaUrls);
+        }
+
+        public Date readPasswordModificationDate(final SessionLabel sessionLabel, final String replicaUrl, final UserIdentity userIdentity)
+                throws Exception
+        {
+            readCount.incrementAndGet();
+            synchronized (this) {
+                running++;
+                peakRunning = Math.max(peakRunning, running);
+            }
+            try {
+                Thread.sleep(replicaDelays.get(replicaUrl));
+                if (readLatch != null) {
+                    readLatch.countDown();
+                    if (!readLatch.await(10, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("replicas were not read concurrently");
+                    }
+                }
+                if (blockers.containsKey(replicaUrl)) {
+                    blockers.get(replicaUrl).await();
+                }
+                return replicaDates.get(replicaUrl);
+            } finally {
+                synchronized (this) {
+                    running--;
+                }
+            }
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.token;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class TokenExpiryIndexTest {
+
+    private static final int TOKEN_COUNT = 100 * 1000;
+    private static final long BUCKET_WIDTH_MS = 60 * 1000;
+    private static final long MAX_AGE_MS = 24 * 60 * 60 * 1000;
+
+    @Test
+    public void testPurgeOnlyVisitsOutdatedTokens() {
+        final long now = System.currentTimeMillis();
+        final long cutoffTime = now - MAX_AGE_MS;
+        final TokenExpiryIndex expiryIndex = new TokenExpiryIndex(BUCKET_WIDTH_MS);
+        final Set<String> outdatedKeys = new HashSet<>();
+        final Set<String> currentKeys = new HashSet<>();
+
+        // issue dates spread evenly over the two days before now, so roughly half are outdated
+        final Random random = new Random(0);
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            final String storageKey = "token-" + i + "-hash";
+            final long issueTime = now - (long)(random.nextDouble() * MAX_AGE_MS * 2);
+            expiryIndex.add(storageKey, new Date(issueTime));
+            if (issueTime < cutoffTime - BUCKET_WIDTH_MS) {
+                outdatedKeys.add(storageKey);
+            } else if (issueTime >= cutoffTime) {
+                currentKeys.add(storageKey);
+            }
+        }
+        Assert.assertEquals(TOKEN_COUNT, expiryIndex.size());
+
+        int purgedTokens = 0;
+        List<String> batch = expiryIndex.outdatedKeys(cutoffTime, 1000);
+        while (!batch.isEmpty()) {
+            for (final String storageKey : batch) {
+                Assert.assertFalse("current token purged", currentKeys.contains(storageKey));
+                expiryIndex.remove(storageKey);
+                outdatedKeys.remove(storageKey);
+            }
+            purgedTokens += batch.size();
+            batch = expiryIndex.outdatedKeys(cutoffTime, 1000);
+        }
+
+        Assert.assertTrue("all outdated tokens are purged", outdatedKeys.isEmpty());
+        Assert.assertEquals(TOKEN_COUNT - purgedTokens, expiryIndex.size());
+        Assert.assertTrue(expiryIndex.outdatedKeys(cutoffTime, 1000).isEmpty());
+    }
+
+    @Test
+    public void testCurrentTokensAreNotPurged() {
+        final long now = System.currentTimeMillis();
+        final TokenExpiryIndex expiryIndex = new TokenExpiryIndex(BUCKET_WIDTH_MS);
+        expiryIndex.add("current", new Date(now));
+        expiryIndex.add("undated", null);
+
+        final List<String> outdatedKeys = expiryIndex.outdatedKeys(now - MAX_AGE_MS, 1000);
+        Assert.assertEquals(Collections.singletonList("undated"), outdatedKeys);
+
+        // re-adding a key moves it rather than duplicating it
+        expiryIndex.add("current", new Date(now - MAX_AGE_MS * 2));
+        Assert.assertEquals(2, expiryIndex.size());
+        Assert.assertEquals(2, expiryIndex.outdatedKeys(now - MAX_AGE_MS, 1000).size());
+    }
+}
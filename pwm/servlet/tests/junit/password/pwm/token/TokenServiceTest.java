@@ -0,0 +1,163 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.token;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.config.value.NumericValue;
+import password.pwm.config.value.PasswordValue;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.PwmOperationalException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PasswordData;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenServiceTest {
+
+    private static final long TOKEN_LIFETIME_SECONDS = 60 * 60;
+
+    private TokenService tokenService;
+    private MemoryTokenMachine tokenMachine;
+
+    @Before
+    public void setUp() throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(PwmSetting.PWM_SECURITY_KEY, new PasswordValue(new PasswordData("TokenServiceTest-security-key-0123456789")), null);
+        storedConfiguration.writeSetting(PwmSetting.TOKEN_LIFETIME, new NumericValue(TOKEN_LIFETIME_SECONDS), null);
+        storedConfiguration.writeSetting(PwmSetting.APP_PROPERTY_OVERRIDES, new StringArrayValue(Arrays.asList(
+                "token.removalDelayMS=0",
+                "token.expiryIndex.bucketMS=60000"
+        )), null);
+
+        tokenService = new TokenService();
+        tokenMachine = new MemoryTokenMachine();
+        tokenService.open(new Configuration(storedConfiguration), tokenMachine);
+    }
+
+    @Test
+    public void testStorageValueRoundTrip() throws Exception {
+        final TokenPayload tokenPayload = new TokenPayload("test", null, null, null, "guid-1");
+        final String storedValue = tokenService.toStorageValue(tokenPayload);
+
+        Assert.assertEquals(tokenPayload.getDate(), TokenService.readStorageIssueDate(storedValue));
+        Assert.assertEquals("guid-1", tokenService.fromStorageValue(storedValue).getGuid());
+
+        final String legacyValue = tokenService.toEncryptedString(tokenPayload);
+        Assert.assertNull(TokenService.readStorageIssueDate(legacyValue));
+        Assert.assertEquals("guid-1", tokenService.fromStorageValue(legacyValue).getGuid());
+    }
+
+    @Test
+    public void testPurgeUsesStoredIssueDates() throws Exception {
+        final Date outdatedIssueDate = new Date(System.currentTimeMillis() - TOKEN_LIFETIME_SECONDS * 1000 * 2);
+        final Set<String> currentKeys = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            final TokenPayload tokenPayload = new TokenPayload("test", null, null, null, "guid-" + i);
+            final String encryptedPayload = tokenService.toEncryptedString(tokenPayload);
+            tokenMachine.storedValues.put("outdated-" + i, TokenService.toStorageValue(outdatedIssueDate, encryptedPayload));
+            tokenMachine.storedValues.put("current-" + i, tokenService.toStorageValue(tokenPayload));
+            currentKeys.add("current-" + i);
+        }
+
+        // stored before issue dates were recorded, so these must be decrypted to be indexed
+        final TokenPayload legacyPayload = new TokenPayload("test", null, null, null, "guid-legacy");
+        tokenMachine.storedValues.put("legacy-current", tokenService.toEncryptedString(legacyPayload));
+        tokenMachine.storedValues.put("legacy-unreadable", "not-an-encrypted-token");
+        currentKeys.add("legacy-current");
+
+        tokenService.purgeOutdatedTokens();
+
+        Assert.assertEquals(currentKeys, tokenMachine.storedValues.keySet());
+        Assert.assertEquals(2, tokenMachine.decryptCount.get());
+
+        // within the rebuild interval a purge only consults the index
+        final int issueDateReads = tokenMachine.issueDateReadCount.get();
+        tokenService.purgeOutdatedTokens();
+        Assert.assertEquals(issueDateReads, tokenMachine.issueDateReadCount.get());
+        Assert.assertEquals(2, tokenMachine.decryptCount.get());
+        Assert.assertEquals(currentKeys, tokenMachine.storedValues.keySet());
+    }
+
+    private class MemoryTokenMachine implements TokenMachine {
+        private final Map<String,String> storedValues = new ConcurrentHashMap<>();
+        private final AtomicInteger decryptCount = new AtomicInteger();
+        private final AtomicInteger issueDateReadCount = new AtomicInteger();
+
+        public String generateToken(final SessionLabel sessionLabel, final TokenPayload tokenPayload) {
+            throw new UnsupportedOperationException();
+        }
+
+        public TokenPayload retrieveToken(final String tokenKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        public TokenPayload retrieveTokenByStorageKey(final String storageKey)
+                throws PwmOperationalException, PwmUnrecoverableException
+        {
+            decryptCount.incrementAndGet();
+            final String storedValue = storedValues.get(storageKey);
+            return storedValue == null ? null : tokenService.fromStorageValue(storedValue);
+        }
+
+        public Date retrieveIssueDateByStorageKey(final String storageKey) {
+            issueDateReadCount.incrementAndGet();
+            return TokenService.readStorageIssueDate(storedValues.get(storageKey));
+        }
+
+        public void storeToken(final String tokenKey, final TokenPayload tokenPayload) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void removeToken(final String tokenKey) {
+            storedValues.remove(tokenKey);
+        }
+
+        public void removeTokensByStorageKey(final Collection<String> storageKeys) {
+            storedValues.keySet().removeAll(storageKeys);
+        }
+
+        public int size() {
+            return storedValues.size();
+        }
+
+        public Iterator<String> keyIterator() {
+            return new ArrayList<>(storedValues.keySet()).iterator();
+        }
+
+        public void cleanup() {
+        }
+
+        public boolean supportsName() {
+            return true;
+        }
+    }
+}
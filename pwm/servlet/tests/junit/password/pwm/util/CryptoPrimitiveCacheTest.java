@@ -0,0 +1,82 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.PwmConstants;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+public class CryptoPrimitiveCacheTest {
+
+    @Test
+    public void testCachedResultsMatch() throws Exception {
+        final String input = "the quick brown fox";
+        for (final SecureHelper.HashAlgorithm algorithm : SecureHelper.HashAlgorithm.values()) {
+            final String streamHash = SecureHelper.hash(new ByteArrayInputStream(input.getBytes(PwmConstants.DEFAULT_CHARSET)), algorithm);
+            Assert.assertEquals(streamHash, SecureHelper.hash(input, algorithm));
+            Assert.assertEquals(streamHash, SecureHelper.hash(input, algorithm));
+        }
+
+        // a partially used digest is reset before it is handed out again
+        CryptoPrimitiveCache.messageDigest("SHA1").update(new byte[] {1, 2, 3});
+        Assert.assertEquals(SecureHelper.hash(new ByteArrayInputStream(input.getBytes(PwmConstants.DEFAULT_CHARSET)), SecureHelper.HashAlgorithm.SHA1),
+                SecureHelper.hash(input, SecureHelper.HashAlgorithm.SHA1));
+
+        for (final int iterations : new int[] {0, 1, 2, 1000}) {
+            byte[] expected = input.getBytes(PwmConstants.DEFAULT_CHARSET);
+            final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < iterations; i++) {
+                expected = messageDigest.digest(expected);
+            }
+            Assert.assertTrue(Arrays.equals(expected, SecureHelper.iteratedDigest(input.getBytes(PwmConstants.DEFAULT_CHARSET), "SHA-256", iterations)));
+        }
+
+        final SecretKey key = SecureHelper.makeKey("test key");
+        Assert.assertEquals(input, SecureHelper.decryptStringValue(SecureHelper.encryptToString(input, key), key));
+        Assert.assertEquals(input, SecureHelper.decryptStringValue(SecureHelper.encryptToString(input, key), key));
+    }
+
+    @Test
+    public void testCachedMacMatchesUncached() throws Exception {
+        final byte[] data = "otp counter".getBytes(PwmConstants.DEFAULT_CHARSET);
+        for (int i = 0; i < 3; i++) {
+            final byte[] rawSecret = new byte[10];
+            PwmRandom.getInstance().nextBytes(rawSecret);
+
+            final Mac uncachedMac = Mac.getInstance("HMACSHA1");
+            uncachedMac.init(new SecretKeySpec(rawSecret, ""));
+            final Mac cachedMac = CryptoPrimitiveCache.mac("HMACSHA1");
+            cachedMac.init(new SecretKeySpec(rawSecret, ""));
+
+            Assert.assertTrue(Arrays.equals(uncachedMac.doFinal(data), cachedMac.doFinal(data)));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.error.ErrorInformation;
+
+import java.util.*;
+
+public class PasswordCharCounterTest {
+
+    private static final String CHARS = "aAbBcC0123456789!@#-_ éÉ中文";
+
+    @Test
+    public void testCountsMatchCharScans() {
+        final Random random = new Random(1);
+        final List<String> passwords = new ArrayList<>(Arrays.asList("", "a", "1", "aa", "a1", "11a", "aaBBBcc", "abc123def4567", "A!1"));
+        for (int i = 0; i < 2000; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                sb.append(CHARS.charAt(random.nextInt(random.nextBoolean() ? 4 : CHARS.length())));
+            }
+            passwords.add(sb.toString());
+        }
+
+        for (final String password : passwords) {
+            final PasswordCharCounter counter = new PasswordCharCounter(password);
+            Assert.assertEquals(password, counter.getNumericChars().length(), counter.getNumericCharCount());
+            Assert.assertEquals(password, counter.getUpperChars().length(), counter.getUpperCharCount());
+            Assert.assertEquals(password, counter.getLowerChars().length(), counter.getLowerCharCount());
+            Assert.assertEquals(password, counter.getAlphaChars().length(), counter.getAlphaCharCount());
+            Assert.assertEquals(password, counter.getNonAlphaChars().length(), counter.getNonAlphaCharCount());
+            Assert.assertEquals(password, counter.getSpecialChars().length(), counter.getSpecialCharsCount());
+            Assert.assertEquals(password, counter.getOtherLetterChars().length(), counter.getOtherLetterCharCount());
+            Assert.assertEquals(password, scanRepeatedChars(password, false), counter.getRepeatedChars());
+            Assert.assertEquals(password, scanRepeatedChars(password, true), counter.getSequentialRepeatedChars());
+            Assert.assertEquals(password, scanSequentialType(password, true), counter.getSequentialNumericChars());
+            Assert.assertEquals(password, scanSequentialType(password, false), counter.getSequentialAlphaChars());
+            Assert.assertEquals(password, scanUniqueChars(password), counter.getUniqueChars());
+        }
+    }
+
+    @Test
+    public void testValidatorResults() throws Exception {
+        final Map<String, String> policyMap = new HashMap<>();
+        policyMap.put(PwmPasswordRule.MinimumLength.getKey(), "8");
+        policyMap.put(PwmPasswordRule.MaximumLength.getKey(), "512");
+        policyMap.put(PwmPasswordRule.MinimumUpperCase.getKey(), "1");
+        policyMap.put(PwmPasswordRule.MinimumNumeric.getKey(), "1");
+        policyMap.put(PwmPasswordRule.AllowNumeric.getKey(), "true");
+        policyMap.put(PwmPasswordRule.AllowSpecial.getKey(), "true");
+        policyMap.put(PwmPasswordRule.MaximumRepeat.getKey(), "80");
+        policyMap.put(PwmPasswordRule.MaximumSequentialRepeat.getKey(), "3");
+        policyMap.put(PwmPasswordRule.MinimumUnique.getKey(), "4");
+        policyMap.put(PwmPasswordRule.MaximumConsecutive.getKey(), "4");
+        policyMap.put(PwmPasswordRule.DisallowedValues.getKey(), "password\nqwerty\nletmein");
+        policyMap.put(PwmPasswordRule.RegExNoMatch.getKey(), ".*(?i)admin.*;;;.*\\s.*");
+        policyMap.put(PwmPasswordRule.CharGroupsMinMatch.getKey(), "2");
+        policyMap.put(PwmPasswordRule.CharGroupsValues.getKey(), "[a-z]\n[A-Z]\n[0-9]\n[^a-zA-Z0-9]");
+        final PwmPasswordPolicy policy = PwmPasswordPolicy.createPwmPasswordPolicy(policyMap);
+        final PwmPasswordRuleValidator validator = new PwmPasswordRuleValidator(null, policy);
+
+        final String typicalPassword = "Summer2015!x";
+        final StringBuilder longPassword = new StringBuilder();
+        final Random random = new Random(2);
+        while (longPassword.length() < 256) {
+            longPassword.append(CHARS.charAt(random.nextInt(16)));
+        }
+
+        Assert.assertTrue(validator.internalPwmPolicyValidator(typicalPassword, null, null, false).isEmpty());
+        final List<ErrorInformation> errors = validator.internalPwmPolicyValidator("password", null, null, false);
+        Assert.assertFalse(errors.isEmpty());
+
+        // repeated validation of the same value gives the same result
+        final List<ErrorInformation> longErrors = validator.internalPwmPolicyValidator(longPassword.toString(), null, null, false);
+        Assert.assertEquals(errorList(longErrors), errorList(validator.internalPwmPolicyValidator(longPassword.toString(), null, null, false)));
+        Assert.assertTrue(validator.internalPwmPolicyValidator(typicalPassword, null, null, false).isEmpty());
+    }
+
+    private static List<String> errorList(final List<ErrorInformation> errors) {
+        final List<String> returnList = new ArrayList<>();
+        for (final ErrorInformation errorInformation : errors) {
+            returnList.add(errorInformation.getError().toString());
+        }
+        return returnList;
+    }
+
+    private static int scanRepeatedChars(final String password, final boolean sequential) {
+        final String passwordL = password.toLowerCase();
+        int numberOfRepeats = 0;
+        for (int i = 0; i < password.length() - 1; i++) {
+            int loopRepeats = 0;
+            for (int j = i; j < password.length(); j++) {
+                if (passwordL.charAt(i) == passwordL.charAt(j)) {
+                    loopRepeats++;
+                } else if (sequential) {
+                    break;
+                }
+            }
+            numberOfRepeats = Math.max(numberOfRepeats, loopRepeats);
+        }
+        return numberOfRepeats;
+    }
+
+    private static int scanSequentialType(final String password, final boolean numeric) {
+        int numberOfRepeats = 0;
+        for (int i = 0; i < password.length() - 1; i++) {
+            int loopRepeats = 0;
+            for (int j = i; j < password.length(); j++) {
+                final char c = password.charAt(j);
+                if (numeric ? Character.isDigit(c) : Character.isLetter(c)) {
+                    loopRepeats++;
+                } else {
+                    break;
+                }
+            }
+            numberOfRepeats = Math.max(numberOfRepeats, loopRepeats);
+        }
+        return numberOfRepeats;
+    }
+
+    private static int scanUniqueChars(final String password) {
+        final Set<Character> chars = new HashSet<>();
+        for (final char c : password.toLowerCase().toCharArray()) {
+            chars.add(c);
+        }
+        return chars.size();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.error.ErrorInformation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RandomPasswordGeneratorTest {
+
+    private static final int ITERATIONS = 5000;
+
+    @Test
+    public void testDefaultPolicy() throws Exception {
+        final Map<String, String> policyMap = new HashMap<>();
+        policyMap.put(PwmPasswordRule.MinimumStrength.getKey(), "45");
+        runGenerator("default policy", PwmPasswordPolicy.createPwmPasswordPolicy(policyMap));
+    }
+
+    @Test
+    public void testStrictPolicy() throws Exception {
+        final Map<String, String> policyMap = new HashMap<>();
+        policyMap.put(PwmPasswordRule.MinimumLength.getKey(), "14");
+        policyMap.put(PwmPasswordRule.AllowNumeric.getKey(), "true");
+        policyMap.put(PwmPasswordRule.AllowSpecial.getKey(), "true");
+        policyMap.put(PwmPasswordRule.MaximumLength.getKey(), "16");
+        policyMap.put(PwmPasswordRule.MinimumUpperCase.getKey(), "2");
+        policyMap.put(PwmPasswordRule.MaximumUpperCase.getKey(), "4");
+        policyMap.put(PwmPasswordRule.MinimumLowerCase.getKey(), "3");
+        policyMap.put(PwmPasswordRule.MinimumNumeric.getKey(), "3");
+        policyMap.put(PwmPasswordRule.MaximumNumeric.getKey(), "4");
+        policyMap.put(PwmPasswordRule.MinimumSpecial.getKey(), "2");
+        policyMap.put(PwmPasswordRule.MaximumSpecial.getKey(), "3");
+        policyMap.put(PwmPasswordRule.AllowFirstCharNumeric.getKey(), "false");
+        policyMap.put(PwmPasswordRule.AllowLastCharNumeric.getKey(), "false");
+        policyMap.put(PwmPasswordRule.AllowFirstCharSpecial.getKey(), "false");
+        policyMap.put(PwmPasswordRule.AllowLastCharSpecial.getKey(), "false");
+        policyMap.put(PwmPasswordRule.MaximumRepeat.getKey(), "2");
+        policyMap.put(PwmPasswordRule.MaximumSequentialRepeat.getKey(), "1");
+        policyMap.put(PwmPasswordRule.MinimumUnique.getKey(), "12");
+        policyMap.put(PwmPasswordRule.MaximumConsecutive.getKey(), "2");
+        policyMap.put(PwmPasswordRule.MinimumStrength.getKey(), "70");
+        runGenerator("strict policy", PwmPasswordPolicy.createPwmPasswordPolicy(policyMap));
+    }
+
+    @Test
+    public void testImpossiblePolicy() throws Exception {
+        final Map<String, String> policyMap = new HashMap<>();
+        policyMap.put(PwmPasswordRule.MaximumLength.getKey(), "4");
+        policyMap.put(PwmPasswordRule.AllowNumeric.getKey(), "true");
+        policyMap.put(PwmPasswordRule.AllowSpecial.getKey(), "true");
+        policyMap.put(PwmPasswordRule.MinimumNumeric.getKey(), "3");
+        policyMap.put(PwmPasswordRule.MinimumSpecial.getKey(), "3");
+        final RandomPasswordGenerator.SeedMachine seedMachine = new RandomPasswordGenerator.SeedMachine(RandomPasswordGenerator.DEFAULT_SEED_PHRASES);
+        Assert.assertNull(RandomPasswordGenerator.constructPassword(seedMachine, PwmPasswordPolicy.createPwmPasswordPolicy(policyMap), 6));
+    }
+
+    @Test
+    public void testSingleCharacterSeedDetection() throws Exception {
+        Assert.assertTrue(new RandomPasswordGenerator.SeedMachine(RandomPasswordGenerator.DEFAULT_SEED_PHRASES).hasOnlySingleCharacterSeeds());
+        Assert.assertTrue(new RandomPasswordGenerator.SeedMachine(Arrays.asList("a", "B", "3", "#")).hasOnlySingleCharacterSeeds());
+        Assert.assertFalse(new RandomPasswordGenerator.SeedMachine(Arrays.asList("a", "correct", "horse")).hasOnlySingleCharacterSeeds());
+    }
+
+    @Test
+    public void testPhraseSeeds() throws Exception {
+        final Map<String, String> policyMap = new HashMap<>();
+        policyMap.put(PwmPasswordRule.MinimumLength.getKey(), "10");
+        policyMap.put(PwmPasswordRule.MaximumLength.getKey(), "16");
+        policyMap.put(PwmPasswordRule.AllowNumeric.getKey(), "true");
+        policyMap.put(PwmPasswordRule.AllowSpecial.getKey(), "true");
+        policyMap.put(PwmPasswordRule.MinimumUpperCase.getKey(), "2");
+        policyMap.put(PwmPasswordRule.MinimumNumeric.getKey(), "2");
+        policyMap.put(PwmPasswordRule.MinimumSpecial.getKey(), "1");
+        policyMap.put(PwmPasswordRule.AllowFirstCharNumeric.getKey(), "false");
+        policyMap.put(PwmPasswordRule.AllowFirstCharSpecial.getKey(), "false");
+        policyMap.put(PwmPasswordRule.AllowLastCharSpecial.getKey(), "false");
+        policyMap.put(PwmPasswordRule.MinimumStrength.getKey(), "45");
+        final PwmPasswordPolicy policy = PwmPasswordPolicy.createPwmPasswordPolicy(policyMap);
+        final List<String> seeds = Arrays.asList("correct", "horse", "battery", "staple", "orange", "window", "pencil", "garden");
+        runGenerator("phrase seeds", policy, new RandomPasswordGenerator.SeedMachine(seeds));
+
+        // the letters of each password are the seed words
+        final RandomPasswordGenerator.SeedMachine seedMachine = new RandomPasswordGenerator.SeedMachine(seeds);
+        for (int i = 0; i < 100; i++) {
+            final String password = RandomPasswordGenerator.constructPhrasePassword(seedMachine, policy, RandomPasswordGenerator.RandomGeneratorConfig.DEFAULT_MINIMUM_LENGTH);
+            final String letters = password.replaceAll("[^A-Za-z]", "").toLowerCase();
+            boolean startsWithSeed = false;
+            for (final String seed : seeds) {
+                if (letters.startsWith(seed.substring(0, Math.min(seed.length(), letters.length())))) {
+                    startsWithSeed = true;
+                }
+            }
+            Assert.assertTrue(password, startsWithSeed);
+        }
+    }
+
+    private static void runGenerator(final String name, final PwmPasswordPolicy policy) throws Exception {
+        runGenerator(name, policy, new RandomPasswordGenerator.SeedMachine(RandomPasswordGenerator.DEFAULT_SEED_PHRASES));
+    }
+
+    private static void runGenerator(
+            final String name,
+            final PwmPasswordPolicy policy,
+            final RandomPasswordGenerator.SeedMachine seedMachine
+    ) throws Exception {
+        final PwmPasswordRuleValidator validator = new PwmPasswordRuleValidator(null, policy);
+
+        int firstPassCount = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            final String password = seedMachine.hasOnlySingleCharacterSeeds()
+                    ? RandomPasswordGenerator.constructPassword(seedMachine, policy, RandomPasswordGenerator.RandomGeneratorConfig.DEFAULT_MINIMUM_LENGTH)
+                    : RandomPasswordGenerator.constructPhrasePassword(seedMachine, policy, RandomPasswordGenerator.RandomGeneratorConfig.DEFAULT_MINIMUM_LENGTH);
+            Assert.assertNotNull(password);
+            final List<ErrorInformation> errors = validator.internalPwmPolicyValidator(password, null, null, false);
+            if (errors.isEmpty()) {
+                firstPassCount++;
+            }
+        }
+
+        Assert.assertTrue(name + " candidates pass validation on the first try", firstPassCount > ITERATIONS * 9 / 10);
+    }
+}
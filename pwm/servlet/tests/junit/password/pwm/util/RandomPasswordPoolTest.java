@@ -0,0 +1,142 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.PwmService;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RandomPasswordPoolTest {
+
+    private static final int POOL_SIZE = 3;
+
+    private final RandomPasswordPool pool = new RandomPasswordPool();
+    private final TestGenerator generator = new TestGenerator();
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        pool.open(makeConfig(), generator, "test");
+
+        Assert.assertEquals(PwmService.STATUS.CLOSED, pool.status());
+        Assert.assertNull(pool.takePassword(new RandomPasswordGenerator.RandomGeneratorConfig()));
+        Assert.assertEquals(0, generator.count.get());
+    }
+
+    @Test
+    public void testFilledAfterRepeatedRequest() throws Exception {
+        pool.open(makeConfig("password.randomGenerator.pool.size=" + POOL_SIZE), generator, "test");
+        Assert.assertEquals(PwmService.STATUS.OPEN, pool.status());
+
+        final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig = new RandomPasswordGenerator.RandomGeneratorConfig();
+        Assert.assertNull(pool.takePassword(randomGeneratorConfig));
+        Assert.assertNull(pool.takePassword(randomGeneratorConfig));
+        waitForSize(POOL_SIZE);
+
+        final Set<String> taken = new HashSet<>();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            final PasswordData password = pool.takePassword(randomGeneratorConfig);
+            Assert.assertNotNull(password);
+            taken.add(password.getStringValue());
+        }
+        Assert.assertEquals("each pooled password is handed out once", POOL_SIZE, taken.size());
+    }
+
+    @Test
+    public void testPoolsSeparatedByPolicy() throws Exception {
+        pool.open(makeConfig("password.randomGenerator.pool.size=" + POOL_SIZE), generator, "test");
+
+        final RandomPasswordGenerator.RandomGeneratorConfig shortConfig = new RandomPasswordGenerator.RandomGeneratorConfig();
+        pool.takePassword(shortConfig);
+        pool.takePassword(shortConfig);
+        waitForSize(POOL_SIZE);
+
+        final RandomPasswordGenerator.RandomGeneratorConfig longConfig = new RandomPasswordGenerator.RandomGeneratorConfig();
+        longConfig.setMinimumLength(12);
+        Assert.assertNull(pool.takePassword(longConfig));
+        Assert.assertEquals(POOL_SIZE, pool.size());
+    }
+
+    @Test
+    public void testFailedGenerationDiscardsPool() throws Exception {
+        generator.fail = true;
+        pool.open(makeConfig("password.randomGenerator.pool.size=" + POOL_SIZE), generator, "test");
+
+        final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig = new RandomPasswordGenerator.RandomGeneratorConfig();
+        pool.takePassword(randomGeneratorConfig);
+        pool.takePassword(randomGeneratorConfig);
+        waitForCount(1);
+
+        generator.fail = false;
+        Assert.assertNull(pool.takePassword(randomGeneratorConfig));
+        Assert.assertEquals(0, pool.size());
+    }
+
+    private void waitForSize(final int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10 * 1000;
+        while (pool.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, pool.size());
+    }
+
+    private void waitForCount(final int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10 * 1000;
+        while (generator.count.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, generator.count.get());
+    }
+
+    private static Configuration makeConfig(final String... appProperties) throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(PwmSetting.APP_PROPERTY_OVERRIDES, new StringArrayValue(Arrays.asList(appProperties)), null);
+        return new Configuration(storedConfiguration);
+    }
+
+    private static class TestGenerator implements RandomPasswordPool.Generator {
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile boolean fail;
+
+        public PasswordData generate(final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig)
+                throws PwmUnrecoverableException
+        {
+            final int value = count.incrementAndGet();
+            return fail ? null : new PasswordData("password" + value);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+
+public class MemoryBinaryCacheStoreTest {
+
+    @Test
+    public void testByteLimit() throws Exception {
+        final MemoryBinaryCacheStore store = new MemoryBinaryCacheStore(10 * 1000);
+        final Date expiration = new Date(System.currentTimeMillis() + 60 * 1000);
+
+        for (int i = 0; i < 20; i++) {
+            store.store(key(i), expiration, new CachedBinary(new byte[1000], "image/jpeg"));
+        }
+        Assert.assertTrue(store.getCacheStoreInfo().getItemCount() <= 10);
+        Assert.assertNull("eldest entry is evicted", store.read(key(0)));
+        Assert.assertNotNull(store.read(key(19)));
+
+        store.store(key(100), expiration, new CachedBinary(new byte[20 * 1000], "image/jpeg"));
+        Assert.assertNull("entry larger than the store is not cached", store.read(key(100)));
+        Assert.assertNotNull(store.read(key(19)));
+
+        final CacheStoreInfo info = store.getCacheStoreInfo();
+        Assert.assertEquals(2, info.getHitCount());
+        Assert.assertEquals(2, info.getMissCount());
+    }
+
+    @Test
+    public void testExpiration() throws Exception {
+        final MemoryBinaryCacheStore store = new MemoryBinaryCacheStore(10 * 1000);
+        store.store(key(1), new Date(System.currentTimeMillis() - 1), new CachedBinary(new byte[]{1}, "image/png"));
+        Assert.assertNull(store.read(key(1)));
+        Assert.assertEquals(0, store.getCacheStoreInfo().getItemCount());
+    }
+
+    @Test
+    public void testValidators() throws Exception {
+        final CachedBinary first = new CachedBinary(new byte[]{1, 2, 3}, "image/png");
+        final CachedBinary same = new CachedBinary(new byte[]{1, 2, 3}, "image/png");
+        final CachedBinary different = new CachedBinary(new byte[]{3, 2, 1}, "image/png");
+        Assert.assertEquals(first.getETag(), same.getETag());
+        Assert.assertFalse(first.getETag().equals(different.getETag()));
+        Assert.assertTrue(first.getETag().startsWith("\""));
+    }
+
+    private static CacheKey key(final int i) {
+        return CacheKey.makeCacheKey(MemoryBinaryCacheStoreTest.class, null, "photo-" + i);
+    }
+}
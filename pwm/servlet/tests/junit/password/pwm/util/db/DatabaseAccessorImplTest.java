@@ -0,0 +1,208 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.config.value.StringValue;
+import password.pwm.util.ClosableIterator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DatabaseAccessorImplTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+    private static final int KEY_SPACE = 500;
+
+    @Test
+    public void testH2Operations() throws Exception {
+        final DatabaseAccessorImpl accessor = makeAccessor("org.h2.Driver", "jdbc:h2:mem:pwmtest-ops;DB_CLOSE_DELAY=-1", "VARCHAR", "TEXT");
+        try {
+            testOperations(accessor);
+        } finally {
+            accessor.close();
+        }
+    }
+
+    @Test
+    public void testDerbyOperations() throws Exception {
+        final DatabaseAccessorImpl accessor = makeAccessor("org.apache.derby.jdbc.EmbeddedDriver", "jdbc:derby:memory:pwmtest-ops;create=true", "VARCHAR", "CLOB");
+        try {
+            testOperations(accessor);
+        } finally {
+            accessor.close();
+        }
+    }
+
+    @Test
+    public void testH2Concurrency() throws Exception {
+        final DatabaseAccessorImpl accessor = makeAccessor("org.h2.Driver", "jdbc:h2:mem:pwmtest-load;DB_CLOSE_DELAY=-1", "VARCHAR", "TEXT");
+        try {
+            runConcurrentLoad(accessor);
+        } finally {
+            accessor.close();
+        }
+    }
+
+    @Test
+    public void testDerbyConcurrency() throws Exception {
+        final DatabaseAccessorImpl accessor = makeAccessor("org.apache.derby.jdbc.EmbeddedDriver", "jdbc:derby:memory:pwmtest-load;create=true", "VARCHAR", "CLOB");
+        try {
+            runConcurrentLoad(accessor);
+        } finally {
+            accessor.close();
+        }
+    }
+
+    private static void testOperations(final DatabaseAccessorImpl accessor) throws Exception {
+        final DatabaseTable table = DatabaseTable.TOKENS;
+
+        Assert.assertFalse(accessor.contains(table, "key1"));
+        Assert.assertNull(accessor.get(table, "key1"));
+
+        accessor.put(table, "key1", "value1");
+        Assert.assertTrue(accessor.contains(table, "key1"));
+        Assert.assertEquals("value1", accessor.get(table, "key1"));
+
+        Assert.assertTrue(accessor.put(table, "key1", "value2"));
+        Assert.assertEquals("value2", accessor.get(table, "key1"));
+        Assert.assertEquals(1, accessor.size(table));
+
+        final Map<String,String> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            batch.put("batch" + i, "value" + i);
+        }
+        batch.put("key1", "value3");
+        accessor.putAll(table, batch);
+        Assert.assertEquals(1201, accessor.size(table));
+        Assert.assertEquals("value3", accessor.get(table, "key1"));
+        Assert.assertEquals("value1199", accessor.get(table, "batch1199"));
+
+        final Set<String> iteratedKeys = new HashSet<>();
+        final ClosableIterator<String> iterator = accessor.iterator(table);
+        try {
+            while (iterator.hasNext()) {
+                final String key = iterator.next();
+                // reads while iterating use a second pooled connection
+                Assert.assertNotNull(accessor.get(table, key));
+                iteratedKeys.add(key);
+            }
+        } finally {
+            iterator.close();
+        }
+        Assert.assertEquals(batch.keySet(), iteratedKeys);
+
+        accessor.removeAll(table, new ArrayList<>(batch.keySet()).subList(0, 1000));
+        Assert.assertEquals(201, accessor.size(table));
+
+        Assert.assertTrue(accessor.remove(table, "key1"));
+        Assert.assertFalse(accessor.remove(table, "key1"));
+        Assert.assertFalse(accessor.contains(table, "key1"));
+        Assert.assertEquals(200, accessor.size(table));
+    }
+
+    private static void runConcurrentLoad(final DatabaseAccessorImpl accessor) throws Exception {
+        final DatabaseTable table = DatabaseTable.TOKENS;
+        final AtomicInteger operationCount = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int threadNumber = t;
+            final Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    final Random random = new Random(threadNumber);
+                    try {
+                        for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                            final String key = "key" + random.nextInt(KEY_SPACE);
+                            if (i % 4 == 0) {
+                                accessor.put(table, key, "value-" + threadNumber + "-" + i);
+                            } else {
+                                accessor.get(table, key);
+                            }
+                            operationCount.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("concurrent operation failed: " + failure.get());
+        }
+        Assert.assertEquals(THREAD_COUNT * OPERATIONS_PER_THREAD, operationCount.get());
+        Assert.assertTrue(accessor.size(table) <= KEY_SPACE);
+    }
+
+    @Test
+    public void testPoolCloseLeavesBorrowedConnections() throws Exception {
+        final DatabaseAccessorImpl.DBConfiguration dbConfiguration = new DatabaseAccessorImpl.DBConfiguration(
+                "org.h2.Driver", "jdbc:h2:mem:pwmtest-pool;DB_CLOSE_DELAY=-1", null, null, "VARCHAR", "TEXT", null);
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool(new org.h2.Driver(), dbConfiguration, 2, 1000, 1000, 4);
+
+        final DatabaseConnectionPool.PooledConnection idle = pool.borrow();
+        final DatabaseConnectionPool.PooledConnection borrowed = pool.borrow();
+        idle.release(false);
+        Assert.assertEquals(2, pool.size());
+
+        pool.close();
+        Assert.assertTrue(idle.getConnection().isClosed());
+        Assert.assertFalse(borrowed.getConnection().isClosed());
+        Assert.assertEquals(1, pool.size());
+
+        borrowed.release(false);
+        Assert.assertTrue(borrowed.getConnection().isClosed());
+        Assert.assertEquals(0, pool.size());
+    }
+
+    private static DatabaseAccessorImpl makeAccessor(
+            final String driverClass,
+            final String url,
+            final String keyColumnType,
+            final String valueColumnType
+    )
+            throws Exception
+    {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(PwmSetting.DATABASE_CLASS, new StringValue(driverClass), null);
+        storedConfiguration.writeSetting(PwmSetting.DATABASE_URL, new StringValue(url), null);
+        storedConfiguration.writeSetting(PwmSetting.DATABASE_COLUMN_TYPE_KEY, new StringValue(keyColumnType), null);
+        storedConfiguration.writeSetting(PwmSetting.DATABASE_COLUMN_TYPE_VALUE, new StringValue(valueColumnType), null);
+
+        final DatabaseAccessorImpl accessor = new DatabaseAccessorImpl();
+        accessor.init(new Configuration(storedConfiguration));
+        return accessor;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.macro;
+
+import java.util.List;
+
+/**
+ * Compares compiled template expansion with the previous regex-per-macro expansion.  Not part of the unit
+ * test run; start it with the test classpath and optionally pass the iteration count as the first argument.
+ */
+public class MacroTemplateBenchmark {
+
+    private static final int DEFAULT_ITERATIONS = 20 * 1000;
+
+    public static void main(final String[] args) throws Exception {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        final List<MacroImplementation> implementations = MacroTemplateTest.makeImplementations();
+
+        // the first round warms up the jit and is not reported
+        for (int round = 0; round < 2; round++) {
+            final boolean report = round > 0;
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MacroTemplateTest.legacyExpand(MacroTemplateTest.EMAIL_TEMPLATE, implementations);
+            }
+            printResult(report, "email template, regex per macro", iterations, startTime);
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MacroTemplate.compile(MacroTemplateTest.EMAIL_TEMPLATE, implementations).expand(MacroTemplateTest.REPLACER);
+            }
+            printResult(report, "email template, compiled per call", iterations, startTime);
+
+            final MacroTemplate template = MacroTemplate.compile(MacroTemplateTest.EMAIL_TEMPLATE, implementations);
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                template.expand(MacroTemplateTest.REPLACER);
+            }
+            printResult(report, "email template, cached template", iterations, startTime);
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MacroTemplateTest.legacyExpand(MacroTemplateTest.PLAIN_TEMPLATE, implementations);
+            }
+            printResult(report, "plain text, regex per macro", iterations, startTime);
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                MacroTemplate.mayContainMacros(MacroTemplateTest.PLAIN_TEMPLATE);
+            }
+            printResult(report, "plain text, no-macro check", iterations, startTime);
+        }
+    }
+
+    private static void printResult(final boolean report, final String name, final int iterations, final long startNanos) {
+        if (!report) {
+            return;
+        }
+        final long elapsedMicros = Math.max(1, (System.nanoTime() - startNanos) / 1000);
+        System.out.println(name + ": " + iterations + " operations in " + (elapsedMicros / 1000) + "ms ("
+                + (iterations * 1000L * 1000L / elapsedMicros) + " ops/sec)");
+    }
+}
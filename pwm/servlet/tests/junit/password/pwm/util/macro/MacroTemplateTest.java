@@ -0,0 +1,116 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.macro;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+
+public class MacroTemplateTest {
+
+    static final String EMAIL_TEMPLATE = "<html><body><p>Dear @LDAP:givenName@ @LDAP:sn@,</p>"
+            + "<p>The password for your account @User:ID@ was changed on @CurrentTime:yyyy-MM-dd@.  If you did not make "
+            + "this change please contact help-desk@example.com or visit <a href=\"@SiteURL@\">@SiteURL@</a> from your "
+            + "workstation.  Your new password expires on @User:PwExpireTime@ (in @User:DaysUntilPwExpire@ days).</p>"
+            + "<p>Thank you,<br/>The @LDAP:o@ password team</p></body></html>";
+
+    static final String PLAIN_TEMPLATE = "Your password has been changed.  If you did not make this change "
+            + "please contact the help desk at extension 1234.";
+
+    static final MacroTemplate.MacroReplacer REPLACER = new MacroTemplate.MacroReplacer() {
+        public String replace(final String matchedMacro, final MacroImplementation macroImplementation) {
+            return "[" + macroImplementation.getClass().getSimpleName() + "]";
+        }
+    };
+
+    @Test
+    public void testExpand() throws Exception {
+        final List<MacroImplementation> implementations = makeImplementations();
+
+        final MacroTemplate template = MacroTemplate.compile(EMAIL_TEMPLATE, implementations);
+        Assert.assertTrue(template.hasMacros());
+        Assert.assertEquals(legacyExpand(EMAIL_TEMPLATE, implementations), template.expand(REPLACER));
+
+        Assert.assertEquals("mail user@example.com to [UserIDMacro]",
+                MacroTemplate.compile("mail user@example.com to @User:ID@", implementations).expand(REPLACER));
+        Assert.assertEquals("[LdapMacro]@Unknown@[UUIDMacro]@",
+                MacroTemplate.compile("@LDAP:mail:/@@@Unknown@@UUID@@", implementations).expand(REPLACER));
+
+        final MacroTemplate plainTemplate = MacroTemplate.compile("a @ b @@ c", implementations);
+        Assert.assertFalse(plainTemplate.hasMacros());
+        Assert.assertEquals("a @ b @@ c", plainTemplate.expand(REPLACER));
+        Assert.assertFalse(MacroTemplate.mayContainMacros(PLAIN_TEMPLATE));
+    }
+
+    @Test
+    public void testNullReplacementKeepsMacroText() throws Exception {
+        final MacroTemplate template = MacroTemplate.compile("id=@User:ID@", makeImplementations());
+        Assert.assertEquals("id=@User:ID@", template.expand(new MacroTemplate.MacroReplacer() {
+            public String replace(final String matchedMacro, final MacroImplementation macroImplementation) {
+                return null;
+            }
+        }));
+    }
+
+    @Test
+    public void testMatchesLegacyExpansion() throws Exception {
+        final List<MacroImplementation> implementations = makeImplementations();
+        final MacroTemplate template = MacroTemplate.compile(EMAIL_TEMPLATE, implementations);
+        Assert.assertEquals(legacyExpand(EMAIL_TEMPLATE, implementations), template.expand(REPLACER));
+
+        Assert.assertFalse(MacroTemplate.mayContainMacros(PLAIN_TEMPLATE));
+        Assert.assertEquals(PLAIN_TEMPLATE, legacyExpand(PLAIN_TEMPLATE, implementations));
+    }
+
+    static List<MacroImplementation> makeImplementations() throws Exception {
+        final List<MacroImplementation> implementations = new ArrayList<>();
+        for (final Class<? extends MacroImplementation> macroClass : StandardMacros.STANDARD_MACROS) {
+            implementations.add(macroClass.newInstance());
+        }
+        for (final Class<? extends MacroImplementation> macroClass : InternalMacros.INTERNAL_MACROS) {
+            implementations.add(macroClass.newInstance());
+        }
+        return Collections.unmodifiableList(implementations);
+    }
+
+    /**
+     * The expansion previously done by MacroMachine: every macro pattern is applied to the whole string in turn.
+     */
+    static String legacyExpand(final String input, final List<MacroImplementation> implementations) {
+        String workingString = input;
+        for (final MacroImplementation implementation : implementations) {
+            Matcher matcher = implementation.getRegExPattern().matcher(workingString);
+            while (matcher.find()) {
+                final String replacement = REPLACER.replace(matcher.group(), implementation);
+                workingString = new StringBuilder(workingString).replace(matcher.start(), matcher.end(), replacement).toString();
+                matcher = implementation.getRegExPattern().matcher(workingString);
+            }
+        }
+        return workingString;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.operations.cr;
+
+import com.novell.security.nmas.client.NMASLoginResult;
+import com.novell.security.nmas.lcm.LCMEnvironment;
+import com.novell.security.nmas.lcm.LCMUserPrompt;
+import com.novell.security.nmas.lcm.LCMUserResponse;
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NMASSessionManagerTest {
+
+    private static final int MAX_ACTIVE = 4;
+
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        final NMASSessionManager manager = new NMASSessionManager(null, MAX_ACTIVE, 100, new TimeDuration(10 * 1000));
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peakRunning = new AtomicInteger();
+        try {
+            final List<TestSession> sessions = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                final TestSession session = new TestSession("session" + i, running, peakRunning);
+                manager.start(session);
+                sessions.add(session);
+            }
+
+            int passed = 0;
+            for (int i = 0; i < sessions.size(); i++) {
+                final TestSession session = sessions.get(i);
+                Assert.assertNotNull(session.getEnvironment().getNextUserPrompt());
+                final boolean correct = i % 2 == 0;
+                session.getEnvironment().setUserResponse(new LCMUserResponse(correct ? TestSession.ANSWER : "wrong"));
+                final NMASLoginResult result = session.awaitResult(new TimeDuration(10 * 1000));
+                if (result.getNmasRetCode() == 0) {
+                    passed++;
+                }
+                Assert.assertEquals(correct, result.getNmasRetCode() == 0);
+                Assert.assertNull("no prompt after login completes", session.getEnvironment().getNextUserPrompt());
+            }
+
+            Assert.assertEquals(25, passed);
+            Assert.assertTrue("peak running " + peakRunning.get(), peakRunning.get() <= MAX_ACTIVE);
+            Assert.assertEquals(0L, manager.timedOutCount());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testSessionLimit() throws Exception {
+        final NMASSessionManager manager = new NMASSessionManager(null, 1, 1, new TimeDuration(10 * 1000));
+        try {
+            manager.start(new TestSession("active", new AtomicInteger(), new AtomicInteger()));
+            manager.start(new TestSession("queued", new AtomicInteger(), new AtomicInteger()));
+            try {
+                manager.start(new TestSession("rejected", new AtomicInteger(), new AtomicInteger()));
+                Assert.fail("session should be rejected");
+            } catch (PwmUnrecoverableException e) {
+                Assert.assertEquals(PwmError.ERROR_TOO_MANY_THREADS, e.getError());
+            }
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testQueuedSessionWaitIsBounded() throws Exception {
+        final NMASSessionManager manager = new NMASSessionManager(null, 1, 1, new TimeDuration(10 * 1000));
+        try {
+            final TestSession active = new TestSession("active", new AtomicInteger(), new AtomicInteger());
+            manager.start(active);
+            Assert.assertNotNull(active.awaitFirstPrompt(new TimeDuration(5 * 1000)));
+
+            final TestSession queued = new TestSession("queued", new AtomicInteger(), new AtomicInteger());
+            manager.start(queued);
+            final long startTime = System.currentTimeMillis();
+            try {
+                queued.awaitFirstPrompt(new TimeDuration(200));
+                Assert.fail("queued session should time out");
+            } catch (PwmUnrecoverableException e) {
+                Assert.assertEquals(PwmError.ERROR_TOO_MANY_THREADS, e.getError());
+            }
+            Assert.assertTrue(System.currentTimeMillis() - startTime < 5 * 1000);
+            Assert.assertTrue(queued.isAborted());
+            Assert.assertEquals("aborted session gives up its queue slot", 0, manager.queuedCount());
+
+            manager.start(new TestSession("next", new AtomicInteger(), new AtomicInteger()));
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        final NMASSessionManager manager = new NMASSessionManager(null, MAX_ACTIVE, 0, new TimeDuration(200));
+        try {
+            final TestSession session = new TestSession("idle", new AtomicInteger(), new AtomicInteger());
+            manager.start(session);
+            Assert.assertNotNull(session.getEnvironment().getNextUserPrompt());
+
+            final NMASLoginResult result = session.awaitResult(new TimeDuration(5 * 1000));
+            Assert.assertEquals(NMASSessionManager.ABORTED_RETURN_CODE, result.getNmasRetCode());
+            Assert.assertTrue(session.isAborted());
+            Assert.assertEquals(1L, manager.timedOutCount());
+            Assert.assertNull(session.getEnvironment().getNextUserPrompt());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testCloseAbortsSessions() throws Exception {
+        final NMASSessionManager manager = new NMASSessionManager(null, MAX_ACTIVE, 0, new TimeDuration(10 * 1000));
+        final TestSession session = new TestSession("open", new AtomicInteger(), new AtomicInteger());
+        manager.start(session);
+        Assert.assertNotNull(session.getEnvironment().getNextUserPrompt());
+
+        manager.close();
+        Assert.assertTrue(session.isAborted());
+        Assert.assertEquals(NMASSessionManager.ABORTED_RETURN_CODE, session.awaitResult(new TimeDuration(1000)).getNmasRetCode());
+        try {
+            manager.start(new TestSession("late", new AtomicInteger(), new AtomicInteger()));
+            Assert.fail("closed manager should not start sessions");
+        } catch (PwmUnrecoverableException e) {
+            Assert.assertEquals(PwmError.ERROR_CLOSING, e.getError());
+        }
+    }
+
+    /**
+     * Stands in for the NMAS client bind: sends one prompt, waits for the response and signals completion.
+     */
+    private static class TestSession extends NMASSessionManager.Session {
+        private static final String ANSWER = "answer";
+
+        private final AtomicInteger running;
+        private final AtomicInteger peakRunning;
+
+        private TestSession(final String debugLabel, final AtomicInteger running, final AtomicInteger peakRunning) {
+            super(debugLabel);
+            this.running = running;
+            this.peakRunning = peakRunning;
+        }
+
+        protected NMASLoginResult doLogin(final LCMEnvironment environment) throws Exception {
+            final int nowRunning = running.incrementAndGet();
+            try {
+                int peak;
+                while (nowRunning > (peak = peakRunning.get()) && !peakRunning.compareAndSet(peak, nowRunning)) {
+                    // retry
+                }
+                environment.sendPromptToUser(new LCMUserPrompt("path", "name", "lang", "template"));
+                final LCMUserResponse response = environment.getUserResponse();
+                if (response == null) {
+                    return new NMASLoginResult(NMASSessionManager.ABORTED_RETURN_CODE);
+                }
+                final int retCode = ANSWER.equals(response.getUserResponse()) ? 0 : -1;
+                environment.signalNMASLoginComplete(retCode);
+                return new NMASLoginResult(retCode);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.queue;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmOperationalException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.health.HealthRecord;
+import password.pwm.util.JsonUtil;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.Memory_LocalDB;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class AbstractQueueManagerTest {
+
+    private static final int DEAD_LETTER_MAX_COUNT = 3;
+
+    private File localDBDirectory;
+    private LocalDB localDB;
+    private Configuration config;
+
+    @Before
+    public void setUp() throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(PwmSetting.APP_PROPERTY_OVERRIDES, new StringArrayValue(Arrays.asList(
+                AppProperty.LOCALDB_IMPLEMENTATION.getKey() + "=" + Memory_LocalDB.class.getName(),
+                AppProperty.QUEUE_RETRY_MAX_TIMEOUT_MS.getKey() + "=50",
+                AppProperty.QUEUE_DEAD_LETTER_MAX_COUNT.getKey() + "=" + DEAD_LETTER_MAX_COUNT
+        )), null);
+        config = new Configuration(storedConfiguration);
+
+        localDBDirectory = File.createTempFile("pwm-queue", "");
+        localDBDirectory.delete();
+        localDB = LocalDBFactory.getInstance(localDBDirectory, false, null, config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (localDB != null) {
+            localDB.close();
+        }
+        FileUtils.deleteDirectory(localDBDirectory);
+    }
+
+    @Test
+    public void testRetryUntilSent() throws Exception {
+        final TestQueueManager queueManager = open(new TestSender(2, false), 60 * 1000);
+        queueManager.add("item");
+        waitForEmpty(queueManager);
+        queueManager.close();
+
+        Assert.assertEquals(0, queueManager.queueSize());
+        Assert.assertEquals(Collections.singletonList("item"), queueManager.sender.sent);
+        Assert.assertEquals(3, queueManager.sender.attempts.size());
+        Assert.assertEquals(0, localDB.size(LocalDB.DB.EMAIL_QUEUE_DEAD_LETTER));
+    }
+
+    @Test
+    public void testDeadLettersKeepNewest() throws Exception {
+        final TestQueueManager queueManager = open(new TestSender(0, true), 60 * 1000);
+        final int itemCount = DEAD_LETTER_MAX_COUNT + 3;
+        for (int i = 0; i < itemCount; i++) {
+            queueManager.add("item " + i);
+        }
+        waitForEmpty(queueManager);
+        queueManager.close();
+
+        Assert.assertEquals(0, queueManager.queueSize());
+        final List<String> deadLetterItems = readDeadLetterItems();
+        Collections.sort(deadLetterItems);
+        Assert.assertEquals(Arrays.asList("item 3", "item 4", "item 5"), deadLetterItems);
+    }
+
+    @Test
+    public void testRetryResumedAfterRestart() throws Exception {
+        final TestQueueManager firstManager = open(new TestSender(Integer.MAX_VALUE, false), 60 * 1000);
+        firstManager.add("item");
+        waitForAttempts(firstManager.sender, 1);
+        firstManager.close();
+        Assert.assertTrue(firstManager.sender.sent.isEmpty());
+
+        final TestQueueManager secondManager = open(new TestSender(0, false), 60 * 1000);
+        waitForEmpty(secondManager);
+        secondManager.close();
+
+        Assert.assertEquals(Collections.singletonList("item"), secondManager.sender.sent);
+        Assert.assertEquals(0, localDB.size(LocalDB.DB.EMAIL_QUEUE_DEAD_LETTER));
+    }
+
+    @Test
+    public void testExpiredRetryNotSentAfterRestart() throws Exception {
+        final TestQueueManager firstManager = open(new TestSender(Integer.MAX_VALUE, false), 60 * 1000);
+        firstManager.add("item");
+        waitForAttempts(firstManager.sender, 1);
+        firstManager.close();
+
+        Thread.sleep(20);
+        final TestQueueManager secondManager = open(new TestSender(0, false), 1);
+        waitForEmpty(secondManager);
+        secondManager.close();
+
+        Assert.assertTrue(secondManager.sender.attempts.isEmpty());
+        Assert.assertEquals(Collections.singletonList("item"), readDeadLetterItems());
+    }
+
+    private TestQueueManager open(final TestSender sender, final long maxItemAgeMs) throws Exception {
+        final TestQueueManager queueManager = new TestQueueManager(sender);
+        final AbstractQueueManager.Settings settings = new AbstractQueueManager.Settings(
+                new TimeDuration(maxItemAgeMs),
+                new TimeDuration(10),
+                100,
+                1,
+                "test"
+        );
+        queueManager.open(localDB, LocalDB.DB.EMAIL_QUEUE, LocalDB.DB.EMAIL_QUEUE_RETRY, LocalDB.DB.EMAIL_QUEUE_DEAD_LETTER,
+                settings, config, "test");
+        return queueManager;
+    }
+
+    private List<String> readDeadLetterItems() throws Exception {
+        final List<String> items = new ArrayList<>();
+        final LocalDB.LocalDBIterator<String> iterator = localDB.iterator(LocalDB.DB.EMAIL_QUEUE_DEAD_LETTER);
+        try {
+            while (iterator.hasNext()) {
+                final Map<String,String> deadLetter = JsonUtil.deserializeStringMap(localDB.get(LocalDB.DB.EMAIL_QUEUE_DEAD_LETTER, iterator.next()));
+                final AbstractQueueManager.QueueEvent event = JsonUtil.deserialize(deadLetter.get("event"), AbstractQueueManager.QueueEvent.class);
+                items.add(JsonUtil.deserialize(event.getItem(), String.class));
+            }
+        } finally {
+            iterator.close();
+        }
+        return items;
+    }
+
+    private static void waitForEmpty(final AbstractQueueManager queueManager) throws InterruptedException {
+        final long startTime = System.currentTimeMillis();
+        while (queueManager.queueSize() > 0 && System.currentTimeMillis() - startTime < 10 * 1000) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void waitForAttempts(final TestSender sender, final int attempts) throws InterruptedException {
+        final long startTime = System.currentTimeMillis();
+        while (sender.attempts.size() < attempts && System.currentTimeMillis() - startTime < 10 * 1000) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestSender {
+        private final int failureCount;
+        private final boolean unrecoverable;
+        private final List<String> attempts = new CopyOnWriteArrayList<>();
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+
+        private TestSender(final int failureCount, final boolean unrecoverable) {
+            this.failureCount = failureCount;
+            this.unrecoverable = unrecoverable;
+        }
+
+        private void send(final String item) throws PwmOperationalException, PwmUnrecoverableException {
+            attempts.add(item);
+            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_UNKNOWN, "send failed");
+            if (unrecoverable) {
+                throw new PwmUnrecoverableException(errorInformation);
+            }
+            if (attempts.size() <= failureCount) {
+                throw new PwmOperationalException(errorInformation);
+            }
+            sent.add(item);
+        }
+    }
+
+    private static class TestQueueManager extends AbstractQueueManager {
+        private final TestSender sender;
+
+        private TestQueueManager(final TestSender sender) {
+            this.sender = sender;
+        }
+
+        public void init(final PwmApplication pwmApplication) {
+        }
+
+        void sendItem(final String item) throws PwmOperationalException, PwmUnrecoverableException {
+            sender.send(JsonUtil.deserialize(item, String.class));
+        }
+
+        List<HealthRecord> failureToHealthRecord(final FailureInfo failureInfo) {
+            return Collections.emptyList();
+        }
+
+        protected String queueItemToDebugString(final QueueEvent queueEvent) {
+            return queueEvent.getItem();
+        }
+
+        protected void noteDiscardedItem(final QueueEvent queueEvent) {
+        }
+
+        protected int readItemIDCounter() {
+            return 0;
+        }
+
+        protected void storeItemCounter(final int value) {
+        }
+    }
+}
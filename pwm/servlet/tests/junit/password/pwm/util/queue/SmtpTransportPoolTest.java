@@ -0,0 +1,293 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.queue;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Message;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SmtpTransportPoolTest {
+
+    private static final int THREAD_COUNT = 4;
+    private static final int MESSAGES_PER_THREAD = 100;
+
+    private SmtpStandIn smtpServer;
+
+    @Before
+    public void setUp() throws Exception {
+        smtpServer = new SmtpStandIn();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        smtpServer.close();
+        final Throwable serverFailure = smtpServer.failure.get();
+        if (serverFailure != null) {
+            throw new AssertionError("smtp stand-in failed: " + serverFailure, serverFailure);
+        }
+    }
+
+    @Test
+    public void testPooledConnectionReuse() throws Exception {
+        final int messageCount = THREAD_COUNT * MESSAGES_PER_THREAD;
+
+        final SmtpTransportPool perMessagePool = makePool(THREAD_COUNT, 1, 30 * 1000);
+        sendConcurrently(perMessagePool);
+        perMessagePool.close();
+        Assert.assertEquals(messageCount, smtpServer.messageCount.get());
+        Assert.assertEquals(messageCount, smtpServer.connectionCount.get());
+        Assert.assertEquals((long) messageCount, perMessagePool.getConnectCount());
+
+        smtpServer.reset();
+        final SmtpTransportPool pooled = makePool(THREAD_COUNT, 100, 30 * 1000);
+        sendConcurrently(pooled);
+        pooled.close();
+        Assert.assertEquals(messageCount, smtpServer.messageCount.get());
+        Assert.assertEquals((long) messageCount, pooled.getSendCount());
+        // each of the threads holds at most one connection, and a connection is replaced after 100 messages
+        final int maxConnects = THREAD_COUNT * (MESSAGES_PER_THREAD / 100 + 1);
+        Assert.assertTrue(pooled.getConnectCount() <= maxConnects);
+        Assert.assertTrue(smtpServer.connectionCount.get() <= maxConnects);
+        Assert.assertEquals(smtpServer.connectionCount.get(), smtpServer.authCount.get());
+    }
+
+    @Test
+    public void testReconnectAfterServerDrop() throws Exception {
+        final SmtpTransportPool pool = makePool(1, 100, 30 * 1000);
+        try {
+            for (int i = 0; i < 10; i++) {
+                if (i == 5) {
+                    smtpServer.dropConnections();
+                }
+                pool.send(makeMessage(pool, i));
+            }
+            Assert.assertEquals(10, smtpServer.messageCount.get());
+            Assert.assertEquals(2L, pool.getConnectCount());
+            Assert.assertEquals(1, pool.idleCount());
+        } finally {
+            pool.close();
+        }
+        Assert.assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void testIdleConnectionsClosed() throws Exception {
+        final SmtpTransportPool pool = makePool(1, 100, 50);
+        try {
+            pool.send(makeMessage(pool, 0));
+            Assert.assertEquals(1, pool.idleCount());
+            Thread.sleep(100);
+            pool.closeIdleTransports();
+            Assert.assertEquals(0, pool.idleCount());
+            pool.send(makeMessage(pool, 1));
+            Assert.assertEquals(2L, pool.getConnectCount());
+            Assert.assertTrue(smtpServer.authCount.get() >= 2);
+        } finally {
+            pool.close();
+        }
+    }
+
+    private void sendConcurrently(final SmtpTransportPool pool) throws Exception {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int threadNumber = t;
+            final Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                            pool.send(makeMessage(pool, threadNumber * MESSAGES_PER_THREAD + i));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("send failed: " + failure.get());
+        }
+    }
+
+    private SmtpTransportPool makePool(final int maxConnections, final int maxMessagesPerConnection, final long idleTimeoutMs) {
+        final Properties javaMailProps = new Properties();
+        javaMailProps.put("mail.smtp.host", "localhost");
+        javaMailProps.put("mail.smtp.port", smtpServer.getPort());
+        return new SmtpTransportPool(javaMailProps, "localhost", smtpServer.getPort(), "mailuser", "mailpassword",
+                maxConnections, maxMessagesPerConnection, idleTimeoutMs);
+    }
+
+    private static Message makeMessage(final SmtpTransportPool pool, final int number) throws Exception {
+        final MimeMessage message = new MimeMessage(pool.getSession());
+        message.setFrom(new InternetAddress("pwm@example.com"));
+        message.setRecipients(Message.RecipientType.TO, new InternetAddress[]{new InternetAddress("user" + number + "@example.com")});
+        message.setSubject("test message " + number);
+        message.setSentDate(new Date());
+        message.setText("test message body " + number);
+        return message;
+    }
+
+    /**
+     * Minimal local smtp server accepting any authentication and message, counting connections and messages.
+     */
+    private static class SmtpStandIn implements Runnable {
+        private final ServerSocket serverSocket;
+        private final List<Socket> openSockets = Collections.synchronizedList(new ArrayList<Socket>());
+        private final AtomicInteger connectionCount = new AtomicInteger();
+        private final AtomicInteger authCount = new AtomicInteger();
+        private final AtomicInteger messageCount = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private SmtpStandIn() throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            final Thread acceptThread = new Thread(this, "smtp-stand-in");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void reset() {
+            connectionCount.set(0);
+            authCount.set(0);
+            messageCount.set(0);
+        }
+
+        private void dropConnections() throws IOException {
+            synchronized (openSockets) {
+                for (final Socket socket : openSockets) {
+                    socket.close();
+                }
+                openSockets.clear();
+            }
+        }
+
+        private void close() throws IOException {
+            serverSocket.close();
+            dropConnections();
+        }
+
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    connectionCount.incrementAndGet();
+                    openSockets.add(socket);
+                    final Thread sessionThread = new Thread(new Runnable() {
+                        public void run() {
+                            handleSession(socket);
+                        }
+                    }, "smtp-stand-in-session");
+                    sessionThread.setDaemon(true);
+                    sessionThread.start();
+                } catch (IOException e) {
+                    // server socket closed
+                }
+            }
+        }
+
+        private void handleSession(final Socket socket) {
+            try {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+                final Writer writer = new OutputStreamWriter(new BufferedOutputStream(socket.getOutputStream()), "US-ASCII");
+                reply(writer, "220 localhost smtp stand-in");
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String command = line.toUpperCase();
+                    if (command.startsWith("EHLO")) {
+                        writer.write("250-localhost\r\n250-AUTH LOGIN PLAIN\r\n");
+                        reply(writer, "250 8BITMIME");
+                    } else if (command.startsWith("HELO")) {
+                        reply(writer, "250 localhost");
+                    } else if (command.startsWith("AUTH LOGIN")) {
+                        reply(writer, "334 VXNlcm5hbWU6");
+                        reader.readLine();
+                        reply(writer, "334 UGFzc3dvcmQ6");
+                        reader.readLine();
+                        authCount.incrementAndGet();
+                        reply(writer, "235 authenticated");
+                    } else if (command.startsWith("AUTH PLAIN")) {
+                        if (command.trim().equals("AUTH PLAIN")) {
+                            reply(writer, "334 ");
+                            reader.readLine();
+                        }
+                        authCount.incrementAndGet();
+                        reply(writer, "235 authenticated");
+                    } else if (command.startsWith("DATA")) {
+                        reply(writer, "354 end data with <CR><LF>.<CR><LF>");
+                        while ((line = reader.readLine()) != null && !line.equals(".")) {
+                            // discard message content
+                        }
+                        messageCount.incrementAndGet();
+                        reply(writer, "250 ok queued");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(writer, "221 bye");
+                        break;
+                    } else {
+                        // MAIL, RCPT, RSET, NOOP
+                        reply(writer, "250 ok");
+                    }
+                }
+            } catch (SocketException e) {
+                // connection dropped
+            } catch (Exception e) {
+                // reported by tearDown() so a broken stand-in fails the test instead of only printing
+                failure.compareAndSet(null, e);
+            } finally {
+                openSockets.remove(socket);
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        private static void reply(final Writer writer, final String response) throws IOException {
+            writer.write(response);
+            writer.write("\r\n");
+            writer.flush();
+        }
+    }
+}
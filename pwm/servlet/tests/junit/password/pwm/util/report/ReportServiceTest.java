@@ -0,0 +1,205 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.report;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.bean.UserIdentity;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.config.value.NumericValue;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+public class ReportServiceTest {
+
+    private static final int MAX_SEARCH_SIZE = 5;
+    private static final long OVERLAP_MS = 60 * 1000;
+
+    private ReportSettings settings;
+    private TestUserReader userReader;
+    private Date previousPassDate;
+    private ReportService reportService;
+
+    @Before
+    public void setUp() throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(PwmSetting.REPORTING_MAX_QUERY_SIZE, new NumericValue(MAX_SEARCH_SIZE), null);
+        storedConfiguration.writeSetting(PwmSetting.APP_PROPERTY_OVERRIDES, new StringArrayValue(Arrays.asList(
+                "reporting.incremental.enable=true",
+                "reporting.incremental.overlapMs=" + OVERLAP_MS,
+                "reporting.ldap.workerThreads=2",
+                "reporting.ldap.maxOperationsPerSecond=0"
+        )), null);
+        settings = ReportSettings.readSettingsFromConfig(new Configuration(storedConfiguration));
+
+        userReader = new TestUserReader();
+        previousPassDate = new Date(System.currentTimeMillis() - 60 * 60 * 1000);
+        final ReportStatusInfo previousStatus = new ReportStatusInfo(settings.getSettingsHash());
+        previousStatus.setLastCompletedPassDate(previousPassDate);
+        previousStatus.setLastFullPassDate(previousPassDate);
+
+        reportService = new ReportService();
+        reportService.open(settings, userReader, previousStatus);
+    }
+
+    @Test
+    public void testIncrementalPassAdvancesCompletedDate() throws Exception {
+        userReader.addUsers(3);
+
+        reportService.updateCacheFromLdap();
+
+        final ReportStatusInfo status = reportService.getReportStatusInfo();
+        Assert.assertTrue(status.isIncremental());
+        Assert.assertEquals(new Date(previousPassDate.getTime() - OVERLAP_MS), userReader.changedSince);
+        Assert.assertEquals(3, userReader.updatedUsers.size());
+        Assert.assertTrue(userReader.forceUpdate);
+        Assert.assertEquals(0, status.getErrors());
+        Assert.assertTrue(status.getLastCompletedPassDate().after(previousPassDate));
+        Assert.assertEquals(previousPassDate, status.getLastFullPassDate());
+    }
+
+    @Test
+    public void testUserErrorKeepsCompletedDate() throws Exception {
+        userReader.addUsers(3);
+        userReader.failingUsers.add(userReader.users.get(1));
+
+        reportService.updateCacheFromLdap();
+
+        final ReportStatusInfo status = reportService.getReportStatusInfo();
+        Assert.assertTrue(status.isIncremental());
+        Assert.assertEquals(3, userReader.updatedUsers.size());
+        Assert.assertEquals(1, status.getErrors());
+        Assert.assertEquals(previousPassDate, status.getLastCompletedPassDate());
+    }
+
+    @Test
+    public void testTruncatedSearchKeepsCompletedDate() throws Exception {
+        userReader.addUsers(MAX_SEARCH_SIZE);
+
+        reportService.updateCacheFromLdap();
+
+        final ReportStatusInfo status = reportService.getReportStatusInfo();
+        Assert.assertTrue(status.isIncremental());
+        Assert.assertEquals(MAX_SEARCH_SIZE, userReader.updatedUsers.size());
+        Assert.assertEquals(0, status.getErrors());
+        Assert.assertEquals(previousPassDate, status.getLastCompletedPassDate());
+    }
+
+    @Test
+    public void testFullPassSetsBothDates() throws Exception {
+        userReader.addUsers(2);
+        reportService.open(settings, userReader, new ReportStatusInfo(settings.getSettingsHash()));
+
+        reportService.updateCacheFromLdap();
+
+        final ReportStatusInfo status = reportService.getReportStatusInfo();
+        Assert.assertFalse(status.isIncremental());
+        Assert.assertNull(userReader.changedSince);
+        Assert.assertFalse(userReader.forceUpdate);
+        Assert.assertNotNull(status.getLastCompletedPassDate());
+        Assert.assertEquals(status.getLastCompletedPassDate(), status.getLastFullPassDate());
+    }
+
+    @Test
+    public void testWorkersProcessUsersConcurrently() throws Exception {
+        userReader.addUsers(4);
+        userReader.barrier = new CyclicBarrier(2);
+
+        reportService.updateCacheFromLdap();
+
+        final ReportStatusInfo status = reportService.getReportStatusInfo();
+        Assert.assertEquals(0, status.getErrors());
+        Assert.assertEquals(4, status.getCount());
+        Assert.assertEquals(4, status.getUpdated());
+        Assert.assertEquals(4, userReader.updatedUsers.size());
+        Assert.assertEquals(new HashSet<>(userReader.users), new HashSet<>(userReader.updatedUsers));
+        Assert.assertFalse(status.isInProgress());
+    }
+
+    @Test
+    public void testCancelStopsWorkers() throws Exception {
+        userReader.addUsers(4);
+        userReader.cancelOnUpdate = true;
+
+        reportService.updateCacheFromLdap();
+
+        final ReportStatusInfo status = reportService.getReportStatusInfo();
+        Assert.assertTrue(userReader.updatedUsers.size() < 4);
+        Assert.assertEquals(PwmError.ERROR_SERVICE_NOT_AVAILABLE, status.getLastError().getError());
+        Assert.assertEquals(previousPassDate, status.getLastCompletedPassDate());
+    }
+
+    private class TestUserReader implements ReportService.UserReader {
+        private final List<UserIdentity> users = new ArrayList<>();
+        private final Set<UserIdentity> failingUsers = new HashSet<>();
+        private final List<UserIdentity> updatedUsers = new CopyOnWriteArrayList<>();
+        private volatile Date changedSince;
+        private volatile boolean forceUpdate;
+        private volatile CyclicBarrier barrier;
+        private volatile boolean cancelOnUpdate;
+
+        private void addUsers(final int count) {
+            for (int i = 0; i < count; i++) {
+                users.add(new UserIdentity("cn=user" + users.size() + ",ou=users,o=test", "default"));
+            }
+        }
+
+        public List<UserIdentity> searchUsers(final Date changedSince, final int maxResults) {
+            this.changedSince = changedSince;
+            return new ArrayList<>(users.subList(0, Math.min(maxResults, users.size())));
+        }
+
+        public boolean updateUser(final UserIdentity userIdentity, final boolean forceUpdate)
+                throws PwmUnrecoverableException
+        {
+            this.forceUpdate = forceUpdate;
+            updatedUsers.add(userIdentity);
+            if (cancelOnUpdate) {
+                reportService.cancelUpdate();
+            }
+            if (barrier != null) {
+                // each worker holds its user until the other worker has picked one up too
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "workers did not run concurrently"));
+                }
+            }
+            if (failingUsers.contains(userIdentity)) {
+                throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN, "test ldap failure"));
+            }
+            return true;
+        }
+    }
+}
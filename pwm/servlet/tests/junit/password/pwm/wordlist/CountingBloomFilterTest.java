@@ -0,0 +1,95 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.wordlist;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.util.Helper;
+
+import java.security.MessageDigest;
+
+public class CountingBloomFilterTest {
+
+    private static final int ENTRY_COUNT = 20 * 1000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        final CountingBloomFilter filter = CountingBloomFilter.forExpectedEntries(ENTRY_COUNT, FALSE_POSITIVE_RATE, Long.MAX_VALUE);
+
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            filter.add(makeKey("word" + i));
+        }
+        Assert.assertEquals((long) ENTRY_COUNT, filter.entryCount());
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            Assert.assertTrue(filter.mightContain(makeKey("word" + i)));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            if (filter.mightContain(makeKey("missing" + i))) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue("false positives: " + falsePositives, falsePositives < ENTRY_COUNT * FALSE_POSITIVE_RATE * 2);
+
+        // removing half the words must never hide the other half
+        int removedStillPresent = 0;
+        for (int i = 0; i < ENTRY_COUNT; i += 2) {
+            filter.remove(makeKey("word" + i));
+        }
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            final boolean present = filter.mightContain(makeKey("word" + i));
+            if (i % 2 == 1) {
+                Assert.assertTrue(present);
+            } else if (present) {
+                removedStillPresent++;
+            }
+        }
+        Assert.assertTrue("removed words still present: " + removedStillPresent, removedStillPresent < ENTRY_COUNT * FALSE_POSITIVE_RATE);
+    }
+
+    @Test
+    public void testSaturatedCounters() throws Exception {
+        final CountingBloomFilter filter = new CountingBloomFilter(16, 1);
+        final String key = makeKey("saturated");
+        for (int i = 0; i < 20; i++) {
+            filter.add(key);
+        }
+        for (int i = 0; i < 20; i++) {
+            filter.remove(key);
+        }
+        Assert.assertTrue("saturated counters are never decremented", filter.mightContain(key));
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        final CountingBloomFilter filter = CountingBloomFilter.forExpectedEntries(10 * 1000 * 1000, FALSE_POSITIVE_RATE, 1024);
+        Assert.assertTrue(filter.byteCount() <= 1024);
+    }
+
+    private static String makeKey(final String word) throws Exception {
+        return Helper.binaryArrayToHex(MessageDigest.getInstance("SHA-1").digest(word.getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.wordlist;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class SeedIndexTest {
+
+    private static final int SEED_COUNT = 20000;
+
+    @Test
+    public void testFullIndex() throws Exception {
+        final File zipFile = makeSeedlist();
+        try {
+            final SeedIndex seedIndex = SeedIndex.readZipFile(zipFile, 10 * 1024 * 1024);
+            Assert.assertEquals(SEED_COUNT, seedIndex.size());
+            Assert.assertEquals(SEED_COUNT, seedIndex.getSourceCount());
+
+            final Set<String> returnedSeeds = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                final String seed = seedIndex.randomSeed();
+                Assert.assertTrue(seed, seed.startsWith("seed"));
+                returnedSeeds.add(seed);
+            }
+            Assert.assertTrue(returnedSeeds.size() > 900);
+        } finally {
+            zipFile.delete();
+        }
+    }
+
+    @Test
+    public void testSampledIndex() throws Exception {
+        final File zipFile = makeSeedlist();
+        try {
+            final long maxBytes = 20 * 1024;
+            final SeedIndex seedIndex = SeedIndex.readZipFile(zipFile, maxBytes);
+            Assert.assertEquals(SEED_COUNT, seedIndex.getSourceCount());
+            Assert.assertTrue(seedIndex.size() > 0);
+            Assert.assertTrue(seedIndex.size() < SEED_COUNT);
+            Assert.assertTrue(seedIndex.byteCount() <= maxBytes);
+
+            // seeds from the end of the list are sampled into the index too
+            boolean sawLateSeed = false;
+            for (int i = 0; i < 1000 && !sawLateSeed; i++) {
+                sawLateSeed = Integer.parseInt(seedIndex.randomSeed().substring(4)) > SEED_COUNT / 2;
+            }
+            Assert.assertTrue(sawLateSeed);
+        } finally {
+            zipFile.delete();
+        }
+    }
+
+    private static File makeSeedlist() throws Exception {
+        final File zipFile = File.createTempFile("pwm-seedlist", ".zip");
+        final ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile));
+        zipOutputStream.putNextEntry(new ZipEntry("seedlist.txt"));
+        final Writer writer = new OutputStreamWriter(zipOutputStream, "UTF-8");
+        writer.write("!#comment: test seedlist\n");
+        for (int i = 0; i < SEED_COUNT; i++) {
+            writer.write("seed" + i + "\n");
+            if (i % 100 == 0) {
+                writer.write("   \n");
+            }
+        }
+        writer.flush();
+        zipOutputStream.closeEntry();
+        zipOutputStream.close();
+        return zipFile;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.wordlist;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.AppProperty;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.Memory_LocalDB;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+public class SharedHistoryManagerTest {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+    private static final long SHORT_MAX_AGE_MS = 500;
+    private static final long SHORT_BUCKET_WIDTH_MS = 100;
+
+    private File localDBDirectory;
+    private LocalDB localDB;
+    private Configuration config;
+
+    @Before
+    public void setUp() throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(PwmSetting.APP_PROPERTY_OVERRIDES, new StringArrayValue(Arrays.asList(
+                AppProperty.LOCALDB_IMPLEMENTATION.getKey() + "=" + Memory_LocalDB.class.getName(),
+                AppProperty.SECURITY_SHAREDHISTORY_HASH_ITERATIONS.getKey() + "=1"
+        )), null);
+        config = new Configuration(storedConfiguration);
+
+        localDBDirectory = File.createTempFile("pwm-sharedhistory", "");
+        localDBDirectory.delete();
+        localDB = LocalDBFactory.getInstance(localDBDirectory, false, null, config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (localDB != null) {
+            localDB.close();
+        }
+        FileUtils.deleteDirectory(localDBDirectory);
+    }
+
+    @Test
+    public void testBucketCountRecoveredAfterRestart() throws Exception {
+        final SharedHistoryManager firstManager = open(localDB, 7 * DAY_MS, DAY_MS);
+        firstManager.addWord(null, "one");
+        firstManager.addWord(null, "two");
+        firstManager.addWord(null, "three");
+        firstManager.close();
+
+        // the stored index only lists the bucket, so the record count is found by probing for the next free key
+        final SharedHistoryManager secondManager = open(localDB, 7 * DAY_MS, DAY_MS);
+        secondManager.addWord(null, "four");
+
+        Assert.assertEquals(4, localDB.size(LocalDB.DB.SHAREDHISTORY_BUCKETS));
+        for (final String word : new String[] {"one", "two", "three", "four"}) {
+            Assert.assertTrue(word, secondManager.containsWord(word));
+        }
+        secondManager.close();
+    }
+
+    @Test
+    public void testReaddedWordSurvivesClean() throws Exception {
+        final SharedHistoryManager manager = open(localDB, SHORT_MAX_AGE_MS, SHORT_BUCKET_WIDTH_MS);
+        manager.addWord(null, "alpha");
+        manager.addWord(null, "beta");
+        Thread.sleep(SHORT_MAX_AGE_MS + 200);
+
+        manager.addWord(null, "alpha");
+        manager.clean();
+
+        Assert.assertTrue(manager.containsWord("alpha"));
+        Assert.assertFalse(manager.containsWord("beta"));
+        Assert.assertEquals(1, localDB.size(LocalDB.DB.SHAREDHISTORY_WORDS));
+        Assert.assertEquals(1, localDB.size(LocalDB.DB.SHAREDHISTORY_BUCKETS));
+        manager.close();
+    }
+
+    @Test
+    public void testWordAddedDuringCleanIsKept() throws Exception {
+        final AddDuringReadHandler handler = new AddDuringReadHandler(localDB);
+        final LocalDB hookedLocalDB = (LocalDB) Proxy.newProxyInstance(LocalDB.class.getClassLoader(),
+                new Class<?>[] {LocalDB.class}, handler);
+
+        final SharedHistoryManager manager = open(hookedLocalDB, SHORT_MAX_AGE_MS, SHORT_BUCKET_WIDTH_MS);
+        handler.manager = manager;
+        manager.addWord(null, "alpha");
+        manager.addWord(null, "beta");
+        Thread.sleep(SHORT_MAX_AGE_MS + 200);
+
+        // alpha is read first and is still expired when read, then added again before the batch is removed
+        handler.addWord = "alpha";
+        manager.clean();
+
+        Assert.assertNull("hook was not triggered", handler.addWord);
+        Assert.assertTrue(manager.containsWord("alpha"));
+        Assert.assertFalse(manager.containsWord("beta"));
+        Assert.assertEquals(1, localDB.size(LocalDB.DB.SHAREDHISTORY_WORDS));
+        manager.close();
+    }
+
+    private SharedHistoryManager open(final LocalDB localDB, final long maxAgeMs, final long bucketWidthMs) throws Exception {
+        final SharedHistoryManager manager = new SharedHistoryManager();
+        manager.open(config, localDB, "salt", maxAgeMs, bucketWidthMs);
+        Assert.assertEquals(SharedHistoryManager.STATUS.OPEN, manager.status());
+        return manager;
+    }
+
+    /**
+     * Adds a word as soon as the cleaner has read a stored word timestamp, which is the window between the
+     * cleaner reading a batch and removing it.
+     */
+    private static class AddDuringReadHandler implements InvocationHandler {
+        private final LocalDB localDB;
+        private volatile SharedHistoryManager manager;
+        private volatile String addWord;
+
+        private AddDuringReadHandler(final LocalDB localDB) {
+            this.localDB = localDB;
+        }
+
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final Object result;
+            try {
+                result = method.invoke(localDB, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            final String word = addWord;
+            if (word != null && "get".equals(method.getName()) && args[0] == LocalDB.DB.SHAREDHISTORY_WORDS) {
+                addWord = null;
+                manager.addWord(null, word);
+            }
+            return result;
+        }
+    }
+}
@@ -412,6 +412,29 @@
                                 <%= dashboard_pwmApplication.getAuditManager().syslogQueueSize() %>
                             </td>
                         </tr>
+                        <tr>
+                            <td class="key">
+                                Audit Queue Size
+                            </td>
+                            <td>
+                                <%= dashboard_pwmApplication.getAuditManager().auditQueueSize() %>
+                            </td>
+                        </tr>
+                        <tr>
+                            <td class="key">
+                                HTTP Client Connections
+                            </td>
+                            <td>
+                                <% final Map<String,Object> dashboard_httpClientStats = dashboard_pwmApplication.getHttpClientService() == null
+                                        ? Collections.<String,Object>emptyMap()
+                                        : dashboard_pwmApplication.getHttpClientService().connectionPoolStats(); %>
+                                <% if (dashboard_httpClientStats.isEmpty()) { %>
+                                <%= JspUtility.getMessage(pageContext, Display.Value_NotApplicable) %>
+                                <% } else { %>
+                                <%= dashboard_httpClientStats.get("leased") %> active, <%= dashboard_httpClientStats.get("available") %> idle, <%= dashboard_httpClientStats.get("pending") %> waiting
+                                <% } %>
+                            </td>
+                        </tr>
                         <tr>
                             <td class="key">
                                 Local Audit Records